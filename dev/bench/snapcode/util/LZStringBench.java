@@ -0,0 +1,105 @@
+package snapcode.util;
+import java.util.Random;
+
+/**
+ * A benchmark that compares LZString with the previous implementation (LZStringOld) for compress and decompress
+ * times, and checks that both give the same encoded strings and round trip. Not part of the build - run with:
+ *
+ *     javac -d /tmp/bench src/snapcode/util/LZString.java dev/bench/snapcode/util/*.java
+ *     java -cp /tmp/bench snapcode.util.LZStringBench
+ */
+public class LZStringBench {
+
+    // Constants
+    private static final int[] INPUT_SIZES = { 1024, 64 * 1024, 1024 * 1024 };
+    private static final int WARMUP_MILLIS = 1000;
+    private static final int MEASURE_MILLIS = 2000;
+
+    /**
+     * Main method.
+     */
+    public static void main(String[] args)
+    {
+        for (int inputSize : INPUT_SIZES) {
+            benchInput("Source " + inputSize, getSourceText(inputSize));
+            benchInput("Random " + inputSize, getRandomText(inputSize));
+        }
+    }
+
+    /**
+     * Checks and benchmarks given input.
+     */
+    private static void benchInput(String aName, String anInput)
+    {
+        // Check new and old encoded strings match and both round trip
+        String encoded = LZString.compressToEncodedURIComponent(anInput);
+        String oldEncoded = LZStringOld.compressToEncodedURIComponent(anInput);
+        if (!encoded.equals(oldEncoded))
+            throw new AssertionError(aName + ": Encoded strings differ");
+        if (!anInput.equals(LZString.decompressFromEncodedURIComponent(oldEncoded)))
+            throw new AssertionError(aName + ": New decompress failed");
+        if (!anInput.equals(LZStringOld.decompressFromEncodedURIComponent(encoded)))
+            throw new AssertionError(aName + ": Old decompress failed");
+
+        // Time compress and decompress
+        double compressMillis = getMillisPerOp(() -> LZString.compressToEncodedURIComponent(anInput));
+        double oldCompressMillis = getMillisPerOp(() -> LZStringOld.compressToEncodedURIComponent(anInput));
+        double decompressMillis = getMillisPerOp(() -> LZString.decompressFromEncodedURIComponent(encoded));
+        double oldDecompressMillis = getMillisPerOp(() -> LZStringOld.decompressFromEncodedURIComponent(encoded));
+
+        // Print
+        System.out.printf("%-16s compress: %9.3f ms (old %9.3f ms, %5.1fx)   decompress: %9.3f ms (old %9.3f ms, %5.1fx)%n",
+            aName, compressMillis, oldCompressMillis, oldCompressMillis / compressMillis,
+            decompressMillis, oldDecompressMillis, oldDecompressMillis / decompressMillis);
+    }
+
+    /**
+     * Returns the average millis per run of given runnable (after warmup).
+     */
+    private static double getMillisPerOp(Runnable aRunnable)
+    {
+        // Warmup
+        long warmupEnd = System.nanoTime() + WARMUP_MILLIS * 1000000L;
+        while (System.nanoTime() < warmupEnd)
+            aRunnable.run();
+
+        // Measure
+        long startTime = System.nanoTime();
+        long measureEnd = startTime + MEASURE_MILLIS * 1000000L;
+        int opCount = 0;
+        for (long time = startTime; time < measureEnd; time = System.nanoTime()) {
+            aRunnable.run();
+            opCount++;
+        }
+        return (System.nanoTime() - startTime) / 1e6 / opCount;
+    }
+
+    /**
+     * Returns Java-like source text of given length.
+     */
+    private static String getSourceText(int aLength)
+    {
+        String[] lines = {
+            "    /**\n", "     * Returns the value for given key.\n", "     */\n",
+            "    public Object getValue(String aKey)\n", "    {\n", "        return _values.get(aKey);\n", "    }\n",
+            "        for (int i = 0; i < count; i++)\n", "            sb.append(items[i]).append(',');\n", "\n"
+        };
+        Random random = new Random(1);
+        StringBuilder sb = new StringBuilder(aLength + 64);
+        while (sb.length() < aLength)
+            sb.append(lines[random.nextInt(lines.length)]);
+        return sb.substring(0, aLength);
+    }
+
+    /**
+     * Returns random text (with some non-ASCII chars) of given length.
+     */
+    private static String getRandomText(int aLength)
+    {
+        Random random = new Random(2);
+        StringBuilder sb = new StringBuilder(aLength);
+        for (int i = 0; i < aLength; i++)
+            sb.append(random.nextInt(10) == 0 ? (char) (0x100 + random.nextInt(0x500)) : (char) (' ' + random.nextInt(95)));
+        return sb.toString();
+    }
+}
@@ -161,8 +161,8 @@ public class ProjectPane extends ViewController {
         if (titleView.isExpanded())
             return;
         TextView linesOfCodeText = getView("LOCText", TextView.class);
-        String linesOfCodeTextString = ProjectAnalysisTool.getLinesOfCodeText(getProject());
-        linesOfCodeText.setText(linesOfCodeTextString);
+        linesOfCodeText.setText("Lines of Code:\n\nCounting...");
+        ProjectAnalysisTool.showLinesOfCode(getProject(), linesOfCodeText);
     }
 
     /**
@@ -54,9 +54,19 @@ public class BreakpointsTool extends WorkspaceTool {
     @Override
     protected void resetUI()
     {
-        setViewEnabled("DeleteButton", getSelBreakpoint() != null);
+        Breakpoint selBreakpoint = getSelBreakpoint();
+        setViewEnabled("DeleteButton", selBreakpoint != null);
 
         setViewItems("BreakpointList", getBreakpoints().getArray());
+
+        // Update ConditionText, HitCountText, LogMessageText
+        boolean isLineBreakpoint = selBreakpoint != null && selBreakpoint.getType() == Breakpoint.Type.LineBreakpoint;
+        setViewEnabled("ConditionText", isLineBreakpoint);
+        setViewEnabled("HitCountText", isLineBreakpoint);
+        setViewEnabled("LogMessageText", isLineBreakpoint);
+        setViewValue("ConditionText", isLineBreakpoint ? selBreakpoint.getCondition() : null);
+        setViewValue("HitCountText", isLineBreakpoint && selBreakpoint.getHitCount() > 0 ? selBreakpoint.getHitCount() : null);
+        setViewValue("LogMessageText", isLineBreakpoint ? selBreakpoint.getLogMessage() : null);
     }
 
     /**
@@ -72,6 +82,22 @@ public class BreakpointsTool extends WorkspaceTool {
         // Handle DeleteAllButton
         if (anEvent.equals("DeleteAllButton"))
             getBreakpoints().clear();
+
+        // Handle ConditionText, HitCountText, LogMessageText
+        if (anEvent.equals("ConditionText") || anEvent.equals("HitCountText") || anEvent.equals("LogMessageText")) {
+            Breakpoint selBreakpoint = getSelBreakpoint();
+            if (selBreakpoint == null)
+                return;
+            if (anEvent.equals("ConditionText"))
+                selBreakpoint.setCondition(anEvent.getStringValue());
+            else if (anEvent.equals("HitCountText"))
+                selBreakpoint.setHitCount(anEvent.getIntValue());
+            else selBreakpoint.setLogMessage(anEvent.getStringValue());
+
+            // Reset breakpoint so running apps reinstall it, and restore selection
+            getBreakpoints().resetBreakpoint(selBreakpoint);
+            _breakpointsList.setSelItem(selBreakpoint);
+        }
     }
 
     /**
@@ -217,6 +217,11 @@ public class BuildFileTool extends ProjectTool {
             setViewValue("ClassPathsLabel", error == null ? "Class path:" : "Error:");
             String classPathsText = error != null ? error : mavenDependency.getClassPathsJoined("\n");
             setViewValue("ClassPathsText", classPathsText);
+
+            // Update ResolutionText with mediation result (nearest wins, scope)
+            String resolution = mavenDependency.isLoaded() ? _proj.getMavenMediator().getReasonForDependency(mavenDependency) : null;
+            setViewVisible("ResolutionBox", resolution != null);
+            setViewValue("ResolutionText", resolution);
         }
 
         // Update JarFileDependencyBox, JarPathText
@@ -10,7 +10,11 @@ import snapcode.project.Project;
 import snapcode.project.ProjectUtils;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
 
 /**
  * This tool class shows the project source files in class hierarchy.
@@ -20,12 +24,18 @@ public class ClassesTool extends WorkspaceTool {
     // The root class node
     private ClassNode _rootClassNode;
 
+    // The project for workspace top level class names
+    private Map<String,Project> _classProjects;
+
     // The TreeView to show classes
     private TreeView<ClassNode> _treeView;
 
     // Listener for PagePane.SelFile
     private PropChangeListener _pagePaneSelFileLsnr = pc -> handleSelFileChanged();
 
+    // Constants
+    private static final String OBJECT_CLASS_NAME = "java.lang.Object";
+
     /**
      * Constructor.
      */
@@ -41,20 +51,91 @@ public class ClassesTool extends WorkspaceTool {
     {
         if (_rootClassNode != null) return _rootClassNode;
 
-        // Create RootClassNode for Object
-        _rootClassNode = new ClassNode(Object.class, null);
+        // Get project for each top level class name in project class hierarchy indexes (no class loading)
+        _classProjects = new HashMap<>();
+        for (Project project : _workspace.getProjects()) {
+            for (String className : project.getClassHierarchyIndex().getClassNames())
+                if (className.indexOf('$') < 0)
+                    _classProjects.putIfAbsent(className, project);
+        }
+
+        // Create RootClassNode for Object and return
+        return _rootClassNode = new ClassNode(this, OBJECT_CLASS_NAME, null, null);
+    }
+
+    /**
+     * Returns the project for given class name (or null if class is not a workspace class).
+     */
+    private Project getProjectForClassName(String aClassName)  { return _classProjects.get(aClassName); }
+
+    /**
+     * Returns the child nodes for given class node (called lazily by ClassNode).
+     */
+    private List<ClassNode> createChildNodes(ClassNode parentNode)
+    {
+        // Get subclass names of parent class in workspace
+        String parentClassName = parentNode.getClassName();
+        Set<String> childClassNames = new TreeSet<>();
+        for (Project project : _workspace.getProjects())
+            childClassNames.addAll(project.getClassHierarchyIndex().getSubclassNames(parentClassName));
+        childClassNames.removeIf(className -> getProjectForClassName(className) == null);
+
+        // If root node, add top level workspace classes with super class outside workspace (use super class node)
+        if (parentNode == _rootClassNode) {
+            for (String className : _classProjects.keySet()) {
+                String superClassName = getSuperClassName(className);
+                if (superClassName == null)
+                    childClassNames.add(className);
+                else if (!superClassName.equals(OBJECT_CLASS_NAME) && getProjectForClassName(superClassName) == null)
+                    childClassNames.add(superClassName);
+            }
+        }
+
+        // Create nodes and sort
+        List<ClassNode> childNodes = new ArrayList<>(childClassNames.size());
+        for (String className : childClassNames) {
+            Project project = getProjectForClassName(className);
+            WebFile javaFile = project != null ? project.getJavaFileForClassName(className) : null;
+            childNodes.add(new ClassNode(this, className, javaFile, parentNode));
+        }
+        Collections.sort(childNodes);
 
-        // Iterate over all source files and add node for each
-        WebFile[] sourceFiles = getAllSourceFiles();
-        for (WebFile sourceFile : sourceFiles) {
-            Project project = Project.getProjectForFile(sourceFile);
-            Class<?> sourceFileClass = project.getClassForFile(sourceFile);
-            if (sourceFileClass != null)
-                _rootClassNode.addChildNodeForClassAndFile(sourceFileClass, sourceFile);
+        // Return
+        return childNodes;
+    }
+
+    /**
+     * Returns the super class name for given workspace class name.
+     */
+    private String getSuperClassName(String aClassName)
+    {
+        Project project = getProjectForClassName(aClassName);
+        return project != null ? project.getClassHierarchyIndex().getSuperClassName(aClassName) : null;
+    }
+
+    /**
+     * Returns the class node for given workspace class name, expanding ancestor nodes.
+     */
+    private ClassNode getClassNodeForClassName(String aClassName)
+    {
+        // Get class names from top level node down to given class name
+        List<String> classNames = new ArrayList<>();
+        for (String className = aClassName; className != null && !className.equals(OBJECT_CLASS_NAME); ) {
+            classNames.add(0, className);
+            className = getProjectForClassName(className) != null ? getSuperClassName(className) : null;
+        }
+
+        // Walk down from root node and expand ancestors
+        ClassNode classNode = getRootClassNode();
+        for (String className : classNames) {
+            _treeView.expandItem(classNode);
+            classNode = classNode.getChildNodeForClassName(className);
+            if (classNode == null)
+                return null;
         }
 
         // Return
-        return _rootClassNode;
+        return classNode;
     }
 
     /**
@@ -68,7 +149,7 @@ public class ClassesTool extends WorkspaceTool {
         // Get RootClassNode and reset treeview
         ClassNode rootClassNode = getRootClassNode();
         _treeView.setItems(new ClassNode[] { rootClassNode });
-        _treeView.expandAll();
+        _treeView.expandItem(rootClassNode);
     }
 
     /**
@@ -78,7 +159,7 @@ public class ClassesTool extends WorkspaceTool {
     protected void initUI()
     {
         // Calculate TreeView RowHeight
-        //Label sampleLabel = createLabelForClassNode(new ClassNode(Object.class, null));
+        //Label sampleLabel = createLabelForClassNode(new ClassNode(this, OBJECT_CLASS_NAME, null, null));
         int treeViewRowHeight = 32; //(int) Math.ceil(sampleLabel.getPrefHeight() + 10);
 
         // Configure TreeView
@@ -121,33 +202,6 @@ public class ClassesTool extends WorkspaceTool {
             _workspacePane.openFile(selFile);
     }
 
-    /**
-     * Returns all source files in workspace projects.
-     */
-    public WebFile[] getAllSourceFiles()
-    {
-        List<WebFile> sourceFiles = new ArrayList<>();
-        List<Project> projects = _workspace.getProjects();
-        List<WebFile> sourceDirs = ListUtils.map(projects, Project::getSourceDir);
-        sourceDirs.forEach(dir -> findSourceFiles(dir, sourceFiles));
-        return sourceFiles.toArray(new WebFile[0]);
-    }
-
-    /**
-     * Finds source files in given directory and adds to given list (recursively).
-     */
-    private void findSourceFiles(WebFile aDir, List<WebFile> theFiles)
-    {
-        List<WebFile> dirFiles = aDir.getFiles();
-
-        for (WebFile file : dirFiles) {
-            if (file.getFileType().equals("java"))
-                theFiles.add(file);
-            else if (file.isDir())
-                findSourceFiles(file, theFiles);
-        }
-    }
-
     /**
      * Called to configure a ClassTree cell.
      */
@@ -166,8 +220,7 @@ public class ClassesTool extends WorkspaceTool {
     private Label createLabelForClassNode(ClassNode classNode)
     {
         // Create label for node class
-        Class<?> nodeClass = classNode.getNodeClass();
-        Label label = new Label(nodeClass.getSimpleName());
+        Label label = new Label(classNode.getSimpleName());
         label.setStyleString("Fill:#F5CC9B; Border:#66 1; Padding:2,4,2,8; BorderRadius:4;");
         label.setMinSize(60, 26);
 
@@ -200,8 +253,8 @@ public class ClassesTool extends WorkspaceTool {
         // Get ClassNode for PagePane.SelFile
         WebFile selFile = _workspacePane.getSelFile();
         Project project = selFile != null && ProjectUtils.isSourceFile(selFile) ? Project.getProjectForFile(selFile) : null;
-        Class<?> selFileClass = project != null ? project.getClassForFile(selFile) : null;
-        ClassNode selFileClassNode = selFileClass != null ? getRootClassNode().getChildNodeForClassDeep(selFileClass) : null;
+        String selFileClassName = project != null ? project.getClassNameForFile(selFile) : null;
+        ClassNode selFileClassNode = selFileClassName != null ? getClassNodeForClassName(selFileClassName) : null;
 
         // Set TreeView.SelItem
         _treeView.setSelItem(selFileClassNode);
@@ -235,89 +288,66 @@ public class ClassesTool extends WorkspaceTool {
      */
     private static class ClassNode implements Comparable<ClassNode> {
 
+        // The ClassesTool
+        private ClassesTool _classesTool;
+
         // The parent node
         private ClassNode _parentNode;
 
-        // The node class
-        private Class<?> _nodeClass;
+        // The node class name
+        private String _className;
 
         // The node file
         private WebFile _nodeFile;
 
-        // The child nodes
-        private List<ClassNode> _childNodes = new ArrayList<>(0);
+        // The child nodes (loaded lazily)
+        private List<ClassNode> _childNodes;
 
         /**
          * Constructor.
          */
-        public ClassNode(Class<?> nodeClass, WebFile nodeFile)
+        public ClassNode(ClassesTool classesTool, String className, WebFile nodeFile, ClassNode parentNode)
         {
-            _nodeClass = nodeClass;
+            _classesTool = classesTool;
+            _className = className;
             _nodeFile = nodeFile;
+            _parentNode = parentNode;
         }
 
         /**
-         * Returns the node class.
+         * Returns the node class name.
          */
-        public Class<?> getNodeClass()  { return _nodeClass; }
+        public String getClassName()  { return _className; }
 
         /**
-         * Returns the node file.
+         * Returns the node class simple name.
          */
-        public WebFile getNodeFile()  { return _nodeFile; }
-
-        /**
-         * Returns the child nodes.
-         */
-        public List<ClassNode> getChildNodes()  { return _childNodes; }
+        public String getSimpleName()
+        {
+            int lastSeparatorIndex = Math.max(_className.lastIndexOf('.'), _className.lastIndexOf('$'));
+            return _className.substring(lastSeparatorIndex + 1);
+        }
 
         /**
-         * Returns a child node for given class.
+         * Returns the node file.
          */
-        public ClassNode getChildNodeForClassDeep(Class<?> aClass)
-        {
-            // Search for child that is superclass, return if not found or exact match
-            ClassNode childNode = ListUtils.findMatch(_childNodes, node -> node.getNodeClass().isAssignableFrom(aClass));
-            if (childNode == null || childNode._nodeClass == aClass)
-                return childNode;
-
-            // Forward to child to look for node class
-            return childNode.getChildNodeForClassDeep(aClass);
-        }
+        public WebFile getNodeFile()  { return _nodeFile; }
 
         /**
-         * Adds a child node for given class and file.
+         * Returns the child nodes.
          */
-        public ClassNode addChildNodeForClassAndFile(Class<?> nodeClass, WebFile nodeFile)
+        public List<ClassNode> getChildNodes()
         {
-            // Get superclass node - add if missing
-            Class<?> superClass = nodeClass.getSuperclass();
-            ClassNode superClassNode = superClass == null || superClass == Object.class ? this : getChildNodeForClassDeep(superClass);
-            if (superClassNode == null)
-                superClassNode = addChildNodeForClassAndFile(superClass, null);
-
-            // Get class node from superclass node - add if missing
-            ClassNode classNode = superClassNode.getChildNodeForClassDeep(nodeClass);
-            if (classNode == null)
-                classNode = superClassNode.addChildNodeForClassAndFileImpl(nodeClass, nodeFile);
-            else if (nodeFile != null)
-                classNode._nodeFile = nodeFile;
-
-            // Return
-            return classNode;
+            if (_childNodes != null) return _childNodes;
+            return _childNodes = _classesTool.createChildNodes(this);
         }
 
         /**
-         * Adds a child node for given class and file.
+         * Returns the child node for given class name.
          */
-        private ClassNode addChildNodeForClassAndFileImpl(Class<?> nodeClass, WebFile nodeFile)
+        public ClassNode getChildNodeForClassName(String aClassName)
         {
-            ClassNode classNode = new ClassNode(nodeClass, nodeFile);
-            classNode._parentNode = this;
-            int insertIndex = -Collections.binarySearch(_childNodes, classNode) - 1;
-            if (insertIndex >= 0)
-                _childNodes.add(insertIndex, classNode);
-            return classNode;
+            return ListUtils.findMatch(getChildNodes(), node -> node._className.equals(aClassName));
         }
 
         /**
@@ -330,7 +360,7 @@ public class ClassesTool extends WorkspaceTool {
                 return classNode._nodeFile != null ? _nodeFile.compareTo(classNode._nodeFile) : -1;
             if (classNode._nodeFile != null)
                 return 1;
-            return _nodeClass.getSimpleName().compareTo(classNode._nodeClass.getSimpleName());
+            return getSimpleName().compareTo(classNode.getSimpleName());
         }
 
         /**
@@ -339,7 +369,7 @@ public class ClassesTool extends WorkspaceTool {
         @Override
         public String toString()
         {
-            return "ClassNode: " + _nodeClass.getSimpleName();
+            return "ClassNode: " + getSimpleName();
         }
     }
 }
@@ -4,28 +4,39 @@ import com.sun.net.httpserver.HttpExchange;
 import com.sun.net.httpserver.HttpHandler;
 import com.sun.net.httpserver.HttpServer;
 import snap.gfx.Color;
-import snap.gfx.Font;
-import snap.text.TextModel;
-import snap.text.TextStyle;
 import snap.util.FilePathUtils;
 import snap.util.ListUtils;
-import snap.util.StringUtils;
-import snap.view.TextView;
+import snap.view.ListCell;
+import snap.view.ListView;
 import snap.view.ViewEvent;
 import snap.viewx.DialogBox;
 import snap.web.*;
 import snapcode.app.WorkspacePane;
 import snapcode.app.WorkspaceTool;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.net.InetSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
-import java.util.Date;
-import java.util.List;
-import java.util.TimeZone;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPOutputStream;
 
 /**
  * HttpServerTool provides UI for managing an HTTP-Server for the project.
@@ -47,11 +58,31 @@ public class HttpServerTool extends WorkspaceTool {
     // Whether server is running
     private boolean  _running;
 
-    // The TextView
-    private TextView  _textView;
+    // The pending request records (added by server threads, drained by flush on event thread)
+    private ArrayBlockingQueue<RequestRecord>  _pendingRecords = new ArrayBlockingQueue<>(MAX_PENDING_RECORDS);
 
-    // The last response code
-    private int  _respCode;
+    // Whether a flush of pending records is scheduled
+    private AtomicBoolean  _flushScheduled = new AtomicBoolean();
+
+    // The number of records dropped because pending queue was full
+    private AtomicInteger  _droppedCount = new AtomicInteger();
+
+    // The displayed request records, oldest first (event thread only)
+    private ArrayDeque<RequestRecord>  _records = new ArrayDeque<>();
+
+    // The latency stats for request paths (event thread only)
+    private Map<String,PathStats>  _pathStats = new HashMap<>();
+
+    // The total number of requests logged
+    private int  _requestCount;
+
+    // The executor for server request threads
+    private ExecutorService  _executor;
+
+    // A cache of gzip bytes for file path + ETag
+    private static Map<String,byte[]>  _gzipCache = new LinkedHashMap<>(16, .75f, true) {
+        protected boolean removeEldestEntry(Map.Entry<String,byte[]> anEntry)  { return size() > MAX_GZIP_CACHE_SIZE; }
+    };
 
     // DateFormat for GMT time
     private static DateFormat _fmt;
@@ -60,6 +91,18 @@ public class HttpServerTool extends WorkspaceTool {
     static Color OK_COLOR = Color.LIGHTBLUE;
     static Color ERR_COLOR = Color.RED;
 
+    // Constants
+    private static final int MAX_SERVER_THREADS = 16;
+    private static final int MAX_GZIP_CACHE_SIZE = 64;
+    private static final long MAX_GZIP_FILE_SIZE = 4 * 1024 * 1024;
+    private static final int HTTP_PARTIAL_CONTENT = 206;
+    private static final int HTTP_NOT_MODIFIED = 304;
+    private static final int HTTP_RANGE_NOT_SATISFIABLE = 416;
+    private static final int MAX_PENDING_RECORDS = 1000;
+    private static final int MAX_LOG_RECORDS = 2000;
+    private static final int LOG_FLUSH_DELAY = 100;
+    private static final int[] LATENCY_BUCKET_LIMITS = { 1, 5, 20, 100, 500 };
+
     /**
      * Constructor.
      */
@@ -99,13 +142,11 @@ public class HttpServerTool extends WorkspaceTool {
      */
     protected void initUI()
     {
-        // Get TextView and configure
-        _textView = getView("LogText", TextView.class);
-        _textView.setWrapLines(true);
-
-        // Make font bigger
-        TextModel textModel = _textView.getTextModel();
-        textModel.setDefaultFont(Font.Arial12);
+        // Configure LogList and StatsList
+        ListView<RequestRecord> logList = getView("LogList", ListView.class);
+        logList.setCellConfigure(this::configureLogListCell);
+        ListView<PathStats> statsList = getView("StatsList", ListView.class);
+        statsList.setCellConfigure(this::configureStatsListCell);
     }
 
     /**
@@ -114,6 +155,13 @@ public class HttpServerTool extends WorkspaceTool {
     protected void resetUI()
     {
         setViewText("StartButton", isRunning() ? "Stop Server" : "Start Server");
+
+        // Update StatusLabel
+        String statusStr = (isRunning() ? "Started Server - " : "Stopped Server - ") + "Requests: " + _requestCount;
+        int droppedCount = _droppedCount.get();
+        if (droppedCount > 0)
+            statusStr += " (" + droppedCount + " not logged)";
+        setViewText("StatusLabel", statusStr);
     }
 
     /**
@@ -129,7 +177,7 @@ public class HttpServerTool extends WorkspaceTool {
 
         // Handle ClearButton
         if (anEvent.equals("ClearButton"))
-            _textView.clear();
+            clearLog();
     }
 
     /**
@@ -150,6 +198,14 @@ public class HttpServerTool extends WorkspaceTool {
     {
         HttpServer server = HttpServer.create(new InetSocketAddress(_port), 0);
         server.createContext("/", new SimpleHttpHandler());
+
+        // Serve requests concurrently
+        _executor = Executors.newFixedThreadPool(MAX_SERVER_THREADS, runnable -> {
+            Thread thread = new Thread(runnable, "HTTP Server");
+            thread.setDaemon(true);
+            return thread;
+        });
+        server.setExecutor(_executor);
         return server;
     }
 
@@ -173,8 +229,7 @@ public class HttpServerTool extends WorkspaceTool {
             return;
         }
         _running = true;
-        getUI();
-        append("Started Server\n");
+        resetLater();
     }
 
     /**
@@ -184,81 +239,130 @@ public class HttpServerTool extends WorkspaceTool {
     {
         if (!_running) return;
         getServer().stop(0);
+        _executor.shutdown();
         _server = null;
         _running = false;
+        resetLater();
     }
 
     /**
-     * Prints exchange to server.
+     * Adds a request record for exchange to pending records and schedules flush (called on server thread).
      */
-    void printExchange(HttpExchange anExch)
+    void logExchange(HttpExchange anExch, int respCode, long startNanos)
     {
-        // Append Date
-        append("[");
-        append(new Date().toString());
-        append("] ");
-
-        // Append method and path
-        Color color = _respCode == WebResponse.OK ? OK_COLOR : ERR_COLOR;
-        String meth = anExch.getRequestMethod();
-        String path = anExch.getRequestURI().getPath();
-        append("\"");
-        append(meth, color);
-        append(" ", color);
-        append(path, color);
-        append("\" ");
-
-        // If error print error
-        if (_respCode != WebResponse.OK) {
-            append("Error (");
-            append(String.valueOf(_respCode), color);
-            append("): \"");
-            append(WebResponse.getCodeString(_respCode), color);
-            append("\"");
+        // Get bytes sent from response content length (set by sendResponseHeaders)
+        long bytesSent = 0;
+        String contentLength = anExch.getResponseHeaders().getFirst("Content-length");
+        if (contentLength != null && !anExch.getRequestMethod().equals("HEAD")) {
+            try { bytesSent = Long.parseLong(contentLength); }
+            catch (NumberFormatException ignore) { }
         }
 
-        // Otherwise append User-Agent
-        else {
-            Headers hdrs = anExch.getRequestHeaders();
-            List<String> userAgents = hdrs.get("User-agent");
-            if (userAgents != null)
-                append(StringUtils.getStringQuoted(ListUtils.joinStrings(userAgents, ",")));
+        // Create record and add to pending records (drop if UI is behind)
+        List<String> userAgents = anExch.getRequestHeaders().get("User-agent");
+        String userAgent = userAgents != null ? ListUtils.joinStrings(userAgents, ",") : null;
+        long durationNanos = System.nanoTime() - startNanos;
+        RequestRecord record = new RequestRecord(anExch.getRequestMethod(), anExch.getRequestURI().getPath(), respCode,
+                bytesSent, durationNanos, userAgent);
+        if (!_pendingRecords.offer(record))
+            _droppedCount.incrementAndGet();
+
+        // Schedule flush
+        if (_flushScheduled.compareAndSet(false, true))
+            runDelayed(this::flushRecords, LOG_FLUSH_DELAY);
+    }
+
+    /**
+     * Moves pending records to displayed records and updates path stats (called on event thread).
+     */
+    private void flushRecords()
+    {
+        // Drain pending records
+        _flushScheduled.set(false);
+        List<RequestRecord> newRecords = new ArrayList<>();
+        _pendingRecords.drainTo(newRecords);
+        if (newRecords.isEmpty() && _droppedCount.get() == 0)
+            return;
+
+        // Add to records and path stats
+        for (RequestRecord record : newRecords) {
+            _records.addLast(record);
+            _pathStats.computeIfAbsent(record.path, PathStats::new).addRecord(record);
         }
+        while (_records.size() > MAX_LOG_RECORDS)
+            _records.removeFirst();
+        _requestCount += newRecords.size();
+
+        // Update LogList (newest first) and StatsList (slowest first)
+        updateLists();
+    }
 
-        //for(String hdr : hdrs.keySet()) append(hdr + " = " + ListUtils.joinStrings(hdrs.get(hdr),",") + '\n');
-        append("\n");
+    /**
+     * Updates the LogList and StatsList.
+     */
+    private void updateLists()
+    {
+        List<RequestRecord> records = new ArrayList<>(_records.size());
+        _records.descendingIterator().forEachRemaining(records::add);
+        setViewItems("LogList", records);
+
+        List<PathStats> pathStats = new ArrayList<>(_pathStats.values());
+        pathStats.sort(Comparator.comparingLong((PathStats stats) -> stats.maxNanos).reversed());
+        setViewItems("StatsList", pathStats);
+        resetLater();
     }
 
     /**
-     * Appends to the text view.
+     * Clears the log and path stats.
      */
-    void append(String aStr)
+    private void clearLog()
     {
-        append(aStr, Color.BLACK);
+        _pendingRecords.clear();
+        _records.clear();
+        _pathStats.clear();
+        _requestCount = 0;
+        _droppedCount.set(0);
+        updateLists();
     }
 
     /**
-     * Appends to the text view.
+     * Called to configure LogList cell.
      */
-    void append(String aStr, Color aColor)
+    private void configureLogListCell(ListCell<RequestRecord> aCell)
     {
-        // If not main thread, return on main thread
-        if (!getEnv().isEventThread()) {
-            runLater(() -> append(aStr, aColor));
+        RequestRecord record = aCell.getItem();
+        if (record == null)
             return;
-        }
+        aCell.setText(record.getDescriptor());
+        aCell.setTextColor(record.isOK() ? Color.BLACK : ERR_COLOR);
+        if (record.userAgent != null)
+            aCell.setToolTip(record.userAgent);
+    }
+
+    /**
+     * Called to configure StatsList cell.
+     */
+    private void configureStatsListCell(ListCell<PathStats> aCell)
+    {
+        PathStats pathStats = aCell.getItem();
+        if (pathStats == null)
+            return;
+        aCell.setText(pathStats.getDescriptor());
+        aCell.setToolTip(pathStats.getHistogramString());
+    }
 
-        // Append text
-        TextModel textModel = _textView.getTextModel();
-        int textLength = textModel.length();
-        TextStyle textStyle = textModel.getTextStyleForCharIndex(textLength).copyForStyleValue(aColor);
-        textModel.replaceCharsWithStyle(aStr, textStyle, textLength, textLength);
+    /**
+     * Returns a string for given nanos in millis.
+     */
+    private static String getMillisString(long nanos)
+    {
+        return String.format("%.1fms", nanos / 1e6);
     }
 
     /**
      * Returns a GMT date string.
      */
-    private static String getGMT(Date aDate)
+    private static synchronized String getGMT(Date aDate)
     {
         if (_fmt == null) {
             _fmt = new SimpleDateFormat("EEE, d MMM yyyy HH:mm:ss z");
@@ -280,7 +384,6 @@ public class HttpServerTool extends WorkspaceTool {
         {
             // Get method
             String meth = anExch.getRequestMethod();
-            String path = anExch.getRequestURI().getPath();
 
             // Add ResponseHeaders: Server, Keep-alive
             Headers hdrs = anExch.getResponseHeaders();
@@ -288,16 +391,34 @@ public class HttpServerTool extends WorkspaceTool {
             hdrs.add("Connection", "keep-alive");
 
             // Handle method
-            if (meth.equals("HEAD")) handleHead(anExch);
-            else if (meth.equals("GET")) handleGet(anExch);
+            long startNanos = System.nanoTime();
+            int respCode = WebResponse.OK;
+            try {
+                if (meth.equals("HEAD") || meth.equals("GET")) {
+                    Path filePath = getFilePath(anExch.getRequestURI().getPath());
+                    boolean isHead = meth.equals("HEAD");
+                    if (filePath != null && Files.isRegularFile(filePath))
+                        respCode = handleGetFile(anExch, filePath, isHead);
+                    else if (isHead)
+                        respCode = handleHead(anExch);
+                    else respCode = handleGet(anExch);
+                }
+                else {
+                    respCode = 405;
+                    anExch.sendResponseHeaders(respCode, -1);
+                }
+            }
+
+            // Always close exchange
+            finally { anExch.close(); }
 
-            printExchange(anExch);
+            logExchange(anExch, respCode, startNanos);
         }
 
         /**
          * Handle HEAD.
          */
-        public void handleHead(HttpExchange anExch) throws IOException
+        public int handleHead(HttpExchange anExch) throws IOException
         {
             // Get path and URL
             String path = anExch.getRequestURI().getPath();
@@ -305,10 +426,9 @@ public class HttpServerTool extends WorkspaceTool {
             WebResponse resp = url.getHead();
 
             // If response not OK, return error code
-            _respCode = resp.getCode();
             if (resp.getCode() != WebResponse.OK) {
                 anExch.sendResponseHeaders(resp.getCode(), -1);
-                return;
+                return resp.getCode();
             }
 
             // Get length and LastModified
@@ -327,12 +447,13 @@ public class HttpServerTool extends WorkspaceTool {
 
             // Get bytes and append
             anExch.sendResponseHeaders(HTTPResponse.OK, -1);
+            return HTTPResponse.OK;
         }
 
         /**
          * Handle GET.
          */
-        public void handleGet(HttpExchange anExch) throws IOException
+        public int handleGet(HttpExchange anExch) throws IOException
         {
             // Get path and URL
             String path = anExch.getRequestURI().getPath();
@@ -340,10 +461,9 @@ public class HttpServerTool extends WorkspaceTool {
             WebResponse resp = url.getResponse();
 
             // If response not OK, return error code
-            _respCode = resp.getCode();
             if (resp.getCode() != WebResponse.OK) {
                 anExch.sendResponseHeaders(resp.getCode(), -1);
-                return;
+                return resp.getCode();
             }
 
             // Get length and LastModified
@@ -366,6 +486,312 @@ public class HttpServerTool extends WorkspaceTool {
             OutputStream os = anExch.getResponseBody();
             os.write(bytes);
             os.close();
+            return HTTPResponse.OK;
+        }
+
+        /**
+         * Handle GET or HEAD for local file: Supports conditional requests (ETag, If-Modified-Since), single byte
+         * ranges and gzip for text files, and streams file content with FileChannel.transferTo().
+         */
+        public int handleGetFile(HttpExchange anExch, Path filePath, boolean isHead) throws IOException
+        {
+            // Get file size, last modified and ETag
+            long fileSize = Files.size(filePath);
+            long lastModTime = Files.getLastModifiedTime(filePath).toMillis();
+            String etag = '"' + Long.toHexString(fileSize) + '-' + Long.toHexString(lastModTime) + '"';
+            String mimeType = MIMEType.getMimeTypeForPath(FilePathUtils.getExtension(filePath.toString()));
+
+            // Add ResponseHeaders: last-modified, cache-control, etag, accept-ranges, content-type
+            Headers hdrs = anExch.getResponseHeaders();
+            hdrs.add("last-modified", getGMT(new Date(lastModTime)));
+            hdrs.add("cache-control", _cacheControl);
+            hdrs.add("etag", etag);
+            hdrs.add("accept-ranges", "bytes");
+            if (mimeType != null) hdrs.add("content-type", mimeType);
+
+            // If not modified, return 304
+            Headers reqHdrs = anExch.getRequestHeaders();
+            if (isNotModified(reqHdrs, etag, lastModTime)) {
+                anExch.sendResponseHeaders(HTTP_NOT_MODIFIED, -1);
+                return HTTP_NOT_MODIFIED;
+            }
+
+            // Handle Range (ignored if If-Range doesn't match current ETag)
+            String rangeStr = reqHdrs.getFirst("Range");
+            String ifRange = reqHdrs.getFirst("If-Range");
+            if (rangeStr != null && (ifRange == null || ifRange.equals(etag))) {
+                long[] range = getRangeForRangeString(rangeStr, fileSize);
+                if (range == null) {
+                    hdrs.add("content-range", "bytes */" + fileSize);
+                    anExch.sendResponseHeaders(HTTP_RANGE_NOT_SATISFIABLE, -1);
+                    return HTTP_RANGE_NOT_SATISFIABLE;
+                }
+                long rangeLength = range[1] - range[0] + 1;
+                hdrs.add("content-range", "bytes " + range[0] + '-' + range[1] + '/' + fileSize);
+                sendFileRange(anExch, filePath, range[0], rangeLength, HTTP_PARTIAL_CONTENT, isHead);
+                return HTTP_PARTIAL_CONTENT;
+            }
+
+            // Handle compressible text file when client accepts gzip: Send cached gzip bytes
+            String acceptEncoding = reqHdrs.getFirst("Accept-Encoding");
+            boolean acceptsGzip = acceptEncoding != null && acceptEncoding.contains("gzip");
+            if (acceptsGzip && isCompressibleMimeType(mimeType) && fileSize <= MAX_GZIP_FILE_SIZE) {
+                byte[] gzipBytes = getGzipBytes(filePath, etag);
+                hdrs.add("content-encoding", "gzip");
+                hdrs.add("vary", "Accept-Encoding");
+                if (isHead) {
+                    hdrs.add("content-length", String.valueOf(gzipBytes.length));
+                    anExch.sendResponseHeaders(HTTPResponse.OK, -1);
+                    return HTTPResponse.OK;
+                }
+                anExch.sendResponseHeaders(HTTPResponse.OK, gzipBytes.length);
+                try (OutputStream os = anExch.getResponseBody()) { os.write(gzipBytes); }
+                return HTTPResponse.OK;
+            }
+
+            // Send whole file
+            sendFileRange(anExch, filePath, 0, fileSize, HTTPResponse.OK, isHead);
+            return HTTPResponse.OK;
+        }
+
+        /**
+         * Sends given range of file with FileChannel.transferTo().
+         */
+        private void sendFileRange(HttpExchange anExch, Path filePath, long aStart, long aLength, int respCode, boolean isHead) throws IOException
+        {
+            // Handle HEAD: Just send headers
+            if (isHead) {
+                anExch.getResponseHeaders().add("content-length", String.valueOf(aLength));
+                anExch.sendResponseHeaders(respCode, -1);
+                return;
+            }
+
+            // Send headers (length 0 means chunked, so use -1 for empty)
+            anExch.sendResponseHeaders(respCode, aLength > 0 ? aLength : -1);
+            if (aLength == 0)
+                return;
+
+            // Transfer file channel to response body channel
+            try (FileChannel fileChannel = FileChannel.open(filePath, StandardOpenOption.READ);
+                 OutputStream os = anExch.getResponseBody()) {
+                WritableByteChannel outChannel = Channels.newChannel(os);
+                long position = aStart, end = aStart + aLength;
+                while (position < end) {
+                    long count = fileChannel.transferTo(position, end - position, outChannel);
+                    if (count <= 0)
+                        break;
+                    position += count;
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the local file path for given request path (or null if outside site path).
+     */
+    private Path getFilePath(String aPath)
+    {
+        Path sitePath = Paths.get(getSitePath()).normalize();
+        Path filePath = sitePath.resolve(aPath.replaceFirst("^/+", "")).normalize();
+        return filePath.startsWith(sitePath) ? filePath : null;
+    }
+
+    /**
+     * Returns whether request headers indicate client has current version (If-None-Match or If-Modified-Since).
+     */
+    private static boolean isNotModified(Headers reqHdrs, String etag, long lastModTime)
+    {
+        // If-None-Match takes precedence
+        String ifNoneMatch = reqHdrs.getFirst("If-None-Match");
+        if (ifNoneMatch != null)
+            return ifNoneMatch.equals("*") || List.of(ifNoneMatch.split("\\s*,\\s*")).contains(etag);
+
+        // Check If-Modified-Since (HTTP dates have second precision)
+        String ifModifiedSince = reqHdrs.getFirst("If-Modified-Since");
+        if (ifModifiedSince == null)
+            return false;
+        try {
+            long sinceTime = ZonedDateTime.parse(ifModifiedSince, DateTimeFormatter.RFC_1123_DATE_TIME).toInstant().toEpochMilli();
+            return lastModTime / 1000 <= sinceTime / 1000;
+        }
+        catch (Exception e) { return false; }
+    }
+
+    /**
+     * Returns the range (first and last byte index) for single range string (e.g. "bytes=0-499", "bytes=500-",
+     * "bytes=-500"), or null if unsatisfiable.
+     */
+    private static long[] getRangeForRangeString(String rangeStr, long fileSize)
+    {
+        if (!rangeStr.startsWith("bytes=") || rangeStr.contains(","))
+            return null;
+        String[] parts = rangeStr.substring(6).trim().split("-", -1);
+        if (parts.length != 2)
+            return null;
+
+        try {
+            long start, end;
+
+            // Handle suffix range: Last N bytes
+            if (parts[0].isEmpty()) {
+                long suffixLength = Long.parseLong(parts[1]);
+                if (suffixLength <= 0)
+                    return null;
+                start = Math.max(0, fileSize - suffixLength);
+                end = fileSize - 1;
+            }
+
+            // Handle start with optional end
+            else {
+                start = Long.parseLong(parts[0]);
+                end = parts[1].isEmpty() ? fileSize - 1 : Math.min(Long.parseLong(parts[1]), fileSize - 1);
+            }
+
+            // Return range if satisfiable
+            return start <= end && start < fileSize ? new long[] { start, end } : null;
+        }
+        catch (NumberFormatException e) { return null; }
+    }
+
+    /**
+     * Returns whether given mime type is text that benefits from compression.
+     */
+    private static boolean isCompressibleMimeType(String mimeType)
+    {
+        if (mimeType == null)
+            return false;
+        return mimeType.startsWith("text/") || mimeType.contains("javascript") || mimeType.contains("json") ||
+                mimeType.contains("xml") || mimeType.contains("svg");
+    }
+
+    /**
+     * Returns the gzip bytes for given file (cached for ETag).
+     */
+    private static byte[] getGzipBytes(Path filePath, String etag) throws IOException
+    {
+        // Get cached bytes
+        String cacheKey = filePath + etag;
+        synchronized (_gzipCache) {
+            byte[] gzipBytes = _gzipCache.get(cacheKey);
+            if (gzipBytes != null)
+                return gzipBytes;
+        }
+
+        // Compress file bytes
+        ByteArrayOutputStream bytesOut = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzipOut = new GZIPOutputStream(bytesOut)) {
+            Files.copy(filePath, gzipOut);
+        }
+        byte[] gzipBytes = bytesOut.toByteArray();
+
+        // Add to cache and return
+        synchronized (_gzipCache) { _gzipCache.put(cacheKey, gzipBytes); }
+        return gzipBytes;
+    }
+
+    /**
+     * A record of a served request.
+     */
+    private static class RequestRecord {
+
+        // The time, method, path, response code, bytes sent, duration and user agent
+        final long time = System.currentTimeMillis();
+        final String method;
+        final String path;
+        final int respCode;
+        final long bytesSent;
+        final long durationNanos;
+        final String userAgent;
+
+        /**
+         * Constructor.
+         */
+        RequestRecord(String aMethod, String aPath, int aRespCode, long theBytesSent, long theDurationNanos, String aUserAgent)
+        {
+            method = aMethod;
+            path = aPath;
+            respCode = aRespCode;
+            bytesSent = theBytesSent;
+            durationNanos = theDurationNanos;
+            userAgent = aUserAgent;
+        }
+
+        /**
+         * Returns whether response was successful.
+         */
+        boolean isOK()  { return respCode == WebResponse.OK || respCode == HTTP_NOT_MODIFIED || respCode == HTTP_PARTIAL_CONTENT; }
+
+        /**
+         * Returns the descriptor string.
+         */
+        String getDescriptor()
+        {
+            String timeStr = String.format("%tT", time);
+            String codeStr = isOK() ? String.valueOf(respCode) : respCode + " " + WebResponse.getCodeString(respCode);
+            return String.format("[%s] %s %s - %s, %d bytes, %s", timeStr, method, path, codeStr, bytesSent, getMillisString(durationNanos));
+        }
+    }
+
+    /**
+     * Latency stats and histogram for a request path.
+     */
+    private static class PathStats {
+
+        // The path
+        final String path;
+
+        // The request count, total and max duration
+        int count;
+        long totalNanos;
+        long maxNanos;
+
+        // The request counts for latency buckets (LATENCY_BUCKET_LIMITS plus overflow)
+        final int[] bucketCounts = new int[LATENCY_BUCKET_LIMITS.length + 1];
+
+        /**
+         * Constructor.
+         */
+        PathStats(String aPath)
+        {
+            path = aPath;
+        }
+
+        /**
+         * Adds a request record.
+         */
+        void addRecord(RequestRecord aRecord)
+        {
+            count++;
+            totalNanos += aRecord.durationNanos;
+            maxNanos = Math.max(maxNanos, aRecord.durationNanos);
+
+            // Add to bucket
+            long millis = aRecord.durationNanos / 1000000;
+            int bucketIndex = 0;
+            while (bucketIndex < LATENCY_BUCKET_LIMITS.length && millis >= LATENCY_BUCKET_LIMITS[bucketIndex])
+                bucketIndex++;
+            bucketCounts[bucketIndex]++;
+        }
+
+        /**
+         * Returns the descriptor string.
+         */
+        String getDescriptor()
+        {
+            return String.format("%s - %d requests, avg %s, max %s", path, count, getMillisString(totalNanos / count), getMillisString(maxNanos));
+        }
+
+        /**
+         * Returns the histogram string.
+         */
+        String getHistogramString()
+        {
+            StringBuilder sb = new StringBuilder();
+            for (int i = 0; i < bucketCounts.length; i++) {
+                String limitStr = i < LATENCY_BUCKET_LIMITS.length ? "< " + LATENCY_BUCKET_LIMITS[i] + "ms" : ">= " + LATENCY_BUCKET_LIMITS[i - 1] + "ms";
+                sb.append(limitStr).append(": ").append(bucketCounts[i]).append('\n');
+            }
+            return sb.toString().trim();
         }
     }
 
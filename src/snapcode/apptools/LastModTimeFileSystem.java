@@ -1,17 +1,24 @@
 package snapcode.apptools;
-import snap.util.ArrayUtils;
-import snap.util.ListUtils;
 import snap.util.StringUtils;
 import snap.web.WebFile;
 import java.util.*;
 
 /**
  * This class is a ProjectFileSystem that shows files separated by LastModifiedTime.
+ *
+ * Bucket child lists are kept sorted by LastModTime and updated incrementally (binary search insert/remove) when files
+ * change, with a map from web file to project file for constant time lookups. Buckets are recomputed when day changes.
  */
 public class LastModTimeFileSystem extends ProjectFileSystem {
 
-    // Map of date buckets to files
-    private Map<DateBucket, List<WebFile>> _bucketFiles = new HashMap<>();
+    // The root buckets for root dir
+    private Map<WebFile, RootBuckets> _rootBuckets = new HashMap<>();
+
+    // The bucket child project file for web file
+    private Map<WebFile, ModTimeFile> _modTimeFiles = new HashMap<>();
+
+    // The start time of the day that buckets were computed for
+    private long _bucketsDayStart;
 
     // Shared instance
     private static LastModTimeFileSystem _shared;
@@ -22,6 +29,10 @@ public class LastModTimeFileSystem extends ProjectFileSystem {
     // List of source file types
     private static final List<String> SOURCE_FILE_TYPES = List.of("java", "jepl", "jmd", "snp");
 
+    // Comparator for bucket child files: LastModTime, then path
+    private static final Comparator<ProjectFile> MOD_TIME_ORDER = Comparator.comparingLong((ProjectFile file) -> ((ModTimeFile) file)._modTime)
+            .thenComparing(file -> file.getFile().getPath());
+
     /**
      * Constructor.
      */
@@ -31,28 +42,32 @@ public class LastModTimeFileSystem extends ProjectFileSystem {
     }
 
     /**
-     * Override to search all root file bucket files for given web file.
+     * Override to clear buckets.
+     */
+    @Override
+    public synchronized void resetRootFiles()
+    {
+        super.resetRootFiles();
+        _rootBuckets.clear();
+        _modTimeFiles.clear();
+    }
+
+    /**
+     * Override to look up bucket project file for given web file.
      */
     @Override
-    public ProjectFile getProjectFileForFile(WebFile aFile)
+    public synchronized ProjectFile getProjectFileForFile(WebFile aFile)
     {
         if (aFile == null) return null;
         if (aFile.isRoot())
             return getProjectFileForRootFile(aFile);
 
-        // Get root file bucket files
+        // Make sure root file buckets are loaded
         ProjectFile rootFile = getProjectFileForRootFile(aFile.getSite().getRootDir());
-        List<ProjectFile> bucketFiles = rootFile.getFiles();
+        rootFile.getFiles();
 
-        // Search all bucket directories for project file with matching web file
-        for (ProjectFile bucketFile : bucketFiles) {
-            ProjectFile projectFile = ListUtils.findMatch(bucketFile.getFiles(), file -> file.getFile() == aFile);
-            if (projectFile != null)
-                return projectFile;
-        }
-
-        // Return not found
-        return null;
+        // Return bucket project file for web file
+        return _modTimeFiles.get(aFile);
     }
 
     /**
@@ -66,44 +81,162 @@ public class LastModTimeFileSystem extends ProjectFileSystem {
         if (!webFile.isRoot())
             throw new RuntimeException("getChildFilesForFile called for unexpected file: " + webFile);
 
-        // Reload bucket files, map buckets to bucket files and return
-        _bucketFiles.clear();
-        addWebFileToBucket(webFile);
-        return ArrayUtils.mapNonNullToList(DateBucket.values(), db -> createProjectFileForDateBucket(projectFile, db));
+        // Clear files previously loaded for root and create new root buckets
+        _modTimeFiles.values().removeIf(file -> file.getFile().getSite() == webFile.getSite());
+        RootBuckets rootBuckets = new RootBuckets(projectFile);
+        _rootBuckets.put(webFile, rootBuckets);
+        _bucketsDayStart = getDayStart(System.currentTimeMillis());
+
+        // Add all files to buckets (unsorted)
+        List<WebFile> webFiles = new ArrayList<>();
+        findBucketWebFiles(webFile, webFiles);
+        for (WebFile file : webFiles) {
+            ModTimeFile modTimeFile = createModTimeFile(rootBuckets, file);
+            modTimeFile.getParent()._childFiles.add(modTimeFile);
+        }
+
+        // Sort bucket files by LastModTime and return buckets
+        rootBuckets.childFiles.forEach(bucketFile -> bucketFile._childFiles.sort(MOD_TIME_ORDER));
+        return rootBuckets.childFiles;
     }
 
     /**
-     * Creates a project file for given date bucket.
+     * Updates buckets for given changed web file (file saved, added or removed, or dir files changed).
+     * Returns whether buckets changed.
      */
-    private ProjectFile createProjectFileForDateBucket(ProjectFile parentFile, DateBucket dateBucket)
+    public synchronized boolean updateBucketsForFile(WebFile aFile)
     {
-        // Get files for bucket (if no files, just return null)
-        List<WebFile> bucketFiles = getDateBucketList(dateBucket);
-        if (bucketFiles.isEmpty())
-            return null;
+        // If root buckets not loaded, just return
+        RootBuckets rootBuckets = _rootBuckets.get(aFile.getSite().getRootDir());
+        if (rootBuckets == null)
+            return false;
+
+        // Handle directory: Remove deleted files in dir and add new ones
+        if (aFile.isDir()) {
+            String dirPath = aFile.isRoot() ? "/" : aFile.getPath() + '/';
+            List<ModTimeFile> removedFiles = new ArrayList<>();
+            for (ModTimeFile modTimeFile : _modTimeFiles.values()) {
+                WebFile file = modTimeFile.getFile();
+                if (!file.getExists() && file.getPath().startsWith(dirPath))
+                    removedFiles.add(modTimeFile);
+            }
+            removedFiles.forEach(this::removeModTimeFile);
+
+            // Add new files
+            List<WebFile> webFiles = new ArrayList<>();
+            if (aFile.getExists() && isBucketWebFile(aFile))
+                findBucketWebFiles(aFile, webFiles);
+            webFiles.removeIf(_modTimeFiles::containsKey);
+            webFiles.forEach(file -> addModTimeFile(rootBuckets, file));
+            return !removedFiles.isEmpty() || !webFiles.isEmpty();
+        }
+
+        // If file removed, remove it
+        ModTimeFile modTimeFile = _modTimeFiles.get(aFile);
+        if (!aFile.getExists()) {
+            if (modTimeFile == null)
+                return false;
+            removeModTimeFile(modTimeFile);
+            return true;
+        }
+
+        // If file added or LastModTime changed, (re)add it
+        if (modTimeFile == null) {
+            if (!isBucketWebFile(aFile))
+                return false;
+            addModTimeFile(rootBuckets, aFile);
+            return true;
+        }
+        if (modTimeFile._modTime != aFile.getLastModTime()) {
+            removeModTimeFile(modTimeFile);
+            addModTimeFile(rootBuckets, aFile);
+            return true;
+        }
 
-        // Sort files by LastModTime
-        bucketFiles.sort(Comparator.comparingLong(WebFile::getLastModTime));
+        // Return no change
+        return false;
+    }
 
-        // Create bucket project file and create/add child files to it
-        ProjectFile projectFile = new ProjectFile(this, parentFile, null);
-        projectFile._isDir = true;
-        projectFile._text = StringUtils.fromCamelCase(dateBucket.name());
-        projectFile._childFiles = ListUtils.map(bucketFiles, file -> createProjectFile(projectFile, file));
+    /**
+     * Moves files to new date buckets if day has changed since buckets were computed. Returns whether buckets changed.
+     */
+    public synchronized boolean updateBucketsForDayChange()
+    {
+        // If same day, just return
+        long dayStart = getDayStart(System.currentTimeMillis());
+        if (dayStart == _bucketsDayStart)
+            return false;
+        _bucketsDayStart = dayStart;
+
+        // Move files whose date bucket has changed
+        List<ModTimeFile> movedFiles = new ArrayList<>();
+        for (ModTimeFile modTimeFile : _modTimeFiles.values())
+            if (getDateBucketForFile(modTimeFile.getFile(), modTimeFile._modTime) != modTimeFile._dateBucket)
+                movedFiles.add(modTimeFile);
+        for (ModTimeFile modTimeFile : movedFiles) {
+            RootBuckets rootBuckets = _rootBuckets.get(modTimeFile.getFile().getSite().getRootDir());
+            removeModTimeFile(modTimeFile);
+            addModTimeFile(rootBuckets, modTimeFile.getFile());
+        }
 
         // Return
-        return projectFile;
+        return !movedFiles.isEmpty();
+    }
+
+    /**
+     * Creates a bucket project file for given web file (bucket is created if missing).
+     */
+    private ModTimeFile createModTimeFile(RootBuckets rootBuckets, WebFile webFile)
+    {
+        long modTime = webFile.getLastModTime();
+        DateBucket dateBucket = getDateBucketForFile(webFile, modTime);
+        ProjectFile bucketFile = rootBuckets.getBucketFile(this, dateBucket);
+        ModTimeFile modTimeFile = new ModTimeFile(this, bucketFile, webFile, modTime, dateBucket);
+        _modTimeFiles.put(webFile, modTimeFile);
+        return modTimeFile;
     }
 
     /**
-     * Adds a file to a date bucket.
+     * Adds a bucket project file for given web file in sorted position.
      */
-    private void addWebFileToBucket(WebFile webFile)
+    private void addModTimeFile(RootBuckets rootBuckets, WebFile webFile)
+    {
+        ModTimeFile modTimeFile = createModTimeFile(rootBuckets, webFile);
+        List<ProjectFile> bucketChildFiles = modTimeFile.getParent()._childFiles;
+        int index = Collections.binarySearch(bucketChildFiles, modTimeFile, MOD_TIME_ORDER);
+        bucketChildFiles.add(index < 0 ? -index - 1 : index, modTimeFile);
+    }
+
+    /**
+     * Removes given bucket project file (bucket is removed if empty).
+     */
+    private void removeModTimeFile(ModTimeFile modTimeFile)
+    {
+        // Remove from bucket
+        ProjectFile bucketFile = modTimeFile.getParent();
+        List<ProjectFile> bucketChildFiles = bucketFile._childFiles;
+        int index = Collections.binarySearch(bucketChildFiles, modTimeFile, MOD_TIME_ORDER);
+        if (index >= 0)
+            bucketChildFiles.remove(index);
+        _modTimeFiles.remove(modTimeFile.getFile());
+
+        // If bucket empty, remove it
+        if (bucketChildFiles.isEmpty()) {
+            RootBuckets rootBuckets = _rootBuckets.get(modTimeFile.getFile().getSite().getRootDir());
+            if (rootBuckets != null)
+                rootBuckets.removeBucketFile(modTimeFile._dateBucket);
+        }
+    }
+
+    /**
+     * Finds the files to show in buckets for given file (recursive).
+     */
+    private void findBucketWebFiles(WebFile webFile, List<WebFile> webFiles)
     {
         // Handle directory
         if (webFile.isDir()) {
             if (!webFile.getName().equals("bin"))
-                webFile.getFiles().forEach(this::addWebFileToBucket);
+                webFile.getFiles().forEach(file -> findBucketWebFiles(file, webFiles));
             return;
         }
 
@@ -112,22 +245,57 @@ public class LastModTimeFileSystem extends ProjectFileSystem {
         if (name.startsWith("."))
             return;
 
-        // Get DateBucket for file
-        DateBucket dateBucket = getDateBucketForDate(webFile.getLastModDate());
+        // Add file
+        webFiles.add(webFile);
+    }
+
+    /**
+     * Returns whether given web file (or dir) should be shown in buckets (not hidden and not in bin dir).
+     */
+    private static boolean isBucketWebFile(WebFile webFile)
+    {
+        if (!webFile.isDir() && webFile.getName().startsWith("."))
+            return false;
+        for (WebFile dir = webFile.isDir() ? webFile : webFile.getParent(); dir != null && !dir.isRoot(); dir = dir.getParent())
+            if (dir.getName().equals("bin"))
+                return false;
+        return true;
+    }
+
+    /**
+     * Returns the DateBucket for given web file and LastModTime.
+     */
+    private static DateBucket getDateBucketForFile(WebFile webFile, long modTime)
+    {
         if (!SOURCE_FILE_TYPES.contains(webFile.getFileType()))
-            dateBucket = DateBucket.OtherFiles;
+            return DateBucket.OtherFiles;
+        return getDateBucketForDate(new Date(modTime));
+    }
 
-        // Get bucket list and add file
-        List<WebFile> bucketList = getDateBucketList(dateBucket);
-        bucketList.add(webFile);
+    /**
+     * Returns the time in milliseconds until the next day starts (when buckets need to be updated).
+     */
+    public static long getTimeToNextDay()
+    {
+        long now = System.currentTimeMillis();
+        Calendar nextDay = Calendar.getInstance();
+        nextDay.setTimeInMillis(getDayStart(now));
+        nextDay.add(Calendar.DATE, 1);
+        return nextDay.getTimeInMillis() - now;
     }
 
     /**
-     * Returns a DateBucket for given web file.
+     * Returns the start time of the day for given time.
      */
-    private List<WebFile> getDateBucketList(DateBucket dateBucket)
+    private static long getDayStart(long aTime)
     {
-        return _bucketFiles.computeIfAbsent(dateBucket, k -> new ArrayList<>());
+        Calendar cal = Calendar.getInstance();
+        cal.setTimeInMillis(aTime);
+        cal.set(Calendar.HOUR_OF_DAY, 0);
+        cal.set(Calendar.MINUTE, 0);
+        cal.set(Calendar.SECOND, 0);
+        cal.set(Calendar.MILLISECOND, 0);
+        return cal.getTimeInMillis();
     }
 
     /**
@@ -197,6 +365,79 @@ public class LastModTimeFileSystem extends ProjectFileSystem {
         return start;
     }
 
+    /**
+     * The bucket project files for a root file.
+     */
+    private static class RootBuckets {
+
+        // The root project file
+        final ProjectFile rootFile;
+
+        // The bucket project files for date bucket and in bucket order (root file child files)
+        final Map<DateBucket, ProjectFile> bucketFiles = new EnumMap<>(DateBucket.class);
+        final List<ProjectFile> childFiles = new ArrayList<>();
+
+        /**
+         * Constructor.
+         */
+        RootBuckets(ProjectFile aRootFile)
+        {
+            rootFile = aRootFile;
+        }
+
+        /**
+         * Returns the bucket project file for given date bucket, creating it if missing.
+         */
+        ProjectFile getBucketFile(ProjectFileSystem fileSystem, DateBucket dateBucket)
+        {
+            // If already created, just return
+            ProjectFile bucketFile = bucketFiles.get(dateBucket);
+            if (bucketFile != null)
+                return bucketFile;
+
+            // Create bucket project file
+            bucketFile = new ProjectFile(fileSystem, rootFile, null);
+            bucketFile._isDir = true;
+            bucketFile._text = StringUtils.fromCamelCase(dateBucket.name());
+            bucketFile._childFiles = new ArrayList<>();
+            bucketFiles.put(dateBucket, bucketFile);
+
+            // Add to child files in bucket order and return
+            childFiles.add(new ArrayList<>(bucketFiles.keySet()).indexOf(dateBucket), bucketFile);
+            return bucketFile;
+        }
+
+        /**
+         * Removes the bucket project file for given date bucket.
+         */
+        void removeBucketFile(DateBucket dateBucket)
+        {
+            ProjectFile bucketFile = bucketFiles.remove(dateBucket);
+            if (bucketFile != null)
+                childFiles.remove(bucketFile);
+        }
+    }
+
+    /**
+     * A bucket child project file that holds the LastModTime and DateBucket it was sorted with.
+     */
+    private static class ModTimeFile extends ProjectFile {
+
+        // The LastModTime and DateBucket
+        private final long _modTime;
+        private final DateBucket _dateBucket;
+
+        /**
+         * Constructor.
+         */
+        ModTimeFile(ProjectFileSystem fileSystem, ProjectFile bucketFile, WebFile webFile, long modTime, DateBucket dateBucket)
+        {
+            super(fileSystem, bucketFile, webFile);
+            _modTime = modTime;
+            _dateBucket = dateBucket;
+        }
+    }
+
     /**
      * Returns a shared instance.
      */
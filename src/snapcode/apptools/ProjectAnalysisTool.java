@@ -1,24 +1,50 @@
 package snapcode.apptools;
 import snapcode.javatext.NodeMatcher;
-import javakit.parse.JFile;
 import javakit.parse.JNode;
+import snapcode.project.FileHashIndex;
 import snapcode.project.JavaAgent;
 import snapcode.project.Project;
 import snap.view.TextArea;
+import snap.view.TextView;
 import snap.view.ViewUtils;
 import snap.web.WebFile;
+import java.nio.charset.StandardCharsets;
 import java.text.DecimalFormat;
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /**
  * This class provides analysis information about a project.
+ *
+ * File metrics (line count, complexity) are computed from file text on a parallel pool and cached per file content
+ * hash, so repeat reports only redo changed files (and only read files whose size or mod time changed). Lines of code
+ * totals are streamed to the report as files finish. Undefined symbols need the shared parser and resolver, so they are
+ * found one file at a time on the calling thread. They are cached until any source file changes and are streamed to
+ * the report per file.
  */
 public class ProjectAnalysisTool {
 
-    private JFile _symFile;
+    // The number of undefined symbols reported
     private int _undefCount;
 
+    // The cached file metrics for file URL string
+    private static Map<String,FileMetrics> _fileMetrics = new ConcurrentHashMap<>();
+
+    // The executor for computing file metrics
+    private static ExecutorService _analysisExecutor;
+
+    // Constants
+    private static final int MAX_UNDEFINED_COUNT = 50;
+    private static final int MAX_COMPLEX_FILE_COUNT = 10;
+    private static final int LINES_OF_CODE_UPDATE_DELAY = 100;
+
     /**
      * Constructor.
      */
@@ -28,109 +54,448 @@ public class ProjectAnalysisTool {
     }
 
     /**
-     * Returns the line of code text.
+     * Shows the lines of code text for given project (and child projects) in given TextView. Metrics are computed on
+     * analysis executor and partial totals are shown as files finish.
      */
-    public static String getLinesOfCodeText(Project aProject)
+    public static void showLinesOfCode(Project aProject, TextView aTextView)
     {
-        // Declare loop variables
-        StringBuilder sb = new StringBuilder("Lines of Code:\n\n");
-        DecimalFormat fmt = new DecimalFormat("#,##0");
-        int total = 0;
-
         // Get projects
         List<Project> projects = new ArrayList<>();
         projects.add(aProject);
         projects.addAll(aProject.getProjects());
 
-        // Iterate over projects and add: ProjName: xxx
-        for (Project prj : projects) {
-            int loc = getLinesOfCode(prj.getSourceDir());
-            total += loc;
-            sb.append(prj.getName()).append(": ").append(fmt.format(loc)).append('\n');
+        // Find project source files and start metrics on analysis executor
+        LinesOfCodeReport report = new LinesOfCodeReport(projects, aTextView);
+        ExecutorService analysisExecutor = getAnalysisExecutor();
+        analysisExecutor.execute(() -> {
+            List<CompletableFuture<Void>> metricsFutures = new ArrayList<>();
+            for (int i = 0; i < projects.size(); i++) {
+                int projectIndex = i;
+                List<WebFile> sourceFiles = getSourceFiles(projects.get(i).getSourceDir(), false);
+                report.addFileCount(sourceFiles.size());
+                for (WebFile sourceFile : sourceFiles) {
+                    CompletableFuture<Void> metricsFuture = CompletableFuture
+                        .supplyAsync(() -> getFileMetrics(sourceFile), analysisExecutor)
+                        .handle((metrics, e) -> { report.addFileMetrics(projectIndex, metrics, e); return null; });
+                    metricsFutures.add(metricsFuture);
+                }
+            }
+
+            // When all done, show final report
+            CompletableFuture.allOf(metricsFutures.toArray(new CompletableFuture[0])).whenComplete((v, e) -> report.finish());
+        });
+    }
+
+    /**
+     * Loads the undefined symbols in file.
+     */
+    public void findUndefines(WebFile aFile, TextArea aTextArea)
+    {
+        // Get java files and start metrics in parallel (loads and hashes text ahead of parse)
+        List<WebFile> javaFiles = getSourceFiles(aFile, true);
+        List<Future<FileMetrics>> metricsFutures = getFileMetricsLater(javaFiles);
+
+        // Get hash of all file contents (symbols in one file can be defined in any other)
+        List<FileMetrics> fileMetrics = new ArrayList<>(metricsFutures.size());
+        StringBuilder contentHashes = new StringBuilder();
+        for (Future<FileMetrics> metricsFuture : metricsFutures) {
+            FileMetrics metrics = getFileMetrics(metricsFuture);
+            fileMetrics.add(metrics);
+            if (metrics != null)
+                contentHashes.append(metrics.contentHash).append('\n');
         }
+        String sourceHash = FileHashIndex.getHashForBytes(contentHashes.toString().getBytes(StandardCharsets.US_ASCII));
+
+        // Iterate over files (in order) and report undefined symbols for each
+        for (int i = 0; i < javaFiles.size() && _undefCount < MAX_UNDEFINED_COUNT; i++) {
+            FileMetrics metrics = fileMetrics.get(i);
+            if (metrics == null)
+                continue;
+
+            // Get undefined symbols (cached unless any source changed or file has unsaved edits)
+            WebFile javaFile = javaFiles.get(i);
+            String[] undefines = metrics.undefines;
+            if (undefines == null || !sourceHash.equals(metrics.undefinesSourceHash) || javaFile.isModified()) {
+                metrics.undefines = undefines = getUndefines(javaFile);
+                metrics.undefinesSourceHash = sourceHash;
+            }
+            if (undefines.length == 0)
+                continue;
 
-        // Add total and return string (trimmed)
-        sb.append("\nTotal: ").append(fmt.format(total)).append('\n');
-        return sb.toString().trim();
+            // Add file header and symbols and show
+            StringBuilder sb = new StringBuilder("\n").append(metrics.fileName).append(":\n\n");
+            for (int j = 0; j < undefines.length && _undefCount < MAX_UNDEFINED_COUNT; j++)
+                sb.append("    ").append(++_undefCount).append(". ").append(undefines[j]).append('\n');
+            showSymText(sb.toString(), aTextArea);
+        }
+    }
+
+    /**
+     * Returns the undefined symbols in given java file.
+     */
+    private static String[] getUndefines(WebFile javaFile)
+    {
+        List<String> undefines = new ArrayList<>();
+        try {
+            JavaAgent javaAgent = JavaAgent.getAgentForJavaFile(javaFile);
+            JNode jfile = javaAgent.getJFile();
+            findUndefines(jfile, undefines);
+        }
+        catch (Exception e) { undefines.add(e.toString()); }
+        return undefines.toArray(new String[0]);
     }
 
     /**
-     * Returns lines of code in a file (recursive).
+     * Loads the undefined symbols in node.
      */
-    private static int getLinesOfCode(WebFile aFile)
+    private static void findUndefines(JNode aNode, List<String> undefines)
     {
-        int linesOfCode = 0;
+        if (undefines.size() >= MAX_UNDEFINED_COUNT) return;
 
+        // If node decl expected but not found, add it
+        if (aNode.getDecl() == null && NodeMatcher.isDeclExpected(aNode)) {
+            try { undefines.add(aNode.toString()); }
+            catch (Exception e) { undefines.add(e.toString()); }
+        }
+
+        // Recurse into node
+        else if (aNode.getChildCount() > 0) {
+            for (JNode child : aNode.getChildren())
+                findUndefines(child, undefines);
+        }
+    }
+
+    /**
+     * Adds given text to text area (on event thread).
+     */
+    private void showSymText(String aStr, TextArea aTextArea)
+    {
+        ViewUtils.runLater(() -> aTextArea.getTextModel().addChars(aStr));
+    }
+
+    /**
+     * Returns the java (and optionally snp) files in given file (recursive).
+     */
+    private static List<WebFile> getSourceFiles(WebFile aFile, boolean javaOnly)
+    {
+        List<WebFile> sourceFiles = new ArrayList<>();
+        findSourceFiles(aFile, javaOnly, sourceFiles);
+        return sourceFiles;
+    }
+
+    /**
+     * Finds the java (and optionally snp) files in given file (recursive).
+     */
+    private static void findSourceFiles(WebFile aFile, boolean javaOnly, List<WebFile> sourceFiles)
+    {
         // Handle Java or snp file
-        if (aFile.isFile() && (aFile.getFileType().equals("java") || aFile.getFileType().equals("snp"))) {
-            String text = aFile.getText();
-            for (int i = text.indexOf('\n'); i >= 0; i = text.indexOf('\n', i + 1))
-                linesOfCode++;
+        if (aFile.isFile()) {
+            String fileType = aFile.getFileType();
+            if (fileType.equals("java") || !javaOnly && fileType.equals("snp"))
+                sourceFiles.add(aFile);
         }
 
         // Handle dir: recurse
         else if (aFile.isDir()) {
             for (WebFile child : aFile.getFiles())
-                linesOfCode += getLinesOfCode(child);
+                findSourceFiles(child, javaOnly, sourceFiles);
         }
+    }
 
-        // Return
-        return linesOfCode;
+    /**
+     * Starts computing metrics for given files on analysis executor.
+     */
+    private static List<Future<FileMetrics>> getFileMetricsLater(List<WebFile> theFiles)
+    {
+        ExecutorService analysisExecutor = getAnalysisExecutor();
+        List<Future<FileMetrics>> metricsFutures = new ArrayList<>(theFiles.size());
+        for (WebFile file : theFiles)
+            metricsFutures.add(analysisExecutor.submit(() -> getFileMetrics(file)));
+        return metricsFutures;
     }
 
     /**
-     * Loads the undefined symbols in file.
+     * Returns the file metrics for given future (or null if failed).
      */
-    public void findUndefines(WebFile aFile, TextArea aTextArea)
+    private static FileMetrics getFileMetrics(Future<FileMetrics> metricsFuture)
     {
-        // Handle Java file: Find undefines
-        if (aFile.isFile() && aFile.getFileType().equals("java")) {
-            JavaAgent javaAgent = JavaAgent.getAgentForJavaFile(aFile);
-            JNode jfile = javaAgent.getJFile();
-            findUndefines(jfile, aTextArea);
+        try { return metricsFuture.get(); }
+        catch (InterruptedException e) { Thread.currentThread().interrupt(); return null; }
+        catch (Exception e) { System.err.println("ProjectAnalysisTool.getFileMetrics: " + e.getCause()); return null; }
+    }
+
+    /**
+     * Returns the file metrics for given file, from cache if file text hasn't changed.
+     */
+    private static FileMetrics getFileMetrics(WebFile aFile)
+    {
+        // If cached metrics for same file size and mod time (and no unsaved edits), just return (no read)
+        String fileKey = aFile.getUrl().getString();
+        FileMetrics metrics = _fileMetrics.get(fileKey);
+        boolean isModified = aFile.isModified();
+        long fileSize = aFile.getSize();
+        long fileModTime = aFile.getLastModTime();
+        if (metrics != null && !isModified && metrics.fileSize == fileSize && metrics.fileModTime == fileModTime)
+            return metrics;
+
+        // Get text and content hash
+        String text = aFile.getText();
+        String contentHash = FileHashIndex.getHashForBytes(text.getBytes(StandardCharsets.UTF_8));
+
+        // If cached metrics for same content, update file stamp and return
+        if (metrics != null && metrics.contentHash.equals(contentHash)) {
+            if (!isModified)
+                metrics.setFileStamp(fileSize, fileModTime);
+            return metrics;
         }
 
-        // Handle dir: Recurse
-        else if (aFile.isDir())
-            for (WebFile child : aFile.getFiles())
-                findUndefines(child, aTextArea);
+        // Create, add and return
+        metrics = new FileMetrics(aFile, text, contentHash);
+        if (!isModified)
+            metrics.setFileStamp(fileSize, fileModTime);
+        _fileMetrics.put(fileKey, metrics);
+        return metrics;
     }
 
     /**
-     * Loads the undefined symbols in file.
+     * Returns the number of lines in given text.
      */
-    private void findUndefines(JNode aNode, TextArea aTextArea)
+    private static int getLineCount(String aText)
     {
-        if (_undefCount > 49) return;
+        int lineCount = 0;
+        for (int i = 0, iMax = aText.length(); i < iMax; i++)
+            if (aText.charAt(i) == '\n')
+                lineCount++;
+        return lineCount;
+    }
 
-        if (aNode.getDecl() == null && NodeMatcher.isDeclExpected(aNode)) {
-            aNode.getDecl();
-            _undefCount++;
+    /**
+     * Returns the cyclomatic complexity of given java text: One plus the number of decision points (if, for, while,
+     * case, catch, &&, ||) outside of comments and string/char literals.
+     */
+    private static int getComplexity(String aText)
+    {
+        int complexity = 1;
 
-            // If first undefined for file, print header
-            if (aNode.getFile() != _symFile) {
-                _symFile = aNode.getFile();
-                showSymText("\n" + aNode.getFile().getSourceFile().getName() + ":\n\n", aTextArea);
+        for (int i = 0, iMax = aText.length(); i < iMax; i++) {
+            char c = aText.charAt(i);
+            char next = i + 1 < iMax ? aText.charAt(i + 1) : 0;
+
+            // Skip line comment
+            if (c == '/' && next == '/') {
+                int end = aText.indexOf('\n', i);
+                i = end >= 0 ? end : iMax;
             }
 
-            // Print header
-            try { showSymText("    " + _undefCount + ". " + aNode + '\n', aTextArea); }
-            catch (Exception e) { showSymText(e.toString(), aTextArea); }
-        }
+            // Skip block comment
+            else if (c == '/' && next == '*') {
+                int end = aText.indexOf("*/", i + 2);
+                i = end >= 0 ? end + 1 : iMax;
+            }
 
-        // Recurse into node
-        else if (aNode.getChildCount() > 0) {
-            for (JNode child : aNode.getChildren())
-                findUndefines(child, aTextArea);
+            // Skip string or char literal
+            else if (c == '"' || c == '\'') {
+                for (i++; i < iMax && aText.charAt(i) != c && aText.charAt(i) != '\n'; i++)
+                    if (aText.charAt(i) == '\\')
+                        i++;
+            }
+
+            // Handle && or ||
+            else if ((c == '&' || c == '|') && next == c) {
+                complexity++;
+                i++;
+            }
+
+            // Handle identifier: Count decision keywords
+            else if (Character.isJavaIdentifierStart(c)) {
+                int start = i;
+                while (i + 1 < iMax && Character.isJavaIdentifierPart(aText.charAt(i + 1)))
+                    i++;
+                switch (aText.substring(start, i + 1)) {
+                    case "if": case "for": case "while": case "case": case "catch": complexity++;
+                }
+            }
         }
+
+        // Return
+        return complexity;
     }
 
-    private void showSymText(String aStr, TextArea aTextArea)
+    /**
+     * Returns the executor for computing file metrics.
+     */
+    private static synchronized ExecutorService getAnalysisExecutor()
     {
-        ViewUtils.runLater(() -> aTextArea.getTextModel().addChars(aStr));
+        if (_analysisExecutor != null) return _analysisExecutor;
+        int threadCount = Runtime.getRuntime().availableProcessors();
+        return _analysisExecutor = Executors.newFixedThreadPool(threadCount, runnable -> {
+            Thread thread = new Thread(runnable, "Project Analysis");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * The metrics for a file content.
+     */
+    private static class FileMetrics {
+
+        // The file name, content hash and whether file is java
+        final String fileName;
+        final String contentHash;
+        final boolean isJava;
+
+        // The line count and complexity
+        final int lineCount;
+        final int complexity;
+
+        // The file size and mod time metrics were last checked for (-1 if not saved file content)
+        volatile long fileSize = -1, fileModTime = -1;
+
+        // The undefined symbols and the hash of all source files they were found with (set lazily, needs resolve)
+        volatile String[] undefines;
+        volatile String undefinesSourceHash;
+
+        /**
+         * Constructor.
+         */
+        FileMetrics(WebFile aFile, String aText, String aContentHash)
+        {
+            fileName = aFile.getName();
+            contentHash = aContentHash;
+            isJava = aFile.getFileType().equals("java");
+            lineCount = getLineCount(aText);
+            complexity = isJava ? getComplexity(aText) : 0;
+        }
+
+        /**
+         * Sets the file size and mod time metrics were checked for.
+         */
+        void setFileStamp(long aSize, long aModTime)
+        {
+            fileSize = aSize;
+            fileModTime = aModTime;
+        }
+    }
+
+    /**
+     * A lines of code report that is updated as file metrics finish and shown in a TextView (on event thread).
+     */
+    private static class LinesOfCodeReport {
+
+        // The projects and the TextView
+        private List<Project> _projects;
+        private TextView _textView;
+
+        // The lines of code for each project and the java file metrics
+        private int[] _projectLinesOfCode;
+        private List<FileMetrics> _javaFileMetrics = new ArrayList<>();
+
+        // The number of files and finished files
+        private int _fileCount, _doneFileCount;
+
+        // Whether all files are done, and whether a show is scheduled
+        private boolean _finished, _showScheduled;
+
+        /**
+         * Constructor.
+         */
+        LinesOfCodeReport(List<Project> theProjects, TextView aTextView)
+        {
+            _projects = theProjects;
+            _textView = aTextView;
+            _projectLinesOfCode = new int[theProjects.size()];
+        }
+
+        /**
+         * Adds to the number of files.
+         */
+        synchronized void addFileCount(int aCount)
+        {
+            _fileCount += aCount;
+        }
+
+        /**
+         * Adds file metrics for given project (metrics null if failed) and schedules show.
+         */
+        void addFileMetrics(int projectIndex, FileMetrics metrics, Throwable anError)
+        {
+            // Report error
+            if (anError != null)
+                System.err.println("ProjectAnalysisTool.addFileMetrics: " + anError);
 
-        // Sleep
-        try { Thread.sleep(80); }
-        catch (Exception e) { throw new RuntimeException(e); }
+            // Add metrics
+            synchronized (this) {
+                _doneFileCount++;
+                if (metrics != null) {
+                    _projectLinesOfCode[projectIndex] += metrics.lineCount;
+                    if (metrics.isJava)
+                        _javaFileMetrics.add(metrics);
+                }
+                if (_showScheduled)
+                    return;
+                _showScheduled = true;
+            }
+
+            // Schedule show
+            ViewUtils.runDelayed(this::showText, LINES_OF_CODE_UPDATE_DELAY);
+        }
+
+        /**
+         * Called when all files are done to show final report.
+         */
+        void finish()
+        {
+            synchronized (this) { _finished = true; }
+            ViewUtils.runLater(this::showText);
+        }
+
+        /**
+         * Shows report text in TextView (on event thread).
+         */
+        private void showText()
+        {
+            String text;
+            synchronized (this) {
+                _showScheduled = false;
+                text = getText();
+            }
+            _textView.setText(text);
+        }
+
+        /**
+         * Returns the report text.
+         */
+        private String getText()
+        {
+            // Iterate over projects and add: ProjName: xxx
+            StringBuilder sb = new StringBuilder("Lines of Code:\n\n");
+            DecimalFormat fmt = new DecimalFormat("#,##0");
+            int total = 0;
+            for (int i = 0; i < _projects.size(); i++) {
+                int loc = _projectLinesOfCode[i];
+                total += loc;
+                sb.append(_projects.get(i).getName()).append(": ").append(fmt.format(loc)).append('\n');
+            }
+
+            // Add total
+            sb.append("\nTotal: ").append(fmt.format(total)).append('\n');
+
+            // If not finished, add progress and return
+            if (!_finished)
+                return sb.append("\nCounting... (").append(_doneFileCount).append(" of ").append(_fileCount).append(" files)").toString();
+
+            // Add most complex files
+            if (!_javaFileMetrics.isEmpty()) {
+                List<FileMetrics> javaFileMetrics = new ArrayList<>(_javaFileMetrics);
+                javaFileMetrics.sort(Comparator.comparingInt((FileMetrics metrics) -> metrics.complexity).reversed());
+                sb.append("\nMost Complex Files:\n\n");
+                for (FileMetrics metrics : javaFileMetrics.subList(0, Math.min(MAX_COMPLEX_FILE_COUNT, javaFileMetrics.size())))
+                    sb.append(metrics.fileName).append(": ").append(fmt.format(metrics.complexity)).append('\n');
+            }
+
+            // Return string (trimmed)
+            return sb.toString().trim();
+        }
     }
 }
@@ -37,6 +37,9 @@ public class ProjectFilesTool extends WorkspaceTool {
     // The root project files (for TreeView)
     protected List<ProjectFile> _rootFiles;
 
+    // Whether update of LastModTime file system buckets for day change is scheduled
+    private boolean _bucketsDayChangeScheduled;
+
     // Images for files tree/list
     private static Image FILES_TREE_ICON = Image.getImageForClassResource(ProjectFilesTool.class, "FilesTree.png");
     private static Image FILES_LIST_ICON = Image.getImageForClassResource(ProjectFilesTool.class, "FilesList.png");
@@ -320,9 +323,11 @@ public class ProjectFilesTool extends WorkspaceTool {
         List<ProjectFile> rootFiles = getRootFiles();
         _filesTree.setItems(rootFiles);
 
-        // If LastModTime file system, show all
-        if (_fileSystem instanceof LastModTimeFileSystem)
+        // If LastModTime file system, show all and make sure buckets get updated at day change
+        if (_fileSystem instanceof LastModTimeFileSystem) {
             _filesTree.expandAll();
+            scheduleBucketsDayChange();
+        }
 
             // Show first project root dir
         else if (firstTreeLoad) {
@@ -337,6 +342,32 @@ public class ProjectFilesTool extends WorkspaceTool {
         resetLater();
     }
 
+    /**
+     * Schedules update of LastModTime file system buckets for next day change (if not already scheduled).
+     */
+    private void scheduleBucketsDayChange()
+    {
+        if (_bucketsDayChangeScheduled) return;
+        _bucketsDayChangeScheduled = true;
+        int delay = (int) LastModTimeFileSystem.getTimeToNextDay() + 1000;
+        ViewUtils.runDelayed(this::handleBucketsDayChange, delay);
+    }
+
+    /**
+     * Called at day change to move LastModTime file system files to new buckets.
+     */
+    private void handleBucketsDayChange()
+    {
+        _bucketsDayChangeScheduled = false;
+        if (!(_fileSystem instanceof LastModTimeFileSystem lastModTimeFileSystem))
+            return;
+
+        // If buckets changed, reset files tree (which reschedules), otherwise just reschedule
+        if (lastModTimeFileSystem.updateBucketsForDayChange())
+            resetFilesTree();
+        else scheduleBucketsDayChange();
+    }
+
     /**
      * Called to update files tree for given project file when real file has changed.
      */
@@ -379,6 +410,12 @@ public class ProjectFilesTool extends WorkspaceTool {
         // If UI not set, just return
         if (_filesTree == null) return;
 
+        // If LastModTime file system, update buckets incrementally
+        if (_fileSystem instanceof LastModTimeFileSystem lastModTimeFileSystem) {
+            handleFileChangeForLastModTimeFileSystem(aFile, lastModTimeFileSystem);
+            return;
+        }
+
         // Get project file
         ProjectFile projectFile = getProjectFile(aFile);
 
@@ -400,6 +437,27 @@ public class ProjectFilesTool extends WorkspaceTool {
         }
     }
 
+    /**
+     * Called when workspace file has changed and file system is LastModTimeFileSystem to update buckets and files tree.
+     */
+    private void handleFileChangeForLastModTimeFileSystem(WebFile aFile, LastModTimeFileSystem fileSystem)
+    {
+        // If not event thread, come back on event thread (buckets are the child file lists read by files tree)
+        if (!ViewEnv.getEnv().isEventThread()) {
+            ViewUtils.runLater(() -> handleFileChangeForLastModTimeFileSystem(aFile, fileSystem));
+            return;
+        }
+
+        // Update buckets - if changed, reset files tree
+        if (fileSystem.updateBucketsForFile(aFile))
+            resetFilesTree();
+
+        // Update project file
+        ProjectFile projectFile = getProjectFile(aFile);
+        if (projectFile != null)
+            resetFilesTreeForProjectFile(projectFile);
+    }
+
     /**
      * Called when TreeView or ListView gets mouse press or release.
      */
@@ -259,6 +259,12 @@ public class RunTool extends WorkspaceTool implements AppListener {
         addApp(runApp);
         setSelApp(runApp);
 
+        // If app runs from class files outside SnapCode, finish any background class file saves
+        if (!(runApp instanceof RunAppSrc)) {
+            for (Project project : _workspace.getProjects())
+                project.getClassFileStore().waitForFlush();
+        }
+
         // Start app
         runApp.exec();
 
@@ -492,6 +498,22 @@ public class RunTool extends WorkspaceTool implements AppListener {
         MenuButton menuButton = getView("MenuButton", MenuButton.class);
         CheckBoxMenuItem runInSnapCodeProcessMenuItem = (CheckBoxMenuItem) menuButton.getMenuItemForName("RunInSnapCodeProcessMenuItem");
         runInSnapCodeProcessMenuItem.setSelected(isRunInSnapCodeProcess());
+
+        // Update InMemoryClassesMenuItem
+        CheckBoxMenuItem inMemoryClassesMenuItem = (CheckBoxMenuItem) menuButton.getMenuItemForName("InMemoryClassesMenuItem");
+        inMemoryClassesMenuItem.setSelected(ClassFileStore.isEnabled());
+
+        // Update UseAppCDSMenuItem
+        CheckBoxMenuItem useAppCDSMenuItem = (CheckBoxMenuItem) menuButton.getMenuItemForName("UseAppCDSMenuItem");
+        useAppCDSMenuItem.setSelected(AppCDS.isEnabled());
+
+        // Update ShowMetricsMenuItem
+        RunApp selApp = getSelApp();
+        RunAppBin selAppBin = selApp instanceof RunAppBin ? (RunAppBin) selApp : null;
+        MenuItem showMetricsMenuItem = menuButton.getMenuItemForName("ShowMetricsMenuItem");
+        showMetricsMenuItem.setEnabled(selAppBin != null && selAppBin.isMetricsAvailable());
+        boolean isShowingMetrics = selAppBin != null && selAppBin.getMetrics() != null && selApp.getConsoleView() == selAppBin.getMetricsView();
+        showMetricsMenuItem.setText(isShowingMetrics ? "Show Console" : "Show JVM Metrics");
     }
 
     /**
@@ -514,6 +536,9 @@ public class RunTool extends WorkspaceTool implements AppListener {
                 selApp.setConsoleView(swapConsoleView);
             }
 
+            // Handle ShowMetricsMenuItem
+            case "ShowMetricsMenuItem" -> toggleShowMetrics();
+
             // Handle ClearButton
             case "ClearButton", "ClearConsoleMenuItem" -> clearConsole();
 
@@ -523,11 +548,34 @@ public class RunTool extends WorkspaceTool implements AppListener {
             // Handle RunInSnapCodeProcessMenuItem
             case "RunInSnapCodeProcessMenuItem" -> setRunInSnapCodeProcess(!isRunInSnapCodeProcess());
 
+            // Handle InMemoryClassesMenuItem
+            case "InMemoryClassesMenuItem" -> setInMemoryClasses(!ClassFileStore.isEnabled());
+
+            // Handle UseAppCDSMenuItem
+            case "UseAppCDSMenuItem" -> AppCDS.setEnabled(!AppCDS.isEnabled());
+
             // Do normal version
             default -> super.respondUI(anEvent);
         }
     }
 
+    /**
+     * Toggles whether selected app console shows JVM metrics.
+     */
+    private void toggleShowMetrics()
+    {
+        // Get metrics view for selected app (just return if not available)
+        RunApp selApp = getSelApp();
+        View metricsView = selApp instanceof RunAppBin ? ((RunAppBin) selApp).getMetricsView() : null;
+        if (metricsView == null)
+            return;
+
+        // Swap console view
+        boolean isShowingMetrics = selApp.getConsoleView() == metricsView;
+        View consoleView = isShowingMetrics ? selApp.getConsoleTextView() : metricsView;
+        selApp.setConsoleView(consoleView);
+    }
+
     /**
      * Title.
      */
@@ -586,4 +634,18 @@ public class RunTool extends WorkspaceTool implements AppListener {
         _runInSnapCodeProcess = aValue;
         //Prefs.getDefaultPrefs().setValue(RUN_IN_SNAPCODE_PROCESS_KEY, _runInSnapCodeProcess);
     }
+
+    /**
+     * Sets whether compiled classes are kept in memory and served to in-process runs (saved to disk in background).
+     */
+    private void setInMemoryClasses(boolean aValue)
+    {
+        ClassFileStore.setEnabled(aValue);
+
+        // Finish pending saves and clear class loaders so next run uses new setting
+        for (Project project : _workspace.getProjects()) {
+            project.getClassFileStore().waitForFlush();
+            project.clearClassLoader();
+        }
+    }
 }
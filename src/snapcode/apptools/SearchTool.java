@@ -7,6 +7,7 @@ import javakit.resolver.*;
 import snap.util.SetUtils;
 import snapcode.project.JavaAgent;
 import snapcode.project.Project;
+import snapcode.project.SearchIndex;
 import snapcode.javatext.NodeMatcher;
 import snapcode.javatext.JavaTextUtils;
 import snap.geom.HPos;
@@ -15,13 +16,19 @@ import snapcode.app.WorkspacePane;
 import snapcode.app.WorkspaceTool;
 import snapcode.app.ProjectPane;
 import snap.util.ArrayUtils;
+import snap.util.ListUtils;
+import snap.util.TaskRunner;
 import snap.view.*;
 import snap.web.WebFile;
 import snap.web.WebSite;
 import snapcode.util.FileIcons;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * This class manages project search.
@@ -34,8 +41,11 @@ public class SearchTool extends WorkspaceTool {
     // The current selected result
     private Result  _selResult;
 
-    // Constant for search file types
-    private static final List<String> SEARCH_FILE_TYPES = List.of("java", "snp", "txt", "js");
+    // The search worker executor
+    private static ExecutorService _searchExecutor;
+
+    // Constant for max search worker threads
+    private static final int MAX_SEARCH_THREADS = Math.max(2, Math.min(4, Runtime.getRuntime().availableProcessors()));
 
     /**
      * Constructor.
@@ -50,46 +60,52 @@ public class SearchTool extends WorkspaceTool {
      */
     public void searchForString(String aString)
     {
-        _search = new Search();
-        _search._string = aString;
-        for (WebSite site : _workspacePane.getProjectSites())
-            findResultsForStringAndFile(aString.toLowerCase(), site.getRootDir(), _search._results);
-        resetLater();
+        // Create search
+        Search search = startSearch(aString, Search.Kind.Text);
+        boolean isRegex = getViewBoolValue("RegexCheckBox");
+
+        // Find matches with project search indexes in background
+        List<WebSite> projectSites = _workspacePane.getProjectSites();
+        TaskRunner<List<SearchIndex.LineMatch>> searchRunner = new TaskRunner<>("Search " + aString);
+        searchRunner.setTaskFunction(() -> findLineMatchesForString(projectSites, aString, isRegex));
+        searchRunner.setOnSuccess(lineMatches -> handleSearchForStringFinished(search, lineMatches));
+        searchRunner.setOnFailure(e -> handleSearchForStringFinished(search, Collections.emptyList()));
+        searchRunner.start();
     }
 
     /**
-     * Search for given string in given file and adds results to given list.
+     * Returns the line matches for given string in given project sites (called in background).
      */
-    private void findResultsForStringAndFile(String aString, WebFile aFile, List<Result> resultsList)
+    private static List<SearchIndex.LineMatch> findLineMatchesForString(List<WebSite> projectSites, String aString, boolean isRegex)
     {
-        // If hidden file, just return
-        Project proj = Project.getProjectForFile(aFile);
-        ProjectPane projectPane = _workspacePane.getProjectPaneForProject(proj);
-        if (projectPane != null && projectPane.isHiddenFile(aFile))
-            return;
-
-        // Handle directory
-        if (aFile.isDir()) {
-            if (aFile == _workspacePane.getBuildDir())
-                return;
-            for (WebFile file : aFile.getFiles())
-                findResultsForStringAndFile(aString, file, resultsList);
-            return;
+        List<SearchIndex.LineMatch> lineMatches = new ArrayList<>();
+        for (WebSite site : projectSites) {
+            Project proj = Project.getProjectForSite(site);
+            if (proj != null)
+                lineMatches.addAll(proj.getSearchIndex().findMatches(aString, isRegex));
         }
+        return lineMatches;
+    }
 
-        // If not search file type, just return
-        if (!SEARCH_FILE_TYPES.contains(aFile.getFileType()))
+    /**
+     * Called when search for string finishes to add results for line matches of non-hidden files.
+     */
+    private void handleSearchForStringFinished(Search aSearch, List<SearchIndex.LineMatch> lineMatches)
+    {
+        // If search was replaced, just return
+        if (aSearch != _search)
             return;
 
-        // Handle search file types
-        String text = aFile.getText().toLowerCase();
-        Result result = null;
-        int len = aString.length();
-        for (int start = text.indexOf(aString); start >= 0; start = text.indexOf(aString, start + len)) {
-            if (result == null)
-                resultsList.add(result = new Result(aFile));
-            else result._count++;
+        // Add results for line matches in non-hidden files
+        for (SearchIndex.LineMatch lineMatch : lineMatches) {
+            Project proj = Project.getProjectForFile(lineMatch.file);
+            ProjectPane projectPane = _workspacePane.getProjectPaneForProject(proj);
+            if (projectPane == null || !projectPane.isHiddenFile(lineMatch.file))
+                aSearch._results.add(new Result(lineMatch));
         }
+
+        // Update UI
+        resetLater();
     }
 
     /**
@@ -115,60 +131,68 @@ public class SearchTool extends WorkspaceTool {
         if (decl instanceof JavaParameterizedType)
             decl = decl.getEvalClass();
 
-        // Configure search
-        _search = new Search();
-        _search._string = decl.getFullNameWithParameterTypes();
-        _search._kind = Search.Kind.Reference;
+        // Start search
+        Search search = startSearch(decl.getFullNameWithParameterTypes(), Search.Kind.Reference);
+
+        // Get whether files can be filtered by referenced name: Not if decl is inlined static final primitive
+        boolean isDeclStaticFinalPrimitive = decl instanceof JavaField field && field.isStatic() && field.isFinal() &&
+                (field.getEvalType().isPrimitive() || field.getEvalType().getName().equals("java.lang.String"));
+        String referenceName = isDeclStaticFinalPrimitive ? null : getReferenceNameForDecl(decl);
 
-        // Iterate over all project sites
-        for (WebSite site : _workspacePane.getProjectSites())
-            findReferencesForDeclAndFile(decl, site.getRootDir(), _search._results);
+        // Get non-hidden java files
+        List<WebFile> javaFiles = findJavaFilesForSites(search, _workspacePane.getProjectSites());
 
-        // Update UI
-        resetLater();
+        // Iterate over files: Filter by referenced name on workers (reads class files) and search on event thread
+        JavaDecl searchDecl = decl;
+        for (WebFile javaFile : javaFiles) {
+            if (referenceName == null) {
+                runSearchTaskLater(search, () -> findReferencesForDeclAndFile(search, searchDecl, javaFile, isDeclStaticFinalPrimitive));
+                continue;
+            }
+            runSearchTask(search, () -> {
+                if (isFileReferencingDecl(javaFile, searchDecl, referenceName))
+                    runSearchTaskLater(search, () -> findReferencesForDeclAndFile(search, searchDecl, javaFile, isDeclStaticFinalPrimitive));
+            });
+        }
     }
 
     /**
-     * Search for given node references in given file and add to results list.
+     * Returns whether given java file might reference given decl (called on worker thread to filter candidates).
      */
-    private void findReferencesForDeclAndFile(JavaDecl aDecl, WebFile aFile, List<Result> resultsList)
+    private static boolean isFileReferencingDecl(WebFile javaFile, JavaDecl aDecl, String referenceName)
     {
-        // If hidden file, just return
-        Project proj = Project.getProjectForFile(aFile);
-        ProjectPane projectPane = _workspacePane.getProjectPaneForProject(proj);
-        if (projectPane != null && projectPane.isHiddenFile(aFile))
-            return;
-
-        // Handle directory
-        if (aFile.isDir()) {
-            if (aFile == _workspacePane.getBuildDir())
-                return;
-            List<WebFile> dirFiles = aFile.getFiles();
-            for (WebFile file : dirFiles)
-                findReferencesForDeclAndFile(aDecl, file, resultsList);
-            return;
+        // If reference index has name (or doesn't know), return true
+        Project proj = Project.getProjectForFile(javaFile);
+        if (proj.getReferenceIndex().isFileReferencingName(javaFile, referenceName))
+            return true;
+
+        // If class, check source text too (class used only as local variable type isn't in class file constant pool)
+        if (aDecl instanceof JavaClass) {
+            String text = javaFile.getText();
+            return text != null && text.contains(aDecl.getSimpleName());
         }
 
-        // If not Java file, just return
-        if (!aFile.getFileType().equals("java"))
-            return;
+        // Return not referencing
+        return false;
+    }
 
+    /**
+     * Search for given node references in given file and add to search results (called on event thread).
+     */
+    private void findReferencesForDeclAndFile(Search aSearch, JavaDecl aDecl, WebFile aFile, boolean isDeclStaticFinalPrimitive)
+    {
         // Get file external references
         JavaAgent javaAgent = JavaAgent.getAgentForJavaFile(aFile);
         Set<JavaDecl> externalRefs = javaAgent.getExternalReferences();
 
-        // Get whether file should be searched: If contains matching external ref or if decl is primitive static final
-        boolean isDeclStaticFinalPrimitive = aDecl instanceof JavaField field && field.isStatic() && field.isFinal() &&
-                (field.getEvalType().isPrimitive() || field.getEvalType().getName().equals("java.lang.String"));
-
-        // If file needs search
+        // If file doesn't contain matching external ref (and decl isn't primitive static final), just return
         if (!isDeclStaticFinalPrimitive && !SetUtils.hasMatch(externalRefs, aDecl::matches))
             return;
 
         // Search file for references
         JFile jfile = javaAgent.getJFile();
         List<JExprId> referenceNodes = NodeMatcher.getReferenceNodesForDecl(jfile, aDecl);
-        referenceNodes.forEach(node -> resultsList.add(new Result(node)));
+        addResults(aSearch, ListUtils.map(referenceNodes, Result::new));
     }
 
     /**
@@ -190,25 +214,118 @@ public class SearchTool extends WorkspaceTool {
             decl = method;
         }
 
-        // Configure search
-        _search = new Search();
-        _search._string = decl.getFullNameWithParameterTypes();
-        _search._kind = Search.Kind.Declaration;
+        // Start search
+        Search search = startSearch(decl.getFullNameWithParameterTypes(), Search.Kind.Declaration);
 
-        // Iterate over all project sites
-        for (WebSite site : _workspacePane.getProjectSites())
-            findDeclarationsForDeclAndFile(decl, site.getRootDir(), _search._results);
+        // Get non-hidden java files and search each on event thread (resolves classes)
+        JavaDecl searchDecl = decl;
+        List<WebFile> javaFiles = findJavaFilesForSites(search, _workspacePane.getProjectSites());
+        for (WebFile javaFile : javaFiles)
+            runSearchTaskLater(search, () -> findDeclarationsForDeclAndFile(search, searchDecl, javaFile));
+    }
 
-        // Update UI
+    /**
+     * Search for given element declaration in given file and add to search results (called on event thread).
+     */
+    private void findDeclarationsForDeclAndFile(Search aSearch, JavaDecl aDecl, WebFile aFile)
+    {
+        // If file class doesn't contain matching decl, just return
+        Project proj = Project.getProjectForFile(aFile);
+        JavaClass javaClass = proj.getJavaClassForFile(aFile);
+        if (javaClass == null || !javaClassContainsMatchingDecl(javaClass, aDecl))
+            return;
+
+        // Search file for declarations
+        JavaAgent javaAgent = JavaAgent.getAgentForJavaFile(aFile);
+        JFile jfile = javaAgent.getJFile();
+        List<JExprId> declarationNodes = NodeMatcher.getDeclarationNodesForDecl(jfile, aDecl);
+        addResults(aSearch, ListUtils.map(declarationNodes, Result::new));
+    }
+
+    /**
+     * Starts a new search (cancelling current search).
+     */
+    private Search startSearch(String aString, Search.Kind aKind)
+    {
+        // Cancel current search
+        if (_search != null)
+            _search._cancelled = true;
+
+        // Create new search and update UI
+        _search = new Search();
+        _search._string = aString;
+        _search._kind = aKind;
         resetLater();
+        return _search;
     }
 
     /**
-     * Search for given element reference.
+     * Runs given task for given search on search worker (task is skipped if search is cancelled). Worker tasks only
+     * do file I/O and index lookups - parsing and resolving happens on event thread (see runSearchTaskLater).
+     */
+    private void runSearchTask(Search aSearch, Runnable aRunnable)
+    {
+        aSearch._pendingTaskCount.incrementAndGet();
+        getSearchExecutor().execute(() -> runSearchTaskImpl(aSearch, aRunnable));
+    }
+
+    /**
+     * Runs given task for given search on event thread, one task per event (task is skipped if search is cancelled).
+     */
+    private void runSearchTaskLater(Search aSearch, Runnable aRunnable)
+    {
+        aSearch._pendingTaskCount.incrementAndGet();
+        ViewUtils.runLater(() -> runSearchTaskImpl(aSearch, aRunnable));
+    }
+
+    /**
+     * Runs given search task and updates UI when search has no more pending tasks.
+     */
+    private void runSearchTaskImpl(Search aSearch, Runnable aRunnable)
+    {
+        try {
+            if (!aSearch._cancelled)
+                aRunnable.run();
+        }
+        catch (Exception e) { System.err.println("SearchTool.runSearchTask: " + e); }
+        finally {
+            if (aSearch._pendingTaskCount.decrementAndGet() == 0)
+                ViewUtils.runLater(this::resetLater);
+        }
+    }
+
+    /**
+     * Adds given results to given search (if search is still current).
+     */
+    private void addResults(Search aSearch, List<Result> theResults)
+    {
+        if (theResults.isEmpty())
+            return;
+        if (aSearch == _search && !aSearch._cancelled) {
+            aSearch._results.addAll(theResults);
+            resetLater();
+        }
+    }
+
+    /**
+     * Returns the non-hidden Java files of given project sites (stops early if search is cancelled).
      */
-    private void findDeclarationsForDeclAndFile(JavaDecl aDecl, WebFile aFile, List<Result> resultsList)
+    private List<WebFile> findJavaFilesForSites(Search aSearch, List<WebSite> projectSites)
     {
-        // If hidden file, just return
+        List<WebFile> javaFiles = new ArrayList<>();
+        for (WebSite site : projectSites)
+            findJavaFiles(aSearch, site.getRootDir(), javaFiles);
+        return javaFiles;
+    }
+
+    /**
+     * Finds non-hidden Java files in given file and adds to given list.
+     */
+    private void findJavaFiles(Search aSearch, WebFile aFile, List<WebFile> javaFiles)
+    {
+        // If search cancelled or hidden file, just return
+        if (aSearch._cancelled)
+            return;
         Project proj = Project.getProjectForFile(aFile);
         ProjectPane projectPane = _workspacePane.getProjectPaneForProject(proj);
         if (projectPane != null && projectPane.isHiddenFile(aFile))
@@ -218,25 +335,13 @@ public class SearchTool extends WorkspaceTool {
         if (aFile.isDir()) {
             if (aFile == _workspacePane.getBuildDir())
                 return;
-
-            List<WebFile> dirFiles = aFile.getFiles();
-            for (WebFile file : dirFiles)
-                findDeclarationsForDeclAndFile(aDecl, file, resultsList);
-            return;
+            for (WebFile file : aFile.getFiles())
+                findJavaFiles(aSearch, file, javaFiles);
         }
 
-        // If not Java file, just return
-        if (!aFile.getFileType().equals("java"))
-            return;
-
-        // Handle JavaFile: If file class contains matching decl, return node(s)
-        JavaClass javaClass = proj.getJavaClassForFile(aFile);
-        if (javaClassContainsMatchingDecl(javaClass, aDecl)) {
-            JavaAgent javaAgent = JavaAgent.getAgentForJavaFile(aFile);
-            JFile jfile = javaAgent.getJFile();
-            List<JExprId> declarationNodes = NodeMatcher.getDeclarationNodesForDecl(jfile, aDecl);
-            declarationNodes.forEach(node -> resultsList.add(new Result(node)));
-        }
+        // Handle Java file
+        else if (aFile.getFileType().equals("java"))
+            javaFiles.add(aFile);
     }
 
     /**
@@ -268,6 +373,8 @@ public class SearchTool extends WorkspaceTool {
     public void clearSearch()
     {
         setViewValue("SearchText", null);
+        if (_search != null)
+            _search._cancelled = true;
         _search = null;
         resetLater();
     }
@@ -305,8 +412,10 @@ public class SearchTool extends WorkspaceTool {
             int hits = 0;
             for (Result results : _search._results)
                 hits += results._count;
-            String typ = _search._kind == Search.Kind.Declaration ? "declarations" : "references";
+            String typ = _search._kind == Search.Kind.Declaration ? "declarations" : _search._kind == Search.Kind.Reference ? "references" : "matches";
             resultsStr = String.format("'%s' - %d %s", _search._string, hits, typ);
+            if (_search._pendingTaskCount.get() > 0)
+                resultsStr += " (searching...)";
         }
         setViewValue("SearchResultsText", resultsStr);
 
@@ -328,6 +437,13 @@ public class SearchTool extends WorkspaceTool {
             else _search = null;
         }
 
+        // Handle RegexCheckBox: Redo search
+        if (anEvent.equals("RegexCheckBox")) {
+            String string = getViewStringValue("SearchText");
+            if (string != null && !string.isEmpty())
+                searchForString(string);
+        }
+
         // Handle ResultsList
         if (anEvent.equals("ResultsList")) {
 
@@ -349,6 +465,20 @@ public class SearchTool extends WorkspaceTool {
     @Override
     public String getTitle()  { return "Search"; }
 
+    /**
+     * Returns the name that class files must reference for given decl (class name or member name), or null if unknown.
+     */
+    private static String getReferenceNameForDecl(JavaDecl aDecl)
+    {
+        if (aDecl instanceof JavaClass javaClass)
+            return javaClass.getClassName();
+        if (aDecl instanceof JavaConstructor constructor)
+            return constructor.getDeclaringClass().getClassName();
+        if (aDecl instanceof JavaMethod || aDecl instanceof JavaField)
+            return aDecl.getName();
+        return null;
+    }
+
     /**
      * Returns whether given JavaDecl contains matching decl.
      */
@@ -391,6 +521,12 @@ public class SearchTool extends WorkspaceTool {
         // The results
         List<Result> _results = new ArrayList<>();
 
+        // Whether search was cancelled (by new search)
+        volatile boolean _cancelled;
+
+        // The number of search tasks not yet finished
+        AtomicInteger _pendingTaskCount = new AtomicInteger();
+
         // Constants for kind
         public enum Kind {Text, Reference, Declaration}
     }
@@ -409,6 +545,9 @@ public class SearchTool extends WorkspaceTool {
         // The decl
         JavaDecl _decl;
 
+        // The line match (for text search)
+        SearchIndex.LineMatch _lineMatch;
+
         // The match count
         int _count = 1;
 
@@ -420,6 +559,15 @@ public class SearchTool extends WorkspaceTool {
             _file = aFile;
         }
 
+        /**
+         * Creates a new result for text search line match.
+         */
+        public Result(SearchIndex.LineMatch lineMatch)
+        {
+            _file = lineMatch.file;
+            _lineMatch = lineMatch;
+        }
+
         /**
          * Creates a new result.
          */
@@ -444,6 +592,8 @@ public class SearchTool extends WorkspaceTool {
         {
             if (_decl != null)
                 return _decl.getFullNameWithSimpleParameterTypes();
+            if (_lineMatch != null)
+                return _file.getName() + ":" + (_lineMatch.lineIndex + 1) + " - " + _lineMatch.lineText.trim();
             String s = _file.getName() + " - " + _file.getParent().getPath();
             s += " (" + _count + " match" + (_count == 1 ? "" : "es") + ")";
             return s;
@@ -465,7 +615,9 @@ public class SearchTool extends WorkspaceTool {
         public String getURLString()
         {
             String urlString = _file.getUrlAddress();
-            if (_search._kind == Search.Kind.Text)
+            if (_lineMatch != null)
+                urlString += String.format("#Sel=%d-%d", _lineMatch.startCharIndex, _lineMatch.endCharIndex);
+            else if (_search._kind == Search.Kind.Text)
                 urlString += "#Find=" + _search._string;
             else if (_node != null)
                 urlString += String.format("#Sel=%d-%d", _node.getStartCharIndex(), _node.getEndCharIndex());
@@ -473,6 +625,19 @@ public class SearchTool extends WorkspaceTool {
         }
     }
 
+    /**
+     * Returns the search worker executor.
+     */
+    private static synchronized ExecutorService getSearchExecutor()
+    {
+        if (_searchExecutor != null) return _searchExecutor;
+        return _searchExecutor = Executors.newFixedThreadPool(MAX_SEARCH_THREADS, runnable -> {
+            Thread thread = new Thread(runnable, "Search");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
     /**
      * Called to configure cell.
      */
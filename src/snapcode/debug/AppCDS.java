@@ -0,0 +1,391 @@
+package snapcode.debug;
+import snap.util.FileUtils;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * This class manages AppCDS (Application Class Data Sharing) archives to speed up JVM startup for RunAppBin.
+ *
+ * CDS only archives classes from jars and won't dump with a non-empty directory in the class path, but the build
+ * dir is always in the runtime class path (first). So archives are static archives of just the class path jars,
+ * which map as long as the runtime class path starts with the same jars. Jars are moved ahead of directories, unless
+ * a class or resource name is in both (then reordering would change which one loads, so CDS is skipped).
+ *
+ * The first run for given jars adds -XX:DumpLoadedClassList, and at exit a -Xshare:dump process archives the listed
+ * classes for the jars. Subsequent runs add -XX:SharedArchiveFile to map the archive. Archives are keyed on the java
+ * home, java version and jars (including sizes and mod times), so any jar change creates a new archive, but build
+ * dir changes don't. Archives are dumped to a temp file and moved into place, and an archive that logs CDS warnings
+ * when mapped is deleted so the next run rebuilds it. Cold startup times are saved next to archives.
+ */
+public class AppCDS {
+
+    // The archive file for current run
+    private File _archiveFile;
+
+    // The file that cold run dumps loaded class list to (archive is dumped from it at exit)
+    private File _classListFile;
+
+    // The java command and jar class path (for archive dump)
+    private String _javaCmd, _jarClassPath;
+
+    // The file that CDS warnings are logged to (an archive that fails to map is deleted so next run rebuilds it)
+    private File _logFile;
+
+    // The archive key
+    private String _archiveKey;
+
+    // Whether archive existed when run started (warm run)
+    private boolean _isWarm;
+
+    // The reason CDS was skipped for current run (if it was)
+    private String _skipReason;
+
+    // Whether AppCDS is enabled
+    private static boolean _enabled = true;
+
+    // The entry names for jar file keys (path, size and mod time)
+    private static Map<String,Set<String>> _jarEntryNames = new ConcurrentHashMap<>();
+
+    // Constants
+    private static final String CDS_DIR_NAME = "AppCDS";
+
+    /**
+     * Constructor.
+     */
+    public AppCDS()
+    {
+        super();
+    }
+
+    /**
+     * Returns whether archive existed when run started.
+     */
+    public boolean isWarm()  { return _isWarm; }
+
+    /**
+     * Returns the reason CDS was skipped for current run (or null if not skipped or disabled).
+     */
+    public String getSkipReason()  { return _skipReason; }
+
+    /**
+     * Returns the given run args with CDS archive args added (or the original args if CDS not possible).
+     */
+    public String[] getArgsWithArchiveArgs(String[] theArgs)
+    {
+        // If disabled, just return
+        List<String> args = new ArrayList<>(List.of(theArgs));
+        if (!_enabled)
+            return theArgs;
+
+        // If args use module path (not supported for app class path archive), just return
+        if (args.contains("--module-path")) {
+            _skipReason = "module path not supported";
+            return theArgs;
+        }
+
+        // Get class path arg (just return if not found)
+        int classPathIndex = args.indexOf("-cp") + 1;
+        if (classPathIndex <= 0 || classPathIndex >= args.size())
+            return theArgs;
+
+        // If a directory precedes a jar, move jars first (archived jars must be class path prefix) - unless name in both
+        String classPath = args.get(classPathIndex);
+        String[] classPaths = classPath.split(File.pathSeparator);
+        if (isDirBeforeJar(classPaths)) {
+            String[] jarsFirstClassPaths = getJarsFirstClassPaths(classPaths);
+            if (jarsFirstClassPaths == null) {
+                _skipReason = "class path directory and jar have same class or resource";
+                return theArgs;
+            }
+            classPaths = jarsFirstClassPaths;
+            args.set(classPathIndex, String.join(File.pathSeparator, classPaths));
+        }
+
+        // Get jar class paths (just return if none)
+        String[] jarPaths = Arrays.stream(classPaths).filter(path -> !new File(path).isDirectory()).toArray(String[]::new);
+        if (jarPaths.length == 0) {
+            _skipReason = "no jars in class path";
+            return theArgs;
+        }
+
+        // Get archive file
+        _archiveKey = getArchiveKey(jarPaths);
+        _archiveFile = getArchiveFileForKey(_archiveKey, ".jsa");
+        if (_archiveFile == null)
+            return theArgs;
+        _isWarm = _archiveFile.exists();
+
+        // Handle warm run: Add archive arg and log args (keep CDS messages out of console, but log warnings to file
+        // to detect bad archive)
+        String uniqueExt = "." + ProcessHandle.current().pid() + "-" + System.nanoTime();
+        if (_isWarm) {
+            _logFile = getArchiveFileForKey(_archiveKey, uniqueExt + ".log");
+            args.add(1, "-XX:SharedArchiveFile=" + _archiveFile.getAbsolutePath());
+            args.add(2, "-Xlog:cds*=off");
+            args.add(3, "-Xlog:cds*=warning:file=" + _logFile.getAbsolutePath());
+        }
+
+        // Handle cold run: Add arg to dump loaded class list (archive is dumped from it at exit)
+        else {
+            _classListFile = getArchiveFileForKey(_archiveKey, uniqueExt + ".classlist");
+            _javaCmd = args.get(0);
+            _jarClassPath = String.join(File.pathSeparator, jarPaths);
+            args.add(1, "-XX:DumpLoadedClassList=" + _classListFile.getAbsolutePath());
+        }
+
+        // Return
+        return args.toArray(new String[0]);
+    }
+
+    /**
+     * Called when process produces first output to record startup time. Returns report string for warm runs.
+     */
+    public String handleFirstOutput(long startupTime)
+    {
+        // If no archive, just return
+        if (_archiveKey == null)
+            return null;
+
+        // If cold run, record time and return
+        File coldTimeFile = getArchiveFileForKey(_archiveKey, ".cold");
+        if (!_isWarm) {
+            try { Files.writeString(coldTimeFile.toPath(), Long.toString(startupTime)); }
+            catch (Exception e) { System.err.println("AppCDS.handleFirstOutput: " + e); }
+            return null;
+        }
+
+        // If cold time available, return report of time saved
+        long coldStartupTime = getColdStartupTime(coldTimeFile);
+        if (coldStartupTime < 0)
+            return String.format("[AppCDS: first output after %d ms]\n", startupTime);
+        long savedTime = coldStartupTime - startupTime;
+        return String.format("[AppCDS: first output after %d ms, cold run %d ms, saved %d ms]\n", startupTime, coldStartupTime, savedTime);
+    }
+
+    /**
+     * Called when process exits: Dumps archive from loaded class list (cold run), or deletes archive if it failed to map.
+     */
+    public void handleProcessExit(Process aProcess)
+    {
+        // If no archive, just return
+        if (_archiveKey == null)
+            return;
+
+        // Wait for process to finish (class list is complete at VM exit)
+        try { aProcess.waitFor(); }
+        catch (InterruptedException e) { Thread.currentThread().interrupt(); return; }
+
+        // Handle cold run: Dump archive on separate thread (takes a second or two)
+        if (_classListFile != null) {
+            Thread dumpThread = new Thread(this::dumpArchive, "AppCDS Dump");
+            dumpThread.start();
+            return;
+        }
+
+        // Handle warm run with warnings: Delete stale or corrupt archive so next run rebuilds it
+        boolean hasWarnings = _logFile.length() > 0;
+        _logFile.delete();
+        if (hasWarnings)
+            _archiveFile.delete();
+    }
+
+    /**
+     * Dumps static archive of jar classes in loaded class list to temp file and moves it into place (atomic, so
+     * concurrent runs never see partial file).
+     */
+    private void dumpArchive()
+    {
+        // If class list wasn't written, just return
+        if (_classListFile.length() == 0) {
+            _classListFile.delete();
+            return;
+        }
+
+        // Dump archive (classes not in jars, like build dir classes, are just skipped)
+        File dumpFile = getArchiveFileForKey(_archiveKey, "." + ProcessHandle.current().pid() + "-" + System.nanoTime() + ".tmp");
+        String[] dumpArgs = { _javaCmd, "-Xshare:dump", "-XX:SharedClassListFile=" + _classListFile.getAbsolutePath(),
+            "-XX:SharedArchiveFile=" + dumpFile.getAbsolutePath(), "-Xlog:cds*=off", "-cp", _jarClassPath };
+        try {
+            Process dumpProcess = new ProcessBuilder(dumpArgs).redirectErrorStream(true)
+                .redirectOutput(ProcessBuilder.Redirect.DISCARD).start();
+            if (dumpProcess.waitFor() == 0 && dumpFile.length() > 0)
+                Files.move(dumpFile.toPath(), _archiveFile.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        }
+        catch (Exception e) { System.err.println("AppCDS.dumpArchive: " + e); }
+
+        // Delete temp files
+        dumpFile.delete();
+        _classListFile.delete();
+    }
+
+    /**
+     * Returns whether AppCDS is enabled.
+     */
+    public static boolean isEnabled()  { return _enabled; }
+
+    /**
+     * Sets whether AppCDS is enabled.
+     */
+    public static void setEnabled(boolean aValue)  { _enabled = aValue; }
+
+    /**
+     * Returns whether given class paths have a directory before a jar.
+     */
+    private static boolean isDirBeforeJar(String[] classPaths)
+    {
+        boolean hasDir = false;
+        for (String classPath : classPaths) {
+            if (new File(classPath).isDirectory())
+                hasDir = true;
+            else if (hasDir)
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Returns given class paths with jars moved ahead of directories (relative order kept), or null if any class or
+     * resource name in a directory is also in a jar (since then reordering would change which one loads).
+     */
+    private static String[] getJarsFirstClassPaths(String[] classPaths)
+    {
+        // Split directories and jars
+        List<String> dirPaths = new ArrayList<>();
+        List<String> jarPaths = new ArrayList<>();
+        for (String classPath : classPaths) {
+            if (new File(classPath).isDirectory())
+                dirPaths.add(classPath);
+            else jarPaths.add(classPath);
+        }
+
+        // Get file names in directories
+        Set<String> dirFileNames = new HashSet<>();
+        for (String dirPath : dirPaths) {
+            Path dir = new File(dirPath).toPath();
+            try (Stream<Path> paths = Files.walk(dir)) {
+                paths.filter(Files::isRegularFile).forEach(path -> {
+                    String name = dir.relativize(path).toString().replace(File.separatorChar, '/');
+                    if (!isIgnoredEntryName(name))
+                        dirFileNames.add(name);
+                });
+            }
+            catch (Exception e) {
+                System.err.println("AppCDS.getJarsFirstClassPaths: " + e);
+                return null;
+            }
+        }
+
+        // If any jar has a name in directories, return null
+        for (String jarPath : jarPaths) {
+            Set<String> jarEntryNames = getJarEntryNames(new File(jarPath));
+            if (jarEntryNames == null)
+                return null;
+            for (String entryName : jarEntryNames)
+                if (dirFileNames.contains(entryName))
+                    return null;
+        }
+
+        // Return jars then directories
+        jarPaths.addAll(dirPaths);
+        return jarPaths.toArray(new String[0]);
+    }
+
+    /**
+     * Returns the file entry names of given jar (cached for path, size and mod time), or null if jar can't be read.
+     */
+    private static Set<String> getJarEntryNames(File jarFile)
+    {
+        // If not a file, return empty (class path entry that doesn't exist)
+        if (!jarFile.isFile())
+            return Collections.emptySet();
+
+        // If cached, just return
+        String jarKey = jarFile.getAbsolutePath() + ':' + jarFile.length() + ':' + jarFile.lastModified();
+        Set<String> entryNames = _jarEntryNames.get(jarKey);
+        if (entryNames != null)
+            return entryNames;
+
+        // Read entry names
+        entryNames = new HashSet<>();
+        try (ZipFile zipFile = new ZipFile(jarFile)) {
+            for (Enumeration<? extends ZipEntry> entries = zipFile.entries(); entries.hasMoreElements(); ) {
+                ZipEntry entry = entries.nextElement();
+                if (!entry.isDirectory() && !isIgnoredEntryName(entry.getName()))
+                    entryNames.add(entry.getName());
+            }
+        }
+        catch (Exception e) {
+            System.err.println("AppCDS.getJarEntryNames: " + e);
+            return null;
+        }
+
+        // Add to cache and return
+        _jarEntryNames.put(jarKey, entryNames);
+        return entryNames;
+    }
+
+    /**
+     * Returns whether given class path entry name is ignored when checking for names in both directory and jar.
+     */
+    private static boolean isIgnoredEntryName(String aName)
+    {
+        return aName.startsWith("META-INF/") || aName.equals("module-info.class");
+    }
+
+    /**
+     * Returns the cold startup time recorded in given file (or -1 if not available).
+     */
+    private static long getColdStartupTime(File coldTimeFile)
+    {
+        try { return coldTimeFile.exists() ? Long.parseLong(Files.readString(coldTimeFile.toPath()).trim()) : -1; }
+        catch (Exception e) { return -1; }
+    }
+
+    /**
+     * Returns the archive key for given jar class paths.
+     */
+    private static String getArchiveKey(String[] classPaths)
+    {
+        // Add java home and version
+        StringBuilder sb = new StringBuilder();
+        sb.append(System.getProperty("java.home")).append('\n');
+        sb.append(System.getProperty("java.vm.version")).append('\n');
+
+        // Add class paths, with size and mod time for jars
+        for (String classPath : classPaths) {
+            sb.append(classPath);
+            File file = new File(classPath);
+            if (file.isFile())
+                sb.append(':').append(file.length()).append(':').append(file.lastModified());
+            sb.append('\n');
+        }
+
+        // Return hash
+        CRC32 crc = new CRC32();
+        crc.update(sb.toString().getBytes(StandardCharsets.UTF_8));
+        return Long.toHexString(crc.getValue());
+    }
+
+    /**
+     * Returns the archive file (or related file) for given key and extension.
+     */
+    private static File getArchiveFileForKey(String archiveKey, String anExt)
+    {
+        File snapCodeDir = FileUtils.getUserHomeDir("SnapCode", false);
+        if (snapCodeDir == null)
+            return null;
+        File cdsDir = new File(snapCodeDir, CDS_DIR_NAME);
+        if (!cdsDir.exists() && !cdsDir.mkdirs())
+            return null;
+        return new File(cdsDir, "App-" + archiveKey + anExt);
+    }
+}
@@ -0,0 +1,257 @@
+package snapcode.debug;
+import com.sun.tools.attach.VirtualMachine;
+import javax.management.MBeanServerConnection;
+import javax.management.remote.JMXConnector;
+import javax.management.remote.JMXConnectorFactory;
+import javax.management.remote.JMXServiceURL;
+import java.lang.management.*;
+import java.util.List;
+
+/**
+ * This class samples JVM metrics (heap, GC pause, thread count, CPU) of a running child process once per second.
+ * It attaches to the process PID with the local Attach API and reads the platform MXBeans over the local
+ * management agent connector, so no network port is opened.
+ */
+public class AppMetrics {
+
+    // The process id
+    private long _pid;
+
+    // The attached VM
+    private VirtualMachine _vm;
+
+    // The JMX connector
+    private JMXConnector _connector;
+
+    // The MXBeans
+    private MemoryMXBean _memoryBean;
+    private List<GarbageCollectorMXBean> _gcBeans;
+    private ThreadMXBean _threadBean;
+    private com.sun.management.OperatingSystemMXBean _osBean;
+
+    // The ring buffers of samples
+    private long[] _heapUsed = new long[MAX_SAMPLES];
+    private long[] _heapMax = new long[MAX_SAMPLES];
+    private long[] _gcPauses = new long[MAX_SAMPLES];
+    private int[] _threadCounts = new int[MAX_SAMPLES];
+    private double[] _cpuLoads = new double[MAX_SAMPLES];
+
+    // The total number of samples taken (ring buffer index is count modulo MAX_SAMPLES)
+    private int _sampleCount;
+
+    // The total GC time at last sample
+    private long _lastGcTime = -1;
+
+    // The sampler thread
+    private Thread _samplerThread;
+
+    // Whether sampling has been stopped
+    private volatile boolean _stopped;
+
+    // The error message if attach failed
+    private String _errorMessage;
+
+    // A runnable to be called after each sample
+    private Runnable _sampleListener;
+
+    // Constants
+    public static final int MAX_SAMPLES = 300;
+    private static final int SAMPLE_INTERVAL_MILLIS = 1000;
+    private static final int ATTACH_ATTEMPTS = 10;
+
+    /**
+     * Constructor for process.
+     */
+    public AppMetrics(Process aProcess)
+    {
+        _pid = aProcess.pid();
+    }
+
+    /**
+     * Returns the process id.
+     */
+    public long getPid()  { return _pid; }
+
+    /**
+     * Returns the number of samples available (up to MAX_SAMPLES).
+     */
+    public synchronized int getSampleCount()  { return Math.min(_sampleCount, MAX_SAMPLES); }
+
+    /**
+     * Returns the heap used for sample at given index (0 is oldest available).
+     */
+    public synchronized long getHeapUsed(int anIndex)  { return _heapUsed[getRingIndex(anIndex)]; }
+
+    /**
+     * Returns the heap max for sample at given index (0 is oldest available).
+     */
+    public synchronized long getHeapMax(int anIndex)  { return _heapMax[getRingIndex(anIndex)]; }
+
+    /**
+     * Returns the GC pause millis (since previous sample) for sample at given index (0 is oldest available).
+     */
+    public synchronized long getGcPause(int anIndex)  { return _gcPauses[getRingIndex(anIndex)]; }
+
+    /**
+     * Returns the thread count for sample at given index (0 is oldest available).
+     */
+    public synchronized int getThreadCount(int anIndex)  { return _threadCounts[getRingIndex(anIndex)]; }
+
+    /**
+     * Returns the process CPU load (0 - 1) for sample at given index (0 is oldest available).
+     */
+    public synchronized double getCpuLoad(int anIndex)  { return _cpuLoads[getRingIndex(anIndex)]; }
+
+    /**
+     * Returns the ring buffer index for given sample index.
+     */
+    private int getRingIndex(int anIndex)
+    {
+        int firstIndex = _sampleCount > MAX_SAMPLES ? _sampleCount - MAX_SAMPLES : 0;
+        return (firstIndex + anIndex) % MAX_SAMPLES;
+    }
+
+    /**
+     * Returns the error message if attach failed.
+     */
+    public String getErrorMessage()  { return _errorMessage; }
+
+    /**
+     * Sets a runnable to be called (on sampler thread) after each sample.
+     */
+    public void setSampleListener(Runnable aRun)  { _sampleListener = aRun; }
+
+    /**
+     * Starts sampling.
+     */
+    public void start()
+    {
+        if (_samplerThread != null) return;
+        _samplerThread = new Thread(this::runSampler, "AppMetrics-" + _pid);
+        _samplerThread.setDaemon(true);
+        _samplerThread.start();
+    }
+
+    /**
+     * Stops sampling and detaches.
+     */
+    public void stop()
+    {
+        _stopped = true;
+        if (_samplerThread != null)
+            _samplerThread.interrupt();
+    }
+
+    /**
+     * Sampler thread: Attaches, then samples until process exits or stopped.
+     */
+    private void runSampler()
+    {
+        try {
+
+            // Attach (process may still be starting, so retry a few times)
+            for (int i = 0; _memoryBean == null && !_stopped; i++) {
+                try { attach(); }
+                catch (Exception e) {
+                    if (i + 1 >= ATTACH_ATTEMPTS) {
+                        _errorMessage = "Metrics attach failed: " + e;
+                        notifySampleListener();
+                        return;
+                    }
+                    Thread.sleep(SAMPLE_INTERVAL_MILLIS);
+                }
+            }
+
+            // Sample until stopped
+            while (!_stopped) {
+                sample();
+                notifySampleListener();
+                Thread.sleep(SAMPLE_INTERVAL_MILLIS);
+            }
+        }
+
+        // Interrupted means stop was called, other exceptions mean process went away
+        catch (InterruptedException ignore) { }
+        catch (Exception e) { _errorMessage = "Metrics stopped: " + e.getMessage(); }
+
+        // Detach
+        finally { detach(); }
+    }
+
+    /**
+     * Attaches to process and gets the MXBean proxies.
+     */
+    private void attach() throws Exception
+    {
+        // Attach to VM and start (or get) local management agent
+        _vm = VirtualMachine.attach(String.valueOf(_pid));
+        String connectorAddress = _vm.startLocalManagementAgent();
+
+        // Connect to local agent
+        JMXServiceURL serviceURL = new JMXServiceURL(connectorAddress);
+        _connector = JMXConnectorFactory.connect(serviceURL);
+        MBeanServerConnection serverConnection = _connector.getMBeanServerConnection();
+
+        // Get MXBean proxies
+        _gcBeans = ManagementFactory.getPlatformMXBeans(serverConnection, GarbageCollectorMXBean.class);
+        _threadBean = ManagementFactory.getPlatformMXBean(serverConnection, ThreadMXBean.class);
+        _osBean = ManagementFactory.getPlatformMXBean(serverConnection, com.sun.management.OperatingSystemMXBean.class);
+        _memoryBean = ManagementFactory.getPlatformMXBean(serverConnection, MemoryMXBean.class);
+    }
+
+    /**
+     * Detaches from process.
+     */
+    private void detach()
+    {
+        try {
+            if (_connector != null)
+                _connector.close();
+            if (_vm != null)
+                _vm.detach();
+        }
+        catch (Exception ignore) { }
+        _connector = null;
+        _vm = null;
+    }
+
+    /**
+     * Takes a sample and adds to ring buffers.
+     */
+    private void sample()
+    {
+        // Get heap usage
+        MemoryUsage heapUsage = _memoryBean.getHeapMemoryUsage();
+
+        // Get GC time since last sample
+        long gcTime = 0;
+        for (GarbageCollectorMXBean gcBean : _gcBeans)
+            gcTime += Math.max(gcBean.getCollectionTime(), 0);
+        long gcPause = _lastGcTime >= 0 ? gcTime - _lastGcTime : 0;
+        _lastGcTime = gcTime;
+
+        // Get thread count and cpu load
+        int threadCount = _threadBean.getThreadCount();
+        double cpuLoad = Math.max(_osBean.getProcessCpuLoad(), 0);
+
+        // Add to ring buffers
+        synchronized (this) {
+            int index = _sampleCount % MAX_SAMPLES;
+            _heapUsed[index] = heapUsage.getUsed();
+            _heapMax[index] = heapUsage.getMax() > 0 ? heapUsage.getMax() : heapUsage.getCommitted();
+            _gcPauses[index] = gcPause;
+            _threadCounts[index] = threadCount;
+            _cpuLoads[index] = cpuLoad;
+            _sampleCount++;
+        }
+    }
+
+    /**
+     * Calls sample listener.
+     */
+    private void notifySampleListener()
+    {
+        if (_sampleListener != null)
+            _sampleListener.run();
+    }
+}
@@ -0,0 +1,136 @@
+package snapcode.debug;
+import snap.geom.Path2D;
+import snap.gfx.Color;
+import snap.gfx.Font;
+import snap.gfx.Painter;
+import snap.gfx.Stroke;
+import snap.view.View;
+import snap.view.ViewUtils;
+import java.util.function.IntToDoubleFunction;
+
+/**
+ * A view to plot the history of AppMetrics samples (heap, GC pause, thread count, CPU).
+ */
+public class AppMetricsView extends View {
+
+    // The metrics
+    private AppMetrics _metrics;
+
+    // Constants
+    private static final Font LABEL_FONT = Font.Arial11;
+    private static final Color GRID_COLOR = new Color("#E8E8E8");
+    private static final Color LABEL_COLOR = Color.DARKGRAY;
+    private static final Color HEAP_COLOR = new Color("#3070C0");
+    private static final Color GC_COLOR = new Color("#C04040");
+    private static final Color THREADS_COLOR = new Color("#40A040");
+    private static final Color CPU_COLOR = new Color("#C08020");
+    private static final int CHART_COUNT = 4;
+
+    /**
+     * Constructor.
+     */
+    public AppMetricsView(AppMetrics theMetrics)
+    {
+        super();
+        _metrics = theMetrics;
+        _metrics.setSampleListener(() -> ViewUtils.runLater(this::repaint));
+        setFill(Color.WHITE);
+        setPadding(8, 8, 8, 8);
+        setGrowWidth(true);
+        setGrowHeight(true);
+        setPrefHeight(300);
+    }
+
+    /**
+     * Returns the metrics.
+     */
+    public AppMetrics getMetrics()  { return _metrics; }
+
+    /**
+     * Override to paint charts.
+     */
+    @Override
+    protected void paintFront(Painter aPntr)
+    {
+        // If attach failed, just paint message
+        aPntr.setFont(LABEL_FONT);
+        String errorMessage = _metrics.getErrorMessage();
+        if (errorMessage != null && _metrics.getSampleCount() == 0) {
+            aPntr.setColor(GC_COLOR);
+            aPntr.drawString(errorMessage, getPadding().left, getPadding().top + 12);
+            return;
+        }
+
+        // Get chart area
+        double areaX = getPadding().left;
+        double areaY = getPadding().top;
+        double areaW = getWidth() - areaX - getPadding().right;
+        double areaH = getHeight() - areaY - getPadding().bottom;
+        double chartH = areaH / CHART_COUNT;
+        int sampleCount = _metrics.getSampleCount();
+
+        // Get latest values for labels
+        int last = sampleCount - 1;
+        long heapUsed = last >= 0 ? _metrics.getHeapUsed(last) : 0;
+        long heapMax = last >= 0 ? _metrics.getHeapMax(last) : 0;
+        long gcPause = last >= 0 ? _metrics.getGcPause(last) : 0;
+        int threadCount = last >= 0 ? _metrics.getThreadCount(last) : 0;
+        double cpuLoad = last >= 0 ? _metrics.getCpuLoad(last) : 0;
+
+        // Get max values for scaling
+        double maxHeap = 1, maxGC = 10, maxThreads = 10;
+        for (int i = 0; i < sampleCount; i++) {
+            maxHeap = Math.max(maxHeap, _metrics.getHeapMax(i));
+            maxGC = Math.max(maxGC, _metrics.getGcPause(i));
+            maxThreads = Math.max(maxThreads, _metrics.getThreadCount(i));
+        }
+
+        // Paint charts
+        String heapLabel = String.format("Heap: %d MB / %d MB", heapUsed >> 20, heapMax >> 20);
+        paintChart(aPntr, areaX, areaY, areaW, chartH, heapLabel, HEAP_COLOR, i -> _metrics.getHeapUsed(i), maxHeap);
+        String gcLabel = String.format("GC pause: %d ms/s", gcPause);
+        paintChart(aPntr, areaX, areaY + chartH, areaW, chartH, gcLabel, GC_COLOR, i -> _metrics.getGcPause(i), maxGC);
+        String threadsLabel = "Threads: " + threadCount;
+        paintChart(aPntr, areaX, areaY + chartH * 2, areaW, chartH, threadsLabel, THREADS_COLOR, i -> _metrics.getThreadCount(i), maxThreads);
+        String cpuLabel = String.format("CPU: %d%%", Math.round(cpuLoad * 100));
+        paintChart(aPntr, areaX, areaY + chartH * 3, areaW, chartH, cpuLabel, CPU_COLOR, i -> _metrics.getCpuLoad(i), 1);
+    }
+
+    /**
+     * Paints a single chart for given bounds, label, color, sample function and max value.
+     */
+    private void paintChart(Painter aPntr, double aX, double aY, double aW, double aH, String aLabel, Color aColor,
+                            IntToDoubleFunction valueFunc, double maxValue)
+    {
+        // Paint label
+        aPntr.setColor(LABEL_COLOR);
+        aPntr.drawString(aLabel, aX, aY + 12);
+
+        // Paint plot background
+        double plotY = aY + 16;
+        double plotH = aH - 22;
+        if (plotH < 4) return;
+        aPntr.setColor(GRID_COLOR);
+        aPntr.fillRect(aX, plotY, aW, plotH);
+
+        // Create path for samples (right aligned, one sample per pixel step)
+        int sampleCount = _metrics.getSampleCount();
+        if (sampleCount < 2) return;
+        double stepX = aW / (AppMetrics.MAX_SAMPLES - 1);
+        double startX = aX + aW - (sampleCount - 1) * stepX;
+        Path2D path = new Path2D();
+        for (int i = 0; i < sampleCount; i++) {
+            double value = Math.min(valueFunc.applyAsDouble(i) / maxValue, 1);
+            double pointX = startX + i * stepX;
+            double pointY = plotY + plotH - value * plotH;
+            if (i == 0)
+                path.moveTo(pointX, pointY);
+            else path.lineTo(pointX, pointY);
+        }
+
+        // Paint path
+        aPntr.setStroke(Stroke.Stroke1);
+        aPntr.setColor(aColor);
+        aPntr.draw(path);
+    }
+}
@@ -0,0 +1,176 @@
+package snapcode.debug;
+import com.sun.jdi.BooleanValue;
+import com.sun.jdi.ThreadReference;
+import com.sun.jdi.Value;
+import snap.view.ViewUtils;
+import snapcode.project.Breakpoint;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * This class evaluates logpoints and conditional breakpoints for a DebugApp. Hits arrive with only the event thread
+ * suspended, so evaluation happens on a worker thread (the JDI dispatch thread must stay free to deliver the events
+ * of method invocations). Log output is batched so that hot logpoints don't flood the UI thread.
+ */
+class BreakpointEval {
+
+    // The debug app
+    private DebugApp _debugApp;
+
+    // The worker thread executor
+    private ExecutorService _executor;
+
+    // The pending log output
+    private StringBuilder _logBuffer = new StringBuilder();
+
+    // Whether a log flush is scheduled
+    private boolean _flushScheduled;
+
+    // Constants
+    private static final int LOG_FLUSH_DELAY = 100;
+
+    /**
+     * Constructor.
+     */
+    public BreakpointEval(DebugApp aDebugApp)
+    {
+        _debugApp = aDebugApp;
+        _executor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "Breakpoint Eval");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Called from event dispatch thread when logpoint or conditional breakpoint is hit.
+     */
+    public void handleBreakpointHit(BreakpointReq breakpointReq, DebugEvent anEvent)
+    {
+        _executor.execute(() -> evalBreakpointHit(breakpointReq, anEvent));
+    }
+
+    /**
+     * Stops worker thread and flushes log.
+     */
+    public void shutdown()
+    {
+        _executor.shutdownNow();
+        flushLog();
+    }
+
+    /**
+     * Evaluates breakpoint hit on worker thread: Logs message or pauses app if condition is met, otherwise resumes.
+     */
+    private void evalBreakpointHit(BreakpointReq breakpointReq, DebugEvent anEvent)
+    {
+        Breakpoint breakpoint = breakpointReq._breakPoint;
+        ThreadReference thread = anEvent.getThread();
+
+        try {
+
+            // Handle condition: If false, just resume
+            String condition = breakpoint.getCondition();
+            if (condition != null) {
+                Object value = _debugApp.evalInThread(thread, condition);
+                if (value instanceof Exception)
+                    appendLog("Breakpoint condition error: " + condition + ": " + value);
+                else if (!(value instanceof BooleanValue) || !((BooleanValue) value).value()) {
+                    anEvent.resume();
+                    return;
+                }
+            }
+
+            // Handle hit count: If not reached, just resume (count filter in VM handles case without condition)
+            int hitCount = breakpointReq.incrementHitCount();
+            int breakHitCount = breakpoint.getHitCount();
+            if (condition != null && breakHitCount > 0 && hitCount != breakHitCount) {
+                anEvent.resume();
+                return;
+            }
+
+            // Handle logpoint: Log message and resume
+            if (breakpoint.isLogpoint()) {
+                String logMessage = getLogMessage(thread, breakpoint.getLogMessage());
+                appendLog(logMessage);
+                anEvent.resume();
+                return;
+            }
+
+            // Pause app
+            _debugApp.pauseForEvent(anEvent);
+        }
+
+        // Handle failure: Just resume
+        catch (Exception e) {
+            appendLog("Breakpoint eval error: " + breakpoint.getDescriptor() + ": " + e);
+            anEvent.resume();
+        }
+    }
+
+    /**
+     * Returns the log message for given message template with brace expressions evaluated.
+     */
+    private String getLogMessage(ThreadReference aThread, String aTemplate)
+    {
+        StringBuilder sb = new StringBuilder();
+        int index = 0;
+
+        // Iterate over brace expressions and append literal text and evaluated expressions
+        while (index < aTemplate.length()) {
+            int start = aTemplate.indexOf('{', index);
+            int end = start >= 0 ? aTemplate.indexOf('}', start) : -1;
+            if (end < 0) {
+                sb.append(aTemplate, index, aTemplate.length());
+                break;
+            }
+
+            // Append literal text and expression value
+            sb.append(aTemplate, index, start);
+            String expr = aTemplate.substring(start + 1, end);
+            Object value = _debugApp.evalInThread(aThread, expr);
+            if (value instanceof Value)
+                sb.append(_debugApp.toStringInThread(aThread, (Value) value));
+            else if (value instanceof Exception)
+                sb.append("<error: ").append(((Exception) value).getMessage()).append('>');
+            else sb.append(value);
+            index = end + 1;
+        }
+
+        // Return
+        return sb.toString();
+    }
+
+    /**
+     * Appends given line to log and schedules flush.
+     */
+    private void appendLog(String aStr)
+    {
+        synchronized (_logBuffer) {
+            _logBuffer.append(aStr).append('\n');
+            if (_flushScheduled)
+                return;
+            _flushScheduled = true;
+        }
+
+        // Schedule flush
+        ViewUtils.runDelayed(this::flushLog, LOG_FLUSH_DELAY);
+    }
+
+    /**
+     * Flushes pending log output to console.
+     */
+    private void flushLog()
+    {
+        String logStr;
+        synchronized (_logBuffer) {
+            logStr = _logBuffer.toString();
+            _logBuffer.setLength(0);
+            _flushScheduled = false;
+        }
+
+        // Append to console
+        if (!logStr.isEmpty())
+            _debugApp.appendOut(logStr);
+    }
+}
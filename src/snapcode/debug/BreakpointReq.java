@@ -25,6 +25,9 @@ public class BreakpointReq {
     // The exception, if request couldn't be resolved
     private Exception _error;
 
+    // The number of hits evaluated by debugger (for logpoints and conditional breakpoints)
+    private int _hitCount;
+
     // Constants for status
     public enum Status { Deferred, Resolved, Erroneous }
 
@@ -81,7 +84,8 @@ public class BreakpointReq {
         // Create event request, set and enable
         try {
             _request = createEventRequest(aRefType);
-            _request.putProperty("spec", this); // Don't think we need this
+            _request.putProperty("spec", this);
+            configureEventRequest(_request);
             _request.enable();
             _debugApp.breakpointReqWasSet(this);  // Notify successful set
             System.out.println("Installed BP " + getName() + " :" + _breakPoint.getLineNum());
@@ -192,6 +196,39 @@ public class BreakpointReq {
         throw new RuntimeException("Unsupported Type: " + getType());
     }
 
+    /**
+     * Configures event request for breakpoint hit count, condition and log message.
+     */
+    private void configureEventRequest(EventRequest aRequest)
+    {
+        // If hit count without condition, have VM count hits so earlier hits never reach debugger
+        int hitCount = _breakPoint.getHitCount();
+        if (hitCount > 0 && _breakPoint.getCondition() == null)
+            aRequest.addCountFilter(hitCount);
+
+        // If debugger evaluates hits, only suspend event thread so app keeps running during evaluation
+        if (isEvaluatedByDebugger())
+            aRequest.setSuspendPolicy(EventRequest.SUSPEND_EVENT_THREAD);
+    }
+
+    /**
+     * Returns whether hits need to be evaluated by debugger before pausing (logpoints and conditional breakpoints).
+     */
+    public boolean isEvaluatedByDebugger()
+    {
+        return _breakPoint.isLogpoint() || _breakPoint.getCondition() != null;
+    }
+
+    /**
+     * Returns the number of hits evaluated by debugger.
+     */
+    public int getHitCount()  { return _hitCount; }
+
+    /**
+     * Increments the number of hits evaluated by debugger and returns new count.
+     */
+    protected synchronized int incrementHitCount()  { return ++_hitCount; }
+
     /**
      * Returns the location of the break point.
      */
@@ -0,0 +1,136 @@
+package snapcode.debug;
+import snap.view.ViewUtils;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * This class buffers console output written by app threads and drains it to a RunApp console in batches on the
+ * event thread, at most once per frame. Chunks go through a lock-free queue, and output is dropped (and counted)
+ * when the console falls too far behind, so a tight print loop can't flood the event queue or grow memory without
+ * bound. Writers never block, since callers (like PrintStream.println) may hold a stream lock the event thread needs.
+ */
+public class ConsoleOutputBuffer {
+
+    // The RunApp to send output to
+    private RunApp _runApp;
+
+    // The pending output chunks
+    private Queue<Chunk> _chunks = new ConcurrentLinkedQueue<>();
+
+    // The number of pending chars
+    private AtomicInteger _pendingCharCount = new AtomicInteger();
+
+    // The number of chars dropped since last flush
+    private AtomicInteger _droppedCharCount = new AtomicInteger();
+
+    // Whether a flush is scheduled
+    private AtomicBoolean _flushScheduled = new AtomicBoolean();
+
+    // Constants
+    private static final int FLUSH_DELAY = 25;
+    private static final int MAX_PENDING_CHARS = 256 * 1024;
+
+    /**
+     * Constructor.
+     */
+    public ConsoleOutputBuffer(RunApp runApp)
+    {
+        _runApp = runApp;
+    }
+
+    /**
+     * Adds output string (called on app thread). Drops output while console is too far behind (never blocks).
+     */
+    public void addOutput(String aString, boolean isError)
+    {
+        // If empty, just return
+        if (aString.isEmpty())
+            return;
+
+        // If console is behind, drop output and count dropped chars
+        if (_pendingCharCount.get() > MAX_PENDING_CHARS) {
+            _droppedCharCount.addAndGet(aString.length());
+            scheduleFlush();
+            return;
+        }
+
+        // Add chunk and schedule flush
+        _chunks.add(new Chunk(aString, isError));
+        _pendingCharCount.addAndGet(aString.length());
+        scheduleFlush();
+    }
+
+    /**
+     * Schedules flush on event thread if not already scheduled.
+     */
+    private void scheduleFlush()
+    {
+        if (_flushScheduled.compareAndSet(false, true))
+            ViewUtils.runDelayed(this::flush, FLUSH_DELAY);
+    }
+
+    /**
+     * Sends pending output to console, coalescing consecutive chunks of same stream (called on event thread).
+     */
+    private void flush()
+    {
+        _flushScheduled.set(false);
+
+        // Drain chunks pending at start (writers may keep adding while draining)
+        int maxCharCount = _pendingCharCount.get();
+        int charCount = 0;
+        StringBuilder sb = new StringBuilder();
+        boolean isError = false;
+        while (charCount < maxCharCount) {
+            Chunk chunk = _chunks.poll();
+            if (chunk == null)
+                break;
+
+            // If stream changed, send previous output
+            if (chunk.isError != isError && sb.length() > 0) {
+                _runApp.appendConsoleOutput(sb.toString(), isError);
+                sb.setLength(0);
+            }
+
+            // Add chunk
+            sb.append(chunk.string);
+            isError = chunk.isError;
+            charCount += chunk.string.length();
+        }
+
+        // Send remaining output
+        if (sb.length() > 0)
+            _runApp.appendConsoleOutput(sb.toString(), isError);
+
+        // If output was dropped, send note
+        int droppedCharCount = _droppedCharCount.getAndSet(0);
+        if (droppedCharCount > 0)
+            _runApp.appendConsoleOutput("\n[" + droppedCharCount + " chars of output dropped - console too far behind]\n", true);
+
+        // Make room for new output and schedule flush for chunks added while draining
+        _pendingCharCount.addAndGet(-charCount);
+        if (!_chunks.isEmpty())
+            scheduleFlush();
+    }
+
+    /**
+     * A chunk of output.
+     */
+    private static class Chunk {
+
+        // The string and whether it is error output
+        final String string;
+        final boolean isError;
+
+        /**
+         * Constructor.
+         */
+        Chunk(String aString, boolean isErr)
+        {
+            string = aString;
+            isError = isErr;
+        }
+    }
+}
@@ -12,6 +12,7 @@ import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import snapcode.debug.Exceptions.*;
 import snapcode.project.Breakpoints;
 import snapcode.project.RunConfig;
@@ -41,12 +42,27 @@ public class DebugApp extends RunAppBin {
     // Whether to print events
     boolean _printEVs;
 
-    // Whether app is invoking methods
-    boolean _invoking;
+    // Whether app is invoking a method that resumes all threads (VM paused)
+    volatile boolean _invokingAll;
+
+    // The threads currently invoking methods
+    private Set<ThreadReference> _invokingThreads = ConcurrentHashMap.newKeySet();
 
     // The current RunToLine breakpoint
     Breakpoint _runToLineBreak;
 
+    // The evaluator for logpoints and conditional breakpoints
+    BreakpointEval _breakpointEval;
+
+    // The DebugThreads for thread unique ids
+    private Map<Long,DebugThread> _debugThreads = new ConcurrentHashMap<>();
+
+    // The sorted DebugThreads for current snapshot
+    private volatile DebugThread[] _threadsSnapshot;
+
+    // The snapshot id: Changes whenever VM resumes or threads run, so cached threads and frames are stale
+    private volatile int _snapshotId;
+
     // Constants for method types
     static final int STATIC = 0;
     static final int INSTANCE = 1;
@@ -198,6 +214,16 @@ public class DebugApp extends RunAppBin {
             _process = null;
         }
 
+        // Stop breakpoint evaluator
+        if (_breakpointEval != null) {
+            _breakpointEval.shutdown();
+            _breakpointEval = null;
+        }
+
+        // Clear thread cache
+        _debugThreads.clear();
+        invalidateSnapshot();
+
         _running = false;
         setPaused(false);
         _terminated = true;
@@ -205,6 +231,16 @@ public class DebugApp extends RunAppBin {
         notifyAppExited();
     }
 
+    /**
+     * Override to invalidate cached threads and frames.
+     */
+    @Override
+    protected void setPaused(boolean aValue)
+    {
+        invalidateSnapshot();
+        super.setPaused(aValue);
+    }
+
     /**
      * Pause the app.
      */
@@ -383,6 +419,14 @@ public class DebugApp extends RunAppBin {
      * ToString.
      */
     public String toString(Value aVal)
+    {
+        return toString(getCurrentThread(), aVal);
+    }
+
+    /**
+     * ToString, invoking toString() in given thread.
+     */
+    public String toString(ThreadReference aThread, Value aVal)
     {
         // Handle StringReference: Just return string
         if (aVal instanceof StringReference)
@@ -391,14 +435,14 @@ public class DebugApp extends RunAppBin {
         // Handle ArrayReference: Concatenate values
         if (aVal instanceof ArrayReference arrayRef) {
             List<Value> values = arrayRef.getValues();
-            String valuesStr = ListUtils.mapToStringsAndJoin(values, this::toString, ", ");
+            String valuesStr = ListUtils.mapToStringsAndJoin(values, val -> toString(aThread, val), ", ");
             return '[' + valuesStr + ']';
         }
 
         // Handle ObjectReference: Invoke toString() method
         if (aVal instanceof ObjectReference objRef) {
-            Value val = invokeMethod(objRef, "toString", Collections.EMPTY_LIST);
-            return toString(val);
+            Value val = invokeMethod(aThread, objRef, "toString", Collections.EMPTY_LIST);
+            return toString(aThread, val);
         }
 
         // Handle Anything else (?)
@@ -410,7 +454,14 @@ public class DebugApp extends RunAppBin {
      */
     public Value invokeMethod(ObjectReference anOR, String aName, List<Value> args)
     {
-        ThreadReference thread = getCurrentThread();
+        return invokeMethod(getCurrentThread(), anOR, aName, args);
+    }
+
+    /**
+     * Invoke method in given thread.
+     */
+    public Value invokeMethod(ThreadReference thread, ObjectReference anOR, String aName, List<Value> args)
+    {
         if (thread == null) {
             failure("No current thread.");
             return null;
@@ -423,23 +474,33 @@ public class DebugApp extends RunAppBin {
         if (method == null)
             return null;
 
-        // Invoke method
+        // Invoke method: If VM paused, resume all threads (as before), otherwise just resume given thread (other
+        // threads are already running and their events must still be handled, e.g. logpoint eval on worker thread)
+        boolean invokeAll = _paused;
+        int invokeOptions = invokeAll ? 0 : ObjectReference.INVOKE_SINGLE_THREADED;
         try {
-            _invoking = true;
-            Value val = anOR.invokeMethod(thread, method, args, 0); //ObjectReference.INVOKE_NONVIRTUAL
+            _invokingThreads.add(thread);
+            if (invokeAll)
+                _invokingAll = true;
+            Value val = anOR.invokeMethod(thread, method, args, invokeOptions);
             return val;
         }
 
         // Catch exceptions
         catch (Exception e) {
             System.out.println("DebugApp.invokeMethod: Error invoking method: " + method + ", " + e);
-            setPaused(true);
+            if (thread == _currentThread)
+                setPaused(true);
             return null;
         }
 
-        // Turn off invoking
+        // Turn off invoking and invalidate snapshot if current thread (invoke runs thread, so its frames are stale)
         finally {
-            _invoking = false;
+            _invokingThreads.remove(thread);
+            if (invokeAll)
+                _invokingAll = false;
+            if (thread == _currentThread)
+                invalidateSnapshot();
         }
     }
 
@@ -448,13 +509,18 @@ public class DebugApp extends RunAppBin {
      */
     public DebugThread[] getThreads()
     {
+        // If snapshot available and paused, just return (thread states change while app runs)
+        DebugThread[] threadsSnapshot = _threadsSnapshot;
+        if (threadsSnapshot != null && _paused)
+            return threadsSnapshot;
+
         // Get threads, sort (should trigger VMDisconnectedException if VM has disconnected) and return
         try {
             ThreadReference[] threads = _vm.allThreads().toArray(EMPTY_THREADREFS);
             DebugThread[] dthreads = new DebugThread[threads.length];
             for (int i = 0, iMax = threads.length; i < iMax; i++) dthreads[i] = getThread(threads[i]);
             Arrays.sort(dthreads);
-            return dthreads;
+            return _threadsSnapshot = dthreads;
         }
 
         // If there is no session or VM is dead, just returns empty list
@@ -469,7 +535,22 @@ public class DebugApp extends RunAppBin {
      */
     private DebugThread getThread(ThreadReference aTR)
     {
-        return new DebugThread(this, aTR);
+        return _debugThreads.computeIfAbsent(aTR.uniqueID(), id -> new DebugThread(this, aTR));
+    }
+
+    /**
+     * Returns the snapshot id: Changes whenever VM resumes or threads run, so cached threads and frames are stale.
+     */
+    public int getSnapshotId()  { return _snapshotId; }
+
+    /**
+     * Called when VM resumes or threads run to mark cached threads and frames as stale.
+     * Not synchronized: Event dispatch thread calls this and must never wait on a method invocation.
+     */
+    protected void invalidateSnapshot()
+    {
+        _snapshotId++;
+        _threadsSnapshot = null;
     }
 
     private static final ThreadReference[] EMPTY_THREADREFS = new ThreadReference[0];
@@ -530,9 +611,8 @@ public class DebugApp extends RunAppBin {
     public DebugFrame getFrame()
     {
         int ind = _frameIndex; //getCurrentFrameIndex();
-        StackFrame frame = ind >= 0 ? getCurrentFrame() : null;
-        DebugThread thread = frame != null ? getThread() : null;
-        return thread != null ? new DebugFrame(thread, frame, ind) : null;
+        DebugThread thread = _running && ind >= 0 ? getThread() : null;
+        return thread != null ? thread.getFrame(ind) : null;
     }
 
     /**
@@ -567,7 +647,7 @@ public class DebugApp extends RunAppBin {
     public StackFrame getCurrentFrame()
     {
         try {
-            return _running && _currentThread != null && _frameIndex >= 0 ? _currentThread.frame(_frameIndex) : null;
+            return _running && _currentThread != null && _frameIndex >= 0 ? getThread(_currentThread).getStackFrame(_frameIndex) : null;
         }
         catch (Exception e) {
             System.err.println("DebugApp.getCurrentThread: " + e);
@@ -779,8 +859,8 @@ public class DebugApp extends RunAppBin {
         if (_printEVs)
             System.out.println("JDIEvent: " + anEvent);
 
-        // If invoking a method, we just want to get back to business
-        if (_invoking) {
+        // If event is from invoking a method, we just want to get back to business
+        if (isInvokeEvent(anEvent)) {
 
             // Handle ClassPrepare
             if (type == DebugEvent.Type.ClassPrepare)
@@ -791,9 +871,24 @@ public class DebugApp extends RunAppBin {
                 try { _vm.resume(); return; }
                 catch (Exception e) { failure("Failed to resume: " + e.getMessage()); }
             }
+
+            // Handle event thread pause (logpoints and conditional breakpoints)
+            else if (anEvent.suspendedThread())
+                anEvent.resume();
             return;
         }
 
+        // Handle logpoints and conditional breakpoints: Evaluate on worker thread (event thread stays suspended)
+        if (type == DebugEvent.Type.LocationTrigger && anEvent.suspendedThread()) {
+            BreakpointReq breakpointReq = anEvent.getBreakpointReq();
+            if (breakpointReq != null && breakpointReq.isEvaluatedByDebugger()) {
+                if (_breakpointEval == null)
+                    _breakpointEval = new BreakpointEval(this);
+                _breakpointEval.handleBreakpointHit(breakpointReq, anEvent);
+                return;
+            }
+        }
+
         // Handle event types (VMStart, VMDeath, VMDisconnect, ThreadStart, ThreadDeath, ClassPrepare, ClassUnload)
         switch (type) {
 
@@ -803,18 +898,27 @@ public class DebugApp extends RunAppBin {
             // Handle VMDisconnect
             case VMDisconnect -> endSession();
 
+            // Handle ThreadStart, ThreadDeath
+            case ThreadStart -> invalidateSnapshot();
+            case ThreadDeath -> {
+                _debugThreads.remove(anEvent.getThread().uniqueID());
+                invalidateSnapshot();
+            }
+
             // Handle LocationTrigger
             case LocationTrigger -> {
                 if (_runToLineBreak != null) {
                     removeBreakpoint(_runToLineBreak);
                     _runToLineBreak = null;
                 }
+                invalidateSnapshot();
                 setCurrentThread(anEvent.getThread(), 0);
                 wantsPause = true;
             }
 
             // Handle Exception
             case Exception -> {
+                invalidateSnapshot();
                 setCurrentThread(anEvent.getThread(), 0);
                 wantsPause = true;
             }
@@ -843,6 +947,62 @@ public class DebugApp extends RunAppBin {
             appLsnr.processDebugEvent(this, anEvent);
     }
 
+    /**
+     * Returns whether given event happened during a method invoke: In invoking thread, or any thread if invoke resumed
+     * all threads.
+     */
+    private boolean isInvokeEvent(DebugEvent anEvent)
+    {
+        if (_invokingAll)
+            return true;
+        if (_invokingThreads.isEmpty())
+            return false;
+        try { return _invokingThreads.contains(anEvent.getThread()); }
+        catch (RuntimeException e) { return false; }
+    }
+
+    /**
+     * Called when a conditional breakpoint condition is met to pause the app (event only suspended event thread).
+     */
+    synchronized void pauseForEvent(DebugEvent anEvent)
+    {
+        // Suspend all threads, then release event suspend of event thread
+        try {
+            _vm.suspend();
+            anEvent.resume();
+        }
+        catch (Exception e) {
+            failure("Failed to pause: " + e.getMessage());
+            return;
+        }
+
+        // Make pause official and dispatch event to listeners
+        invalidateSnapshot();
+        setCurrentThread(anEvent.getThread(), 0);
+        if (!_paused) {
+            setPaused(true);
+            notifyAppPaused();
+        }
+        for (AppListener appLsnr : _appLsnrs)
+            appLsnr.processDebugEvent(this, anEvent);
+    }
+
+    /**
+     * Evaluates given expression in given thread (suspended by an event) without changing current thread for UI.
+     */
+    Object evalInThread(ThreadReference aThread, String anExpr)
+    {
+        return ExprEval.eval(this, aThread, 0, anExpr);
+    }
+
+    /**
+     * Returns the string for given value, invoking toString() in given thread (suspended by an event).
+     */
+    String toStringInThread(ThreadReference aThread, Value aValue)
+    {
+        return toString(aThread, aValue);
+    }
+
     /**
      * A thread to read and send events from vm.
      */
@@ -191,6 +191,16 @@ public class DebugEvent {
         return _jdiEvents.suspendPolicy() == EventRequest.SUSPEND_NONE;
     }
 
+    /**
+     * Returns the BreakpointReq that triggered this event, if available.
+     */
+    public BreakpointReq getBreakpointReq()
+    {
+        EventRequest request = _jdiEvent.request();
+        Object spec = request != null ? request.getProperty("spec") : null;
+        return spec instanceof BreakpointReq ? (BreakpointReq) spec : null;
+    }
+
     public void resume()
     {
         _jdiEvents.resume();
@@ -4,16 +4,13 @@ import com.sun.jdi.Method;
 import com.sun.jdi.StackFrame;
 
 /**
- * A custom class.
+ * This class represents a stack frame of a DebugThread. The StackFrame is fetched lazily from the thread.
  */
 public class DebugFrame {
 
     // The DebugThread
     DebugThread _thread;
 
-    // The StackFrame
-    StackFrame _frame;
-
     // The index
     int _index;
 
@@ -21,12 +18,11 @@ public class DebugFrame {
     String _desc;
 
     /**
-     * Creates a new DebugFrame for thread, frame and index.
+     * Creates a new DebugFrame for thread and index.
      */
-    public DebugFrame(DebugThread aDT, StackFrame aFrm, int anIndex)
+    public DebugFrame(DebugThread aDT, int anIndex)
     {
         _thread = aDT;
-        _frame = aFrm;
         _index = anIndex;
     }
 
@@ -43,7 +39,7 @@ public class DebugFrame {
      */
     public StackFrame getFrame()
     {
-        return _frame;
+        return _thread.getStackFrame(_index);
     }
 
     /**
@@ -60,7 +56,7 @@ public class DebugFrame {
     public String getSourcePath()
     {
         try {
-            Location loc = _frame.location();
+            Location loc = getFrame().location();
             return '/' + loc.sourcePath();
         } catch (Exception e) {
             System.err.println("DebugFrame.getSourcePath Failed: " + e);
@@ -74,7 +70,7 @@ public class DebugFrame {
     public int getLineNumber()
     {
         try {
-            Location loc = _frame.location();
+            Location loc = getFrame().location();
             return loc.lineNumber();
         } catch (Exception e) {
             System.err.println("DebugFrame.getLineNumber Failed: " + e);
@@ -90,7 +86,7 @@ public class DebugFrame {
         if (_desc != null) return _desc;
 
         try {
-            Location loc = _frame.location();
+            Location loc = getFrame().location();
             Method method = loc.method();
 
             StringBuilder sb = new StringBuilder();
@@ -126,7 +122,7 @@ public class DebugFrame {
     {
         DebugFrame other = anObj instanceof DebugFrame ? (DebugFrame) anObj : null;
         if (other == null) return false;
-        return _frame == other._frame;
+        return _thread == other._thread && _index == other._index;
     }
 
 }
\ No newline at end of file
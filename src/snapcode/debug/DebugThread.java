@@ -6,7 +6,8 @@ import com.sun.jdi.ThreadReference;
 import java.util.List;
 
 /**
- * A custom class.
+ * This class represents a thread of a DebugApp. Instances are cached by DebugApp for thread lifetime and cache
+ * stack frames for current suspension.
  */
 public class DebugThread implements Comparable<DebugThread> {
 
@@ -19,6 +20,12 @@ public class DebugThread implements Comparable<DebugThread> {
     // The thread name
     String _name;
 
+    // The frames snapshot for current suspension (frames and StackFrames are replaced together)
+    private volatile FramesSnapshot _framesSnapshot;
+
+    // The number of frames fetched from VM at a time
+    private static final int FRAME_WINDOW = 32;
+
     // An empty DebugFrame array
     static DebugFrame[] NO_FRAMES = new DebugFrame[0];
 
@@ -67,18 +74,82 @@ public class DebugThread implements Comparable<DebugThread> {
     }
 
     /**
-     * Returns the stack frames.
+     * Returns the stack frames. StackFrames are only fetched from VM as needed in windows (see getStackFrame()).
      */
     public DebugFrame[] getFrames()
     {
-        if (!isSuspended()) return NO_FRAMES;
-        try {
-            List<StackFrame> frames = _tref.frames();
-            DebugFrame[] dframes = new DebugFrame[frames.size()];
-            for (int i = 0, iMax = frames.size(); i < iMax; i++) dframes[i] = new DebugFrame(this, frames.get(i), i);
-            return dframes;
-        } catch (Exception e) {
-            return NO_FRAMES;
+        return getFramesSnapshot().frames;
+    }
+
+    /**
+     * Returns the frames snapshot for current suspension, creating it if stale.
+     */
+    private FramesSnapshot getFramesSnapshot()
+    {
+        // If cached snapshot is valid, just return
+        int snapshotId = _app.getSnapshotId();
+        FramesSnapshot framesSnapshot = _framesSnapshot;
+        if (framesSnapshot != null && framesSnapshot.snapshotId == snapshotId)
+            return framesSnapshot;
+
+        // Get frame count (just return empty snapshot if not suspended - don't cache)
+        int frameCount;
+        try { frameCount = _tref.isSuspended() ? _tref.frameCount() : 0; }
+        catch (Exception e) { frameCount = 0; }
+
+        if (frameCount == 0)
+            return new FramesSnapshot(snapshotId, NO_FRAMES);
+
+        // Create frames
+        DebugFrame[] frames = new DebugFrame[frameCount];
+        for (int i = 0; i < frameCount; i++)
+            frames[i] = new DebugFrame(this, i);
+
+        // Create, set and return
+        return _framesSnapshot = new FramesSnapshot(snapshotId, frames);
+    }
+
+    /**
+     * Returns the frame at given index.
+     */
+    public DebugFrame getFrame(int anIndex)
+    {
+        DebugFrame[] frames = getFrames();
+        return anIndex >= 0 && anIndex < frames.length ? frames[anIndex] : null;
+    }
+
+    /**
+     * Returns the StackFrame at given index, fetching the window of frames that contains it from VM if needed.
+     */
+    public StackFrame getStackFrame(int anIndex)
+    {
+        // Get snapshot once, so frames and StackFrames are from same suspension (just return if index out of range)
+        FramesSnapshot framesSnapshot = getFramesSnapshot();
+        StackFrame[] stackFrames = framesSnapshot.stackFrames;
+        if (anIndex < 0 || anIndex >= stackFrames.length)
+            return null;
+
+        synchronized (framesSnapshot) {
+
+            // If already fetched, just return
+            if (stackFrames[anIndex] != null)
+                return stackFrames[anIndex];
+
+            // Fetch window of frames containing index
+            int start = anIndex / FRAME_WINDOW * FRAME_WINDOW;
+            int length = Math.min(FRAME_WINDOW, stackFrames.length - start);
+            try {
+                List<StackFrame> windowFrames = _tref.frames(start, length);
+                for (int i = 0; i < windowFrames.size() && start + i < stackFrames.length; i++)
+                    stackFrames[start + i] = windowFrames.get(i);
+            }
+            catch (Exception e) {
+                System.err.println("DebugThread.getStackFrame: " + e);
+                return null;
+            }
+
+            // Return
+            return stackFrames[anIndex];
         }
     }
 
@@ -109,4 +180,24 @@ public class DebugThread implements Comparable<DebugThread> {
         return _tref == other._tref || getName().equals(other.getName());
     }
 
-}
\ No newline at end of file
+    /**
+     * The frames and StackFrames for a DebugApp snapshot id.
+     */
+    private static class FramesSnapshot {
+
+        // The DebugApp snapshot id, frames and StackFrames (fetched lazily)
+        final int snapshotId;
+        final DebugFrame[] frames;
+        final StackFrame[] stackFrames;
+
+        /**
+         * Constructor.
+         */
+        FramesSnapshot(int aSnapshotId, DebugFrame[] theFrames)
+        {
+            snapshotId = aSnapshotId;
+            frames = theFrames;
+            stackFrames = new StackFrame[theFrames.length];
+        }
+    }
+}
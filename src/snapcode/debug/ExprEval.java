@@ -9,47 +9,90 @@ import java.util.List;
  */
 public class ExprEval {
 
+    // The debug app
+    private DebugApp _app;
+
+    // The thread and stack frame index to evaluate in
+    private ThreadReference _thread;
+    private int _frameIndex;
+
     /**
-     * Evaluate expression.
+     * Constructor.
+     */
+    private ExprEval(DebugApp anApp, ThreadReference aThread, int aFrameIndex)
+    {
+        _app = anApp;
+        _thread = aThread;
+        _frameIndex = aFrameIndex;
+    }
+
+    /**
+     * Evaluate expression in current thread and frame.
      */
     public static Object eval(DebugApp anApp, String anExpr)
+    {
+        return eval(anApp, anApp.getCurrentThread(), anApp.getCurrentFrameIndex(), anExpr);
+    }
+
+    /**
+     * Evaluate expression in given thread and frame index (without changing debugger current thread).
+     */
+    public static Object eval(DebugApp anApp, ThreadReference aThread, int aFrameIndex, String anExpr)
     {
         // Parse expression
         JavaParser javaParser = JavaParser.getShared();
         JExpr expr = javaParser.parseExpression(anExpr);
 
         // Evaluate expression
-        ObjectReference oref = anApp.thisObject();
-        try { return evalExpr(anApp, oref, expr); }
+        ExprEval exprEval = new ExprEval(anApp, aThread, aFrameIndex);
+        try { return exprEval.evalExpr(exprEval.thisObject(), expr); }
         catch (Exception e) { return e; }
     }
 
+    /**
+     * Returns the stack frame (fetched each time, since method invocations resume thread and invalidate frames).
+     */
+    private StackFrame getFrame() throws IncompatibleThreadStateException
+    {
+        if (_thread == null)
+            throw new RuntimeException("No current thread.");
+        return _thread.frame(_frameIndex);
+    }
+
+    /**
+     * Returns the 'this' object of frame.
+     */
+    private ObjectReference thisObject() throws IncompatibleThreadStateException
+    {
+        return getFrame().thisObject();
+    }
+
     /**
      * Evaluate JExpr.
      */
-    public static Value evalExpr(DebugApp anApp, ObjectReference anOR, JExpr anExpr) throws Exception
+    public Value evalExpr(ObjectReference anOR, JExpr anExpr) throws Exception
     {
         if (anExpr instanceof JExprLiteral)
-            return evalLiteral(anApp, (JExprLiteral) anExpr);
+            return evalLiteral((JExprLiteral) anExpr);
         if (anExpr instanceof JExprId)
-            return evalIdentifier(anApp, anOR, (JExprId) anExpr);
+            return evalIdentifier(anOR, (JExprId) anExpr);
         if (anExpr instanceof JExprMethodCall)
-            return evalMethod(anApp, anOR, (JExprMethodCall) anExpr);
+            return evalMethod(anOR, (JExprMethodCall) anExpr);
         if (anExpr instanceof JExprMath)
-            return evalMathExpr(anApp, anOR, (JExprMath) anExpr);
+            return evalMathExpr(anOR, (JExprMath) anExpr);
         if (anExpr instanceof JExprArrayIndex)
-            return evalArrayIndex(anApp, anOR, (JExprArrayIndex) anExpr);
+            return evalArrayIndex(anOR, (JExprArrayIndex) anExpr);
         if (anExpr instanceof JExprDot)
-            return evalExprChain(anApp, anOR, (JExprDot) anExpr);
+            return evalExprChain(anOR, (JExprDot) anExpr);
         return null;
     }
 
     /**
      * Evaluate JLiteral.
      */
-    private static Value evalLiteral(DebugApp anApp, JExprLiteral aLiteral)
+    private Value evalLiteral(JExprLiteral aLiteral)
     {
-        VirtualMachine aVM = anApp._vm;
+        VirtualMachine aVM = _app._vm;
         return switch (aLiteral.getLiteralType()) {
             case Boolean -> aVM.mirrorOf((Boolean) aLiteral.getValue());
             case Integer -> aVM.mirrorOf((Integer) aLiteral.getValue());
@@ -65,16 +108,16 @@ public class ExprEval {
     /**
      * Evaluate JIdentifier.
      */
-    private static Value evalIdentifier(DebugApp anApp, ObjectReference anOR, JExprId anId) throws Exception
+    private Value evalIdentifier(ObjectReference anOR, JExprId anId) throws Exception
     {
         // Get identifier name
         String name = anId.getName();
 
         // If name is "this", return Frame ThisObject
-        if (name.equals("this")) return anApp.thisObject();
+        if (name.equals("this")) return thisObject();
 
         // Check for local variable
-        StackFrame frame = anApp.getCurrentFrame();
+        StackFrame frame = getFrame();
         LocalVariable lvar = frame.visibleVariableByName(name);
         if (lvar != null)
             return frame.getValue(lvar);
@@ -92,30 +135,30 @@ public class ExprEval {
     /**
      * Evaluate JMethodCall.
      */
-    private static Value evalMethod(DebugApp anApp, ObjectReference anOR, JExprMethodCall anExpr) throws Exception
+    private Value evalMethod(ObjectReference anOR, JExprMethodCall anExpr) throws Exception
     {
-        ObjectReference thisObj = anApp.thisObject();
+        ObjectReference thisObj = thisObject();
         List<Value> args = new ArrayList<>();
         for (JExpr arg : anExpr.getArgs())
-            args.add(evalExpr(anApp, thisObj, arg));
-        return anApp.invokeMethod(anOR, anExpr.getName(), args);
+            args.add(evalExpr(thisObj, arg));
+        return _app.invokeMethod(_thread, anOR, anExpr.getName(), args);
     }
 
     /**
      * Evaluate JExprArrayIndex.
      */
-    static Value evalArrayIndex(DebugApp debugApp, ObjectReference objRef, JExprArrayIndex anExpr) throws Exception
+    Value evalArrayIndex(ObjectReference objRef, JExprArrayIndex anExpr) throws Exception
     {
         // Get array reference (return null if not found)
         JExpr arrayExpr = anExpr.getArrayExpr();
-        Value arrayRefValue = evalExpr(debugApp, objRef, arrayExpr);
+        Value arrayRefValue = evalExpr(objRef, arrayExpr);
         if (!(arrayRefValue instanceof ArrayReference arrayRef))
             return null;
 
         // Get Index
         JExpr indexExpr = anExpr.getIndexExpr();
-        ObjectReference thisObj = debugApp.thisObject();
-        Value arrayIndexValue = evalExpr(debugApp, thisObj, indexExpr);
+        ObjectReference thisObj = thisObject();
+        Value arrayIndexValue = evalExpr(thisObj, indexExpr);
         if (!(arrayIndexValue instanceof PrimitiveValue primitiveValue))
             return null;
 
@@ -127,45 +170,45 @@ public class ExprEval {
     /**
      * Evaluate JExprChain.
      */
-    static Value evalExprChain(DebugApp anApp, ObjectReference anOR, JExprDot anExpr) throws Exception
+    Value evalExprChain(ObjectReference anOR, JExprDot anExpr) throws Exception
     {
         ObjectReference or = anOR;
 
         // Eval prefix
         JExpr prefixExpr = anExpr.getPrefixExpr();
-        Object prefixVal = evalExpr(anApp, or, prefixExpr);
+        Object prefixVal = evalExpr(or, prefixExpr);
         if (prefixVal instanceof ObjectReference)
             or = (ObjectReference) prefixVal;
 
         // Eval expression
         JExpr expr = anExpr.getExpr();
-        return evalExpr(anApp, or, expr);
+        return evalExpr(or, expr);
     }
 
     /**
      * Evaluate JExprMath.
      */
-    static Value evalMathExpr(DebugApp anApp, ObjectReference anOR, JExprMath anExpr) throws Exception
+    Value evalMathExpr(ObjectReference anOR, JExprMath anExpr) throws Exception
     {
         // Get first value
         JExprMath.Op op = anExpr.getOp();
         int opCount = anExpr.getOperandCount();
         JExpr expr1 = anExpr.getOperand(0);
-        Value val1 = evalExpr(anApp, anOR, expr1);
+        Value val1 = evalExpr(anOR, expr1);
 
         // Handle Unary
         if (opCount == 1) {
             if (op == JExprMath.Op.Not) {
                 if (val1.type() instanceof BooleanType) {
                     boolean val = ((PrimitiveValue) val1).booleanValue();
-                    return anApp._vm.mirrorOf(!val);
+                    return _app._vm.mirrorOf(!val);
                 }
                 throw new RuntimeException("Logical Not MathExpr not boolean: " + anExpr);
             }
             if (op == JExprMath.Op.Negate) { // Need to not promote everything to double
                 if (val1.type() instanceof PrimitiveType) {
                     double val = ((PrimitiveValue) val1).doubleValue();
-                    return anApp._vm.mirrorOf(-val);
+                    return _app._vm.mirrorOf(-val);
                 }
                 throw new RuntimeException("Numeric Negate MathExpr not numeric: " + anExpr);
             }
@@ -179,16 +222,16 @@ public class ExprEval {
         // Handle Binary
         else if (opCount == 2) {
             JExpr expr2 = anExpr.getOperand(1);
-            Value val2 = evalExpr(anApp, anOR, expr2);
+            Value val2 = evalExpr(anOR, expr2);
             // BitOr, BitXOr, BitAnd, InstanceOf, ShiftLeft, ShiftRight, ShiftRightUnsigned,
             return switch (op) {
-                case Add -> add(anApp, val1, val2);
-                case Subtract -> subtract(anApp, val1, val2);
-                case Multiply -> multiply(anApp, val1, val2);
-                case Divide -> divide(anApp, val1, val2);
-                case Mod -> mod(anApp, val1, val2);
-                case Equal, NotEqual, LessThan, GreaterThan, LessThanOrEqual, GreaterThanOrEqual -> compareNumeric(anApp, val1, val2, op);
-                case Or, And -> compareLogical(anApp, val1, val2, op);
+                case Add -> add(val1, val2);
+                case Subtract -> subtract(val1, val2);
+                case Multiply -> multiply(val1, val2);
+                case Divide -> divide(val1, val2);
+                case Mod -> mod(val1, val2);
+                case Equal, NotEqual, LessThan, GreaterThan, LessThanOrEqual, GreaterThanOrEqual -> compareNumeric(val1, val2, op);
+                case Or, And -> compareLogical(val1, val2, op);
                 default -> throw new RuntimeException("Operator not supported " + anExpr.getOp());
             };
         }
@@ -199,7 +242,7 @@ public class ExprEval {
                 throw new RuntimeException("Ternary conditional expr not bool: " + expr1);
             boolean result = primitiveValue.booleanValue();
             JExpr expr = result ? anExpr.getOperand(1) : anExpr.getOperand(2);
-            return evalExpr(anApp, anOR, expr);
+            return evalExpr(anOR, expr);
         }
 
         // Complain
@@ -209,13 +252,13 @@ public class ExprEval {
     /**
      * Add two values.
      */
-    private static Value add(DebugApp anApp, Value aVal1, Value aVal2)
+    private Value add(Value aVal1, Value aVal2)
     {
         if (aVal1 instanceof StringReference || aVal2 instanceof StringReference)
-            return anApp._vm.mirrorOf(anApp.toString(aVal1) + anApp.toString(aVal2));
+            return _app._vm.mirrorOf(_app.toString(_thread, aVal1) + _app.toString(_thread, aVal2));
         if (aVal1 instanceof PrimitiveValue && aVal2 instanceof PrimitiveValue) {
             double result = ((PrimitiveValue) aVal1).doubleValue() + ((PrimitiveValue) aVal2).doubleValue();
-            return value(anApp, result, aVal1, aVal2);
+            return value(result, aVal1, aVal2);
         }
         throw new RuntimeException("Can't add types " + aVal1 + " + " + aVal2);
     }
@@ -223,11 +266,11 @@ public class ExprEval {
     /**
      * Subtract two values.
      */
-    private static Value subtract(DebugApp anApp, Value aVal1, Value aVal2)
+    private Value subtract(Value aVal1, Value aVal2)
     {
         if (aVal1 instanceof PrimitiveValue && aVal2 instanceof PrimitiveValue) {
             double result = ((PrimitiveValue) aVal1).doubleValue() - ((PrimitiveValue) aVal2).doubleValue();
-            return value(anApp, result, aVal1, aVal2);
+            return value(result, aVal1, aVal2);
         }
         throw new RuntimeException("Can't subtract types " + aVal1 + " + " + aVal2);
     }
@@ -235,11 +278,11 @@ public class ExprEval {
     /**
      * Multiply two values.
      */
-    private static Value multiply(DebugApp anApp, Value aVal1, Value aVal2)
+    private Value multiply(Value aVal1, Value aVal2)
     {
         if (aVal1 instanceof PrimitiveValue && aVal2 instanceof PrimitiveValue) {
             double result = ((PrimitiveValue) aVal1).doubleValue() * ((PrimitiveValue) aVal2).doubleValue();
-            return value(anApp, result, aVal1, aVal2);
+            return value(result, aVal1, aVal2);
         }
         throw new RuntimeException("Can't multiply types " + aVal1 + " + " + aVal2);
     }
@@ -247,11 +290,11 @@ public class ExprEval {
     /**
      * Divide two values.
      */
-    private static Value divide(DebugApp anApp, Value aVal1, Value aVal2)
+    private Value divide(Value aVal1, Value aVal2)
     {
         if (aVal1 instanceof PrimitiveValue && aVal2 instanceof PrimitiveValue) {
             double result = ((PrimitiveValue) aVal1).doubleValue() / ((PrimitiveValue) aVal2).doubleValue();
-            return value(anApp, result, aVal1, aVal2);
+            return value(result, aVal1, aVal2);
         }
         throw new RuntimeException("Can't divide types " + aVal1 + " + " + aVal2);
     }
@@ -259,11 +302,11 @@ public class ExprEval {
     /**
      * Mod two values.
      */
-    private static Value mod(DebugApp anApp, Value aVal1, Value aVal2)
+    private Value mod(Value aVal1, Value aVal2)
     {
         if (aVal1 instanceof PrimitiveValue && aVal2 instanceof PrimitiveValue) {
             double result = ((PrimitiveValue) aVal1).longValue() % ((PrimitiveValue) aVal2).longValue();
-            return value(anApp, result, aVal1, aVal2);
+            return value(result, aVal1, aVal2);
         }
         throw new RuntimeException("Can't mod types " + aVal1 + " + " + aVal2);
     }
@@ -271,12 +314,12 @@ public class ExprEval {
     /**
      * Compare two numeric values.
      */
-    private static Value compareNumeric(DebugApp anApp, Value aVal1, Value aVal2, JExprMath.Op anOp)
+    private Value compareNumeric(Value aVal1, Value aVal2, JExprMath.Op anOp)
     {
         if (aVal1 instanceof PrimitiveValue && aVal2 instanceof PrimitiveValue) {
             double v1 = ((PrimitiveValue) aVal1).doubleValue(), v2 = ((PrimitiveValue) aVal2).doubleValue();
             boolean val = compareNumeric(v1, v2, anOp);
-            return anApp._vm.mirrorOf(val);
+            return _app._vm.mirrorOf(val);
         }
         throw new RuntimeException("Can't numeric compare types " + aVal1 + " + " + aVal2);
     }
@@ -300,13 +343,13 @@ public class ExprEval {
     /**
      * Compare two boolean values.
      */
-    private static Value compareLogical(DebugApp anApp, Value aVal1, Value aVal2, JExprMath.Op anOp)
+    private Value compareLogical(Value aVal1, Value aVal2, JExprMath.Op anOp)
     {
         if (aVal1 instanceof PrimitiveValue && aVal2 instanceof PrimitiveValue) {
             boolean v1 = ((PrimitiveValue) aVal1).booleanValue();
             boolean v2 = ((PrimitiveValue) aVal2).booleanValue();
             boolean val = compareLogical(v1, v2, anOp);
-            return anApp._vm.mirrorOf(val);
+            return _app._vm.mirrorOf(val);
         }
         throw new RuntimeException("Can't logical compare types " + aVal1 + " + " + aVal2);
     }
@@ -324,17 +367,17 @@ public class ExprEval {
     /**
      * Return value of appropriate type for given number and original two values.
      */
-    private static Value value(DebugApp anApp, double aValue, Value aVal1, Value aVal2)
+    private Value value(double aValue, Value aVal1, Value aVal2)
     {
         Type type1 = aVal1.type(), type2 = aVal2.type();
         if (type1 instanceof DoubleType || type2 instanceof DoubleType)
-            return anApp._vm.mirrorOf(aValue);
+            return _app._vm.mirrorOf(aValue);
         if (type1 instanceof FloatType || type2 instanceof FloatType)
-            return anApp._vm.mirrorOf((float) aValue);
+            return _app._vm.mirrorOf((float) aValue);
         if (type1 instanceof LongType || type2 instanceof LongType)
-            return anApp._vm.mirrorOf((long) aValue);
+            return _app._vm.mirrorOf((long) aValue);
         if (type1 instanceof IntegerType || type2 instanceof IntegerType)
-            return anApp._vm.mirrorOf((int) aValue);
+            return _app._vm.mirrorOf((int) aValue);
         throw new RuntimeException("Can't discern value type for " + aVal1 + " and " + aVal2);
     }
 
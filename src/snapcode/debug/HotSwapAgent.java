@@ -0,0 +1,55 @@
+package snapcode.debug;
+import java.lang.instrument.ClassDefinition;
+import java.lang.instrument.Instrumentation;
+
+/**
+ * A Java agent to provide Instrumentation for redefining classes of in-process (RunAppSrc) apps.
+ *
+ * The agent is started automatically when SnapCode is launched from the full jar (via the Launcher-Agent-Class
+ * manifest attribute) or can be started with -javaagent. When not started, hot swap is not available.
+ */
+public class HotSwapAgent {
+
+    // The instrumentation
+    private static Instrumentation _instrumentation;
+
+    /**
+     * Agent method when started with -javaagent.
+     */
+    public static void premain(String agentArgs, Instrumentation anInstrumentation)
+    {
+        _instrumentation = anInstrumentation;
+    }
+
+    /**
+     * Agent method when started with Launcher-Agent-Class manifest attribute.
+     */
+    public static void agentmain(String agentArgs, Instrumentation anInstrumentation)
+    {
+        _instrumentation = anInstrumentation;
+    }
+
+    /**
+     * Returns whether class redefinition is available.
+     */
+    public static boolean isAvailable()
+    {
+        return _instrumentation != null && _instrumentation.isRedefineClassesSupported();
+    }
+
+    /**
+     * Returns the classes loaded by given class loader.
+     */
+    public static Class<?>[] getLoadedClasses(ClassLoader aClassLoader)
+    {
+        return _instrumentation.getInitiatedClasses(aClassLoader);
+    }
+
+    /**
+     * Redefines given classes.
+     */
+    public static void redefineClasses(ClassDefinition[] classDefs) throws Exception
+    {
+        _instrumentation.redefineClasses(classDefs);
+    }
+}
@@ -0,0 +1,142 @@
+package snapcode.debug;
+import snap.web.WebFile;
+import snapcode.project.ClassFileStore;
+import snapcode.project.ClassFileUtils;
+import snapcode.project.Project;
+import snapcode.project.ProjectFiles;
+import java.lang.instrument.ClassDefinition;
+import java.util.*;
+import java.util.function.BiConsumer;
+
+/**
+ * This class redefines classes of an in-process app after a build, if the class shapes didn't change
+ * (same super class, interfaces, fields and method signatures - only method bodies changed).
+ *
+ * Changed class files are reported by the compiler (with their old bytes), so nothing is scanned at run start and
+ * in-memory class files work before they are saved. Only classes already loaded by the app are checked and
+ * redefined - classes that aren't loaded will just load the new bytes when needed.
+ */
+public class HotSwapper {
+
+    // The project
+    private Project _project;
+
+    // The class loader the app classes were loaded with
+    private ClassLoader _classLoader;
+
+    // A map of class name to class shape of the bytes that loaded class was last defined with (set lazily)
+    private Map<String,String> _classShapes = new HashMap<>();
+
+    // A map of changed class name to class file since last apply
+    private Map<String,WebFile> _changedClassFiles = new LinkedHashMap<>();
+
+    // Listener for class files rewritten by compiler
+    private BiConsumer<WebFile,byte[]> _classFileChangeLsnr = this::handleClassFileChange;
+
+    /**
+     * Constructor.
+     */
+    public HotSwapper(Project aProject, ClassLoader aClassLoader)
+    {
+        _project = aProject;
+        _classLoader = aClassLoader;
+        _project.addClassFileChangeListener(_classFileChangeLsnr);
+    }
+
+    /**
+     * Stops listening for class file changes.
+     */
+    public void dispose()
+    {
+        _project.removeClassFileChangeListener(_classFileChangeLsnr);
+    }
+
+    /**
+     * Called when compiler rewrites a class file: Records class as changed and the shape of its old bytes.
+     */
+    private synchronized void handleClassFileChange(WebFile classFile, byte[] oldBytes)
+    {
+        // Record shape of bytes before first change (what a loaded class was defined with), unless already known
+        ProjectFiles projectFiles = _project.getProjectFiles();
+        String className = projectFiles.getClassNameForFile(classFile);
+        if (!_classShapes.containsKey(className) && !_changedClassFiles.containsKey(className)) {
+            String oldShape = oldBytes != null ? ClassFileUtils.getClassShapeForBytes(oldBytes) : null;
+            _classShapes.put(className, oldShape);
+        }
+
+        // Add to changed class files
+        _changedClassFiles.put(className, classFile);
+    }
+
+    /**
+     * Applies changed class files. Returns the number of classes redefined or -1 if app needs restart.
+     */
+    public synchronized int applyChanges()
+    {
+        // If no changed class files, just return
+        if (_changedClassFiles.isEmpty())
+            return 0;
+
+        // Get changed class files and clear
+        Map<String,WebFile> changedClassFiles = new LinkedHashMap<>(_changedClassFiles);
+        _changedClassFiles.clear();
+
+        // If keeping classes in memory, finish pending class file saves so files match compiled bytes
+        ClassFileStore classFileStore = ClassFileStore.isEnabled() ? _project.getClassFileStore() : null;
+        if (classFileStore != null)
+            classFileStore.waitForFlush();
+
+        // Get loaded classes for app class loader
+        Map<String,Class<?>> loadedClasses = new HashMap<>();
+        if (HotSwapAgent.isAvailable()) {
+            for (Class<?> loadedClass : HotSwapAgent.getLoadedClasses(_classLoader)) {
+                if (loadedClass.getClassLoader() == _classLoader)
+                    loadedClasses.put(loadedClass.getName(), loadedClass);
+            }
+        }
+
+        // Iterate over changed class files and create class definitions for loaded classes
+        List<ClassDefinition> classDefs = new ArrayList<>();
+        Map<String,String> newShapes = new HashMap<>();
+        for (Map.Entry<String,WebFile> entry : changedClassFiles.entrySet()) {
+
+            // If class not loaded, forget recorded shape and skip (class will load new bytes when needed)
+            String className = entry.getKey();
+            Class<?> loadedClass = loadedClasses.get(className);
+            if (loadedClass == null) {
+                _classShapes.remove(className);
+                continue;
+            }
+
+            // If redefine not available, return restart
+            if (!HotSwapAgent.isAvailable())
+                return -1;
+
+            // If shape changed, return restart (get bytes from class file store if keeping classes in memory)
+            byte[] classBytes = classFileStore != null ? classFileStore.getClassBytes(className) : null;
+            if (classBytes == null)
+                classBytes = entry.getValue().getBytes();
+            String oldShape = _classShapes.get(className);
+            String newShape = classBytes != null ? ClassFileUtils.getClassShapeForBytes(classBytes) : null;
+            if (oldShape == null || !oldShape.equals(newShape))
+                return -1;
+
+            // Add class definition
+            classDefs.add(new ClassDefinition(loadedClass, classBytes));
+            newShapes.put(className, newShape);
+        }
+
+        // Redefine classes
+        if (classDefs.isEmpty())
+            return 0;
+        try { HotSwapAgent.redefineClasses(classDefs.toArray(new ClassDefinition[0])); }
+        catch (Exception e) {
+            System.err.println("HotSwapper.applyChanges: Redefine failed: " + e);
+            return -1;
+        }
+
+        // Record shapes of redefined classes and return
+        _classShapes.putAll(newShapes);
+        return classDefs.size();
+    }
+}
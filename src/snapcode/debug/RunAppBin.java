@@ -1,5 +1,6 @@
 package snapcode.debug;
 import snap.util.StringUtils;
+import snap.view.View;
 import snapcode.apptools.RunTool;
 import snapcode.project.RunConfig;
 import java.io.*;
@@ -21,6 +22,21 @@ public class RunAppBin extends RunApp {
     // The writer to process stdin
     private BufferedWriter _stdInWriter;
 
+    // The JVM metrics sampler for process
+    private AppMetrics _metrics;
+
+    // The view to show JVM metrics
+    private AppMetricsView _metricsView;
+
+    // The AppCDS archive helper
+    private AppCDS _appCDS;
+
+    // The time process was started
+    private long _execTime;
+
+    // Whether process has produced output
+    private boolean _hasOutput;
+
     /**
      * Constructor for RunConfig and args.
      */
@@ -34,6 +50,33 @@ public class RunAppBin extends RunApp {
      */
     public Process getProcess()  { return _process; }
 
+    /**
+     * Returns the JVM metrics sampler for process (null if metrics view not yet shown).
+     */
+    public AppMetrics getMetrics()  { return _metrics; }
+
+    /**
+     * Returns whether JVM metrics can be shown for process (not for debugged processes, where attach can hang).
+     */
+    public boolean isMetricsAvailable()  { return _process != null && !(this instanceof DebugApp); }
+
+    /**
+     * Returns the view to show JVM metrics, attaching to process on first call (null if not available).
+     */
+    public View getMetricsView()
+    {
+        if (_metricsView != null) return _metricsView;
+        if (!isMetricsAvailable())
+            return null;
+
+        // Start metrics (if process still running), create view and return
+        if (_metrics == null && _running)
+            startMetrics();
+        if (_metrics == null)
+            return null;
+        return _metricsView = new AppMetricsView(_metrics);
+    }
+
     /**
      * Executes the given command + args.
      */
@@ -45,9 +88,16 @@ public class RunAppBin extends RunApp {
         String argsStr = StringUtils.join(args, " ") + '\n';
         appendOut(argsStr);
 
+        // Add AppCDS archive args
+        _appCDS = new AppCDS();
+        args = _appCDS.getArgsWithArchiveArgs(args);
+        if (_appCDS.getSkipReason() != null)
+            appendOut("[AppCDS: skipped - " + _appCDS.getSkipReason() + "]\n");
+
         // Run process
         try {
             File workingDir = getWorkingDirectory();
+            _execTime = System.currentTimeMillis();
             _process = Runtime.getRuntime().exec(args, null, workingDir);
             _running = true;
             startSystemConsoleReaders();
@@ -66,6 +116,25 @@ public class RunAppBin extends RunApp {
     public void terminate()
     {
         _process.destroy();
+        stopMetrics();
+    }
+
+    /**
+     * Starts sampling JVM metrics for process.
+     */
+    protected synchronized void startMetrics()
+    {
+        _metrics = new AppMetrics(_process);
+        _metrics.start();
+    }
+
+    /**
+     * Stops sampling JVM metrics for process.
+     */
+    protected synchronized void stopMetrics()
+    {
+        if (_metrics != null)
+            _metrics.stop();
     }
 
     /**
@@ -84,6 +153,22 @@ public class RunAppBin extends RunApp {
         _errReaderThread.start();
     }
 
+    /**
+     * Called when process produces output to report AppCDS startup time on first output.
+     */
+    private synchronized void handleProcessOutput()
+    {
+        // If already has output, just return
+        if (_hasOutput) return;
+        _hasOutput = true;
+
+        // Get startup time and report
+        long startupTime = System.currentTimeMillis() - _execTime;
+        String startupReport = _appCDS != null ? _appCDS.handleFirstOutput(startupTime) : null;
+        if (startupReport != null)
+            appendOut(startupReport);
+    }
+
     /**
      * Sends input to process.
      */
@@ -145,6 +230,7 @@ public class RunAppBin extends RunApp {
 
                 // Read until end
                 for (int len = bufferedReader.read(chars, 0, 1024); len >= 0; len = bufferedReader.read(chars, 0, 1024)) {
+                    handleProcessOutput();
                     String line = new String(chars, 0, len);
                     appendConsoleOutput(line, _isErr);
                 }
@@ -153,6 +239,9 @@ public class RunAppBin extends RunApp {
                 if (!_terminated) {
                     _running = false;
                     _terminated = true;
+                    stopMetrics();
+                    if (_appCDS != null)
+                        _appCDS.handleProcessExit(_process);
                     notifyAppExited();
                 }
             }
@@ -2,13 +2,20 @@ package snapcode.debug;
 import snap.view.*;
 import snap.viewx.Console;
 import snapcode.apptools.RunTool;
+import snap.props.PropChangeListener;
 import snapcode.project.Project;
 import snapcode.project.RunConfig;
+import snapcode.project.Workspace;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
 import java.io.PrintStream;
 import java.lang.reflect.Method;
-import java.util.Arrays;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
 
 /**
  * This RunApp subclass runs an app from source.
@@ -24,6 +31,15 @@ public class RunAppSrc extends RunApp {
     // An input stream for standard in
     private BytesInputStream _standardInInputStream;
 
+    // The buffer for console output from app threads
+    private ConsoleOutputBuffer _consoleOutputBuffer = new ConsoleOutputBuffer(this);
+
+    // The HotSwapper to redefine classes after builds
+    private HotSwapper _hotSwapper;
+
+    // The listener for workspace building changes
+    private PropChangeListener _workspaceBuildingLsnr = pc -> handleWorkspaceBuildingChange();
+
     // The real system in/out/err
     private static final InputStream REAL_SYSTEM_IN = System.in;
     private static final PrintStream REAL_SYSTEM_OUT = System.out;
@@ -69,14 +85,17 @@ public class RunAppSrc extends RunApp {
 
             // Replace System.in with proxy versions to allow input/output
             System.setIn(_standardInInputStream = new BytesInputStream());
-            System.setOut(new ProxyPrintStream(REAL_SYSTEM_OUT));
-            System.setErr(new ProxyPrintStream(REAL_SYSTEM_ERR));
+            System.setOut(new ProxyPrintStream(REAL_SYSTEM_OUT, false));
+            System.setErr(new ProxyPrintStream(REAL_SYSTEM_ERR, true));
 
             // Set console
             Console.setShared(null);
             Console.setConsoleCreatedHandler(this::consoleWasCreated);
         }
 
+        // Start listening for builds to hot swap changed classes
+        startHotSwap();
+
         // Run code
         runMainMethod();
 
@@ -160,6 +179,13 @@ public class RunAppSrc extends RunApp {
             }
         }
 
+        // Close standard in so any app threads blocked reading get EOF (null if terminated before run set it)
+        if (_standardInInputStream != null)
+            _standardInInputStream.closeInput();
+
+        // Stop hot swap
+        stopHotSwap();
+
         // Reset thread
         _runAppThread = null;
         _running = false;
@@ -232,6 +258,64 @@ public class RunAppSrc extends RunApp {
         catch(Throwable t) { System.err.println("RunAppSrc.getMainClass: Unknown error: " + t); return null; }
     }
 
+    /**
+     * Starts listening for workspace builds to redefine changed classes in place.
+     */
+    private void startHotSwap()
+    {
+        Project project = getMainFileProject();
+        ClassLoader classLoader = project.getRuntimeClassLoader();
+        _hotSwapper = new HotSwapper(project, classLoader);
+        project.getWorkspace().addPropChangeListener(_workspaceBuildingLsnr, Workspace.Building_Prop);
+    }
+
+    /**
+     * Stops listening for workspace builds.
+     */
+    private void stopHotSwap()
+    {
+        Project project = getMainFileProject();
+        if (project != null)
+            project.getWorkspace().removePropChangeListener(_workspaceBuildingLsnr);
+        if (_hotSwapper != null)
+            _hotSwapper.dispose();
+        _hotSwapper = null;
+    }
+
+    /**
+     * Called when Workspace.Building changes to redefine changed classes (or restart app if class shapes changed).
+     */
+    private void handleWorkspaceBuildingChange()
+    {
+        // If still building or build had errors, just return
+        Workspace workspace = getMainFileProject().getWorkspace();
+        if (workspace.isBuilding() || workspace.getBuildIssues().getErrorCount() > 0)
+            return;
+
+        // If app no longer running, just return
+        HotSwapper hotSwapper = _hotSwapper;
+        if (hotSwapper == null || !isRunning())
+            return;
+
+        // Apply changes: If classes redefined, report
+        int redefineCount = hotSwapper.applyChanges();
+        if (redefineCount > 0)
+            appendOut("[Hot swapped " + redefineCount + " class(es)]\n");
+
+        // If changes couldn't be applied in place, restart app
+        else if (redefineCount < 0)
+            ViewUtils.runLater(this::restart);
+    }
+
+    /**
+     * Terminates app and runs again.
+     */
+    private void restart()
+    {
+        terminate();
+        _runTool.runAppForConfig(_runConfig, false);
+    }
+
     /**
      * Called when Console is created.
      */
@@ -247,12 +331,28 @@ public class RunAppSrc extends RunApp {
      */
     private class ProxyPrintStream extends PrintStream {
 
+        // Whether stream is error stream
+        private boolean _isErr;
+
+        // The decoder for bytes written (keeps state across writes so multi-byte chars aren't split)
+        private CharsetDecoder _decoder = Charset.defaultCharset().newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+
+        // The bytes of an incomplete char sequence from last write
+        private byte[] _carryBytes = new byte[16];
+        private int _carryLength;
+
+        // A buffer for single byte writes
+        private byte[] _singleByte = new byte[1];
+
         /**
          * Constructor.
          */
-        public ProxyPrintStream(PrintStream printStream)
+        public ProxyPrintStream(PrintStream printStream, boolean isErr)
         {
             super(printStream);
+            _isErr = isErr;
         }
 
         /**
@@ -260,12 +360,10 @@ public class RunAppSrc extends RunApp {
          */
         public void write(int b)
         {
-            // Do normal version
-            super.write(b);
-
-            // Write char to console
-            String str = String.valueOf(Character.valueOf((char) b));
-            appendConsoleOutput(str, this == System.err);
+            synchronized (this) {
+                _singleByte[0] = (byte) b;
+                write(_singleByte, 0, 1);
+            }
         }
 
         /**
@@ -273,37 +371,69 @@ public class RunAppSrc extends RunApp {
          */
         public void write(byte[] buf, int off, int len)
         {
-            // Do normal version
-            super.write(buf, off, len);
+            String str;
+            synchronized (this) {
+
+                // Do normal version
+                super.write(buf, off, len);
+
+                // Decode bytes
+                str = decodeBytes(buf, off, len);
+            }
+
+            // Write string to console (never blocks, since caller may hold PrintStream lock)
+            if (!str.isEmpty())
+                _consoleOutputBuffer.addOutput(str, _isErr);
+        }
+
+        /**
+         * Decodes given bytes, carrying over trailing bytes of an incomplete char sequence to next write.
+         */
+        private String decodeBytes(byte[] buf, int off, int len)
+        {
+            // Get input buffer, including bytes carried over from last write
+            ByteBuffer inBuf;
+            if (_carryLength > 0) {
+                inBuf = ByteBuffer.allocate(_carryLength + len);
+                inBuf.put(_carryBytes, 0, _carryLength).put(buf, off, len).flip();
+            }
+            else inBuf = ByteBuffer.wrap(buf, off, len);
+
+            // Decode available chars
+            CharBuffer outBuf = CharBuffer.allocate((int) (inBuf.remaining() * _decoder.maxCharsPerByte()) + 1);
+            _decoder.decode(inBuf, outBuf, false);
 
-            // Write buff to console
-            String str = new String(buf, off, len);
-            appendConsoleOutput(str, this == System.err);
+            // Carry over remaining bytes
+            _carryLength = Math.min(inBuf.remaining(), _carryBytes.length);
+            inBuf.get(_carryBytes, 0, _carryLength);
+
+            // Return string
+            outBuf.flip();
+            return outBuf.toString();
         }
     }
 
     /**
-     * An InputStream that lets you add bytes on the fly.
+     * An InputStream that lets you add bytes on the fly: Bytes are kept in a circular buffer that grows as needed
+     * (up to a maximum), so adding and reading cost linear time and consumed bytes are released.
      */
     private static class BytesInputStream extends InputStream {
 
-        // The byte array to write to
-        private byte[] _writeBytesBuffer = new byte[0];
-
-        // The byte array to read from
-        private byte[] _readBytesBuffer = new byte[1];
+        // The circular byte buffer
+        private byte[] _buffer = new byte[INITIAL_BUFFER_SIZE];
 
-        // The index of the next character to read
-        private int _readBytesIndex;
+        // The index of the next byte to read
+        private int _readIndex;
 
-        // The currently marked position
-        private int _markedIndex;
+        // The number of bytes available to read
+        private int _count;
 
-        // The number of bytes write bytes.
-        private int _writeBytesLength;
+        // Whether input is closed (reads return EOF once drained)
+        private boolean _closed;
 
-        // Whether waiting for more input
-        private boolean  _waiting;
+        // Constants
+        private static final int INITIAL_BUFFER_SIZE = 8 * 1024;
+        private static final int MAX_BUFFER_SIZE = 16 * 1024 * 1024;
 
         /** Constructor */
         public BytesInputStream()
@@ -317,78 +447,122 @@ public class RunAppSrc extends RunApp {
             addBytes(aStr.getBytes());
         }
 
-        /** Adds bytes to stream. */
-        public void addBytes(byte[] addBytes)
+        /** Adds bytes to stream. Waits for reader if buffer is full (or drops bytes if on event thread). */
+        public synchronized void addBytes(byte[] addBytes)
         {
-            // Add new bytes to write buffer
-            int oldLength = _writeBytesBuffer.length;
-            _writeBytesBuffer = Arrays.copyOf(_writeBytesBuffer, oldLength + addBytes.length);
-            System.arraycopy(addBytes, 0, _writeBytesBuffer, oldLength, addBytes.length);
-            _writeBytesLength = _writeBytesBuffer.length;
-
-            // If waiting, wake up
-            if (_waiting) {
-                synchronized (this) {
-                    try { notifyAll(); _waiting = false; }
-                    catch(Exception e) { throw new RuntimeException(e); }
+            int offset = 0;
+            while (offset < addBytes.length && !_closed) {
+
+                // If buffer full, grow (or wait for reader, or drop if on event thread)
+                if (_count == _buffer.length) {
+                    if (_buffer.length < MAX_BUFFER_SIZE)
+                        growBuffer();
+                    else if (ViewEnv.getEnv().isEventThread()) {
+                        System.err.println("RunAppSrc.BytesInputStream.addBytes: Input buffer full, dropped " + (addBytes.length - offset) + " bytes");
+                        return;
+                    }
+                    else {
+                        try { wait(); }
+                        catch (InterruptedException e) { Thread.currentThread().interrupt(); return; }
+                    }
+                    continue;
                 }
+
+                // Copy as many bytes as fit in contiguous free space
+                int writeIndex = (_readIndex + _count) % _buffer.length;
+                int length = Math.min(addBytes.length - offset, Math.min(_buffer.length - _count, _buffer.length - writeIndex));
+                System.arraycopy(addBytes, offset, _buffer, writeIndex, length);
+                _count += length;
+                offset += length;
+
+                // Wake waiting readers
+                notifyAll();
             }
         }
 
+        /** Doubles buffer size, moving available bytes to start. */
+        private void growBuffer()
+        {
+            byte[] newBuffer = new byte[Math.min(_buffer.length * 2, MAX_BUFFER_SIZE)];
+            int firstLength = Math.min(_count, _buffer.length - _readIndex);
+            System.arraycopy(_buffer, _readIndex, newBuffer, 0, firstLength);
+            System.arraycopy(_buffer, 0, newBuffer, firstLength, _count - firstLength);
+            _buffer = newBuffer;
+            _readIndex = 0;
+        }
+
+        /** Closes input: Blocked and future reads return EOF once available bytes are read. */
+        public synchronized void closeInput()
+        {
+            _closed = true;
+            notifyAll();
+        }
+
         /** Reads the next byte of data from this input stream. */
         @Override
-        public int read()
+        public synchronized int read() throws IOException
         {
-            int len = read(_readBytesBuffer, 0, 1);
-            return len > 0 ? _readBytesBuffer[0] : -1;
+            if (!waitForBytes())
+                return -1;
+            int b = _buffer[_readIndex] & 0xFF;
+            _readIndex = (_readIndex + 1) % _buffer.length;
+            _count--;
+            notifyAll();
+            return b;
         }
 
         /** Reads up to <code>len</code> bytes of data into an array of bytes from this input stream. */
         @Override
-        public int read(byte[] theBytes, int offset, int length)
+        public synchronized int read(byte[] theBytes, int offset, int length) throws IOException
+        {
+            if (length == 0)
+                return 0;
+            if (!waitForBytes())
+                return -1;
+
+            // Copy available bytes (in up to two parts if wrapped)
+            int readLength = Math.min(length, _count);
+            int firstLength = Math.min(readLength, _buffer.length - _readIndex);
+            System.arraycopy(_buffer, _readIndex, theBytes, offset, firstLength);
+            System.arraycopy(_buffer, 0, theBytes, offset + firstLength, readLength - firstLength);
+            _readIndex = (_readIndex + readLength) % _buffer.length;
+            _count -= readLength;
+
+            // Wake waiting writers
+            notifyAll();
+            return readLength;
+        }
+
+        /** Waits until bytes are available. Returns false if input closed and drained. */
+        private boolean waitForBytes() throws IOException
         {
-            while (_readBytesIndex >= _writeBytesLength) {
-                synchronized (this) {
-                    try { _waiting = true; wait(); }
-                    catch(Exception ignore) { }
+            while (_count == 0) {
+                if (_closed)
+                    return false;
+                try { wait(); }
+                catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Input read interrupted");
                 }
             }
-
-            int availableBytesCount = _writeBytesLength - _readBytesIndex;
-            if (length > availableBytesCount)
-                length = availableBytesCount;
-            if (length <= 0)
-                return 0;
-            System.arraycopy(_writeBytesBuffer, _readBytesIndex, theBytes, offset, length);
-            _readBytesIndex += length;
-            return length;
+            return true;
         }
 
         /** Skips <code>n</code> bytes of input from this input stream. */
         @Override
         public synchronized long skip(long n)
         {
-            long k = _writeBytesLength - _readBytesIndex;
-            if (n < k) {
-                k = n < 0 ? 0 : n;
-            }
-            _readBytesIndex += k;
+            int k = (int) Math.max(0, Math.min(n, _count));
+            _readIndex = (_readIndex + k) % _buffer.length;
+            _count -= k;
+            notifyAll();
             return k;
         }
 
         /** Returns the number of remaining bytes that can be read (or skipped over) from this input stream. */
-        public synchronized int available() { return _writeBytesLength - _readBytesIndex; }
-
-        /** Tests if this <code>InputStream</code> supports mark/reset. */
-        public boolean markSupported() { return true; }
-
-        /** Set the current marked position in the stream. */
-        public void mark(int readAheadLimit) { _markedIndex = _readBytesIndex; }
-
-        /** Resets the buffer to the marked position. */
-        public synchronized void reset() { _readBytesIndex = _markedIndex; }
+        public synchronized int available() { return _count; }
 
-        /** Closing a <tt>BytesArrayInputStream</tt> has no effect. */
+        /** Closing stream has no effect (System.in is shared with app code). */
         public void close() throws IOException  { }
     }
 }
@@ -41,6 +41,15 @@ public class Breakpoint implements Comparable<Breakpoint> {
     // Whether breakpoint is enabled
     private boolean  _enabled = true;
 
+    // The condition expression (breakpoint only suspends when condition is true)
+    private String  _condition;
+
+    // The hit count (breakpoint only suspends on given hit)
+    private int  _hitCount;
+
+    // The log message (if set, breakpoint is a logpoint that prints message instead of suspending)
+    private String  _logMessage;
+
     // Constants for type
     public enum Type { LineBreakpoint, MethodBreakpoint, Exception, AccessWatchpoint, ModificationWatchpoint }
 
@@ -215,13 +224,64 @@ public class Breakpoint implements Comparable<Breakpoint> {
         _enabled = aValue;
     }
 
+    /**
+     * Returns the condition expression (breakpoint only suspends when condition is true).
+     */
+    public String getCondition()  { return _condition; }
+
+    /**
+     * Sets the condition expression.
+     */
+    public void setCondition(String aValue)
+    {
+        _condition = aValue != null && !aValue.isBlank() ? aValue.trim() : null;
+    }
+
+    /**
+     * Returns the hit count (breakpoint only suspends on given hit, zero for every hit).
+     */
+    public int getHitCount()  { return _hitCount; }
+
+    /**
+     * Sets the hit count.
+     */
+    public void setHitCount(int aValue)
+    {
+        _hitCount = Math.max(aValue, 0);
+    }
+
+    /**
+     * Returns the log message (if set, breakpoint is a logpoint). Expressions in braces are evaluated: "x = {x}".
+     */
+    public String getLogMessage()  { return _logMessage; }
+
+    /**
+     * Sets the log message.
+     */
+    public void setLogMessage(String aValue)
+    {
+        _logMessage = aValue != null && !aValue.isEmpty() ? aValue : null;
+    }
+
+    /**
+     * Returns whether breakpoint is a logpoint (prints log message instead of suspending).
+     */
+    public boolean isLogpoint()  { return _logMessage != null; }
+
     /**
      * Returns a descriptor string.
      */
     public String getDescriptor()
     {
         String filePath = getFilePath();
-        return filePath + " [Line: " + getLineNum() + "]";
+        String descriptor = filePath + " [Line: " + getLineNum() + "]";
+        if (_condition != null)
+            descriptor += " if " + _condition;
+        if (_hitCount > 0)
+            descriptor += " hit " + _hitCount;
+        if (_logMessage != null)
+            descriptor += " log \"" + _logMessage + '"';
+        return descriptor;
     }
 
     /**
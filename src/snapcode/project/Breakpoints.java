@@ -8,7 +8,6 @@ import snap.web.WebSite;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
-import java.util.Scanner;
 
 /**
  * A class to manage project breakpoints.
@@ -77,6 +76,18 @@ public class Breakpoints extends PropObject {
             remove(index);
     }
 
+    /**
+     * Resets a breakpoint after condition, hit count or log message change (re-adds so running apps reinstall it).
+     */
+    public void resetBreakpoint(Breakpoint aBP)
+    {
+        int index = _breakpointsList.indexOf(aBP);
+        if (index >= 0) {
+            remove(index);
+            add(index, aBP);
+        }
+    }
+
     /**
      * Adds a Breakpoint to file at line.
      */
@@ -132,16 +143,19 @@ public class Breakpoints extends PropObject {
 
         // Get vars
         String text = breakpointFile.getText();
-        Scanner scanner = new Scanner(text);
         List<Breakpoint> breakpointsList = new ArrayList<>();
 
-        // Iterate over text
-        while (scanner.hasNext()) {
+        // Iterate over lines
+        for (String line : text.split("\n")) {
 
-            // Get Breakpoint Type, Path, LineNum
-            String type = scanner.next();
-            String path = scanner.next();
-            int lineNum = scanner.nextInt();
+            // Get Breakpoint Type, Path, LineNum (fields are tab separated, or space separated in old files)
+            String[] fields = line.indexOf('\t') >= 0 ? line.split("\t", -1) : line.trim().split(" +");
+            if (fields.length < 3)
+                continue;
+            String path = fields[1];
+            int lineNum;
+            try { lineNum = Integer.parseInt(fields[2]); }
+            catch (NumberFormatException e) { continue; }
 
             // Get Breakpoint source file (just continue if file no longer found in Workspace)
             Project rootProj = _workspace.getRootProject();
@@ -149,8 +163,18 @@ public class Breakpoints extends PropObject {
             if (sourceFile == null)
                 continue;
 
-            // Create/add new breakpoint
+            // Create new breakpoint
             Breakpoint breakpoint = new Breakpoint(sourceFile, lineNum);
+
+            // Set condition, hit count and log message
+            if (fields.length >= 6) {
+                breakpoint.setCondition(unescapeField(fields[3]));
+                try { breakpoint.setHitCount(Integer.parseInt(fields[4])); }
+                catch (NumberFormatException ignore) { }
+                breakpoint.setLogMessage(unescapeField(fields[5]));
+            }
+
+            // Add breakpoint
             breakpointsList.add(breakpoint);
         }
 
@@ -166,9 +190,12 @@ public class Breakpoints extends PropObject {
         // Create file text
         StringBuilder sb = new StringBuilder();
         for (Breakpoint breakpoint : _breakpointsList) {
-            sb.append(breakpoint.getType()).append(' ');
-            sb.append(breakpoint.getFilePath()).append(' ');
-            sb.append(breakpoint.getLine()).append('\n');
+            sb.append(breakpoint.getType()).append('\t');
+            sb.append(breakpoint.getFilePath()).append('\t');
+            sb.append(breakpoint.getLine()).append('\t');
+            sb.append(escapeField(breakpoint.getCondition())).append('\t');
+            sb.append(breakpoint.getHitCount()).append('\t');
+            sb.append(escapeField(breakpoint.getLogMessage())).append('\n');
         }
 
         // Get file, set text and save
@@ -178,6 +205,35 @@ public class Breakpoints extends PropObject {
         catch (Exception e) { throw new RuntimeException(e); }
     }
 
+    /**
+     * Returns given field string escaped for breakpoints file (backslash, tab and newline), or empty string for null.
+     */
+    private static String escapeField(String aStr)
+    {
+        if (aStr == null)
+            return "";
+        return aStr.replace("\\", "\\\\").replace("\t", "\\t").replace("\n", "\\n");
+    }
+
+    /**
+     * Returns given breakpoints file field string unescaped, or null for empty string.
+     */
+    private static String unescapeField(String aStr)
+    {
+        if (aStr.isEmpty())
+            return null;
+        StringBuilder sb = new StringBuilder(aStr.length());
+        for (int i = 0; i < aStr.length(); i++) {
+            char c = aStr.charAt(i);
+            if (c == '\\' && i + 1 < aStr.length()) {
+                char next = aStr.charAt(++i);
+                c = next == 't' ? '\t' : next == 'n' ? '\n' : next;
+            }
+            sb.append(c);
+        }
+        return sb.toString();
+    }
+
     /**
      * Returns the breakpoint file.
      */
@@ -5,6 +5,8 @@ package snapcode.project;
 import snap.props.PropObject;
 import snap.web.WebFile;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
  * A class to manage a list of BuildIssue.
@@ -21,7 +23,10 @@ public class BuildIssues extends PropObject {
     private int  _warningCount;
 
     // A map to track BuildIssues by WebFile
-    private Map<WebFile,List<BuildIssue>>  _fileIssues = new Hashtable<>();
+    private Map<WebFile,List<BuildIssue>>  _fileIssues = new ConcurrentHashMap<>();
+
+    // A map of error/warning counts for files and the directories that show their status
+    private Map<WebFile,IssueCounts>  _issueCounts = new ConcurrentHashMap<>();
 
     // Constant for Items
     public static final String ITEMS_PROP = "Items";
@@ -66,9 +71,12 @@ public class BuildIssues extends PropObject {
 
         // Add to file list
         WebFile buildIssueFile = aBuildIssue.getFile();
-        List<BuildIssue> buildIssuesForFile = _fileIssues.computeIfAbsent(buildIssueFile, k -> new ArrayList<>());
+        List<BuildIssue> buildIssuesForFile = _fileIssues.computeIfAbsent(buildIssueFile, k -> new CopyOnWriteArrayList<>());
         buildIssuesForFile.add(aBuildIssue);
 
+        // Update file and directory counts
+        updateIssueCounts(aBuildIssue, 1);
+
         // Update ErrorCount/WarningCount
         if (aBuildIssue.isError())
             _errorCount++;
@@ -86,6 +94,11 @@ public class BuildIssues extends PropObject {
      */
     public void removeBuildIssue(BuildIssue aBuildIssue)
     {
+        // If not in list, just return
+        int index = _buildIssues.indexOf(aBuildIssue);
+        if (index < 0)
+            return;
+
         // Remove from file
         WebFile buildIssueFile = aBuildIssue.getFile();
         List<BuildIssue> buildIssues = _fileIssues.get(buildIssueFile);
@@ -95,14 +108,16 @@ public class BuildIssues extends PropObject {
                 _fileIssues.remove(buildIssueFile);
         }
 
+        // Update file and directory counts
+        updateIssueCounts(aBuildIssue, -1);
+
         // Update ErrorCount/WarningCount
         if (aBuildIssue.isError())
             _errorCount--;
         else _warningCount--;
 
         // Remove from master list
-        int index = _buildIssues.indexOf(aBuildIssue);
-        _buildIssues.remove(aBuildIssue);
+        _buildIssues.remove(index);
 
         // Fire prop change
         firePropChange(ITEMS_PROP, aBuildIssue, null, index);
@@ -115,6 +130,39 @@ public class BuildIssues extends PropObject {
     {
         _fileIssues.clear();
         getBuildIssues().forEach(this::removeBuildIssue);
+        _issueCounts.clear();
+    }
+
+    /**
+     * Adds given delta to counts of build issue file and the directories that show its status: The file's
+     * directory and its ancestors, stopping after the first package (packages don't show subpackage status).
+     */
+    private synchronized void updateIssueCounts(BuildIssue aBuildIssue, int aDelta)
+    {
+        // Update file counts
+        WebFile file = aBuildIssue.getFile();
+        boolean isError = aBuildIssue.isError();
+        updateIssueCountsForFile(file, isError, aDelta);
+
+        // Update directory counts
+        for (WebFile dir = file.getParent(); dir != null; dir = dir.getParent()) {
+            updateIssueCountsForFile(dir, isError, aDelta);
+            if (isPackage(dir))
+                break;
+        }
+    }
+
+    /**
+     * Adds given delta to error or warning count of given file or directory.
+     */
+    private void updateIssueCountsForFile(WebFile aFile, boolean isError, int aDelta)
+    {
+        IssueCounts issueCounts = _issueCounts.computeIfAbsent(aFile, k -> new IssueCounts());
+        if (isError)
+            issueCounts.errorCount += aDelta;
+        else issueCounts.warningCount += aDelta;
+        if (issueCounts.errorCount <= 0 && issueCounts.warningCount <= 0)
+            _issueCounts.remove(aFile);
     }
 
     /**
@@ -128,57 +176,29 @@ public class BuildIssues extends PropObject {
             return buildIssues != null ? List.copyOf(buildIssues) : Collections.emptyList();
         }
 
-        // Handle directory: aggregate directory files
+        // Handle directory: aggregate issues of files in directory tree
+        String dirPath = aFile.getDirPath();
         List<BuildIssue> buildIssues = new ArrayList<>();
-        for (WebFile file : aFile.getFiles())
-            buildIssues.addAll(getIssuesForFile(file));
+        for (Map.Entry<WebFile,List<BuildIssue>> entry : _fileIssues.entrySet()) {
+            WebFile file = entry.getKey();
+            if (file.getSite() == aFile.getSite() && file.getPath().startsWith(dirPath))
+                buildIssues.addAll(entry.getValue());
+        }
+        Collections.sort(buildIssues);
         return buildIssues;
     }
 
     /**
-     * Returns the build status for a file.
+     * Returns the build status for a file (for directory, the worst status of files shown in it).
      */
     public BuildIssue.Kind getBuildStatusForFile(WebFile aFile)
     {
-        // Handle file: Get build issues and return worst kind
-        if (aFile.isFile()) {
-
-            // Get build issues - just return null if none
-            List<BuildIssue> buildIssues = getIssuesForFile(aFile);
-            if (buildIssues.isEmpty())
-                return null;
-
-            // If any issue is error, return error
-            boolean containsError = buildIssues.stream().anyMatch(issue -> issue.getKind() == BuildIssue.Kind.Error);
-            if (containsError)
-                return BuildIssue.Kind.Error;
-
-            // Return warning
-            return BuildIssue.Kind.Warning;
-        }
-
-        // Handle directory
-        List<WebFile> dirFiles = aFile.getFiles();
-        boolean isPackage = isPackage(aFile);
-        BuildIssue.Kind buildStatus = null;
-
-        // Iterate over directory files: get worst status of children (if package, don't recurse)
-        for (WebFile childFile : dirFiles) {
-
-            // Skip packages
-            if (childFile.isDir() && isPackage)
-                continue;
-
-            // Get status for child file
-            BuildIssue.Kind childStatus = getBuildStatusForFile(childFile);
-            if (childStatus != null)
-                buildStatus = childStatus;
-            if (childStatus == BuildIssue.Kind.Error)
-                return buildStatus;
-        }
-
-        // Return
-        return buildStatus;
+        IssueCounts issueCounts = _issueCounts.get(aFile);
+        if (issueCounts == null)
+            return null;
+        if (issueCounts.errorCount > 0)
+            return BuildIssue.Kind.Error;
+        return issueCounts.warningCount > 0 ? BuildIssue.Kind.Warning : null;
     }
 
     /**
@@ -192,6 +212,8 @@ public class BuildIssues extends PropObject {
 
         // If file in Project.SourceDir
         Project proj = Project.getProjectForFile(aFile);
+        if (proj == null)
+            return false;
         WebFile sourceDir = proj.getSourceDir();
         if (sourceDir.containsFile(aFile))
             return true;
@@ -199,4 +221,14 @@ public class BuildIssues extends PropObject {
         // Return not package
         return false;
     }
-}
\ No newline at end of file
+
+    /**
+     * The error and warning counts for a file or directory.
+     */
+    private static class IssueCounts {
+
+        // The error and warning counts
+        volatile int errorCount;
+        volatile int warningCount;
+    }
+}
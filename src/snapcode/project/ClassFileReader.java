@@ -24,9 +24,21 @@ class ClassFileReader {
     // The constant pool
     private ConstantPool constantPool = new ConstantPool();
 
+    // The class access flags
+    protected int accessFlags;
+
     // The class names
     private ClassNames classNames = new ClassNames();
 
+    // The interface names (only available after readMembers)
+    private List<String> interfaceNames;
+
+    // The field and method signatures as "flags name descriptor" (only available after readMembers)
+    private List<String> fieldSigs, methodSigs;
+
+    // The field and method descriptors and field, method and class generic signatures (only available after readMembers)
+    private List<String> typeSigs;
+
     /**
      * reads the class file into data structures.
      */
@@ -41,13 +53,102 @@ class ClassFileReader {
         constantPool.read(dis);
 
         // Read access flags
-        dis.readUnsignedShort(); // Read iAccessFlags
-        // new AccessFlags().read(dis);
+        accessFlags = dis.readUnsignedShort();
 
         // Read ClassNames
         classNames.read(dis, constantPool);
     }
 
+    /**
+     * Reads the interfaces, fields and methods (must be called after read() with same stream).
+     */
+    public void readMembers(DataInputStream dis) throws IOException
+    {
+        // Read interfaces
+        int interfaceCount = dis.readUnsignedShort();
+        interfaceNames = new ArrayList<>(interfaceCount);
+        for (int i = 0; i < interfaceCount; i++) {
+            Constant interfaceConst = constantPool.getPoolInfo(dis.readUnsignedShort());
+            interfaceNames.add(interfaceConst.getClassName());
+        }
+
+        // Read fields and methods
+        typeSigs = new ArrayList<>();
+        fieldSigs = readMemberSigs(dis);
+        methodSigs = readMemberSigs(dis);
+
+        // Read class attributes
+        readAttributes(dis);
+    }
+
+    /**
+     * Reads field or method infos and returns list of signatures.
+     */
+    private List<String> readMemberSigs(DataInputStream dis) throws IOException
+    {
+        int memberCount = dis.readUnsignedShort();
+        List<String> memberSigs = new ArrayList<>(memberCount);
+        for (int i = 0; i < memberCount; i++) {
+            int memberAccessFlags = dis.readUnsignedShort();
+            String memberName = constantPool.getPoolInfo(dis.readUnsignedShort()).sUTFStr;
+            String memberDesc = constantPool.getPoolInfo(dis.readUnsignedShort()).sUTFStr;
+            memberSigs.add(memberAccessFlags + " " + memberName + " " + memberDesc);
+            typeSigs.add(memberDesc);
+            readAttributes(dis);
+        }
+        return memberSigs;
+    }
+
+    /**
+     * Reads attributes: Adds Signature attribute values to type signatures and skips the rest.
+     */
+    private void readAttributes(DataInputStream dis) throws IOException
+    {
+        int attributeCount = dis.readUnsignedShort();
+        for (int i = 0; i < attributeCount; i++) {
+            String attributeName = constantPool.getPoolInfo(dis.readUnsignedShort()).sUTFStr;
+            int attributeLength = dis.readInt();
+            if (attributeName.equals("Signature") && attributeLength == 2)
+                typeSigs.add(constantPool.getPoolInfo(dis.readUnsignedShort()).sUTFStr);
+            else dis.skipNBytes(attributeLength);
+        }
+    }
+
+    /**
+     * Returns the class name.
+     */
+    public String getClassName()  { return classNames.getThisClassName(); }
+
+    /**
+     * Returns the super class name.
+     */
+    public String getSuperClassName()  { return classNames.cpSuperClass != null ? classNames.getSuperClassName() : null; }
+
+    /**
+     * Returns the interface names (only available after readMembers).
+     */
+    public List<String> getInterfaceNames()  { return interfaceNames; }
+
+    /**
+     * Returns the field and method descriptors and field, method and class generic signatures (only available after
+     * readMembers).
+     */
+    public List<String> getTypeSignatures()  { return typeSigs; }
+
+    /**
+     * Returns the class shape: A string of access flags, super class, interfaces and field/method signatures
+     * (only available after readMembers). Class files with the same shape differ only in method bodies.
+     */
+    public String getClassShape()
+    {
+        StringBuilder sb = new StringBuilder();
+        sb.append(accessFlags).append(' ').append(getClassName()).append(" extends ").append(getSuperClassName()).append('\n');
+        sb.append("implements ").append(interfaceNames).append('\n');
+        fieldSigs.stream().sorted().forEach(sig -> sb.append("field ").append(sig).append('\n'));
+        methodSigs.stream().sorted().forEach(sig -> sb.append("method ").append(sig).append('\n'));
+        return sb.toString();
+    }
+
     /**
      * Returns the number of constants.
      */
@@ -139,7 +240,10 @@ class ClassFileReader {
         public static final int CONSTANT_Utf8 = 1;
         public static final int CONSTANT_MethodHandle = 15;
         public static final int CONSTANT_MethodType = 16;
+        public static final int CONSTANT_Dynamic = 17;
         public static final int CONSTANT_InvokeDynamic = 18;
+        public static final int CONSTANT_Module = 19;
+        public static final int CONSTANT_Package = 20;
 
         /**
          * Tag denotes the type of pool entry. It will be one of CONSTANT_<...> types
@@ -194,6 +298,9 @@ class ClassFileReader {
                     iReferenceIndex = dis.readUnsignedShort();
                     break;
                 case CONSTANT_MethodType: iDescriptorIndex = dis.readUnsignedShort(); break;
+                case CONSTANT_Module:
+                case CONSTANT_Package: iNameIndex = dis.readUnsignedShort(); break;
+                case CONSTANT_Dynamic:
                 case CONSTANT_InvokeDynamic:
                     iBootstrapMethodAttrIndex = dis.readUnsignedShort();
                     iNameAndTypeIndex = dis.readUnsignedShort();
@@ -0,0 +1,139 @@
+/*
+ * Copyright (c) 2010, ReportMill Software. All rights reserved.
+ */
+package snapcode.project;
+import snap.web.WebFile;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * This class keeps the bytes of compiled classes in memory, so the runtime class loader (and Resolver) can load
+ * them without a round trip through the build dir. Class files are still saved to disk, but in the background on a
+ * single flush thread, so external runs (and anything that lists build dir files) just need to call waitForFlush()
+ * first. Saves and compiler setBytes() calls synchronize on the class file, so a save never interleaves with an update.
+ */
+public class ClassFileStore {
+
+    // The project
+    private Project _proj;
+
+    // The class bytes for class name
+    private Map<String,byte[]> _classBytes = new ConcurrentHashMap<>();
+
+    // The executor for background class file saves
+    private ExecutorService _flushExecutor;
+
+    // The number of scheduled class file saves that haven't finished
+    private AtomicInteger _pendingSaveCount = new AtomicInteger();
+
+    // Whether compiled classes are kept in memory
+    private static boolean _enabled;
+
+    /**
+     * Constructor.
+     */
+    public ClassFileStore(Project aProject)
+    {
+        _proj = aProject;
+    }
+
+    /**
+     * Returns the bytes for given class name (or null if not in store).
+     */
+    public byte[] getClassBytes(String aClassName)  { return _classBytes.get(aClassName); }
+
+    /**
+     * Adds given class file and bytes (already set in file) and saves file in background.
+     */
+    public void addClassFile(WebFile classFile, byte[] classBytes)
+    {
+        String className = _proj.getClassNameForFile(classFile);
+        _classBytes.put(className, classBytes);
+        _pendingSaveCount.incrementAndGet();
+        getFlushExecutor().execute(() -> saveClassFile(classFile));
+    }
+
+    /**
+     * Removes given class file (called when class file is deleted).
+     */
+    public void removeClassFile(WebFile classFile)
+    {
+        String className = _proj.getClassNameForFile(classFile);
+        _classBytes.remove(className);
+    }
+
+    /**
+     * Saves given class file (called on flush thread).
+     */
+    private void saveClassFile(WebFile classFile)
+    {
+        try {
+            synchronized (classFile) { classFile.save(); }
+        }
+        catch (Exception e) { System.err.println("ClassFileStore.saveClassFile: Error saving " + classFile.getPath() + ": " + e); }
+        finally { _pendingSaveCount.decrementAndGet(); }
+    }
+
+    /**
+     * Returns whether class file saves are pending.
+     */
+    public boolean isFlushPending()  { return _pendingSaveCount.get() > 0; }
+
+    /**
+     * Waits for pending class file saves to finish.
+     */
+    public void waitForFlush()
+    {
+        // If no saves pending, just return
+        if (!isFlushPending())
+            return;
+
+        // If nothing ever scheduled, just return
+        ExecutorService flushExecutor;
+        synchronized (this) { flushExecutor = _flushExecutor; }
+        if (flushExecutor == null)
+            return;
+
+        // Submit empty task and wait (single thread, so all previous saves are done)
+        try { flushExecutor.submit(() -> { }).get(); }
+        catch (Exception e) { System.err.println("ClassFileStore.waitForFlush: " + e); }
+    }
+
+    /**
+     * Closes the store: Waits for pending saves and releases class bytes and flush thread.
+     */
+    public synchronized void close()
+    {
+        waitForFlush();
+        _classBytes.clear();
+        if (_flushExecutor != null)
+            _flushExecutor.shutdown();
+        _flushExecutor = null;
+    }
+
+    /**
+     * Returns the executor for background class file saves.
+     */
+    private synchronized ExecutorService getFlushExecutor()
+    {
+        if (_flushExecutor != null) return _flushExecutor;
+        return _flushExecutor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "Class File Flush");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Returns whether compiled classes are kept in memory (and saved to disk in background).
+     */
+    public static boolean isEnabled()  { return _enabled; }
+
+    /**
+     * Sets whether compiled classes are kept in memory (and saved to disk in background).
+     */
+    public static void setEnabled(boolean aValue)  { _enabled = aValue; }
+}
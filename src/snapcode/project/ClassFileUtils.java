@@ -7,6 +7,7 @@ import javakit.resolver.JavaClass;
 import javakit.resolver.Resolver;
 import javakit.resolver.ResolverUtils;
 import snap.web.WebFile;
+import java.io.ByteArrayInputStream;
 import java.io.DataInputStream;
 import java.lang.reflect.*;
 import java.util.HashSet;
@@ -280,4 +281,159 @@ public class ClassFileUtils {
             System.err.printf("ClassData.findRefsForClass: failed to get refs in %s: %s\n", classFile, t);
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Returns the class names and member names referenced by given class file bytes (no resolving), or null if bytes
+     * can't be read. Names come from constant pool class and member refs, field and method descriptors and generic
+     * Signature attributes (for type arguments and type parameter bounds).
+     */
+    public static Set<String> getReferencedNamesForBytes(byte[] classBytes)
+    {
+        Set<String> names = new HashSet<>();
+        try {
+            ClassFileReader classFileReader = new ClassFileReader();
+            DataInputStream dataInputStream = new DataInputStream(new ByteArrayInputStream(classBytes));
+            classFileReader.read(dataInputStream);
+            classFileReader.readMembers(dataInputStream);
+
+            // Iterate over constants and add class names and member names
+            for (int i = 1, iMax = classFileReader.getConstantCount(); i <= iMax; i++) {
+                ClassFileReader.Constant constant = classFileReader.getConstant(i);
+                if (constant == null)
+                    continue;
+                if (constant.isClass()) {
+                    String className = constant.refUTF8.sUTFStr;
+                    if (className.startsWith("["))
+                        addClassNamesForSignature(className, names);
+                    else names.add(className.replace('/', '.'));
+                }
+                else if (constant.isField() || constant.isMethod()) {
+                    names.add(constant.getMemberName());
+                    addClassNamesForSignature(constant.refNameAndType.refExtraUTF8.sUTFStr, names);
+                }
+            }
+
+            // Iterate over declared field and method descriptors and generic signatures and add class names
+            for (String typeSig : classFileReader.getTypeSignatures())
+                addClassNamesForSignature(typeSig, names);
+        }
+
+        // Handle failure: Return null so callers don't filter
+        catch (Exception e) {
+            System.err.println("ClassFileUtils.getReferencedNamesForBytes: " + e);
+            return null;
+        }
+
+        // Return
+        return names;
+    }
+
+    /**
+     * Adds the class names in given descriptor or generic signature (e.g. "<T:Ljava/lang/Object;>(Ljava/util/List<TT;>;)V")
+     * to given set. Inner class names are added in binary form (e.g. "pkg.Outer$Inner").
+     */
+    private static void addClassNamesForSignature(String aSignature, Set<String> classNames)
+    {
+        // Handle formal type parameters: Skip each name and add class names of bounds
+        int index = 0;
+        if (aSignature.startsWith("<")) {
+            index = 1;
+            while (aSignature.charAt(index) != '>') {
+                index = aSignature.indexOf(':', index);
+                while (aSignature.charAt(index) == ':') {
+                    index++;
+                    if (aSignature.charAt(index) != ':')
+                        index = addClassNamesForTypeSignature(aSignature, index, classNames);
+                }
+            }
+            index++;
+        }
+
+        // Add class names of remaining types (skip method parens and throws markers)
+        for (int length = aSignature.length(); index < length; ) {
+            char c = aSignature.charAt(index);
+            if (c == '(' || c == ')' || c == '^')
+                index++;
+            else index = addClassNamesForTypeSignature(aSignature, index, classNames);
+        }
+    }
+
+    /**
+     * Adds the class names in type signature at given index to given set and returns index after type signature.
+     */
+    private static int addClassNamesForTypeSignature(String aSignature, int anIndex, Set<String> classNames)
+    {
+        switch (aSignature.charAt(anIndex)) {
+
+            // Handle array: Add component type
+            case '[': return addClassNamesForTypeSignature(aSignature, anIndex + 1, classNames);
+
+            // Handle type variable: Skip name
+            case 'T': {
+                int end = aSignature.indexOf(';', anIndex);
+                if (end < 0)
+                    throw new IllegalArgumentException("Bad signature: " + aSignature);
+                return end + 1;
+            }
+
+            // Handle class type: Add class name (with inner class names) and type argument class names
+            case 'L': {
+                StringBuilder className = new StringBuilder();
+                int index = anIndex + 1;
+                while (true) {
+                    int start = index;
+                    while (";<.".indexOf(aSignature.charAt(index)) < 0)
+                        index++;
+                    className.append(aSignature, start, index);
+                    if (aSignature.charAt(index) == '<')
+                        index = addClassNamesForTypeArgs(aSignature, index + 1, classNames);
+                    if (aSignature.charAt(index) != '.')
+                        break;
+                    className.append('$');
+                    index++;
+                }
+                classNames.add(className.toString().replace('/', '.'));
+                return index + 1;
+            }
+
+            // Handle primitive
+            default: return anIndex + 1;
+        }
+    }
+
+    /**
+     * Adds the class names in type arguments at given index (after '<') to given set and returns index after '>'.
+     */
+    private static int addClassNamesForTypeArgs(String aSignature, int anIndex, Set<String> classNames)
+    {
+        int index = anIndex;
+        while (aSignature.charAt(index) != '>') {
+            char c = aSignature.charAt(index);
+            if (c == '*')
+                index++;
+            else if (c == '+' || c == '-')
+                index = addClassNamesForTypeSignature(aSignature, index + 1, classNames);
+            else index = addClassNamesForTypeSignature(aSignature, index, classNames);
+        }
+        return index + 1;
+    }
+
+    /**
+     * Returns the class shape (flags, super class, interfaces, field and method signatures) for given class file bytes.
+     * Two class files with the same shape differ only in method bodies, so one can be redefined as the other.
+     */
+    public static String getClassShapeForBytes(byte[] classBytes)
+    {
+        try {
+            ClassFileReader classFileReader = new ClassFileReader();
+            DataInputStream dataInputStream = new DataInputStream(new ByteArrayInputStream(classBytes));
+            classFileReader.read(dataInputStream);
+            classFileReader.readMembers(dataInputStream);
+            return classFileReader.getClassShape();
+        }
+        catch (Exception e) {
+            System.err.println("ClassFileUtils.getClassShapeForBytes: " + e);
+            return null;
+        }
+    }
+}
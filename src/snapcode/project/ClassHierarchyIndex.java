@@ -0,0 +1,183 @@
+/*
+ * Copyright (c) 2010, ReportMill Software. All rights reserved.
+ */
+package snapcode.project;
+import snap.web.WebFile;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * This class maintains an index of the super class names of the compiled classes of a project. Names are read from
+ * class file headers without class loading. The index is built from the build dir on first use and then updated
+ * only for class files rewritten or removed by builds.
+ */
+public class ClassHierarchyIndex {
+
+    // The project
+    private Project _proj;
+
+    // The super class name for class name (null until first use)
+    private Map<String,String> _superClassNames;
+
+    // The subclass names for super class name
+    private Map<String,Set<String>> _subclassNames = new HashMap<>();
+
+    /**
+     * Constructor.
+     */
+    public ClassHierarchyIndex(Project aProject)
+    {
+        _proj = aProject;
+    }
+
+    /**
+     * Returns whether index contains given class name.
+     */
+    public synchronized boolean containsClassName(String aClassName)
+    {
+        return getSuperClassNames().containsKey(aClassName);
+    }
+
+    /**
+     * Returns the super class name for given class name (or null if not in index or no super class).
+     */
+    public synchronized String getSuperClassName(String aClassName)
+    {
+        return getSuperClassNames().get(aClassName);
+    }
+
+    /**
+     * Returns the class names in index.
+     */
+    public synchronized List<String> getClassNames()
+    {
+        return new ArrayList<>(getSuperClassNames().keySet());
+    }
+
+    /**
+     * Returns the names of classes in index that directly extend given class name.
+     */
+    public synchronized List<String> getSubclassNames(String aClassName)
+    {
+        getSuperClassNames();
+        Set<String> subclassNames = _subclassNames.get(aClassName);
+        return subclassNames != null ? new ArrayList<>(subclassNames) : Collections.emptyList();
+    }
+
+    /**
+     * Called when a class file is rewritten by build to update index.
+     */
+    protected synchronized void handleClassFileChanged(byte[] classBytes)
+    {
+        // If index not loaded yet, just return (class file will be read on first use)
+        if (_superClassNames == null)
+            return;
+
+        // Read class and super class names and update
+        String[] classNames = getClassAndSuperClassNameForBytes(classBytes);
+        if (classNames != null)
+            setSuperClassName(classNames[0], classNames[1]);
+    }
+
+    /**
+     * Called when a class file is removed to update index.
+     */
+    protected synchronized void handleClassFileRemoved(WebFile classFile)
+    {
+        // If index not loaded yet, just return
+        if (_superClassNames == null)
+            return;
+
+        // Remove class name
+        String className = _proj.getClassNameForFile(classFile);
+        setSuperClassName(className, null);
+        _superClassNames.remove(className);
+    }
+
+    /**
+     * Returns the super class names map, loading from build dir class files on first call.
+     */
+    private Map<String,String> getSuperClassNames()
+    {
+        if (_superClassNames != null) return _superClassNames;
+
+        // If keeping classes in memory, finish pending class file saves so new class files are listed
+        if (ClassFileStore.isEnabled())
+            _proj.getClassFileStore().waitForFlush();
+
+        // Load class files in build dir
+        _superClassNames = new HashMap<>();
+        WebFile buildDir = _proj.getBuildDir();
+        if (buildDir.getExists())
+            loadClassFiles(buildDir);
+        return _superClassNames;
+    }
+
+    /**
+     * Loads the class files in given directory (recursive).
+     */
+    private void loadClassFiles(WebFile aDir)
+    {
+        for (WebFile file : aDir.getFiles()) {
+
+            // Handle class file: Read class and super class names and add
+            if (file.getFileType().equals("class")) {
+                byte[] classBytes = file.getBytes();
+                String[] classNames = classBytes != null ? getClassAndSuperClassNameForBytes(classBytes) : null;
+                if (classNames != null)
+                    setSuperClassName(classNames[0], classNames[1]);
+            }
+
+            // Handle dir: Recurse
+            else if (file.isDir())
+                loadClassFiles(file);
+        }
+    }
+
+    /**
+     * Sets the super class name for given class name and updates subclass names.
+     */
+    private void setSuperClassName(String aClassName, String superClassName)
+    {
+        // If no change, just return
+        String oldSuperClassName = _superClassNames.get(aClassName);
+        if (Objects.equals(superClassName, oldSuperClassName) && _superClassNames.containsKey(aClassName))
+            return;
+
+        // Remove from old super class subclasses
+        if (oldSuperClassName != null) {
+            Set<String> oldSubclassNames = _subclassNames.get(oldSuperClassName);
+            if (oldSubclassNames != null && oldSubclassNames.remove(aClassName) && oldSubclassNames.isEmpty())
+                _subclassNames.remove(oldSuperClassName);
+        }
+
+        // Set super class name and add to super class subclasses
+        _superClassNames.put(aClassName, superClassName);
+        if (superClassName != null)
+            _subclassNames.computeIfAbsent(superClassName, k -> new TreeSet<>()).add(aClassName);
+    }
+
+    /**
+     * Returns the class name and super class name from given class file bytes header (or null if invalid).
+     */
+    private static String[] getClassAndSuperClassNameForBytes(byte[] classBytes)
+    {
+        try {
+            ClassFileReader classFileReader = new ClassFileReader();
+            classFileReader.read(new DataInputStream(new ByteArrayInputStream(classBytes)));
+            return new String[] { classFileReader.getClassName(), classFileReader.getSuperClassName() };
+        }
+        catch (Exception e) {
+            System.err.println("ClassHierarchyIndex.getClassAndSuperClassNameForBytes: " + e);
+            return null;
+        }
+    }
+}
@@ -0,0 +1,175 @@
+/*
+ * Copyright (c) 2010, ReportMill Software. All rights reserved.
+ */
+package snapcode.project;
+import snap.web.WebFile;
+import snap.web.WebSite;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * This class maintains a persistent index of file path to size, mod time and content hash for a site, so that
+ * file content only needs to be read (and hashed) when size or mod time changes. Hashes are Git blob ids (SHA-1 of
+ * "blob <length>\0" + bytes), so they can be compared directly with Git index and tree object ids.
+ */
+public class FileHashIndex {
+
+    // The site
+    private WebSite _site;
+
+    // The sandbox path of index file
+    private String _indexPath;
+
+    // The map of file path to entry
+    private Map<String,Entry> _entries;
+
+    // Whether index has changed since last save
+    private boolean _changed;
+
+    /**
+     * Constructor for given site and sandbox path of index file.
+     */
+    public FileHashIndex(WebSite aSite, String indexPath)
+    {
+        _site = aSite;
+        _indexPath = indexPath;
+    }
+
+    /**
+     * Returns the content hash for given file (reads file only if not indexed for current size and mod time).
+     */
+    public synchronized String getHashForFile(WebFile aFile)
+    {
+        // If indexed entry matches file size and mod time, return hash
+        Map<String,Entry> entries = getEntries();
+        String filePath = aFile.getPath();
+        long fileSize = aFile.getSize();
+        long fileModTime = aFile.getLastModTime();
+        Entry entry = entries.get(filePath);
+        if (entry != null && entry.size == fileSize && entry.modTime == fileModTime)
+            return entry.hash;
+
+        // Get hash from bytes and add entry
+        byte[] fileBytes = aFile.getBytes();
+        String hash = getHashForBytes(fileBytes);
+        entries.put(filePath, new Entry(fileSize, fileModTime, hash));
+        _changed = true;
+
+        // Return
+        return hash;
+    }
+
+    /**
+     * Removes the entry for given file.
+     */
+    public synchronized void removeHashForFile(WebFile aFile)
+    {
+        if (_entries != null && _entries.remove(aFile.getPath()) != null)
+            _changed = true;
+    }
+
+    /**
+     * Saves index file if index has changed.
+     */
+    public synchronized void saveIfChanged()
+    {
+        if (!_changed) return;
+        _changed = false;
+
+        // Create file text
+        StringBuilder sb = new StringBuilder();
+        for (Map.Entry<String,Entry> mapEntry : _entries.entrySet()) {
+            Entry entry = mapEntry.getValue();
+            sb.append(entry.hash).append(' ').append(entry.size).append(' ').append(entry.modTime).append(' ');
+            sb.append(mapEntry.getKey()).append('\n');
+        }
+
+        // Get file, set text and save
+        WebFile indexFile = getIndexFile();
+        indexFile.setText(sb.toString());
+        try { indexFile.save(); }
+        catch (Exception e) { System.err.println("FileHashIndex.saveIfChanged: " + e); }
+    }
+
+    /**
+     * Returns the entries (reads index file on first call).
+     */
+    private Map<String,Entry> getEntries()
+    {
+        if (_entries != null) return _entries;
+        return _entries = readEntries();
+    }
+
+    /**
+     * Reads entries from index file.
+     */
+    private Map<String,Entry> readEntries()
+    {
+        // Get index file (just return if missing)
+        Map<String,Entry> entries = new HashMap<>();
+        WebFile indexFile = getIndexFile();
+        if (!indexFile.getExists())
+            return entries;
+
+        // Iterate over lines and add entries: hash size modTime path
+        String text = indexFile.getText();
+        for (String line : text.split("\n")) {
+            String[] parts = line.split(" ", 4);
+            if (parts.length < 4)
+                continue;
+            try { entries.put(parts[3], new Entry(Long.parseLong(parts[1]), Long.parseLong(parts[2]), parts[0])); }
+            catch (NumberFormatException ignore) { }
+        }
+
+        // Return
+        return entries;
+    }
+
+    /**
+     * Returns the index file.
+     */
+    private WebFile getIndexFile()
+    {
+        WebFile sandboxDir = _site.getSandboxDir();
+        return sandboxDir.createChildFileForPath(_indexPath, false);
+    }
+
+    /**
+     * Returns the content hash (Git blob id) for given bytes.
+     */
+    public static String getHashForBytes(byte[] theBytes)
+    {
+        try {
+            MessageDigest messageDigest = MessageDigest.getInstance("SHA-1");
+            messageDigest.update(("blob " + theBytes.length + '\0').getBytes(StandardCharsets.US_ASCII));
+            byte[] digest = messageDigest.digest(theBytes);
+            StringBuilder sb = new StringBuilder(digest.length * 2);
+            for (byte b : digest)
+                sb.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            return sb.toString();
+        }
+        catch (Exception e) { throw new RuntimeException(e); }
+    }
+
+    /**
+     * An index entry.
+     */
+    private static class Entry {
+
+        // The file size, mod time and content hash
+        final long size, modTime;
+        final String hash;
+
+        /**
+         * Constructor.
+         */
+        Entry(long aSize, long aModTime, String aHash)
+        {
+            size = aSize;
+            modTime = aModTime;
+            hash = aHash;
+        }
+    }
+}
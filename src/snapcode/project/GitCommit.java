@@ -1,5 +1,8 @@
 package snapcode.project;
+import org.eclipse.jgit.lib.ObjectReader;
 import org.eclipse.jgit.revwalk.RevCommit;
+import java.util.HashMap;
+import java.util.Map;
 
 /**
  * A class to represent a commit file.
@@ -21,6 +24,9 @@ public class GitCommit {
     // The TreeSite
     private GitFileSite _site;
 
+    // The files for paths that have been looked up
+    private Map<String,GitFile<?>> _filesForPaths = new HashMap<>();
+
     /**
      * Constructor.
      */
@@ -65,9 +71,24 @@ public class GitCommit {
     public GitFile<?> getTree()
     {
         if (_tree != null) return _tree;
-        return _tree = new GitFile.GitTree(_gitDir, _rev.getTree(), "/");
+        return _tree = new GitFile.GitTree(this, _rev.getTree(), "/");
     }
 
+    /**
+     * Returns the object reader shared by trees and blobs of git dir (synchronize on it for use).
+     */
+    protected ObjectReader getObjectReader()  { return _gitDir.getObjectReader(); }
+
+    /**
+     * Returns the cached file for given path.
+     */
+    protected synchronized GitFile<?> getCachedFileForPath(String aPath)  { return _filesForPaths.get(aPath); }
+
+    /**
+     * Adds the cached file for given path.
+     */
+    protected synchronized void addCachedFile(GitFile<?> aFile)  { _filesForPaths.put(aFile.getPath(), aFile); }
+
     /**
      * Returns the site.
      */
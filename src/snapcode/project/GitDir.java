@@ -9,10 +9,8 @@ import snap.util.FilePathUtils;
 import snap.util.ActivityMonitor;
 import snap.web.*;
 import java.io.File;
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
+import org.eclipse.jgit.treewalk.TreeWalk;
+import java.util.*;
 
 /**
  * A class to perform git operations for a git directory.
@@ -25,6 +23,9 @@ public class GitDir {
     // The repository
     private Repository _repo;
 
+    // The object reader shared by commit trees and blobs (closed with repository)
+    private ObjectReader _objectReader;
+
     // A map of branches
     private Map<String, GitBranch> _branches = new HashMap<>();
 
@@ -34,6 +35,14 @@ public class GitDir {
     // The index file site
     private GitIndexSite _indexSite;
 
+    // The recently viewed tree entries for tree ids
+    private Map<ObjectId,TreeEntry[]> _treeEntriesCache = new LinkedHashMap<>(16, .75f, true) {
+        protected boolean removeEldestEntry(Map.Entry<ObjectId,TreeEntry[]> anEntry)  { return size() > MAX_TREE_CACHE_SIZE; }
+    };
+
+    // Constants
+    private static final int MAX_TREE_CACHE_SIZE = 128;
+
     /**
      * Creates a new Git dir.
      */
@@ -142,11 +151,25 @@ public class GitDir {
         return commit.getSite();
     }
 
+    /**
+     * Returns the object reader shared by commit trees and blobs (synchronize on it for use).
+     */
+    protected synchronized ObjectReader getObjectReader()
+    {
+        if (_objectReader != null) return _objectReader;
+        return _objectReader = getRepo().newObjectReader();
+    }
+
     /**
      * Override to close repository and delete directory.
      */
     public void deleteDir() throws Exception
     {
+        synchronized (this) {
+            if (_objectReader != null)
+                _objectReader.close();
+            _objectReader = null;
+        }
         if (_repo != null)
             _repo.close();
         _repo = null;
@@ -279,11 +302,60 @@ public class GitDir {
     protected RevObject getRevObject(ObjectId anId)
     {
         Repository repository = getRepo();
-        RevWalk revWalk = new RevWalk(repository);
-        try { return revWalk.parseAny(anId); }
+        try (RevWalk revWalk = new RevWalk(repository)) { return revWalk.parseAny(anId); }
         catch (Exception e) { throw new RuntimeException(e); }
     }
 
+    /**
+     * Returns the entries for given tree id, read with given reader (recently viewed trees are cached).
+     */
+    protected TreeEntry[] getTreeEntries(ObjectReader aReader, AnyObjectId aTreeId) throws Exception
+    {
+        // Get cached entries
+        synchronized (_treeEntriesCache) {
+            TreeEntry[] treeEntries = _treeEntriesCache.get(aTreeId);
+            if (treeEntries != null)
+                return treeEntries;
+        }
+
+        // Read tree entries (skip submodule links)
+        List<TreeEntry> treeEntriesList = new ArrayList<>();
+        TreeWalk treeWalk = new TreeWalk(aReader);
+        treeWalk.addTree(aTreeId);
+        while (treeWalk.next()) {
+            FileMode fileMode = treeWalk.getFileMode(0);
+            if (fileMode == FileMode.GITLINK)
+                continue;
+            treeEntriesList.add(new TreeEntry(treeWalk.getNameString(), treeWalk.getObjectId(0), fileMode == FileMode.TREE));
+        }
+
+        // Add to cache and return
+        TreeEntry[] treeEntries = treeEntriesList.toArray(new TreeEntry[0]);
+        synchronized (_treeEntriesCache) { _treeEntriesCache.put(aTreeId.copy(), treeEntries); }
+        return treeEntries;
+    }
+
+    /**
+     * A class to represent a tree entry.
+     */
+    protected static class TreeEntry {
+
+        // The name, object id and whether entry is tree
+        final String name;
+        final ObjectId id;
+        final boolean isTree;
+
+        /**
+         * Constructor.
+         */
+        TreeEntry(String aName, ObjectId anId, boolean isTree)
+        {
+            name = aName;
+            id = anId;
+            this.isTree = isTree;
+        }
+    }
+
     /**
      * A class to represent a branch.
      */
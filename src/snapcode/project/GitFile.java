@@ -1,16 +1,17 @@
 package snapcode.project;
+import org.eclipse.jgit.lib.FileMode;
 import org.eclipse.jgit.lib.ObjectId;
 import org.eclipse.jgit.lib.ObjectReader;
-import org.eclipse.jgit.lib.Repository;
 import org.eclipse.jgit.revwalk.RevBlob;
 import org.eclipse.jgit.revwalk.RevObject;
 import org.eclipse.jgit.revwalk.RevTree;
+import org.eclipse.jgit.revwalk.RevWalk;
 import org.eclipse.jgit.treewalk.TreeWalk;
-import snap.util.ArrayUtils;
 import snap.util.FilePathUtils;
-
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * A class to represent a file.
@@ -20,6 +21,9 @@ public class GitFile<T extends RevObject> {
     // The GitDir
     protected GitDir _gitDir;
 
+    // The GitCommit
+    protected GitCommit _commit;
+
     // The RevObject
     protected T _rev;
 
@@ -29,10 +33,11 @@ public class GitFile<T extends RevObject> {
     /**
      * Constructor.
      */
-    public GitFile(GitDir gitDir)
+    public GitFile(GitCommit aCommit)
     {
         super();
-        _gitDir = gitDir;
+        _commit = aCommit;
+        _gitDir = aCommit._gitDir;
     }
 
     /**
@@ -73,6 +78,14 @@ public class GitFile<T extends RevObject> {
         throw new RuntimeException("GitFile: Not a tree file: " + _path);
     }
 
+    /**
+     * Returns the child path for given parent path and relative path.
+     */
+    protected static String getChildPath(String aPath, String relPath)
+    {
+        return aPath + (aPath.length() > 1 ? "/" : "") + relPath;
+    }
+
     /**
      * Standard toString implementation.
      */
@@ -89,12 +102,15 @@ public class GitFile<T extends RevObject> {
         // The child files
         private GitFile<?>[] _files;
 
+        // The child files for names
+        private Map<String,GitFile<?>> _filesMap;
+
         /**
          * Constructor.
          */
-        GitTree(GitDir gitDir, RevTree aRT, String aPath)
+        GitTree(GitCommit aCommit, RevTree aRT, String aPath)
         {
-            super(gitDir);
+            super(aCommit);
             _rev = aRT;
             _path = aPath;
         }
@@ -122,45 +138,101 @@ public class GitFile<T extends RevObject> {
          */
         private GitFile<?>[] getFilesImpl() throws Exception
         {
-            Repository repo = _gitDir.getRepo();
-            TreeWalk treeWalk = new TreeWalk(repo);
-            treeWalk.addTree(_rev);
-
-            // Get files for tree walk
+            // Get tree entries and create files with shared reader (trees and blobs are loaded lazily)
+            ObjectReader objectReader = _commit.getObjectReader();
             List<GitFile<?>> files = new ArrayList<>();
-            while (treeWalk.next()) {
-                ObjectId id = treeWalk.getObjectId(0);
-                RevObject rid = _gitDir.getRevObject(id);
-                String path = _path + (_path.length() > 1 ? "/" : "") + treeWalk.getNameString();
-                GitFile<?> child = rid instanceof RevTree ? new GitTree(_gitDir, (RevTree) rid, path) : new GitBlob(_gitDir, (RevBlob) rid, path);
-                files.add(child);
+            synchronized (objectReader) {
+                GitDir.TreeEntry[] treeEntries = _gitDir.getTreeEntries(objectReader, _rev);
+                try (RevWalk revWalk = new RevWalk(objectReader)) {
+                    for (GitDir.TreeEntry treeEntry : treeEntries) {
+                        String path = getChildPath(_path, treeEntry.name);
+                        GitFile<?> child = getFileForEntry(revWalk, treeEntry.id, treeEntry.isTree, path);
+                        files.add(child);
+                        _commit.addCachedFile(child);
+                    }
+                }
             }
 
+            // Create map of files for names
+            _filesMap = new HashMap<>(files.size());
+            for (GitFile<?> file : files)
+                _filesMap.put(file.getName(), file);
+
             // Return files array
             return files.toArray(new GitFile[0]);
         }
 
         /**
-         * Returns a file for a given path.
+         * Returns the child file for given name.
+         */
+        public GitFile<?> getFileForName(String aName)
+        {
+            if (_filesMap == null)
+                getFiles();
+            return _filesMap.get(aName);
+        }
+
+        /**
+         * Returns a file for a given path (relative to this tree).
          */
         @Override
         public GitFile<?> getFileForPath(String aPath)
         {
-            if (aPath.equals("/"))
+            // Get relative path (just return this tree for root)
+            String relPath = aPath.startsWith("/") ? aPath.substring(1) : aPath;
+            if (relPath.endsWith("/"))
+                relPath = relPath.substring(0, relPath.length() - 1);
+            if (relPath.isEmpty())
                 return this;
 
-            String[] pathParts = aPath.split("/");
-            GitFile<?> file = this;
-            for (int i = 0; i < pathParts.length && file != null; i++) {
-                String pathPart = pathParts[i];
-                if (pathPart.length() == 0)
-                    continue;
-                GitFile<?>[] childFiles = file.getFiles();
-                file = ArrayUtils.findMatch(childFiles, f -> pathPart.equals(f.getName()));
+            // If file already looked up for path, just return
+            String path = getChildPath(_path, relPath);
+            GitFile<?> file = _commit.getCachedFileForPath(path);
+            if (file != null)
+                return file;
+
+            // If child of this tree, get from child map
+            if (relPath.indexOf('/') < 0)
+                file = getFileForName(relPath);
+
+            // Otherwise find entry with single tree walk
+            else {
+                try { file = getFileForPathImpl(relPath, path); }
+                catch (Exception e) { throw new RuntimeException(e); }
             }
 
+            // Cache and return
+            if (file != null)
+                _commit.addCachedFile(file);
             return file;
         }
+
+        /**
+         * Returns a file for a given relative path using TreeWalk.forPath.
+         */
+        private GitFile<?> getFileForPathImpl(String relPath, String aPath) throws Exception
+        {
+            ObjectReader objectReader = _commit.getObjectReader();
+            synchronized (objectReader) {
+                TreeWalk treeWalk = TreeWalk.forPath(objectReader, relPath, _rev);
+                if (treeWalk == null || treeWalk.getFileMode(0) == FileMode.GITLINK)
+                    return null;
+                boolean isTree = treeWalk.getFileMode(0) == FileMode.TREE;
+                try (RevWalk revWalk = new RevWalk(objectReader)) {
+                    return getFileForEntry(revWalk, treeWalk.getObjectId(0), isTree, aPath);
+                }
+            }
+        }
+
+        /**
+         * Returns a new file for given object id and path (looked up without parsing).
+         */
+        private GitFile<?> getFileForEntry(RevWalk revWalk, ObjectId anId, boolean isTree, String aPath)
+        {
+            if (isTree)
+                return new GitTree(_commit, revWalk.lookupTree(anId), aPath);
+            return new GitBlob(_commit, revWalk.lookupBlob(anId), aPath);
+        }
     }
 
     /**
@@ -171,9 +243,9 @@ public class GitFile<T extends RevObject> {
         /**
          * Constructor.
          */
-        GitBlob(GitDir gitDir, RevBlob aRB, String aPath)
+        GitBlob(GitCommit aCommit, RevBlob aRB, String aPath)
         {
-            super(gitDir);
+            super(aCommit);
             _rev = aRB;
             _path = aPath;
         }
@@ -188,12 +260,11 @@ public class GitFile<T extends RevObject> {
          */
         public byte[] getBytes()
         {
-            try {
-                Repository repo = _gitDir.getRepo();
-                ObjectReader objectReader = repo.newObjectReader();
-                return objectReader.open(_rev).getBytes();
+            ObjectReader objectReader = _commit.getObjectReader();
+            synchronized (objectReader) {
+                try { return objectReader.open(_rev).getBytes(); }
+                catch (Exception e) { throw new RuntimeException(e); }
             }
-            catch (Exception e) { throw new RuntimeException(e); }
         }
     }
 }
@@ -71,7 +71,7 @@ public class GitFileSite extends WebSite {
         // Handle directory: Walk RevTree and get files for children
         else {
             GitFile<?>[] dirFiles = gitFile.getFiles();
-            List<FileHeader> dirFileHeaders = ArrayUtils.mapToList(dirFiles, file -> getFileHeader(file.getPath()));
+            List<FileHeader> dirFileHeaders = ArrayUtils.mapToList(dirFiles, this::getFileHeaderForGitFile);
             aResp.setFileHeaders(dirFileHeaders);
         }
     }
@@ -86,8 +86,16 @@ public class GitFileSite extends WebSite {
         if (gitFile == null)
             return null;
 
-        // Create file for path and commit time
-        FileHeader fileHeader = new FileHeader(aPath, gitFile.isDir());
+        // Return file header
+        return getFileHeaderForGitFile(gitFile);
+    }
+
+    /**
+     * Returns a file header for given git file.
+     */
+    private FileHeader getFileHeaderForGitFile(GitFile<?> gitFile)
+    {
+        FileHeader fileHeader = new FileHeader(gitFile.getPath(), gitFile.isDir());
         fileHeader.setLastModTime(_commit.getCommitTime());
         return fileHeader;
     }
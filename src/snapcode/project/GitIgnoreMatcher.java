@@ -0,0 +1,323 @@
+/*
+ * Copyright (c) 2010, ReportMill Software. All rights reserved.
+ */
+package snapcode.project;
+import snap.util.FilePathUtils;
+import snap.web.WebFile;
+import snap.web.WebSite;
+import java.util.*;
+import java.util.regex.Pattern;
+
+/**
+ * This class matches site paths against the .gitignore files of a site (and .git/info/exclude), with gitignore
+ * semantics: globs (*, ?, [...], **), negation (!), directory-only patterns (trailing /), anchored patterns
+ * (containing /) and nested .gitignore files (deeper files take precedence). Ignore files are read and compiled
+ * once and cached until reset() is called.
+ */
+public class GitIgnoreMatcher {
+
+    // The site
+    private WebSite _site;
+
+    // The compiled rules for directory path (empty list if directory has no .gitignore)
+    private Map<String,List<Rule>> _dirRules = new HashMap<>();
+
+    // The cached ignored state for directory paths
+    private Map<String,Boolean> _dirIgnored = new HashMap<>();
+
+    // The compiled rules from .git/info/exclude
+    private List<Rule> _excludeRules;
+
+    // Constants
+    public static final String GIT_IGNORE_FILENAME = ".gitignore";
+    private static final String EXCLUDE_FILE_PATH = "/.git/info/exclude";
+
+    /**
+     * Constructor for given site.
+     */
+    public GitIgnoreMatcher(WebSite aSite)
+    {
+        _site = aSite;
+    }
+
+    /**
+     * Returns whether given file is ignored.
+     */
+    public boolean isIgnoredFile(WebFile aFile)
+    {
+        return isIgnoredPath(aFile.getPath(), aFile.isDir());
+    }
+
+    /**
+     * Returns whether given site path is ignored.
+     */
+    public synchronized boolean isIgnoredPath(String aPath, boolean isDir)
+    {
+        // Handle root
+        if (aPath.equals("/"))
+            return false;
+
+        // If parent directory is ignored, path is ignored (files can't be re-included under ignored directory)
+        String parentPath = getParentPath(aPath);
+        if (!parentPath.equals("/") && isIgnoredPath(parentPath, true))
+            return true;
+
+        // If directory, check cache
+        if (isDir) {
+            Boolean ignored = _dirIgnored.get(aPath);
+            if (ignored != null)
+                return ignored;
+        }
+
+        // Get ignored state from rules and cache if directory
+        boolean ignored = isIgnoredByRules(aPath, parentPath, isDir);
+        if (isDir)
+            _dirIgnored.put(aPath, ignored);
+
+        // Return
+        return ignored;
+    }
+
+    /**
+     * Returns whether given path is ignored by the rules of ignore files in ancestor directories.
+     */
+    private boolean isIgnoredByRules(String aPath, String parentPath, boolean isDir)
+    {
+        String filename = FilePathUtils.getFilename(aPath);
+
+        // Iterate over ancestor directories, deepest first: last matching rule of deepest ignore file wins
+        for (String dirPath = parentPath; dirPath != null; dirPath = dirPath.equals("/") ? null : getParentPath(dirPath)) {
+            List<Rule> rules = getRulesForDir(dirPath);
+            String relPath = dirPath.equals("/") ? aPath.substring(1) : aPath.substring(dirPath.length() + 1);
+            Boolean ignored = getIgnoredForRules(rules, relPath, filename, isDir);
+            if (ignored != null)
+                return ignored;
+        }
+
+        // Check exclude rules (lowest precedence)
+        Boolean ignored = getIgnoredForRules(getExcludeRules(), aPath.substring(1), filename, isDir);
+        return ignored != null && ignored;
+    }
+
+    /**
+     * Returns whether last matching rule in given list ignores path (or null if no rule matches).
+     */
+    private static Boolean getIgnoredForRules(List<Rule> theRules, String relPath, String filename, boolean isDir)
+    {
+        for (int i = theRules.size() - 1; i >= 0; i--) {
+            Rule rule = theRules.get(i);
+            if (rule.matches(relPath, filename, isDir))
+                return !rule._negated;
+        }
+        return null;
+    }
+
+    /**
+     * Returns the compiled rules for given directory path.
+     */
+    private List<Rule> getRulesForDir(String aDirPath)
+    {
+        List<Rule> rules = _dirRules.get(aDirPath);
+        if (rules != null)
+            return rules;
+
+        // Read and compile rules from directory .gitignore file
+        String ignoreFilePath = FilePathUtils.getChildPath(aDirPath, GIT_IGNORE_FILENAME);
+        rules = getRulesForFilePath(ignoreFilePath);
+        _dirRules.put(aDirPath, rules);
+        return rules;
+    }
+
+    /**
+     * Returns the compiled rules from .git/info/exclude.
+     */
+    private List<Rule> getExcludeRules()
+    {
+        if (_excludeRules != null) return _excludeRules;
+        return _excludeRules = getRulesForFilePath(EXCLUDE_FILE_PATH);
+    }
+
+    /**
+     * Returns the compiled rules for given ignore file path (empty list if file not found).
+     */
+    private List<Rule> getRulesForFilePath(String aPath)
+    {
+        WebFile ignoreFile = _site.getFileForPath(aPath);
+        if (ignoreFile == null || !ignoreFile.isFile())
+            return Collections.emptyList();
+
+        // Iterate over lines and add rules
+        String text = ignoreFile.getText();
+        List<Rule> rules = new ArrayList<>();
+        for (String line : text.split("\r?\n")) {
+            Rule rule = Rule.createRule(line);
+            if (rule != null)
+                rules.add(rule);
+        }
+
+        // Return
+        return rules;
+    }
+
+    /**
+     * Returns the parent path for given path ("/" for top level paths).
+     */
+    private static String getParentPath(String aPath)
+    {
+        int index = aPath.lastIndexOf('/');
+        return index > 0 ? aPath.substring(0, index) : "/";
+    }
+
+    /**
+     * Clears cached rules and states (called when an ignore file changes).
+     */
+    public synchronized void reset()
+    {
+        _dirRules.clear();
+        _dirIgnored.clear();
+        _excludeRules = null;
+    }
+
+    /**
+     * Returns whether given file is an ignore file (change requires reset).
+     */
+    public static boolean isIgnoreRulesFile(WebFile aFile)
+    {
+        return aFile.getName().equals(GIT_IGNORE_FILENAME) || aFile.getPath().equals(EXCLUDE_FILE_PATH);
+    }
+
+    /**
+     * A class to represent a compiled gitignore pattern.
+     */
+    private static class Rule {
+
+        // The compiled pattern
+        private Pattern _pattern;
+
+        // Whether rule is negated (re-includes matches)
+        private boolean _negated;
+
+        // Whether rule only matches directories
+        private boolean _dirOnly;
+
+        // Whether rule is matched against path relative to ignore file dir (otherwise filename)
+        private boolean _anchored;
+
+        /**
+         * Matches given path (relative to ignore file directory) or filename.
+         */
+        boolean matches(String relPath, String filename, boolean isDir)
+        {
+            if (_dirOnly && !isDir)
+                return false;
+            return _pattern.matcher(_anchored ? relPath : filename).matches();
+        }
+
+        /**
+         * Creates rule for given ignore file line (or null for blank line or comment).
+         */
+        static Rule createRule(String aLine)
+        {
+            // Strip unescaped trailing spaces - skip blank lines and comments
+            String line = aLine;
+            while (line.endsWith(" ") && !line.endsWith("\\ "))
+                line = line.substring(0, line.length() - 1);
+            if (line.isEmpty() || line.startsWith("#"))
+                return null;
+
+            // Handle negation
+            Rule rule = new Rule();
+            if (line.startsWith("!")) {
+                rule._negated = true;
+                line = line.substring(1);
+            }
+
+            // Handle directory only
+            if (line.endsWith("/")) {
+                rule._dirOnly = true;
+                line = line.substring(0, line.length() - 1);
+            }
+
+            // Handle anchored: Pattern with slash (other than trailing) matches relative path
+            if (line.startsWith("/")) {
+                rule._anchored = true;
+                line = line.substring(1);
+            }
+            else if (line.contains("/"))
+                rule._anchored = true;
+            if (line.isEmpty())
+                return null;
+
+            // Compile and return
+            rule._pattern = Pattern.compile(getRegexForGlob(line));
+            return rule;
+        }
+
+        /**
+         * Returns a regex string for given gitignore glob.
+         */
+        static String getRegexForGlob(String aGlob)
+        {
+            StringBuilder sb = new StringBuilder();
+            int length = aGlob.length();
+
+            for (int i = 0; i < length; i++) {
+                char c = aGlob.charAt(i);
+                switch (c) {
+
+                    // Handle star: '**/' (zero or more dirs), trailing '**' (everything), otherwise any chars but slash
+                    case '*' -> {
+                        boolean isDoubleStar = i + 1 < length && aGlob.charAt(i + 1) == '*';
+                        boolean isAtSegmentStart = i == 0 || aGlob.charAt(i - 1) == '/';
+                        if (isDoubleStar && isAtSegmentStart && i + 2 < length && aGlob.charAt(i + 2) == '/') {
+                            sb.append("(?:.*/)?");
+                            i += 2;
+                        }
+                        else if (isDoubleStar && isAtSegmentStart && i + 2 == length) {
+                            sb.append(".*");
+                            i++;
+                        }
+                        else {
+                            sb.append("[^/]*");
+                            while (i + 1 < length && aGlob.charAt(i + 1) == '*')
+                                i++;
+                        }
+                    }
+
+                    // Handle question mark: Any char but slash
+                    case '?' -> sb.append("[^/]");
+
+                    // Handle bracket expression
+                    case '[' -> {
+                        int end = aGlob.indexOf(']', i + 2);
+                        if (end < 0) {
+                            sb.append("\\[");
+                            break;
+                        }
+                        String chars = aGlob.substring(i + 1, end);
+                        if (chars.startsWith("!"))
+                            chars = '^' + chars.substring(1);
+                        sb.append('[').append(chars.replace("\\", "\\\\").replace("[", "\\[")).append(']');
+                        i = end;
+                    }
+
+                    // Handle escape: Next char is literal
+                    case '\\' -> {
+                        if (i + 1 < length)
+                            sb.append(Pattern.quote(String.valueOf(aGlob.charAt(++i))));
+                    }
+
+                    // Handle literal
+                    default -> {
+                        if ("().+|^$@%{}".indexOf(c) >= 0)
+                            sb.append('\\');
+                        sb.append(c);
+                    }
+                }
+            }
+
+            // Return
+            return sb.toString();
+        }
+    }
+}
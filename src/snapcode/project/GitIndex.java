@@ -18,6 +18,9 @@ public class GitIndex {
     // The repository index
     private DirCache _index;
 
+    // The last modified time of index file when index was read
+    private long _indexModTime;
+
     /**
      * Constructor.
      */
@@ -32,7 +35,9 @@ public class GitIndex {
     public DirCache getIndex()
     {
         if (_index != null) return _index;
-        try { _index = _gitDir.getRepo().readDirCache(); }
+        Repository repo = _gitDir.getRepo();
+        _indexModTime = repo.getIndexFile().lastModified();
+        try { _index = repo.readDirCache(); }
         catch (Exception e) { throw new RuntimeException(e); }
         return _index;
     }
@@ -133,6 +138,32 @@ public class GitIndex {
          */
         public long getLastModified()  { return _entry != null ? _entry.getLastModifiedInstant().toEpochMilli() : 0; }
 
+        /**
+         * Returns the object id (content hash) string.
+         */
+        public String getObjectIdString()  { return _entry != null ? _entry.getObjectId().getName() : null; }
+
+        /**
+         * Returns whether entry stat data (length and last modified time) matches given file size and mod time.
+         * Entries that are smudged or racily clean (modified at or after index was written) never match, since the
+         * file could have changed within the same timestamp granularity - these need a content hash.
+         */
+        public boolean isStatMatch(long aSize, long aModTime)
+        {
+            // If no entry or smudged, return false
+            if (_entry == null || _entry.isSmudged())
+                return false;
+
+            // If racily clean, return false
+            long lastModTime = getLastModified();
+            if (lastModTime >= _indexModTime)
+                return false;
+
+            // Compare full length (index stores length as unsigned 32 bit, so larger files can't match) and mod time
+            long length = _entry.getLength() & 0xFFFFFFFFL;
+            return aSize <= 0xFFFFFFFFL && length == aSize && lastModTime == aModTime;
+        }
+
         /**
          * Returns the bytes for entry.
          */
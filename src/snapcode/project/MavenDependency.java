@@ -32,6 +32,12 @@ public class MavenDependency extends BuildDependency {
     // The maven package
     private MavenPackage _mavenPackage;
 
+    // The POM dependency this dependency was declared with (null for build file dependency)
+    private MavenPomFile.Dependency _pomDependency;
+
+    // The effective scope (compile for build file dependency)
+    private String _scope = MavenPomFile.SCOPE_COMPILE;
+
     // The transitive dependencies
     private List<MavenDependency> _dependencies;
 
@@ -62,14 +68,16 @@ public class MavenDependency extends BuildDependency {
     }
 
     /**
-     * Constructor with maven id.
+     * Constructor for transitive dependency declared in parent POM.
      */
-    public MavenDependency(MavenDependency parent, MavenPackage mavenPackage)
+    public MavenDependency(MavenDependency parent, MavenPomFile.Dependency pomDependency)
     {
         super();
         _parent = parent;
-        _mavenPackage = mavenPackage;
-        setId(mavenPackage.getId());
+        _pomDependency = pomDependency;
+        _mavenPackage = pomDependency.getPackage();
+        _scope = getScopeForParentScope(parent.getScope(), pomDependency.getScope());
+        setId(_mavenPackage.getId());
     }
 
     /**
@@ -82,6 +90,16 @@ public class MavenDependency extends BuildDependency {
      */
     public Type getType()  { return Type.Maven; }
 
+    /**
+     * Returns the effective scope (compile, runtime, provided).
+     */
+    public String getScope()  { return _scope; }
+
+    /**
+     * Returns the depth in dependency tree (build file dependency is 1).
+     */
+    public int getDepth()  { return _parent != null ? _parent.getDepth() + 1 : 1; }
+
     /**
      * Returns id string.
      */
@@ -205,10 +223,25 @@ public class MavenDependency extends BuildDependency {
     {
         if (_dependencies != null) return _dependencies;
         MavenPackage mavenPackage = getMavenPackage();
-        List<MavenPackage> dependencies = mavenPackage != null ? mavenPackage.getDependencies() : null;
-        if (dependencies == null)
+        List<MavenPomFile.Dependency> pomDependencies = mavenPackage != null ? mavenPackage.getPomFile().getPomDependencies() : null;
+        if (pomDependencies == null)
             return _dependencies = Collections.emptyList();
-        return _dependencies = ListUtils.map(dependencies, dep -> new MavenDependency(this, dep));
+
+        // Get transitive dependencies that aren't excluded by this dependency or ancestors
+        List<MavenPomFile.Dependency> transitiveDependencies = ListUtils.filter(pomDependencies, dep ->
+            dep.isTransitive() && !isExcludedArtifactId(dep.getArtifactId()));
+        return _dependencies = ListUtils.map(transitiveDependencies, dep -> new MavenDependency(this, dep));
+    }
+
+    /**
+     * Returns whether given artifact id is excluded by this dependency or ancestors.
+     */
+    private boolean isExcludedArtifactId(String artifactId)
+    {
+        for (MavenDependency dependency = this; dependency != null; dependency = dependency._parent)
+            if (dependency._pomDependency != null && dependency._pomDependency.isExcluded(artifactId))
+                return true;
+        return false;
     }
 
     /**
@@ -336,6 +369,18 @@ public class MavenDependency extends BuildDependency {
             mavenPackage.reloadPackageFiles();
     }
 
+    /**
+     * Returns the effective scope of transitive dependency for given parent scope and declared scope.
+     */
+    private static String getScopeForParentScope(String parentScope, String declaredScope)
+    {
+        if (parentScope.equals(MavenPomFile.SCOPE_COMPILE))
+            return declaredScope;
+        if (parentScope.equals(MavenPomFile.SCOPE_RUNTIME))
+            return MavenPomFile.SCOPE_RUNTIME;
+        return parentScope;
+    }
+
     /**
      * Called when any property changes.
      */
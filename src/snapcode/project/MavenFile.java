@@ -28,6 +28,11 @@ public class MavenFile {
         _fileType = fileType;
     }
 
+    /**
+     * Returns the maven package.
+     */
+    public MavenPackage getMavenPackage()  { return _mavenDependency; }
+
     /**
      * Returns the file URL in remote repository.
      */
@@ -90,6 +95,7 @@ public class MavenFile {
         String localFilePath = _mavenDependency.getLocalFilePathForType(_fileType);
         if (remoteUrl == null || localFilePath == null)
             return null;
-        return _downloadFile = new DownloadFile(remoteUrl.getJavaUrl(), Paths.get(localFilePath));
+        WebURL checksumUrl = WebURL.getUrl(remoteUrl.getString() + ".sha1");
+        return _downloadFile = new DownloadFile(remoteUrl.getJavaUrl(), Paths.get(localFilePath), checksumUrl != null ? checksumUrl.getJavaUrl() : null);
     }
 }
@@ -0,0 +1,138 @@
+package snapcode.project;
+import java.util.*;
+
+/**
+ * This class mediates the maven dependency trees of a build file like Maven does: The tree is walked breadth-first
+ * and the nearest version of each artifact wins (first declared wins for same depth). Subtrees of omitted
+ * dependencies are skipped, exclusions and optional dependencies were already dropped by MavenDependency, and the
+ * scope of a selected artifact is widened to compile if any occurrence needs it at compile time.
+ */
+public class MavenMediator {
+
+    // The selected dependencies for artifact id
+    private Map<String,MavenDependency> _selectedDependencies = new LinkedHashMap<>();
+
+    // The selected scopes for artifact id
+    private Map<String,String> _selectedScopes = new HashMap<>();
+
+    // The reasons for selected and omitted dependencies
+    private Map<MavenDependency,String> _reasons = new HashMap<>();
+
+    // The number of selected dependencies that were loaded when mediated
+    private int _loadedCount;
+
+    /**
+     * Constructor for given build file dependencies.
+     */
+    public MavenMediator(List<MavenDependency> rootDependencies)
+    {
+        // Walk dependency trees breadth first
+        Deque<MavenDependency> dependencies = new ArrayDeque<>(rootDependencies);
+        while (!dependencies.isEmpty()) {
+            MavenDependency dependency = dependencies.removeFirst();
+            String artifactId = dependency.getArtifactId();
+            if (artifactId == null)
+                continue;
+
+            // If artifact already selected, omit dependency and widen scope if needed
+            MavenDependency selectedDependency = _selectedDependencies.get(artifactId);
+            if (selectedDependency != null) {
+                boolean isSameVersion = Objects.equals(selectedDependency.getVersion(), dependency.getVersion());
+                _reasons.put(dependency, isSameVersion ? "Omitted: Duplicate of " + selectedDependency.getId() :
+                    "Omitted: Conflicts with nearer " + selectedDependency.getId());
+                if (dependency.getScope().equals(MavenPomFile.SCOPE_COMPILE))
+                    _selectedScopes.put(artifactId, MavenPomFile.SCOPE_COMPILE);
+                continue;
+            }
+
+            // Select dependency and add transitive dependencies
+            _selectedDependencies.put(artifactId, dependency);
+            _selectedScopes.put(artifactId, dependency.getScope());
+            _reasons.put(dependency, dependency.getParent() == null ? "Selected: Declared in build file" :
+                "Selected: Nearest (depth " + dependency.getDepth() + ", via " + dependency.getParent().getId() + ")");
+            dependencies.addAll(dependency.getDependencies());
+        }
+
+        // Record loaded count
+        _loadedCount = getLoadedCount();
+    }
+
+    /**
+     * Returns whether mediation is stale because selected dependencies were loaded (or unloaded) since.
+     */
+    public boolean isStale()
+    {
+        return getLoadedCount() != _loadedCount;
+    }
+
+    /**
+     * Returns the number of selected dependencies that are loaded.
+     */
+    private int getLoadedCount()
+    {
+        int loadedCount = 0;
+        for (MavenDependency dependency : _selectedDependencies.values())
+            if (dependency.isLoaded())
+                loadedCount++;
+        return loadedCount;
+    }
+
+    /**
+     * Returns the selected dependencies.
+     */
+    public List<MavenDependency> getSelectedDependencies()  { return new ArrayList<>(_selectedDependencies.values()); }
+
+    /**
+     * Returns the selected scope for given dependency artifact.
+     */
+    public String getScopeForDependency(MavenDependency aDependency)
+    {
+        return _selectedScopes.get(aDependency.getArtifactId());
+    }
+
+    /**
+     * Returns the reason given dependency was selected or omitted (or null if not reached).
+     */
+    public String getReasonForDependency(MavenDependency aDependency)
+    {
+        String reason = _reasons.get(aDependency);
+        if (reason == null || !reason.startsWith("Selected"))
+            return reason;
+        return reason + "\nScope: " + getScopeForDependency(aDependency);
+    }
+
+    /**
+     * Adds the class paths of selected dependencies needed for compile (or runtime) to given set.
+     */
+    public void addClassPaths(Set<String> classPaths, boolean isRuntime)
+    {
+        for (MavenDependency dependency : _selectedDependencies.values())
+            addClassPathsForDependency(classPaths, dependency, isRuntime);
+    }
+
+    /**
+     * Adds the class paths of given dependency to given set, if selected and needed for compile (or runtime).
+     */
+    public void addClassPathsForDependency(Set<String> classPaths, MavenDependency aDependency, boolean isRuntime)
+    {
+        // If not selected, just return
+        if (_selectedDependencies.get(aDependency.getArtifactId()) != aDependency)
+            return;
+
+        // If scope not needed, just return
+        String scope = getScopeForDependency(aDependency);
+        boolean isNeeded = isRuntime ? !scope.equals(MavenPomFile.SCOPE_PROVIDED) : !scope.equals(MavenPomFile.SCOPE_RUNTIME);
+        if (!isNeeded || scope.equals(MavenPomFile.SCOPE_TEST))
+            return;
+
+        // Get dependency class paths - complain if missing
+        String[] dependencyClassPaths = aDependency.getClassPaths();
+        if (dependencyClassPaths == null || dependencyClassPaths[0] == null) {
+            System.err.println("MavenMediator.addClassPaths: Can't get class path for: " + aDependency);
+            return;
+        }
+
+        // Add dependency class paths
+        Collections.addAll(classPaths, dependencyClassPaths);
+    }
+}
@@ -53,6 +53,12 @@ public class MavenPackage extends PropObject {
     // A map of all packages
     private static Map<String, MavenPackage> _packages = new HashMap<>();
 
+    // The repository URL that overrides defaults (e.g., a file: URL of a local stand-in repository)
+    private static String _repositoryUrl;
+
+    // The local repository path (defaults to ~/.m2/repository)
+    private static String _localRepositoryPath;
+
     // Constants for properties
     public static final String Loaded_Prop = "Loaded";
     public static final String Loading_Prop = "Loading";
@@ -151,6 +157,8 @@ public class MavenPackage extends PropObject {
      */
     public String getRepositoryUrlOrDefault()
     {
+        if (_repositoryUrl != null)
+            return _repositoryUrl;
         if (_name != null) {
             String name = _name.toLowerCase();
             if (name.contains("reportmill") || name.contains("snapkit") || name.contains("snapcharts"))
@@ -205,9 +213,7 @@ public class MavenPackage extends PropObject {
     public String getLocalFilePathForType(String fileType)
     {
         // Get local maven cache path
-        String homeDir = System.getProperty("user.home");
-        String MAVEN_REPO_PATH = SnapEnv.isWebVM ? "maven_cache" : ".m2/repository";
-        String localMavenCachePath = FilePathUtils.getChildPath(homeDir, MAVEN_REPO_PATH);
+        String localMavenCachePath = getLocalRepositoryPath();
 
         // Get relative file path
         String relativeFilePath = getRelativeFilePathForType(fileType);
@@ -256,7 +262,7 @@ public class MavenPackage extends PropObject {
     /**
      * Sets whether maven package is loaded.
      */
-    protected synchronized void setLoaded(boolean aValue)
+    protected void setLoaded(boolean aValue)
     {
         if (aValue == _loaded) return;
         firePropChange(Loaded_Prop, _loaded, _loaded = aValue);
@@ -277,7 +283,7 @@ public class MavenPackage extends PropObject {
     }
 
     /**
-     * Loads package files.
+     * Loads package files (and transitive dependency files).
      */
     public synchronized void loadPackageFiles()
     {
@@ -285,28 +291,9 @@ public class MavenPackage extends PropObject {
         if (isLoaded())
             return;
 
-        try {
-
-            // Set loading
-            setLoaded(false);
-            setLoading(true);
-            _error = null;
-
-            // Load jar file
-            getJarFile().downloadFile();
-
-            // Load transitive dependencies
-            List<MavenPackage> transitiveDependencies = getDependencies();
-            transitiveDependencies.forEach(MavenPackage::loadPackageFiles);
-
-            setLoaded(true);
-        }
-
-        // Handle errors
-        catch (Exception e) { _error = "Error: " + e.getMessage(); }
-
-        // Reset Loading
-        finally { setLoading(false); }
+        // Resolve package and transitive dependencies
+        MavenResolver resolver = new MavenResolver(this);
+        resolver.resolve();
     }
 
     /**
@@ -318,8 +305,8 @@ public class MavenPackage extends PropObject {
         if (isLoaded() || isLoading())
             return;
 
-        // Set Loading true and start thread
-        new Thread(this::loadPackageFiles).start();
+        // Load in background
+        MavenResolver.runInBackground(this::loadPackageFiles);
     }
 
     /**
@@ -352,6 +339,14 @@ public class MavenPackage extends PropObject {
         return _error = getErrorImpl();
     }
 
+    /**
+     * Sets the error.
+     */
+    protected void setError(String aValue)
+    {
+        _error = aValue;
+    }
+
     /**
      * Returns the error.
      */
@@ -369,7 +364,7 @@ public class MavenPackage extends PropObject {
     /**
      * Returns the package for given id.
      */
-    public static MavenPackage getMavenPackageForId(String mavenId)
+    public static synchronized MavenPackage getMavenPackageForId(String mavenId)
     {
         MavenPackage mavenPackage = _packages.get(mavenId);
         if (mavenPackage != null)
@@ -378,4 +373,25 @@ public class MavenPackage extends PropObject {
         _packages.put(mavenId, mavenPackage);
         return mavenPackage;
     }
+
+    /**
+     * Returns the local repository path.
+     */
+    public static String getLocalRepositoryPath()
+    {
+        if (_localRepositoryPath != null) return _localRepositoryPath;
+        String homeDir = System.getProperty("user.home");
+        String MAVEN_REPO_PATH = SnapEnv.isWebVM ? "maven_cache" : ".m2/repository";
+        return _localRepositoryPath = FilePathUtils.getChildPath(homeDir, MAVEN_REPO_PATH);
+    }
+
+    /**
+     * Sets the local repository path.
+     */
+    public static void setLocalRepositoryPath(String aPath)  { _localRepositoryPath = aPath; }
+
+    /**
+     * Sets a repository URL to use for all packages (e.g. a file: URL for a local stand-in repository).
+     */
+    public static void setRepositoryUrl(String aURL)  { _repositoryUrl = aURL; }
 }
@@ -2,20 +2,44 @@ package snapcode.project;
 import snap.util.ListUtils;
 import snap.util.XMLElement;
 import snap.web.WebFile;
-import java.util.Collections;
-import java.util.List;
+import java.util.*;
 
 /**
- * This class reads a POM file for a maven dependency.
+ * This class reads a POM file for a maven dependency. Dependencies are read with parent POM inheritance, property
+ * interpolation and dependencyManagement (including imported BOMs), along with their scope, optional flag and
+ * exclusions.
  */
 public class MavenPomFile extends MavenFile {
 
-    // The dependencies
+    // The transitive dependency packages
     private List<MavenPackage> _dependencies;
 
+    // The declared dependencies (with inherited, interpolated and managed values)
+    private List<Dependency> _pomDependencies;
+
+    // The managed dependencies for artifact id
+    private Map<String,Dependency> _managedDependencies;
+
+    // The properties
+    private Map<String,String> _properties;
+
+    // The parent POM file
+    private MavenPomFile _parentPom;
+
     // The XML
     private XMLElement _xml;
 
+    // Constants for scopes
+    public static final String SCOPE_COMPILE = "compile";
+    public static final String SCOPE_RUNTIME = "runtime";
+    public static final String SCOPE_PROVIDED = "provided";
+    public static final String SCOPE_TEST = "test";
+    public static final String SCOPE_SYSTEM = "system";
+    public static final String SCOPE_IMPORT = "import";
+
+    // Constant for max parent depth (guards against cycles)
+    private static final int MAX_PARENT_DEPTH = 16;
+
     /**
      * Constructor.
      */
@@ -25,50 +49,221 @@ public class MavenPomFile extends MavenFile {
     }
 
     /**
-     * Returns dependencies.
+     * Returns the transitive dependency packages (compile and runtime scope, not optional).
      */
-    public List<MavenPackage> getDependencies()
+    public synchronized List<MavenPackage> getDependencies()
     {
         if (_dependencies != null) return _dependencies;
+        List<Dependency> transitiveDependencies = ListUtils.filter(getPomDependencies(), Dependency::isTransitive);
+        return _dependencies = ListUtils.map(transitiveDependencies, Dependency::getPackage);
+    }
+
+    /**
+     * Returns the declared dependencies (with inherited, interpolated and managed values).
+     */
+    public synchronized List<Dependency> getPomDependencies()
+    {
+        if (_pomDependencies != null) return _pomDependencies;
+        return _pomDependencies = getPomDependenciesImpl(0);
+    }
+
+    /**
+     * Returns the declared dependencies.
+     */
+    private List<Dependency> getPomDependenciesImpl(int parentDepth)
+    {
+        // Get inherited dependencies from parent
+        Map<String,Dependency> dependencies = new LinkedHashMap<>();
+        MavenPomFile parentPom = parentDepth < MAX_PARENT_DEPTH ? getParentPom() : null;
+        if (parentPom != null) {
+            for (Dependency dependency : parentPom.getPomDependenciesImpl(parentDepth + 1))
+                dependencies.put(dependency.getArtifactId(), dependency);
+        }
 
         // Get <dependency> XML elements
         XMLElement xml = getXML();
         XMLElement dependenciesXML = xml != null ? xml.getElement("dependencies") : null;
-        List<XMLElement> dependencyXMLs = dependenciesXML != null ? dependenciesXML.getElements("dependency") : null;
-        if (dependencyXMLs == null)
-            return _dependencies = Collections.emptyList();
+        List<XMLElement> dependencyXMLs = dependenciesXML != null ? dependenciesXML.getElements("dependency") : Collections.emptyList();
+
+        // Iterate over dependency XMLs and add dependency with managed values
+        Map<String,Dependency> managedDependencies = getManagedDependencies(parentDepth);
+        for (XMLElement dependencyXML : dependencyXMLs) {
+            Dependency dependency = getDependencyForXML(dependencyXML);
+            if (dependency == null || !dependency.isJarType())
+                continue;
+            Dependency managedDependency = managedDependencies.get(dependency.getArtifactId());
+            if (managedDependency != null)
+                dependency.applyManagedDependency(managedDependency);
+            if (dependency._version != null)
+                dependencies.put(dependency.getArtifactId(), dependency);
+        }
+
+        // Return
+        return new ArrayList<>(dependencies.values());
+    }
+
+    /**
+     * Returns the managed dependencies for artifact id (from dependencyManagement, parents and imported BOMs).
+     */
+    private synchronized Map<String,Dependency> getManagedDependencies(int parentDepth)
+    {
+        if (_managedDependencies != null) return _managedDependencies;
+
+        // Get inherited managed dependencies from parent
+        Map<String,Dependency> managedDependencies = new HashMap<>();
+        MavenPomFile parentPom = parentDepth < MAX_PARENT_DEPTH ? getParentPom() : null;
+        if (parentPom != null)
+            managedDependencies.putAll(parentPom.getManagedDependencies(parentDepth + 1));
+
+        // Get dependencyManagement <dependency> XML elements
+        XMLElement xml = getXML();
+        XMLElement managementXML = xml != null ? xml.getElement("dependencyManagement") : null;
+        XMLElement dependenciesXML = managementXML != null ? managementXML.getElement("dependencies") : null;
+        List<XMLElement> dependencyXMLs = dependenciesXML != null ? dependenciesXML.getElements("dependency") : Collections.emptyList();
+
+        // Iterate over dependency XMLs and add managed dependencies
+        for (XMLElement dependencyXML : dependencyXMLs) {
+            Dependency dependency = getDependencyForXML(dependencyXML);
+            if (dependency == null || dependency._version == null)
+                continue;
+
+            // Handle import: Add managed dependencies of BOM
+            if (SCOPE_IMPORT.equals(dependency._scope)) {
+                MavenPomFile bomPom = dependency.getPackage().getPomFile();
+                if (parentDepth < MAX_PARENT_DEPTH)
+                    bomPom.getManagedDependencies(parentDepth + 1).forEach(managedDependencies::putIfAbsent);
+            }
 
-        // Get dependencies and return
-        return _dependencies = ListUtils.mapNonNull(dependencyXMLs, MavenPomFile::getDependencyForXML);
+            // Otherwise add managed dependency
+            else managedDependencies.put(dependency.getArtifactId(), dependency);
+        }
+
+        // Return
+        return _managedDependencies = managedDependencies;
     }
 
     /**
-     * Creates a maven dependency for dependency xml element.
+     * Returns the parent POM file (or null if none).
      */
-    private static MavenPackage getDependencyForXML(XMLElement dependencyXML)
+    public MavenPomFile getParentPom()
     {
-        // Get XML elements for group, artifact, version
-        XMLElement groupIdXML = dependencyXML.getElement("groupId");
-        XMLElement artifactIdXML = dependencyXML.getElement("artifactId");
-        XMLElement versionXML = dependencyXML.getElement("version");
-        if (groupIdXML == null || artifactIdXML == null || versionXML == null)
+        if (_parentPom != null) return _parentPom;
+
+        // Get parent XML group, artifact, version
+        XMLElement xml = getXML();
+        XMLElement parentXML = xml != null ? xml.getElement("parent") : null;
+        if (parentXML == null)
+            return null;
+        String groupId = getChildValue(parentXML, "groupId");
+        String artifactId = getChildValue(parentXML, "artifactId");
+        String version = getChildValue(parentXML, "version");
+        if (groupId == null || artifactId == null || version == null)
             return null;
 
-        // Get groupId, artifactId, version
-        String groupId = groupIdXML.getValue();
-        String artifactId = artifactIdXML.getValue();
-        String version = versionXML.getValue();
-        if (groupId == null || groupId.isBlank() || artifactId == null || artifactId.isBlank() || version == null || version.isBlank())
+        // Get package POM file
+        MavenPackage parentPackage = MavenPackage.getMavenPackageForId(groupId + ":" + artifactId + ":" + version);
+        return _parentPom = parentPackage.getPomFile();
+    }
+
+    /**
+     * Returns the properties (including inherited properties and project.* values).
+     */
+    private synchronized Map<String,String> getProperties(int parentDepth)
+    {
+        if (_properties != null) return _properties;
+
+        // Get inherited properties from parent
+        Map<String,String> properties = new HashMap<>();
+        MavenPomFile parentPom = parentDepth < MAX_PARENT_DEPTH ? getParentPom() : null;
+        if (parentPom != null && parentPom != this)
+            properties.putAll(parentPom.getProperties(parentDepth + 1));
+
+        // Add properties from <properties> element
+        XMLElement xml = getXML();
+        XMLElement propertiesXML = xml != null ? xml.getElement("properties") : null;
+        if (propertiesXML != null) {
+            for (XMLElement propertyXML : propertiesXML.getElements())
+                properties.put(propertyXML.getName(), propertyXML.getValue() != null ? propertyXML.getValue().trim() : "");
+        }
+
+        // Add project properties
+        MavenPackage mavenPackage = getMavenPackage();
+        properties.put("project.groupId", mavenPackage.getGroup());
+        properties.put("project.artifactId", mavenPackage.getName());
+        properties.put("project.version", mavenPackage.getVersion());
+        properties.put("pom.version", mavenPackage.getVersion());
+        if (parentPom != null) {
+            properties.put("project.parent.groupId", parentPom.getMavenPackage().getGroup());
+            properties.put("project.parent.version", parentPom.getMavenPackage().getVersion());
+        }
+
+        // Return
+        return _properties = properties;
+    }
+
+    /**
+     * Returns the given string with ${property} references replaced.
+     */
+    private String interpolate(String aString)
+    {
+        if (aString == null || !aString.contains("${"))
+            return aString;
+
+        // Replace property references (repeat for properties that reference other properties)
+        Map<String,String> properties = getProperties(0);
+        String str = aString;
+        for (int pass = 0; pass < 8 && str.contains("${"); pass++) {
+            int start = str.indexOf("${");
+            int end = str.indexOf('}', start);
+            if (end < 0)
+                break;
+            String value = properties.get(str.substring(start + 2, end));
+            if (value == null)
+                return null;
+            str = str.substring(0, start) + value + str.substring(end + 1);
+        }
+
+        // Return (null if unresolved)
+        return str.contains("${") ? null : str;
+    }
+
+    /**
+     * Creates a dependency for dependency xml element (or null if group or artifact missing).
+     */
+    private Dependency getDependencyForXML(XMLElement dependencyXML)
+    {
+        // Get groupId, artifactId - just return if missing
+        String groupId = interpolate(getChildValue(dependencyXML, "groupId"));
+        String artifactId = interpolate(getChildValue(dependencyXML, "artifactId"));
+        if (groupId == null || artifactId == null)
             return null;
 
-        // Create and return maven dependency for id
-        return MavenPackage.getMavenPackageForId(groupId + ":" + artifactId + ":" + version);
+        // Create dependency and set attributes
+        Dependency dependency = new Dependency(groupId, artifactId);
+        dependency._version = getVersionForVersionString(interpolate(getChildValue(dependencyXML, "version")));
+        dependency._classifier = interpolate(getChildValue(dependencyXML, "classifier"));
+        dependency._type = interpolate(getChildValue(dependencyXML, "type"));
+        dependency._scope = interpolate(getChildValue(dependencyXML, "scope"));
+        dependency._optional = "true".equals(interpolate(getChildValue(dependencyXML, "optional")));
+
+        // Add exclusions
+        XMLElement exclusionsXML = dependencyXML.getElement("exclusions");
+        List<XMLElement> exclusionXMLs = exclusionsXML != null ? exclusionsXML.getElements("exclusion") : Collections.emptyList();
+        for (XMLElement exclusionXML : exclusionXMLs) {
+            String exclusionGroupId = interpolate(getChildValue(exclusionXML, "groupId"));
+            String exclusionArtifactId = interpolate(getChildValue(exclusionXML, "artifactId"));
+            if (exclusionGroupId != null && exclusionArtifactId != null)
+                dependency._exclusions.add(exclusionGroupId + ':' + exclusionArtifactId);
+        }
+
+        // Return
+        return dependency;
     }
 
     /**
      * Returns the XML.
      */
-    private XMLElement getXML()
+    private synchronized XMLElement getXML()
     {
         if (_xml != null) return _xml;
         WebFile pomFile = getLocalFile();
@@ -86,4 +281,125 @@ public class MavenPomFile extends MavenFile {
             return null;
         }
     }
+
+    /**
+     * Returns the trimmed value of named child element (or null if missing or blank).
+     */
+    private static String getChildValue(XMLElement anXML, String aName)
+    {
+        XMLElement childXML = anXML.getElement(aName);
+        String value = childXML != null ? childXML.getValue() : null;
+        return value != null && !value.isBlank() ? value.trim() : null;
+    }
+
+    /**
+     * Returns the version for given version string: Hard requirement ranges ("[1.2]") and ranges with lower bound
+     * ("[1.2,2.0)") resolve to the lower bound.
+     */
+    private static String getVersionForVersionString(String aString)
+    {
+        if (aString == null || !(aString.startsWith("[") || aString.startsWith("(")))
+            return aString;
+        String lowerBound = aString.substring(1).split("[,\\])]")[0].trim();
+        return !lowerBound.isEmpty() && aString.startsWith("[") ? lowerBound : null;
+    }
+
+    /**
+     * This class represents a dependency declared in a POM file.
+     */
+    public static class Dependency {
+
+        // The group id, artifact id, version, classifier and type
+        private String _groupId, _artifactId, _version, _classifier, _type;
+
+        // The scope
+        private String _scope;
+
+        // Whether dependency is optional
+        private boolean _optional;
+
+        // The excluded artifact ids (group:artifact, either can be "*")
+        private Set<String> _exclusions = new LinkedHashSet<>();
+
+        /**
+         * Constructor.
+         */
+        private Dependency(String groupId, String artifactId)
+        {
+            _groupId = groupId;
+            _artifactId = artifactId;
+        }
+
+        /**
+         * Returns the artifact id (group:artifact).
+         */
+        public String getArtifactId()  { return _groupId + ':' + _artifactId; }
+
+        /**
+         * Returns the scope (defaults to compile).
+         */
+        public String getScope()  { return _scope != null ? _scope : SCOPE_COMPILE; }
+
+        /**
+         * Returns whether dependency is optional.
+         */
+        public boolean isOptional()  { return _optional; }
+
+        /**
+         * Returns the excluded artifact ids.
+         */
+        public Set<String> getExclusions()  { return _exclusions; }
+
+        /**
+         * Returns whether dependency is transitive (compile or runtime scope and not optional).
+         */
+        public boolean isTransitive()
+        {
+            String scope = getScope();
+            return !_optional && (scope.equals(SCOPE_COMPILE) || scope.equals(SCOPE_RUNTIME));
+        }
+
+        /**
+         * Returns whether dependency type is jar (or bundle).
+         */
+        private boolean isJarType()  { return _type == null || _type.equals("jar") || _type.equals("bundle"); }
+
+        /**
+         * Returns the maven package.
+         */
+        public MavenPackage getPackage()
+        {
+            String mavenId = getArtifactId() + ':' + _version;
+            if (_classifier != null)
+                mavenId += ':' + _classifier;
+            return MavenPackage.getMavenPackageForId(mavenId);
+        }
+
+        /**
+         * Applies missing values from given managed dependency.
+         */
+        private void applyManagedDependency(Dependency managedDependency)
+        {
+            if (_version == null)
+                _version = managedDependency._version;
+            if (_scope == null)
+                _scope = managedDependency._scope;
+            if (_exclusions.isEmpty())
+                _exclusions.addAll(managedDependency._exclusions);
+        }
+
+        /**
+         * Returns whether given artifact id is excluded by this dependency.
+         */
+        public boolean isExcluded(String anArtifactId)
+        {
+            if (_exclusions.isEmpty())
+                return false;
+            if (_exclusions.contains(anArtifactId) || _exclusions.contains("*:*"))
+                return true;
+            int colonIndex = anArtifactId.indexOf(':');
+            return _exclusions.contains(anArtifactId.substring(0, colonIndex) + ":*") ||
+                    _exclusions.contains("*:" + anArtifactId.substring(colonIndex + 1));
+        }
+    }
 }
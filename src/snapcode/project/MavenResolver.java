@@ -0,0 +1,169 @@
+package snapcode.project;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * This class resolves a maven package and its transitive dependencies: The POM graph is walked breadth-first and
+ * the POM and jar files of each level are fetched concurrently on a shared, bounded download pool. Files are cached
+ * in the local repository (~/.m2 layout), so packages that were already downloaded resolve without network access.
+ */
+public class MavenResolver {
+
+    // The root package
+    private MavenPackage _rootPackage;
+
+    // The resolved packages in breadth-first order
+    private List<MavenPackage> _packages = new ArrayList<>();
+
+    // The errors for failed packages
+    private Map<MavenPackage,String> _errors = new ConcurrentHashMap<>();
+
+    // The shared download executor
+    private static ExecutorService _downloadExecutor;
+
+    // The shared background resolve executor
+    private static ExecutorService _backgroundExecutor;
+
+    // Constants
+    private static final int MAX_DOWNLOAD_THREADS = 6;
+
+    /**
+     * Constructor.
+     */
+    public MavenResolver(MavenPackage rootPackage)
+    {
+        _rootPackage = rootPackage;
+    }
+
+    /**
+     * Returns the resolved packages in breadth-first order (root first).
+     */
+    public List<MavenPackage> getPackages()  { return _packages; }
+
+    /**
+     * Returns the errors for failed packages.
+     */
+    public Map<MavenPackage,String> getErrors()  { return _errors; }
+
+    /**
+     * Resolves root package and transitive dependencies. Returns whether all files were loaded.
+     */
+    public boolean resolve()
+    {
+        // Reset root error and set loading
+        _rootPackage.setError(null);
+        _rootPackage.setLoading(true);
+
+        // Walk dependency graph level by level
+        Set<MavenPackage> visitedPackages = new HashSet<>();
+        visitedPackages.add(_rootPackage);
+        List<MavenPackage> levelPackages = List.of(_rootPackage);
+        List<CompletableFuture<Void>> jarFutures = new ArrayList<>();
+
+        while (!levelPackages.isEmpty()) {
+
+            // Start POM and jar downloads for level packages
+            List<CompletableFuture<List<MavenPackage>>> pomFutures = new ArrayList<>();
+            for (MavenPackage mavenPackage : levelPackages) {
+                if (mavenPackage != _rootPackage)
+                    mavenPackage.setLoading(true);
+                pomFutures.add(CompletableFuture.supplyAsync(() -> loadDependencies(mavenPackage), getDownloadExecutor()));
+                jarFutures.add(CompletableFuture.runAsync(() -> loadJarFile(mavenPackage), getDownloadExecutor()));
+            }
+
+            // Wait for POMs and get next level from dependencies not yet visited
+            List<MavenPackage> nextLevelPackages = new ArrayList<>();
+            for (CompletableFuture<List<MavenPackage>> pomFuture : pomFutures) {
+                for (MavenPackage dependency : pomFuture.join()) {
+                    if (!dependency.isLoaded() && visitedPackages.add(dependency))
+                        nextLevelPackages.add(dependency);
+                }
+            }
+
+            // Add level packages and move to next level
+            _packages.addAll(levelPackages);
+            levelPackages = nextLevelPackages;
+        }
+
+        // Wait for jars
+        CompletableFuture.allOf(jarFutures.toArray(new CompletableFuture[0])).join();
+
+        // Update packages loaded/loading
+        boolean loaded = _errors.isEmpty();
+        for (MavenPackage mavenPackage : _packages) {
+            String error = _errors.get(mavenPackage);
+            if (error != null)
+                mavenPackage.setError(error);
+            mavenPackage.setLoaded(loaded);
+            mavenPackage.setLoading(false);
+        }
+
+        // If dependency failed, set root error
+        if (!loaded && !_errors.containsKey(_rootPackage)) {
+            MavenPackage failedPackage = _errors.keySet().iterator().next();
+            _rootPackage.setError("Error: Can't load dependency " + failedPackage.getId() + ": " + _errors.get(failedPackage));
+        }
+
+        // Return
+        return loaded;
+    }
+
+    /**
+     * Loads POM file for given package and returns dependencies (called on download thread).
+     */
+    private List<MavenPackage> loadDependencies(MavenPackage mavenPackage)
+    {
+        try {
+            MavenPomFile pomFile = mavenPackage.getPomFile();
+            pomFile.downloadFile();
+            return pomFile.getDependencies();
+        }
+        catch (Exception e) {
+            _errors.put(mavenPackage, "Error: " + e.getMessage());
+            return Collections.emptyList();
+        }
+    }
+
+    /**
+     * Loads jar file for given package (called on download thread).
+     */
+    private void loadJarFile(MavenPackage mavenPackage)
+    {
+        try { mavenPackage.getJarFile().downloadFile(); }
+        catch (Exception e) { _errors.put(mavenPackage, "Error: " + e.getMessage()); }
+    }
+
+    /**
+     * Runs given resolve task in background (outside download pool, since resolve waits on download tasks).
+     */
+    public static void runInBackground(Runnable aRunnable)
+    {
+        getBackgroundExecutor().execute(aRunnable);
+    }
+
+    /**
+     * Returns the shared download executor.
+     */
+    private static synchronized ExecutorService getDownloadExecutor()
+    {
+        if (_downloadExecutor != null) return _downloadExecutor;
+        return _downloadExecutor = Executors.newFixedThreadPool(MAX_DOWNLOAD_THREADS, runnable -> {
+            Thread thread = new Thread(runnable, "Maven Download");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Returns the shared background resolve executor.
+     */
+    private static synchronized ExecutorService getBackgroundExecutor()
+    {
+        if (_backgroundExecutor != null) return _backgroundExecutor;
+        return _backgroundExecutor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "Maven Resolve");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+}
@@ -13,6 +13,8 @@ import java.io.Closeable;
 import java.net.URL;
 import java.net.URLClassLoader;
 import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.BiConsumer;
 
 /**
  * This class manages all aspects of a project.
@@ -46,6 +48,24 @@ public class Project extends PropObject {
     // The JavaAgents created for this project
     private List<JavaAgent> _javaAgents = new ArrayList<>();
 
+    // The text search index
+    private SearchIndex _searchIndex;
+
+    // The reference search index
+    private ReferenceIndex _referenceIndex;
+
+    // The in-memory store for compiled classes
+    private ClassFileStore _classFileStore;
+
+    // The class hierarchy index
+    private ClassHierarchyIndex _classHierarchyIndex;
+
+    // The listeners for class files rewritten by compiler (called with class file and old bytes)
+    private List<BiConsumer<WebFile,byte[]>> _classFileChangeLsnrs = new CopyOnWriteArrayList<>();
+
+    // The mediator for maven dependencies (cleared when build file changes)
+    private MavenMediator _mavenMediator;
+
     // Constants for properties
     private static final String Projects_Prop = "Projects";
 
@@ -187,6 +207,61 @@ public class Project extends PropObject {
      */
     public VersionControl getVersionControl()  { return VersionControl.getVersionControlForProjectSite(_site); }
 
+    /**
+     * Returns the text search index for project.
+     */
+    public synchronized SearchIndex getSearchIndex()
+    {
+        if (_searchIndex != null) return _searchIndex;
+        return _searchIndex = new SearchIndex(this);
+    }
+
+    /**
+     * Returns the reference search index for project.
+     */
+    public synchronized ReferenceIndex getReferenceIndex()
+    {
+        if (_referenceIndex != null) return _referenceIndex;
+        return _referenceIndex = new ReferenceIndex(this);
+    }
+
+    /**
+     * Returns the class hierarchy index for project.
+     */
+    public synchronized ClassHierarchyIndex getClassHierarchyIndex()
+    {
+        if (_classHierarchyIndex != null) return _classHierarchyIndex;
+        return _classHierarchyIndex = new ClassHierarchyIndex(this);
+    }
+
+    /**
+     * Adds a listener to be called with class file and old bytes (null if new) when compiler rewrites a class file.
+     */
+    public void addClassFileChangeListener(BiConsumer<WebFile,byte[]> aLsnr)  { _classFileChangeLsnrs.add(aLsnr); }
+
+    /**
+     * Removes a class file change listener.
+     */
+    public void removeClassFileChangeListener(BiConsumer<WebFile,byte[]> aLsnr)  { _classFileChangeLsnrs.remove(aLsnr); }
+
+    /**
+     * Called by compiler when a class file is rewritten to notify listeners.
+     */
+    protected void fireClassFileChange(WebFile classFile, byte[] oldBytes)
+    {
+        for (BiConsumer<WebFile,byte[]> lsnr : _classFileChangeLsnrs)
+            lsnr.accept(classFile, oldBytes);
+    }
+
+    /**
+     * Returns the in-memory store for compiled classes.
+     */
+    public synchronized ClassFileStore getClassFileStore()
+    {
+        if (_classFileStore != null) return _classFileStore;
+        return _classFileStore = new ClassFileStore(this);
+    }
+
     /**
      * Returns the projects this project depends on.
      */
@@ -207,75 +282,85 @@ public class Project extends PropObject {
      * Returns the paths needed to compile project (does not include project build dir).
      */
     public String[] getCompileClassPaths()
+    {
+        return getClassPathsForScope(false);
+    }
+
+    /**
+     * Returns the paths needed to run project.
+     */
+    public String[] getRuntimeClassPaths()
+    {
+        // Get build path
+        String buildPath = _buildFile.getBuildPathAbsolute(); // Will be null for Project with http site
+        String[] runtimeClassPaths = buildPath != null ? new String[] { buildPath } : new String[0];
+
+        // Add dependency class paths for runtime
+        String[] dependencyClassPaths = getClassPathsForScope(true);
+        runtimeClassPaths = ArrayUtils.addAll(runtimeClassPaths, dependencyClassPaths);
+
+        // Return
+        return runtimeClassPaths;
+    }
+
+    /**
+     * Returns the dependency class paths needed to compile or run project.
+     */
+    private String[] getClassPathsForScope(boolean isRuntime)
     {
         // Get build file dependencies
         BuildFile buildFile = getBuildFile();
-        Set<String> compileClassPaths = new LinkedHashSet<>();
+        Set<String> classPaths = new LinkedHashSet<>();
 
         // If BuildFile.IncludeSnapKitRuntime, add SnapKit jar path
         if (buildFile.isIncludeSnapKitRuntime()) {
             boolean includeGreenfoot = buildFile.isIncludeGreenfootRuntime();
             String[] snapKitPaths = ProjectUtils.getSnapKitAndSnapChartsClassPaths(includeGreenfoot);
-            compileClassPaths.addAll(List.of(snapKitPaths));
+            classPaths.addAll(List.of(snapKitPaths));
         }
 
         // If IncludeJavaFX, add JavaFX jar paths
         if (buildFile.isIncludeJavaFX()) {
             List<String> javaFXPaths = ProjectUtils.getJavaFXPaths();
-            compileClassPaths.addAll(javaFXPaths);
+            classPaths.addAll(javaFXPaths);
         }
 
-        // Iterate over compile dependencies and add runtime class paths for each
+        // Iterate over dependencies and add class paths for each in declaration order (maven dependencies as mediated)
+        MavenMediator mavenMediator = getMavenMediator();
         List<BuildDependency> dependencies = buildFile.getDependencies();
-        for (BuildDependency dependency : dependencies)
-            addClassPathsForDependencyToSet(dependency, compileClassPaths);
-
-        // Return
-        return compileClassPaths.toArray(new String[0]);
-    }
-
-    /**
-     * Adds class paths for given dependency to given set.
-     */
-    private static void addClassPathsForDependencyToSet(BuildDependency dependency, Set<String> compileClassPaths)
-    {
-        // Get dependency class paths - complain if missing
-        String[] classPaths = dependency.getClassPaths();
-        if (classPaths == null) {
-            System.err.println("Project.addClassPathsForDependencyToSet: Can't get class path for: " + dependency);
-            return;
+        for (BuildDependency dependency : dependencies) {
+            if (dependency instanceof MavenDependency mavenDependency) {
+                mavenMediator.addClassPathsForDependency(classPaths, mavenDependency, isRuntime);
+                continue;
+            }
+            String[] dependencyClassPaths = dependency.getClassPaths();
+            if (dependencyClassPaths == null) {
+                System.err.println("Project.getClassPathsForScope: Can't get class path for: " + dependency);
+                continue;
+            }
+            Collections.addAll(classPaths, dependencyClassPaths);
         }
 
-        // If already added, just return
-        if (compileClassPaths.contains(classPaths[0]))
-            return;
-
-        // Add dependency class paths
-        Collections.addAll(compileClassPaths, classPaths);
+        // Add mediated transitive maven dependency class paths
+        mavenMediator.addClassPaths(classPaths, isRuntime);
 
-        // Add transitive class paths
-        if (dependency instanceof MavenDependency mavenDependency) {
-            List<MavenDependency> transitiveDependencies = mavenDependency.getDependencies();
-            for (MavenDependency transitiveDependency : transitiveDependencies)
-                addClassPathsForDependencyToSet(transitiveDependency, compileClassPaths);
-        }
+        // Return
+        return classPaths.toArray(new String[0]);
     }
 
     /**
-     * Returns the paths needed to run project.
+     * Returns a mediator for maven dependencies (nearest version wins, with scopes and exclusions).
      */
-    public String[] getRuntimeClassPaths()
+    public synchronized MavenMediator getMavenMediator()
     {
-        // Get build path
-        String buildPath = _buildFile.getBuildPathAbsolute(); // Will be null for Project with http site
-        String[] runtimeClassPaths = buildPath != null ? new String[] { buildPath } : new String[0];
-
-        // Add CompileClassPaths
-        String[] compileClassPaths = getCompileClassPaths();
-        runtimeClassPaths = ArrayUtils.addAll(runtimeClassPaths, compileClassPaths);
+        // If cached mediator is current, just return
+        if (_mavenMediator != null && !_mavenMediator.isStale())
+            return _mavenMediator;
 
-        // Return
-        return runtimeClassPaths;
+        // Create mediator for build file maven dependencies
+        List<BuildDependency> dependencies = getBuildFile().getDependencies();
+        List<MavenDependency> mavenDependencies = ListUtils.filterByClass(dependencies, MavenDependency.class);
+        return _mavenMediator = new MavenMediator(mavenDependencies);
     }
 
     /**
@@ -307,7 +392,8 @@ public class Project extends PropObject {
             workspaceClassLoader = workspaceClassLoader.getParent();
 
         // Create special URLClassLoader subclass so when debugging SnapCode, we can ignore classes loaded by Project
-        ClassLoader urlClassLoader = new SnapCodeDebugClassLoader(urls, workspaceClassLoader);
+        ClassFileStore classFileStore = ClassFileStore.isEnabled() ? getClassFileStore() : null;
+        ClassLoader urlClassLoader = new SnapCodeDebugClassLoader(urls, workspaceClassLoader, classFileStore);
 
         // Return
         return urlClassLoader;
@@ -449,8 +535,9 @@ public class Project extends PropObject {
         BuildFile buildFile = getBuildFile();
         buildFile.writeFile();
 
-        // Clear classloader
+        // Clear classloader and maven mediator
         clearClassLoader();
+        synchronized (this) { _mavenMediator = null; }
 
         // If Dependency changed, update resolver for changed class paths
         if (propChange.getPropName() == BuildFile.Dependency_Prop)
@@ -476,6 +563,24 @@ public class Project extends PropObject {
         if (propName == WebFile.LastModTime_Prop && file.getExists())
             handleSiteFileSaved(file);
 
+        // Forward Modified to workspace to track unsaved files
+        if (propName == WebFile.Modified_Prop)
+            _workspace.handleFileModifiedChange(file);
+
+        // Forward to search index
+        if (_searchIndex != null && (propName == WebFile.Exists_Prop || propName == WebFile.LastModTime_Prop))
+            _searchIndex.handleFileChange(file);
+        if (_searchIndex != null && propName == WebFile.Modified_Prop)
+            _searchIndex.handleFileModifiedChange(file);
+
+        // If class file removed, remove from class file store
+        if (_classFileStore != null && propName == WebFile.Exists_Prop && !file.getExists() && file.getFileType().equals("class"))
+            _classFileStore.removeClassFile(file);
+
+        // If class file removed, remove from class hierarchy index
+        if (_classHierarchyIndex != null && propName == WebFile.Exists_Prop && !file.getExists() && file.getFileType().equals("class"))
+            _classHierarchyIndex.handleClassFileRemoved(file);
+
         // Forward to project version control
         VersionControl versionControl = getVersionControl();
         versionControl.handleProjectFileChange(propChange);
@@ -537,6 +642,14 @@ public class Project extends PropObject {
             javaAgent.closeAgent();
         _javaAgents.clear();
 
+        // Save search index
+        if (_searchIndex != null)
+            _searchIndex.saveIfChanged();
+
+        // Finish saving class files
+        if (_classFileStore != null)
+            _classFileStore.close();
+
         // Clear Site.Project
         _site.setMetadataForKey(Project.class.getSimpleName(), null);
 
@@ -595,9 +708,30 @@ public class Project extends PropObject {
      */
     public static class SnapCodeDebugClassLoader extends URLClassLoader {
 
+        // The in-memory store for compiled classes (optional)
+        private ClassFileStore _classFileStore;
+
         public SnapCodeDebugClassLoader(URL[] urls, ClassLoader aPar)
+        {
+            this(urls, aPar, null);
+        }
+
+        public SnapCodeDebugClassLoader(URL[] urls, ClassLoader aPar, ClassFileStore classFileStore)
         {
             super(urls, aPar);
+            _classFileStore = classFileStore;
+        }
+
+        /**
+         * Override to define classes from in-memory store first.
+         */
+        @Override
+        protected Class<?> findClass(String aName) throws ClassNotFoundException
+        {
+            byte[] classBytes = _classFileStore != null ? _classFileStore.getClassBytes(aName) : null;
+            if (classBytes != null)
+                return defineClass(aName, classBytes, 0, classBytes.length);
+            return super.findClass(aName);
         }
     }
 }
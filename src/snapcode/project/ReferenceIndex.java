@@ -0,0 +1,117 @@
+/*
+ * Copyright (c) 2010, ReportMill Software. All rights reserved.
+ */
+package snapcode.project;
+import snap.web.WebFile;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * This class maintains an index of the class and member names referenced by the compiled classes of each project
+ * Java file. Names are read from class files (constant pool refs, member descriptors and generic signatures) without
+ * resolving, and entries are refreshed when class files change. It is used to find candidate files for reference
+ * searches before anything is parsed or resolved.
+ *
+ * Names are unknown (files can't be filtered) for java files with unsaved edits, no class files or class files older
+ * than the source. Also, a class used only as a local variable type is not in the constant pool (there is no member
+ * ref or cast), so class reference searches should also check source text.
+ */
+public class ReferenceIndex {
+
+    // The project
+    private Project _proj;
+
+    // The entries for java file paths
+    private Map<String,Entry> _entries = new ConcurrentHashMap<>();
+
+    /**
+     * Constructor.
+     */
+    public ReferenceIndex(Project aProject)
+    {
+        _proj = aProject;
+    }
+
+    /**
+     * Returns whether given java file references given class or member name (true if names can't be read).
+     */
+    public boolean isFileReferencingName(WebFile javaFile, String aName)
+    {
+        Set<String> referencedNames = getReferencedNamesForFile(javaFile);
+        return referencedNames == null || referencedNames.contains(aName);
+    }
+
+    /**
+     * Returns the class and member names referenced by given java file (or null if unknown: java file has unsaved
+     * edits, isn't compiled or is newer than its class files, or a class file can't be read).
+     */
+    public Set<String> getReferencedNamesForFile(WebFile javaFile)
+    {
+        // If java file has unsaved edits, return unknown (class files are stale)
+        if (javaFile.isModified())
+            return null;
+
+        // If keeping classes in memory, finish pending class file saves so new inner class files are listed
+        if (ClassFileStore.isEnabled())
+            _proj.getClassFileStore().waitForFlush();
+
+        // Get class files (if none, return unknown - file never compiled or failed to compile)
+        WebFile[] classFiles = _proj.getProjectFiles().getClassFilesForJavaFile(javaFile);
+        if (classFiles.length == 0)
+            return null;
+
+        // Get stamp (latest mod time and count) - if any class file is older than source, return unknown (build pending)
+        long javaFileModTime = javaFile.getLastModTime();
+        long lastModTime = 0;
+        for (WebFile classFile : classFiles) {
+            long classFileModTime = classFile.getLastModTime();
+            if (classFileModTime < javaFileModTime)
+                return null;
+            lastModTime = Math.max(lastModTime, classFileModTime);
+        }
+        long stamp = lastModTime * 31 + classFiles.length;
+
+        // If entry is current, return names
+        String javaFilePath = javaFile.getPath();
+        Entry entry = _entries.get(javaFilePath);
+        if (entry != null && entry.stamp == stamp)
+            return entry.names;
+
+        // Read names from class files (if any can't be read, names are unknown) and add entry
+        Set<String> names = new HashSet<>();
+        for (WebFile classFile : classFiles) {
+            byte[] classBytes = classFile.getBytes();
+            Set<String> classNames = classBytes != null ? ClassFileUtils.getReferencedNamesForBytes(classBytes) : null;
+            if (classNames == null) {
+                names = null;
+                break;
+            }
+            names.addAll(classNames);
+        }
+        _entries.put(javaFilePath, new Entry(stamp, names));
+
+        // Return
+        return names;
+    }
+
+    /**
+     * An index entry.
+     */
+    private static class Entry {
+
+        // The class files stamp and referenced names (null if unknown)
+        final long stamp;
+        final Set<String> names;
+
+        /**
+         * Constructor.
+         */
+        Entry(long aStamp, Set<String> theNames)
+        {
+            stamp = aStamp;
+            names = theNames;
+        }
+    }
+}
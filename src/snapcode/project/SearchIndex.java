@@ -0,0 +1,653 @@
+/*
+ * Copyright (c) 2010, ReportMill Software. All rights reserved.
+ */
+package snapcode.project;
+import snap.web.WebFile;
+import snap.web.WebSite;
+import java.io.*;
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * This class maintains a trigram index of the text files of a project, so that text searches only read the files
+ * that contain every trigram of the search string (or of the literal parts of a regex). Candidate files are then
+ * verified in parallel for line level matches. The index is updated incrementally for saved files and persisted
+ * in the project build dir. Files with unsaved edits are always verified, using their edit text.
+ */
+public class SearchIndex {
+
+    // The project
+    private Project _proj;
+
+    // The file paths for file ids (null for removed files)
+    private List<String> _filePaths = new ArrayList<>();
+
+    // The file entries for file paths
+    private Map<String,FileEntry> _fileEntries = new HashMap<>();
+
+    // The file ids (as bits) for trigrams
+    private Map<Integer,BitSet> _postings = new HashMap<>();
+
+    // The file ids of removed files (reused by added files)
+    private BitSet _freeFileIds = new BitSet();
+
+    // The paths of files that changed since last sync
+    private Set<String> _changedFilePaths = new HashSet<>();
+
+    // The paths of files with unsaved edits (always searched, since edit text may differ from index)
+    private Set<String> _modifiedFilePaths = new HashSet<>();
+
+    // Whether index has synced with project files
+    private boolean _synced;
+
+    // Whether index has changed since last save
+    private boolean _changed;
+
+    // Constants
+    public static final List<String> SEARCH_FILE_TYPES = List.of("java", "snp", "txt", "js");
+    private static final String INDEX_FILENAME = ".search_index";
+    private static final int INDEX_FORMAT_VERSION = 1;
+    private static final int MAX_MATCH_COUNT = 5000;
+
+    /**
+     * Constructor.
+     */
+    public SearchIndex(Project aProject)
+    {
+        _proj = aProject;
+    }
+
+    /**
+     * Returns the line matches for given search string (or regex) in project files.
+     */
+    public List<LineMatch> findMatches(String aString, boolean isRegex)
+    {
+        // Get pattern (case-insensitive)
+        String regex = isRegex ? aString : Pattern.quote(aString);
+        Pattern pattern = Pattern.compile(regex, Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE | Pattern.MULTILINE);
+
+        // Get candidate files for search string literals
+        List<String> literals = isRegex ? getLiteralsForRegex(aString) : List.of(aString.toLowerCase());
+        List<WebFile> candidateFiles = getCandidateFiles(literals);
+        saveIfChanged();
+
+        // Verify candidate files in parallel
+        List<LineMatch> lineMatches = candidateFiles.parallelStream()
+            .map(file -> findMatchesInFile(file, pattern))
+            .flatMap(List::stream)
+            .toList();
+
+        // Return (trimmed to max count)
+        return lineMatches.size() > MAX_MATCH_COUNT ? lineMatches.subList(0, MAX_MATCH_COUNT) : lineMatches;
+    }
+
+    /**
+     * Returns the files that contain all trigrams of given literals.
+     */
+    public synchronized List<WebFile> getCandidateFiles(List<String> theLiterals)
+    {
+        // Make sure index is up to date
+        syncFiles();
+
+        // Intersect file ids for all literal trigrams
+        BitSet candidateIds = null;
+        for (String literal : theLiterals) {
+            for (int trigram : getTrigramsForText(literal)) {
+                BitSet fileIds = _postings.get(trigram);
+                if (fileIds == null)
+                    return getModifiedFiles();
+                if (candidateIds == null)
+                    candidateIds = (BitSet) fileIds.clone();
+                else candidateIds.and(fileIds);
+            }
+        }
+
+        // If no trigrams, all files are candidates
+        if (candidateIds == null) {
+            candidateIds = new BitSet();
+            candidateIds.set(0, _filePaths.size());
+        }
+
+        // Get files for candidate ids
+        WebSite site = _proj.getSite();
+        Set<String> candidateFilePaths = new LinkedHashSet<>();
+        for (int fileId = candidateIds.nextSetBit(0); fileId >= 0; fileId = candidateIds.nextSetBit(fileId + 1)) {
+            String filePath = _filePaths.get(fileId);
+            if (filePath != null)
+                candidateFilePaths.add(filePath);
+        }
+
+        // Add modified files (unsaved edit text may contain literals that index doesn't)
+        candidateFilePaths.addAll(_modifiedFilePaths);
+
+        // Get files for candidate paths
+        List<WebFile> candidateFiles = new ArrayList<>(candidateFilePaths.size());
+        for (String filePath : candidateFilePaths) {
+            WebFile file = site.getFileForPath(filePath);
+            if (file != null)
+                candidateFiles.add(file);
+        }
+
+        // Return
+        return candidateFiles;
+    }
+
+    /**
+     * Returns the files with unsaved edits.
+     */
+    private List<WebFile> getModifiedFiles()
+    {
+        WebSite site = _proj.getSite();
+        List<WebFile> modifiedFiles = new ArrayList<>(_modifiedFilePaths.size());
+        for (String filePath : _modifiedFilePaths) {
+            WebFile file = site.getFileForPath(filePath);
+            if (file != null)
+                modifiedFiles.add(file);
+        }
+        return modifiedFiles;
+    }
+
+    /**
+     * Called when project file is added, removed or saved.
+     */
+    public synchronized void handleFileChange(WebFile aFile)
+    {
+        if (isSearchFile(aFile))
+            _changedFilePaths.add(aFile.getPath());
+    }
+
+    /**
+     * Called when project file Modified property changes to track files with unsaved edits.
+     */
+    public synchronized void handleFileModifiedChange(WebFile aFile)
+    {
+        if (aFile.isModified() && isSearchFile(aFile))
+            _modifiedFilePaths.add(aFile.getPath());
+        else _modifiedFilePaths.remove(aFile.getPath());
+    }
+
+    /**
+     * Syncs index with project files: Reads persisted index and walks files on first call, otherwise updates
+     * changed files.
+     */
+    private void syncFiles()
+    {
+        // If synced, just update changed files
+        if (_synced) {
+            WebSite site = _proj.getSite();
+            for (String filePath : _changedFilePaths) {
+                WebFile file = site.getFileForPath(filePath);
+                if (file != null && file.getExists() && file.isFile())
+                    updateFile(file);
+                else removeFilePath(filePath);
+            }
+            _changedFilePaths.clear();
+            return;
+        }
+
+        // Read persisted index
+        readIndex();
+
+        // Walk project files and update files that changed since index was saved
+        Set<String> projectFilePaths = new HashSet<>();
+        findSearchFiles(_proj.getSite().getRootDir(), projectFilePaths);
+
+        // Remove entries for missing files
+        for (String filePath : new ArrayList<>(_fileEntries.keySet()))
+            if (!projectFilePaths.contains(filePath))
+                removeFilePath(filePath);
+
+        // Mark synced
+        _changedFilePaths.clear();
+        _synced = true;
+    }
+
+    /**
+     * Finds search files in given directory, updating changed files and adding paths to given set.
+     */
+    private void findSearchFiles(WebFile aDir, Set<String> filePaths)
+    {
+        for (WebFile file : aDir.getFiles()) {
+            if (file.isDir()) {
+                if (file != _proj.getBuildDir() && !file.getName().startsWith("."))
+                    findSearchFiles(file, filePaths);
+            }
+            else if (isSearchFile(file)) {
+                filePaths.add(file.getPath());
+                if (file.isModified())
+                    _modifiedFilePaths.add(file.getPath());
+                FileEntry fileEntry = _fileEntries.get(file.getPath());
+                if (fileEntry == null || fileEntry.modTime != file.getLastModTime())
+                    updateFile(file);
+            }
+        }
+    }
+
+    /**
+     * Updates index for given file.
+     */
+    private void updateFile(WebFile aFile)
+    {
+        String text = aFile.getText();
+        int[] trigrams = getTrigramsForText(text != null ? text : "");
+        addFileEntry(aFile.getPath(), aFile.getLastModTime(), trigrams);
+        _changed = true;
+    }
+
+    /**
+     * Adds entry for given file path, mod time and trigrams (replacing previous entry).
+     */
+    private void addFileEntry(String filePath, long modTime, int[] trigrams)
+    {
+        // Remove old entry
+        removeFilePath(filePath);
+
+        // Add new entry with free file id (or new file id)
+        int fileId = _freeFileIds.nextSetBit(0);
+        if (fileId >= 0) {
+            _freeFileIds.clear(fileId);
+            _filePaths.set(fileId, filePath);
+        }
+        else {
+            fileId = _filePaths.size();
+            _filePaths.add(filePath);
+        }
+        _fileEntries.put(filePath, new FileEntry(fileId, modTime, trigrams));
+
+        // Add file id to trigram postings
+        for (int trigram : trigrams)
+            _postings.computeIfAbsent(trigram, k -> new BitSet()).set(fileId);
+    }
+
+    /**
+     * Removes entry for given file path.
+     */
+    private void removeFilePath(String filePath)
+    {
+        FileEntry fileEntry = _fileEntries.remove(filePath);
+        if (fileEntry == null)
+            return;
+
+        // Remove file id from trigram postings (and remove postings that become empty)
+        for (int trigram : fileEntry.trigrams) {
+            BitSet fileIds = _postings.get(trigram);
+            if (fileIds != null) {
+                fileIds.clear(fileEntry.fileId);
+                if (fileIds.isEmpty())
+                    _postings.remove(trigram);
+            }
+        }
+
+        // Clear file path and make file id available for reuse
+        _filePaths.set(fileEntry.fileId, null);
+        _freeFileIds.set(fileEntry.fileId);
+        _changed = true;
+    }
+
+    /**
+     * Reads the persisted index from build dir.
+     */
+    private void readIndex()
+    {
+        // Get index file - just return if missing
+        WebFile indexFile = getIndexFile();
+        if (indexFile == null || !indexFile.getExists())
+            return;
+
+        // Read entries: Version, entry count, then path, mod time, trigram count and trigrams for each
+        try (DataInputStream dataIn = new DataInputStream(new ByteArrayInputStream(indexFile.getBytes()))) {
+            if (dataIn.readInt() != INDEX_FORMAT_VERSION)
+                return;
+            int entryCount = dataIn.readInt();
+            for (int i = 0; i < entryCount; i++) {
+                String filePath = dataIn.readUTF();
+                long modTime = dataIn.readLong();
+                int[] trigrams = new int[dataIn.readInt()];
+                for (int j = 0; j < trigrams.length; j++)
+                    trigrams[j] = dataIn.readInt();
+                addFileEntry(filePath, modTime, trigrams);
+            }
+        }
+
+        // Handle failure: Just start over
+        catch (IOException e) {
+            System.err.println("SearchIndex.readIndex: " + e);
+            _filePaths.clear();
+            _fileEntries.clear();
+            _postings.clear();
+            _freeFileIds.clear();
+        }
+    }
+
+    /**
+     * Saves index to build dir if changed.
+     */
+    public synchronized void saveIfChanged()
+    {
+        // If not changed or no index file, just return
+        WebFile indexFile = _changed ? getIndexFile() : null;
+        if (indexFile == null)
+            return;
+        _changed = false;
+
+        // Write entries
+        ByteArrayOutputStream bytesOut = new ByteArrayOutputStream();
+        try (DataOutputStream dataOut = new DataOutputStream(bytesOut)) {
+            dataOut.writeInt(INDEX_FORMAT_VERSION);
+            dataOut.writeInt(_fileEntries.size());
+            for (Map.Entry<String,FileEntry> mapEntry : _fileEntries.entrySet()) {
+                FileEntry fileEntry = mapEntry.getValue();
+                dataOut.writeUTF(mapEntry.getKey());
+                dataOut.writeLong(fileEntry.modTime);
+                dataOut.writeInt(fileEntry.trigrams.length);
+                for (int trigram : fileEntry.trigrams)
+                    dataOut.writeInt(trigram);
+            }
+        }
+        catch (IOException e) { System.err.println("SearchIndex.saveIfChanged: " + e); return; }
+
+        // Set bytes and save
+        indexFile.setBytes(bytesOut.toByteArray());
+        try { indexFile.save(); }
+        catch (Exception e) { System.err.println("SearchIndex.saveIfChanged: " + e); }
+    }
+
+    /**
+     * Returns the index file in build dir.
+     */
+    private WebFile getIndexFile()
+    {
+        WebFile buildDir = _proj.getBuildDir();
+        if (buildDir == null)
+            return null;
+        String indexFilePath = buildDir.getDirPath() + INDEX_FILENAME;
+        return buildDir.getSite().createFileForPath(indexFilePath, false);
+    }
+
+    /**
+     * Returns whether given file is a search file.
+     */
+    private boolean isSearchFile(WebFile aFile)
+    {
+        if (!SEARCH_FILE_TYPES.contains(aFile.getFileType()))
+            return false;
+        WebFile buildDir = _proj.getBuildDir();
+        return buildDir == null || !aFile.getPath().startsWith(buildDir.getDirPath());
+    }
+
+    /**
+     * Returns the line matches for given pattern in given file.
+     */
+    private static List<LineMatch> findMatchesInFile(WebFile aFile, Pattern aPattern)
+    {
+        // Get text (use edit text for modified java files)
+        JavaAgent javaAgent = aFile.isModified() ? JavaAgent.getAgentForFile(aFile) : null;
+        String text = javaAgent != null ? javaAgent.getJavaTextString() : aFile.getText();
+        if (text == null)
+            return Collections.emptyList();
+
+        // Iterate over matches and add line match for each
+        List<LineMatch> lineMatches = new ArrayList<>();
+        Matcher matcher = aPattern.matcher(text);
+        int lineIndex = 0, lineStart = 0;
+        while (matcher.find() && lineMatches.size() < MAX_MATCH_COUNT) {
+
+            // Skip empty matches
+            int matchStart = matcher.start();
+            int matchEnd = matcher.end();
+            if (matchEnd == matchStart)
+                continue;
+
+            // Advance line index and start to match start
+            for (int i = lineStart; i < matchStart; i++) {
+                if (text.charAt(i) == '\n') {
+                    lineIndex++;
+                    lineStart = i + 1;
+                }
+            }
+
+            // Add line match
+            int lineEnd = text.indexOf('\n', matchStart);
+            String lineText = text.substring(lineStart, lineEnd >= 0 ? lineEnd : text.length());
+            lineMatches.add(new LineMatch(aFile, lineIndex, lineText, matchStart, matchEnd));
+        }
+
+        // Return
+        return lineMatches;
+    }
+
+    /**
+     * Returns the sorted, unique trigrams of given text (lower case).
+     */
+    private static int[] getTrigramsForText(String aText)
+    {
+        int length = aText.length();
+        if (length < 3)
+            return new int[0];
+
+        // Get trigram for each char index
+        int[] trigrams = new int[length - 2];
+        int c0 = Character.toLowerCase(aText.charAt(0));
+        int c1 = Character.toLowerCase(aText.charAt(1));
+        for (int i = 2; i < length; i++) {
+            int c2 = Character.toLowerCase(aText.charAt(i));
+            trigrams[i - 2] = (c0 & 0x3FF) << 20 | (c1 & 0x3FF) << 10 | (c2 & 0x3FF);
+            c0 = c1;
+            c1 = c2;
+        }
+
+        // Return sorted, unique trigrams
+        return Arrays.stream(trigrams).sorted().distinct().toArray();
+    }
+
+    /**
+     * Returns the literal strings that any match of given regex must contain (empty if none can be determined).
+     * Only literals outside of groups are used, and chars made optional by a following quantifier are dropped.
+     */
+    protected static List<String> getLiteralsForRegex(String aRegex)
+    {
+        List<String> literals = new ArrayList<>();
+        StringBuilder sb = new StringBuilder();
+        int groupDepth = 0;
+
+        for (int i = 0, iMax = aRegex.length(); i < iMax; i++) {
+            char c = aRegex.charAt(i);
+            switch (c) {
+
+                // Handle alternation: Can't determine required literals
+                case '|' -> { return Collections.emptyList(); }
+
+                // Handle escape: Escaped symbol is literal, quoted run is literal, escaped letter or digit is class,
+                // anchor or char code sequence (skipped whole, so its code chars aren't taken as literal)
+                case '\\' -> {
+                    char nextChar = i + 1 < iMax ? aRegex.charAt(i + 1) : 0;
+                    if (nextChar == 'Q') {
+                        int end = aRegex.indexOf("\\E", i + 2);
+                        if (end < 0)
+                            end = iMax;
+                        if (groupDepth == 0)
+                            sb.append(aRegex, i + 2, end);
+                        else addLiteral(sb, literals);
+                        i = end + 1;
+                    }
+                    else if (Character.isLetterOrDigit(nextChar)) {
+                        addLiteral(sb, literals);
+                        i = getEscapeEnd(aRegex, i + 1);
+                    }
+                    else {
+                        if (groupDepth == 0 && i + 1 < iMax)
+                            sb.append(nextChar);
+                        i++;
+                    }
+                }
+
+                // Handle optional quantifiers: Drop last char
+                case '*', '?' -> {
+                    if (!sb.isEmpty())
+                        sb.setLength(sb.length() - 1);
+                    addLiteral(sb, literals);
+                }
+
+                // Handle counted quantifier: Drop last char and skip to end
+                case '{' -> {
+                    if (!sb.isEmpty())
+                        sb.setLength(sb.length() - 1);
+                    addLiteral(sb, literals);
+                    int end = aRegex.indexOf('}', i);
+                    i = end >= 0 ? end : iMax;
+                }
+
+                // Handle char class: Skip to end
+                case '[' -> {
+                    addLiteral(sb, literals);
+                    for (i++; i < iMax && aRegex.charAt(i) != ']'; i++)
+                        if (aRegex.charAt(i) == '\\') i++;
+                }
+
+                // Handle groups
+                case '(' -> { addLiteral(sb, literals); groupDepth++; }
+                case ')' -> { addLiteral(sb, literals); groupDepth--; }
+
+                // Handle one or more, any char and anchors
+                case '+', '.', '^', '$' -> addLiteral(sb, literals);
+
+                // Handle literal char
+                default -> {
+                    if (groupDepth == 0)
+                        sb.append(c);
+                }
+            }
+        }
+
+        // Add last literal and return
+        addLiteral(sb, literals);
+        return literals;
+    }
+
+    /**
+     * Returns the index of the last char of the regex escape sequence with letter or digit at given index
+     * (for example \xhh, \0ooo, \cX, \p{..}, \k<..>, a unicode escape or a back reference).
+     */
+    private static int getEscapeEnd(String aRegex, int anIndex)
+    {
+        int length = aRegex.length();
+        char c = aRegex.charAt(anIndex);
+        switch (c) {
+
+            // Handle hex: \xhh or \x{h..h}
+            case 'x' -> {
+                if (anIndex + 1 < length && aRegex.charAt(anIndex + 1) == '{')
+                    return getIndexOfOrEnd(aRegex, '}', anIndex + 1);
+                return Math.min(anIndex + 2, length - 1);
+            }
+
+            // Handle unicode escape: Four hex digits
+            case 'u' -> { return Math.min(anIndex + 4, length - 1); }
+
+            // Handle octal: \0o, \0oo or \0ooo
+            case '0' -> {
+                int end = anIndex;
+                while (end + 1 < length && end - anIndex < 3 && aRegex.charAt(end + 1) >= '0' && aRegex.charAt(end + 1) <= '7')
+                    end++;
+                return end;
+            }
+
+            // Handle control char: \cX
+            case 'c' -> { return Math.min(anIndex + 1, length - 1); }
+
+            // Handle property: \p{..}, \P{..} or \pL
+            case 'p', 'P', 'N' -> {
+                if (anIndex + 1 < length && aRegex.charAt(anIndex + 1) == '{')
+                    return getIndexOfOrEnd(aRegex, '}', anIndex + 1);
+                return Math.min(anIndex + 1, length - 1);
+            }
+
+            // Handle named back reference: \k<..>
+            case 'k' -> {
+                if (anIndex + 1 < length && aRegex.charAt(anIndex + 1) == '<')
+                    return getIndexOfOrEnd(aRegex, '>', anIndex + 1);
+                return anIndex;
+            }
+        }
+
+        // Handle numbered back reference: Skip all digits
+        if (Character.isDigit(c)) {
+            int end = anIndex;
+            while (end + 1 < length && Character.isDigit(aRegex.charAt(end + 1)))
+                end++;
+            return end;
+        }
+
+        // Handle anything else (class or anchor like \d, \w, \b): Just the letter
+        return anIndex;
+    }
+
+    /**
+     * Returns the index of given char in given string from given index (or last index if not found).
+     */
+    private static int getIndexOfOrEnd(String aStr, char aChar, int fromIndex)
+    {
+        int index = aStr.indexOf(aChar, fromIndex);
+        return index >= 0 ? index : aStr.length() - 1;
+    }
+
+    /**
+     * Adds literal in given StringBuilder to given list (if long enough for trigram) and clears StringBuilder.
+     */
+    private static void addLiteral(StringBuilder sb, List<String> literals)
+    {
+        if (sb.length() >= 3)
+            literals.add(sb.toString());
+        sb.setLength(0);
+    }
+
+    /**
+     * An index entry for a file.
+     */
+    private static class FileEntry {
+
+        // The file id, mod time and sorted trigrams
+        final int fileId;
+        final long modTime;
+        final int[] trigrams;
+
+        /**
+         * Constructor.
+         */
+        FileEntry(int aFileId, long aModTime, int[] theTrigrams)
+        {
+            fileId = aFileId;
+            modTime = aModTime;
+            trigrams = theTrigrams;
+        }
+    }
+
+    /**
+     * A search match in a file line.
+     */
+    public static class LineMatch {
+
+        // The file
+        public final WebFile file;
+
+        // The line index and line text
+        public final int lineIndex;
+        public final String lineText;
+
+        // The match start and end char index in file text
+        public final int startCharIndex, endCharIndex;
+
+        /**
+         * Constructor.
+         */
+        LineMatch(WebFile aFile, int aLineIndex, String aLineText, int aStart, int anEnd)
+        {
+            file = aFile;
+            lineIndex = aLineIndex;
+            lineText = aLineText;
+            startCharIndex = aStart;
+            endCharIndex = anEnd;
+        }
+    }
+}
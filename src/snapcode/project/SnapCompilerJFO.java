@@ -153,17 +153,31 @@ class SnapCompilerJFO extends SimpleJavaFileObject {
         // If modified, set File.Bytes and add ClassFile to ModifiedFiles and SourceFile to ModifiedSources
         if (modified) {
 
-            // Set enw bytes
-            _file.setBytes(classFileBytes);
+            // Set new bytes (synchronized with background save, see ClassFileStore)
+            byte[] oldBytes;
+            synchronized (_file) {
+                oldBytes = _file.getExists() ? _file.getBytes() : null;
+                _file.setBytes(classFileBytes);
+            }
             _compiler._modifiedJavaFiles.add(_javaFile);
 
             // Clear external references
             JavaAgent javaAgent = JavaAgent.getAgentForJavaFile(_javaFile);
             javaAgent.clearExternalReferences();
+
+            // Update class hierarchy index
+            _proj.getClassHierarchyIndex().handleClassFileChanged(classFileBytes);
+
+            // Notify class file change listeners (hot swap)
+            _proj.fireClassFileChange(_file, oldBytes);
         }
 
-        // If file was modified or a real compile file, save
+        // If file was modified or a real compile file, save (in background if keeping classes in memory)
         if (modified || _file.getLastModTime() < _javaFile.getLastModTime()) {
+            if (ClassFileStore.isEnabled()) {
+                _proj.getClassFileStore().addClassFile(_file, classFileBytes);
+                return;
+            }
             try { _file.save(); }
             catch (Exception e) { throw new RuntimeException(e); }
         }
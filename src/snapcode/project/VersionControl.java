@@ -34,9 +34,15 @@ public class VersionControl extends PropObject {
     // The current activity status
     private ActivityStatus _activityStatus = ActivityStatus.Idle;
 
-    // A map of file to it's status
+    // A map of file to it's status (includes aggregated status of directories)
     private Map<WebFile, FileStatus> _filesStatusCache = Collections.synchronizedMap(new HashMap<>());
 
+    // The persistent content hash index for local site files
+    private FileHashIndex _localHashIndex;
+
+    // The persistent content hash index for clone site files
+    private FileHashIndex _cloneHashIndex;
+
     // Constants for the state of files relative to remote cache
     public enum FileStatus { Added, Removed, Modified, Identical }
 
@@ -409,7 +415,9 @@ public class VersionControl extends PropObject {
     public List<WebFile> getModifiedFilesForLocalFiles(List<WebFile> localFiles)
     {
         WebSite cloneSite = getCloneSite();
-        return getModifiedFilesForFilesInOtherSite(localFiles, cloneSite);
+        List<WebFile> modifiedFiles = getModifiedFilesForFilesInOtherSite(localFiles, cloneSite);
+        saveHashIndexes();
+        return modifiedFiles;
     }
 
     /**
@@ -495,10 +503,23 @@ public class VersionControl extends PropObject {
         if (!isCheckedOut())
             return FileStatus.Identical;
 
-        // Get status of local file in clone site and cache
-        WebSite cloneSite = getCloneSite();
-        fileStatus = getFileStatusForFileFileInOtherSite(localFile, cloneSite);
+        // If directory, aggregate (cached) child statuses
+        if (localFile.isDir() && !isIgnoreFile(localFile)) {
+            List<WebFile> childFiles = localFile.getFiles();
+            boolean isModified = ListUtils.hasMatch(childFiles, file -> getFileStatus(file) != FileStatus.Identical);
+            fileStatus = isModified ? FileStatus.Modified : FileStatus.Identical;
+        }
+
+        // Otherwise get status of local file in clone site
+        else {
+            WebSite cloneSite = getCloneSite();
+            fileStatus = getFileStatusForFileFileInOtherSite(localFile, cloneSite);
+        }
+
+        // Cache status (and save hash indexes when root status has been computed)
         _filesStatusCache.put(localFile, fileStatus);
+        if (localFile.isRoot())
+            saveHashIndexes();
 
         // Return
         return fileStatus;
@@ -546,14 +567,62 @@ public class VersionControl extends PropObject {
                 return FileStatus.Identical;
         }
 
-        // If bytes match, return identical
-        if (ArrayUtils.equals(aFile.getBytes(), otherFile.getBytes()))
+        // If size differs, return modified
+        if (aFile.getSize() != otherFile.getSize())
+            return FileStatus.Modified;
+
+        // If content hashes match, return identical
+        if (getFileHash(aFile).equals(getFileHash(otherFile)))
             return FileStatus.Identical;
 
         // Return Modified
         return FileStatus.Modified;
     }
 
+    /**
+     * Returns the content hash for given file (from persistent hash index for local and clone files).
+     */
+    protected String getFileHash(WebFile aFile)
+    {
+        FileHashIndex hashIndex = getHashIndexForSite(aFile.getSite());
+        if (hashIndex != null)
+            return hashIndex.getHashForFile(aFile);
+        return FileHashIndex.getHashForBytes(aFile.getBytes());
+    }
+
+    /**
+     * Returns the persistent hash index for given site (local or clone site), or null if not indexed.
+     */
+    private synchronized FileHashIndex getHashIndexForSite(WebSite aSite)
+    {
+        // Handle local site
+        WebSite localSite = getLocalSite();
+        if (aSite == localSite) {
+            if (_localHashIndex != null) return _localHashIndex;
+            return _localHashIndex = new FileHashIndex(localSite, "/settings/local_file_hashes");
+        }
+
+        // Handle clone site
+        if (aSite == getCloneSite()) {
+            if (_cloneHashIndex != null) return _cloneHashIndex;
+            return _cloneHashIndex = new FileHashIndex(localSite, "/settings/clone_file_hashes");
+        }
+
+        // Return not indexed
+        return null;
+    }
+
+    /**
+     * Saves the hash indexes if changed.
+     */
+    protected void saveHashIndexes()
+    {
+        if (_localHashIndex != null)
+            _localHashIndex.saveIfChanged();
+        if (_cloneHashIndex != null)
+            _cloneHashIndex.saveIfChanged();
+    }
+
     /**
      * Clears the file status of given file.
      */
@@ -571,6 +640,16 @@ public class VersionControl extends PropObject {
         firePropChange(new PropChange(aFile, FileStatus_Prop, oldStatus, null));
     }
 
+    /**
+     * Clears all cached file statuses (e.g., when ignore rules change).
+     */
+    protected void clearFileStatusCache()
+    {
+        _filesStatusCache.clear();
+        WebFile rootDir = getLocalSite().getRootDir();
+        firePropChange(new PropChange(rootDir, FileStatus_Prop, null, null));
+    }
+
     /**
      * Returns whether (local) file should be ignored.
      */
@@ -641,8 +720,11 @@ public class VersionControl extends PropObject {
 
         // Handle Saved property: Call fileAdded or fileSaved
         if (propName == WebFile.Exists_Prop) {
-            if ((Boolean) aPC.getOldValue())
+            if ((Boolean) aPC.getOldValue()) {
                 clearFileStatus(file);
+                if (_localHashIndex != null)
+                    _localHashIndex.removeHashForFile(file);
+            }
         }
 
         // Handle LastModTime property: Call file saved
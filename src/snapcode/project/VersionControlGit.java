@@ -4,7 +4,7 @@
 package snapcode.project;
 import org.eclipse.jgit.api.CloneCommand;
 import org.eclipse.jgit.api.Git;
-import snap.util.ArrayUtils;
+import snap.props.PropChange;
 import snap.web.WebURL;
 import snap.util.FileUtils;
 import snap.util.ActivityMonitor;
@@ -24,6 +24,9 @@ public class VersionControlGit extends VersionControl {
     // The WebFile for actual .git dir
     private WebFile _gitDirFile;
 
+    // The compiled matcher for .gitignore files
+    private GitIgnoreMatcher _ignoreMatcher;
+
     /**
      * Constructor.
      */
@@ -197,6 +200,35 @@ public class VersionControlGit extends VersionControl {
     @Override
     public boolean supportsCommitMessages()  { return true; }
 
+    /**
+     * Override to use index stat data and object ids for local files versus index (clone) site.
+     */
+    @Override
+    protected FileStatus getFileStatusForFileFileInOtherSite(WebFile aFile, WebSite otherSite)
+    {
+        // If not local file versus index, or directory, ignore file or missing file, do normal version
+        if (otherSite != getCloneSite() || aFile.isDir() || isIgnoreFile(aFile) || !aFile.getExists())
+            return super.getFileStatusForFileFileInOtherSite(aFile, otherSite);
+
+        // Get index entry - if missing, return added
+        GitIndex gitIndex = getGitDir().getIndex();
+        GitIndex.Entry indexEntry = gitIndex.getEntry(aFile.getPath());
+        if (indexEntry == null || indexEntry.isDir())
+            return FileStatus.Added;
+
+        // If index stat data matches file size and mod time, return identical
+        if (indexEntry.isStatMatch(aFile.getSize(), aFile.getLastModTime()))
+            return FileStatus.Identical;
+
+        // If file size differs, return modified (index stores length truncated to unsigned 32 bit)
+        if ((aFile.getSize() & 0xFFFFFFFFL) != (indexEntry.getLength() & 0xFFFFFFFFL))
+            return FileStatus.Modified;
+
+        // Compare content hash (from hash index) with index object id
+        String fileHash = getFileHash(aFile);
+        return fileHash.equals(indexEntry.getObjectIdString()) ? FileStatus.Identical : FileStatus.Modified;
+    }
+
     /**
      * Returns whether (local) file should be ignored.
      */
@@ -207,32 +239,33 @@ public class VersionControlGit extends VersionControl {
             return true;
         if (aFile.getName().equals(".git"))
             return true;
-        String[] gitIgnores = getGitIgnoreStrings();
-        return ArrayUtils.hasMatch(gitIgnores, gi -> isFileMatchForPattern(aFile, gi));
+        GitIgnoreMatcher ignoreMatcher = getIgnoreMatcher();
+        return ignoreMatcher.isIgnoredFile(aFile);
     }
 
     /**
-     * Returns the git ignore strings.
+     * Returns the compiled matcher for project .gitignore files.
      */
-    protected String[] getGitIgnoreStrings()
+    public synchronized GitIgnoreMatcher getIgnoreMatcher()
     {
-        WebFile gitIgnoreFile = getLocalSite().getFileForPath(".gitignore");
-        if (gitIgnoreFile == null)
-            return new String[0];
-        String gitIgnoreText = gitIgnoreFile.getText();
-        return gitIgnoreText.split("\\s+");
+        if (_ignoreMatcher != null) return _ignoreMatcher;
+        return _ignoreMatcher = new GitIgnoreMatcher(getLocalSite());
     }
 
     /**
-     * Returns whether a file matches a given gitignore pattern.
+     * Override to reset ignore matcher when an ignore file changes.
      */
-    private static boolean isFileMatchForPattern(WebFile aFile, String anIgnorePattern)
+    @Override
+    public void handleProjectFileChange(PropChange aPC)
     {
-        String ignorePattern = anIgnorePattern;
-        if (ignorePattern.endsWith("/"))
-            ignorePattern = ignorePattern.substring(0, ignorePattern.length() - 1);
-        String filePath = aFile.getPath();
-        String filename = aFile.getName();
-        return filePath.equals(ignorePattern) || filename.equals(ignorePattern);
+        // If ignore file changed, reset matcher and cached statuses
+        WebFile file = (WebFile) aPC.getSource();
+        if (_ignoreMatcher != null && GitIgnoreMatcher.isIgnoreRulesFile(file)) {
+            _ignoreMatcher.reset();
+            clearFileStatusCache();
+        }
+
+        // Do normal version
+        super.handleProjectFileChange(aPC);
     }
 }
\ No newline at end of file
@@ -11,6 +11,8 @@ import snap.web.WebURL;
 import snapcode.app.SnapCodeUtils;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * This class manages working with a set of one or more projects.
@@ -38,6 +40,9 @@ public class Workspace extends PropObject {
     // The TaskManager
     protected TaskManager _taskManager;
 
+    // The project files that have unsaved changes (excluding build dir files)
+    private Set<WebFile> _modifiedFiles = ConcurrentHashMap.newKeySet();
+
     // Constants for properties
     public static final String Building_Prop = "Building";
     public static final String Projects_Prop = "Projects";
@@ -115,6 +120,10 @@ public class Workspace extends PropObject {
         _projects.remove(index);
         _sites = null;
 
+        // Remove project modified files
+        WebSite projSite = aProj.getSite();
+        _modifiedFiles.removeIf(file -> file.getSite() == projSite);
+
         // Fire prop change
         firePropChange(Projects_Prop, aProj, null, index);
     }
@@ -184,41 +193,49 @@ public class Workspace extends PropObject {
     }
 
     /**
-     * Saves all unsaved files.
+     * Saves all unsaved files (build dir files are left to builders). Files are saved on calling thread, so file
+     * prop changes reach listeners on the same thread as other edits.
      */
     public void saveAllFiles()
     {
-        List<Project> projects = getProjects();
-        for (Project project : projects) {
-            WebSite projSite = project.getSite();
-            WebFile rootDir = projSite.getRootDir();
-            saveAllFilesImpl(project, rootDir);
-        }
+        // Get modified files (just return if none)
+        List<WebFile> modifiedFiles = ListUtils.filter(new ArrayList<>(_modifiedFiles), file -> file.isModified() && !isBuildDirFile(file));
+        _modifiedFiles.retainAll(modifiedFiles);
+
+        // Iterate over modified files and save
+        for (WebFile modifiedFile : modifiedFiles)
+            saveModifiedFile(modifiedFile);
     }
 
     /**
-     * Saves all unsaved files for given file and its children.
+     * Saves given modified file.
      */
-    private void saveAllFilesImpl(Project project, WebFile aFile)
+    private void saveModifiedFile(WebFile aFile)
     {
-        // Handle directory
-        if (aFile.isDir()) {
-
-            // Skip build dir
-            if (aFile == project.getBuildDir())
-                return;
+        try { aFile.save(); }
+        catch (Exception e) { throw new RuntimeException(e); }
+        if (!aFile.isModified())
+            _modifiedFiles.remove(aFile);
+    }
 
-            // Iterate over child files and recurse
-            List<WebFile> dirFiles = aFile.getFiles();
-            for (WebFile file : dirFiles)
-                saveAllFilesImpl(project, file);
-        }
+    /**
+     * Called when project file Modified property changes to update modified files.
+     */
+    protected void handleFileModifiedChange(WebFile aFile)
+    {
+        if (aFile.isModified() && !aFile.isDir() && !isBuildDirFile(aFile))
+            _modifiedFiles.add(aFile);
+        else _modifiedFiles.remove(aFile);
+    }
 
-        // Handle file
-        else if (aFile.isModified()) {
-            try { aFile.save(); }
-            catch (Exception e) { throw new RuntimeException(e); }
-        }
+    /**
+     * Returns whether given file is in its project build dir.
+     */
+    private static boolean isBuildDirFile(WebFile aFile)
+    {
+        Project project = Project.getProjectForFile(aFile);
+        WebFile buildDir = project != null ? project.getBuildDir() : null;
+        return buildDir != null && (aFile == buildDir || aFile.getPath().startsWith(buildDir.getDirPath()));
     }
 
     /**
@@ -14,6 +14,7 @@ import snap.gfx.Stroke;
 import snapcode.project.VersionControl;
 import snap.text.TextLine;
 import snap.text.TextSel;
+import snap.util.TaskRunner;
 import snap.view.*;
 import snapcode.webbrowser.WebPage;
 import snap.web.WebFile;
@@ -34,6 +35,9 @@ public class DiffPage extends WebPage {
     // The two texts
     TextArea _leftTextArea, _rightTextArea;
 
+    // The overview pane
+    OverviewPane _overviewPane;
+
     /**
      * Creates a new DiffPage for given file.
      */
@@ -56,9 +60,10 @@ public class DiffPage extends WebPage {
         spane.setGrowWidth(true);
 
         // Wrap ScrollView and OverviewPane in HBox and return
+        _overviewPane = new OverviewPane();
         RowView hbox = new RowView();
         hbox.setFillHeight(true);
-        hbox.setChildren(spane, new OverviewPane());
+        hbox.setChildren(spane, _overviewPane);
         return hbox;
     }
 
@@ -75,7 +80,27 @@ public class DiffPage extends WebPage {
         _rightTextArea = getTextAreaForFile(remoteFile);
         _rightTextArea.setGrowWidth(true);
 
-        // Get DiffPane and install texts
+        // Show placeholder while diff is computed
+        Label placeholderLabel = new Label("Computing differences...");
+        placeholderLabel.setPadding(20, 20, 20, 20);
+        _splitView.setItems(placeholderLabel);
+
+        // Compute line diff in background and install texts when done
+        String remoteText = _rightTextArea.getText();
+        String localText = _leftTextArea.getText();
+        TaskRunner<LineDiff> diffRunner = new TaskRunner<>("Diff " + localFile.getName());
+        diffRunner.setTaskFunction(() -> LineDiff.getDiff(remoteText, localText));
+        diffRunner.setOnSuccess(this::handleDiffFinished);
+        diffRunner.setOnFailure(e -> placeholderLabel.setText("Diff failed: " + e));
+        diffRunner.start();
+    }
+
+    /**
+     * Called when diff is computed to install texts and diff ranges.
+     */
+    private void handleDiffFinished(LineDiff lineDiff)
+    {
+        // Install texts
         _splitView.setItems(_leftTextArea, _rightTextArea);
 
         // Get ranges lists
@@ -83,38 +108,19 @@ public class DiffPage extends WebPage {
         lranges = _leftTextArea instanceof DiffTextArea ? ((DiffTextArea) _leftTextArea).ranges : ((DiffJavaTextArea) _leftTextArea).ranges;
         rranges = _rightTextArea instanceof DiffTextArea ? ((DiffTextArea) _rightTextArea).ranges : ((DiffJavaTextArea) _rightTextArea).ranges;
 
-        // Print diffs
-        DiffUtil diffUtil = new DiffUtil();
-        List<DiffUtil.Diff> diffs = diffUtil.diff_main(_rightTextArea.getText(), _leftTextArea.getText());
-        int localIndex = 0;
-        int remoteIndex = 0;
-        for (DiffUtil.Diff diff : diffs) {
-            DiffUtil.Operation op = diff.operation;
-            boolean insert = op == DiffUtil.Operation.INSERT;
-            boolean delete = op == DiffUtil.Operation.DELETE;
-            int length = diff.text.length();
-
-            // Handle insert
-            if (insert) {
-                TextLayout textLayout = _leftTextArea.getTextLayout();
-                lranges.add(new TextSel(textLayout, localIndex, localIndex + length));
-                localIndex += length;
-            }
+        // Add ranges for local insertions
+        TextLayout localTextLayout = _leftTextArea.getTextLayout();
+        for (int[] range : lineDiff.getNewRanges())
+            lranges.add(new TextSel(localTextLayout, range[0], range[1]));
 
-            // Handle delete
-            else if (delete) {
-                TextLayout textLayout = _rightTextArea.getTextLayout();
-                rranges.add(new TextSel(textLayout, remoteIndex, remoteIndex + length));
-                remoteIndex += length;
-            }
+        // Add ranges for remote deletions
+        TextLayout remoteTextLayout = _rightTextArea.getTextLayout();
+        for (int[] range : lineDiff.getOldRanges())
+            rranges.add(new TextSel(remoteTextLayout, range[0], range[1]));
 
-            // Handle other
-            else {
-                localIndex += length;
-                remoteIndex += length;
-            }
-            //String pfx = insert? ">> " : delete? "<< " : ""; Sys.out.println(pfx + diff.text.replace("\n", "\n" + pfx));
-        }
+        // Reset overview markers and repaint
+        _overviewPane._markers = null;
+        _overviewPane.repaint();
     }
 
     /**
@@ -1,7 +1,12 @@
 package snapcode.util;
 import java.io.*;
+import java.net.HttpURLConnection;
 import java.net.URL;
+import java.net.URLConnection;
 import java.nio.file.*;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.Objects;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
@@ -13,7 +18,9 @@ import java.util.concurrent.atomic.AtomicReference;
  * Guarantees:
  * - At most one download attempt runs at a time for a given instance.
  * - Concurrent callers will wait for the same download to complete.
- * - Download writes to a .part file, then atomically moves into place.
+ * - Download writes to a .download file, then atomically moves into place.
+ * - Interrupted downloads are resumed from the .download file (if server supports byte ranges).
+ * - Downloads are verified against an optional SHA-1 checksum URL.
  */
 public final class DownloadFile {
 
@@ -23,6 +30,9 @@ public final class DownloadFile {
     // The local file path
     private final Path _localPath;
 
+    // The checksum URL (SHA-1 hex), if available
+    private final URL _checksumUrl;
+
     // Points at the in-flight or completed download (shared by all threads).
     private final AtomicReference<CompletableFuture<Path>> _downloadFutureRef = new AtomicReference<>();
 
@@ -30,9 +40,18 @@ public final class DownloadFile {
      * Constructor.
      */
     public DownloadFile(URL remoteUrl, Path localPath)
+    {
+        this(remoteUrl, localPath, null);
+    }
+
+    /**
+     * Constructor with checksum URL.
+     */
+    public DownloadFile(URL remoteUrl, Path localPath, URL checksumUrl)
     {
         _remoteUrl = Objects.requireNonNull(remoteUrl, "remoteUrl");
         _localPath = Objects.requireNonNull(localPath, "localPath");
+        _checksumUrl = checksumUrl;
     }
 
     /**
@@ -61,7 +80,7 @@ public final class DownloadFile {
 
         // We won: perform the download and complete the future.
         try {
-            Path result = downloadUrlToLocalPath(_remoteUrl, _localPath);
+            Path result = downloadUrlToLocalPath(_remoteUrl, _localPath, _checksumUrl);
             created.complete(result);
             return result;
         }
@@ -88,7 +107,7 @@ public final class DownloadFile {
     /**
      * Downloads remote url to local.
      */
-    private static Path downloadUrlToLocalPath(URL remoteUrl, Path localPath) throws IOException
+    private static Path downloadUrlToLocalPath(URL remoteUrl, Path localPath, URL checksumUrl) throws IOException
     {
         // Double-check after we "won" the CAS: maybe file appeared (e.g., created externally)
         if (Files.exists(localPath))
@@ -99,22 +118,18 @@ public final class DownloadFile {
         if (parent != null)
             Files.createDirectories(parent);
 
-        // Download to sibling .download path
+        // Download to sibling .download path (resumes partial download from previous attempt)
         Path downloadPath = localPath.resolveSibling(localPath.getFileName() + ".download");
-
-        // Clean up any stale download file
-        Files.deleteIfExists(downloadPath);
-
-        // Actual download (basic URL stream). Replace with HttpClient if you want timeouts/headers.
-        try (InputStream in = new BufferedInputStream(remoteUrl.openStream())) {
-            Files.copy(in, downloadPath, StandardCopyOption.REPLACE_EXISTING);
-        }
-
-        // Best effort cleanup
-        catch (IOException e) {
-            try { Files.deleteIfExists(downloadPath); }
-            catch (IOException ignore) { }
-            throw e;
+        downloadUrlToPathWithResume(remoteUrl, downloadPath);
+
+        // Verify checksum - if mismatch, delete download so next attempt starts fresh
+        String expectedChecksum = checksumUrl != null ? getChecksumForUrl(checksumUrl) : null;
+        if (expectedChecksum != null) {
+            String checksum = getChecksumForPath(downloadPath);
+            if (!checksum.equalsIgnoreCase(expectedChecksum)) {
+                Files.deleteIfExists(downloadPath);
+                throw new IOException("Checksum mismatch for " + remoteUrl + ": expected " + expectedChecksum + ", got " + checksum);
+            }
         }
 
         // Atomic move into place (best-effort; may fall back depending on FS)
@@ -131,6 +146,72 @@ public final class DownloadFile {
         return localPath;
     }
 
+    /**
+     * Downloads remote url to given path, appending to existing partial file if server supports byte ranges.
+     */
+    private static void downloadUrlToPathWithResume(URL remoteUrl, Path downloadPath) throws IOException
+    {
+        // Get length of partial download from previous attempt
+        long partialLength = Files.exists(downloadPath) ? Files.size(downloadPath) : 0;
+
+        // Open connection - if partial download and HTTP, request remaining bytes
+        URLConnection urlConnection = remoteUrl.openConnection();
+        boolean isResume = false;
+        if (partialLength > 0 && urlConnection instanceof HttpURLConnection httpConnection) {
+            httpConnection.setRequestProperty("Range", "bytes=" + partialLength + "-");
+            int responseCode = httpConnection.getResponseCode();
+            isResume = responseCode == HttpURLConnection.HTTP_PARTIAL;
+
+            // If range not satisfiable, partial file is bogus: Delete and fail (next attempt starts fresh)
+            if (responseCode == 416) {
+                Files.deleteIfExists(downloadPath);
+                throw new IOException("Download resume failed for " + remoteUrl);
+            }
+        }
+
+        // Copy stream to download path (append if resuming, otherwise replace)
+        // Partial file is kept on failure so next attempt can resume
+        try (InputStream in = new BufferedInputStream(urlConnection.getInputStream())) {
+            if (isResume) {
+                try (OutputStream out = Files.newOutputStream(downloadPath, StandardOpenOption.APPEND)) {
+                    in.transferTo(out);
+                }
+            }
+            else Files.copy(in, downloadPath, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Returns the checksum string read from given checksum URL (or null if not available).
+     */
+    private static String getChecksumForUrl(URL checksumUrl)
+    {
+        try (InputStream in = checksumUrl.openStream()) {
+            String checksumText = new String(in.readAllBytes()).trim();
+            String checksum = checksumText.split("\\s+")[0];
+            return checksum.length() == 40 ? checksum : null;
+        }
+        catch (IOException e) { return null; }
+    }
+
+    /**
+     * Returns the SHA-1 hex string for file at given path.
+     */
+    private static String getChecksumForPath(Path aPath) throws IOException
+    {
+        try {
+            MessageDigest messageDigest = MessageDigest.getInstance("SHA-1");
+            try (InputStream in = new DigestInputStream(Files.newInputStream(aPath), messageDigest)) {
+                in.transferTo(OutputStream.nullOutputStream());
+            }
+            StringBuilder sb = new StringBuilder();
+            for (byte b : messageDigest.digest())
+                sb.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            return sb.toString();
+        }
+        catch (NoSuchAlgorithmException e) { throw new IOException(e); }
+    }
+
     /**
      * Waits for given future.
      */
@@ -3,15 +3,27 @@ import snapcode.project.Project;
 import snap.util.FilePathUtils;
 import snap.web.WebURL;
 import java.io.*;
-import java.util.ArrayList;
-import java.util.List;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.*;
 import java.util.jar.Attributes;
-import java.util.jar.JarEntry;
-import java.util.jar.JarOutputStream;
 import java.util.jar.Manifest;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
 
 /**
- * A class to build a Jar file.
+ * A class to build a Jar file. Entries are written in sorted order with a fixed timestamp, so the same inputs
+ * always give a byte-identical jar. Small entries are compressed in parallel, while media and large files are
+ * stored and streamed from disk (CRC pass, then copy), so files are never fully buffered. Compressed data for files
+ * with the same size and CRC as in the previous jar is copied from that jar.
  */
 public class JarBuilder {
 
@@ -24,6 +36,26 @@ public class JarBuilder {
     // THe list of dirs each file is relative to
     private List<File>  _dirs = new ArrayList<>();
 
+    // The shared compress executor
+    private static ExecutorService  _compressExecutor;
+
+    // Constants
+    private static final int COMPRESS_THREAD_COUNT = Math.max(1, Runtime.getRuntime().availableProcessors());
+    private static final int MAX_PENDING_ENTRIES = COMPRESS_THREAD_COUNT * 4;
+    private static final int MAX_COMPRESS_SIZE = 16 * 1024 * 1024;
+    private static final int COPY_BUFFER_SIZE = 64 * 1024;
+    private static final String MANIFEST_PATH = "META-INF/MANIFEST.MF";
+    private static final Set<String> STORED_EXTENSIONS = Set.of("png", "jpg", "jpeg", "gif", "webp", "ico", "mp3", "mp4",
+            "m4a", "ogg", "zip", "jar", "gz", "bz2", "xz", "7z", "woff", "woff2");
+
+    // Zip format constants (fixed DOS date is 1980-02-01 00:00, since 1980-01-01 is misread by some tools)
+    private static final int DOS_TIME = 0;
+    private static final int DOS_DATE = (2 << 5) | 1;
+    private static final int FLAG_UTF8 = 0x0800;
+    private static final int LOCAL_HEADER_SIG = 0x04034b50;
+    private static final int CENTRAL_HEADER_SIG = 0x02014b50;
+    private static final int END_HEADER_SIG = 0x06054b50;
+
     /**
      * Sets the Jar URL.
      */
@@ -37,20 +69,162 @@ public class JarBuilder {
      */
     public void build() throws IOException
     {
-        // Create manifest
-        Manifest manifest = new Manifest();
-        manifest.getMainAttributes().put(Attributes.Name.MANIFEST_VERSION, "1.0");
-
-        // Create Jar output
+        // Get sorted entry files (later duplicates are ignored)
         File jarFile = _jarURL.getJavaFile();
-        JarOutputStream target = new JarOutputStream(new FileOutputStream(jarFile), manifest);
+        SortedMap<String,File> entryFiles = getEntryFiles(jarFile);
+
+        // Get previous jar entries to reuse compressed data of unchanged files
+        Map<String,OldEntry> oldEntries = getOldEntries(jarFile);
+
+        // Write to temp file and move to jar file when done
+        Path tempPath = Files.createTempFile(jarFile.getAbsoluteFile().getParentFile().toPath(), jarFile.getName(), ".tmp");
+        try (FileChannel oldJarChannel = !oldEntries.isEmpty() ? FileChannel.open(jarFile.toPath(), StandardOpenOption.READ) : null;
+             OutputStream outputStream = new BufferedOutputStream(Files.newOutputStream(tempPath), 64 * 1024)) {
+
+            // Create writer and write manifest entries
+            ZipWriter zipWriter = new ZipWriter(outputStream);
+            zipWriter.writeEntry(EntryData.newDirEntry("META-INF/"));
+            zipWriter.writeEntry(getManifestEntry());
+
+            // Start entry tasks (bounded number pending) and write results in order
+            Deque<Future<EntryData>> pendingEntries = new ArrayDeque<>();
+            for (Map.Entry<String,File> mapEntry : entryFiles.entrySet()) {
+                String entryPath = mapEntry.getKey();
+                File file = mapEntry.getValue();
+                OldEntry oldEntry = oldJarChannel != null ? oldEntries.get(entryPath) : null;
+                Callable<EntryData> entryTask = () -> getEntryDataForFile(entryPath, file, oldEntry, oldJarChannel);
+                pendingEntries.add(getCompressExecutor().submit(entryTask));
+                if (pendingEntries.size() >= MAX_PENDING_ENTRIES)
+                    zipWriter.writeEntry(getFutureValue(pendingEntries.removeFirst()));
+            }
+            while (!pendingEntries.isEmpty())
+                zipWriter.writeEntry(getFutureValue(pendingEntries.removeFirst()));
+
+            // Finish
+            zipWriter.finish();
+        }
+
+        // Handle failure: Delete temp file
+        catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(tempPath);
+            throw e;
+        }
+
+        // Replace jar file
+        Files.move(tempPath, jarFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * Returns the sorted entry paths and files (directory entries end with '/').
+     */
+    private SortedMap<String,File> getEntryFiles(File jarFile) throws IOException
+    {
+        SortedMap<String,File> entryFiles = new TreeMap<>();
+
         for (int i = 0, iMax = _files.size(); i < iMax; i++) {
             File file = _files.get(i), dir = _dirs.get(i);
-            add(file, dir, target);
+            Path dirPath = dir.toPath();
+
+            // Walk file (or directory tree) and add entries
+            try (Stream<Path> paths = Files.walk(file.toPath())) {
+                for (Path path : (Iterable<Path>) paths::iterator) {
+                    String entryPath = dirPath.relativize(path).toString().replace("\\", "/");
+                    boolean isDir = Files.isDirectory(path);
+                    if (entryPath.isEmpty() || entryPath.equals(MANIFEST_PATH) || entryPath.equals("META-INF"))
+                        continue;
+                    if (path.toFile().equals(jarFile))
+                        continue;
+                    if (isDir)
+                        entryPath += '/';
+                    entryFiles.putIfAbsent(entryPath, path.toFile());
+                }
+            }
         }
 
-        // Close
-        target.close();
+        // Return
+        return entryFiles;
+    }
+
+    /**
+     * Returns the entry data for given file (called on compress thread). Small compressible files are read and
+     * compressed (or copied from old jar entry if same size and CRC), other files are stored and streamed when written.
+     */
+    private static EntryData getEntryDataForFile(String aName, File aFile, OldEntry oldEntry, FileChannel oldJarChannel) throws IOException
+    {
+        // If directory, return directory entry
+        if (aName.endsWith("/"))
+            return EntryData.newDirEntry(aName);
+
+        // If small compressible file, read bytes and return compressed entry (reuse old entry data if unchanged)
+        String ext = FilePathUtils.getExtension(aName).toLowerCase();
+        if (!STORED_EXTENSIONS.contains(ext) && aFile.length() <= MAX_COMPRESS_SIZE) {
+            byte[] bytes = Files.readAllBytes(aFile.toPath());
+            if (oldEntry != null && oldEntry.size == bytes.length && oldEntry.crc == getCRC(bytes))
+                return oldEntry.getEntryData(oldJarChannel);
+            return EntryData.newEntryForBytes(aName, bytes, true);
+        }
+
+        // Otherwise return stored entry for file (data is streamed when written)
+        return EntryData.newEntryForFile(aName, aFile);
+    }
+
+    /**
+     * Returns the CRC for given bytes.
+     */
+    private static long getCRC(byte[] theBytes)
+    {
+        CRC32 crc32 = new CRC32();
+        crc32.update(theBytes);
+        return crc32.getValue();
+    }
+
+    /**
+     * Streams given file and returns its CRC and length. If output stream is given, file bytes are copied to it.
+     */
+    private static long[] getCRCAndLengthForFile(File aFile, OutputStream anOut) throws IOException
+    {
+        CRC32 crc32 = new CRC32();
+        long length = 0;
+        try (InputStream inputStream = Files.newInputStream(aFile.toPath())) {
+            byte[] buffer = new byte[COPY_BUFFER_SIZE];
+            for (int count = inputStream.read(buffer); count >= 0; count = inputStream.read(buffer)) {
+                crc32.update(buffer, 0, count);
+                if (anOut != null)
+                    anOut.write(buffer, 0, count);
+                length += count;
+            }
+        }
+        return new long[] { crc32.getValue(), length };
+    }
+
+    /**
+     * Returns the manifest entry.
+     */
+    private static EntryData getManifestEntry() throws IOException
+    {
+        Manifest manifest = new Manifest();
+        manifest.getMainAttributes().put(Attributes.Name.MANIFEST_VERSION, "1.0");
+        ByteArrayOutputStream bytesOut = new ByteArrayOutputStream();
+        manifest.write(bytesOut);
+        return EntryData.newEntryForBytes(MANIFEST_PATH, bytesOut.toByteArray(), true);
+    }
+
+    /**
+     * Returns the value of given entry future.
+     */
+    private static EntryData getFutureValue(Future<EntryData> aFuture) throws IOException
+    {
+        try { return aFuture.get(); }
+        catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException)
+                throw (IOException) cause;
+            throw new IOException(cause);
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("JarBuilder.build: Interrupted");
+        }
     }
 
     /**
@@ -91,51 +265,86 @@ public class JarBuilder {
     }
 
     /**
-     * Adds a new file.
+     * Returns the entries of previous jar file written by JarBuilder (or empty map if not available).
      */
-    private void add(File aFile, File aDir, JarOutputStream target) throws IOException
+    private static Map<String,OldEntry> getOldEntries(File jarFile)
     {
-        // Get entry path
-        String filePath = aFile.getPath().replace("\\", "/");
-        String dirPath = aDir.getPath().replace("\\", "/");
-        String entryPath = filePath.substring(dirPath.length() + 1);
-
-        // Handle directory
-        if (aFile.isDirectory()) {
-            if (!entryPath.isEmpty()) {
-                if (!entryPath.endsWith("/")) entryPath += "/";
-                JarEntry entry = new JarEntry(entryPath);
-                entry.setTime(aFile.lastModified());
-                target.putNextEntry(entry);
-                target.closeEntry();
-            }
+        // If no jar file, return empty map
+        if (!jarFile.isFile())
+            return Collections.emptyMap();
 
-            for (File nestedFile : aFile.listFiles())
-                add(nestedFile, aDir, target);
-            return;
-        }
+        // Read central directory
+        try (FileChannel channel = FileChannel.open(jarFile.toPath(), StandardOpenOption.READ)) {
 
-        // Handle file
-        BufferedInputStream in = null;
-        try {
-            JarEntry entry = new JarEntry(entryPath);
-            entry.setTime(aFile.lastModified());
-            target.putNextEntry(entry);
-            in = new BufferedInputStream(new FileInputStream(aFile));
+            // Read end record (JarBuilder writes no comment, so it is the last 22 bytes)
+            long fileSize = channel.size();
+            if (fileSize < 22)
+                return Collections.emptyMap();
+            ByteBuffer endBuffer = readBuffer(channel, fileSize - 22, 22);
+            if (endBuffer.getInt(0) != END_HEADER_SIG)
+                return Collections.emptyMap();
+            int entryCount = endBuffer.getShort(10) & 0xFFFF;
+            long centralSize = endBuffer.getInt(12) & 0xFFFFFFFFL;
+            long centralOffset = endBuffer.getInt(16) & 0xFFFFFFFFL;
 
-            byte[] buffer = new byte[1024];
-            while (true) {
-                int count = in.read(buffer);
-                if (count == -1) break;
-                target.write(buffer, 0, count);
+            // Read central headers
+            Map<String,OldEntry> oldEntries = new HashMap<>();
+            ByteBuffer centralBuffer = readBuffer(channel, centralOffset, (int) centralSize);
+            for (int i = 0, offset = 0; i < entryCount; i++) {
+                if (centralBuffer.getInt(offset) != CENTRAL_HEADER_SIG)
+                    return Collections.emptyMap();
+                OldEntry oldEntry = new OldEntry();
+                oldEntry.method = centralBuffer.getShort(offset + 10) & 0xFFFF;
+                oldEntry.crc = centralBuffer.getInt(offset + 16) & 0xFFFFFFFFL;
+                oldEntry.compressedSize = centralBuffer.getInt(offset + 20) & 0xFFFFFFFFL;
+                oldEntry.size = centralBuffer.getInt(offset + 24) & 0xFFFFFFFFL;
+                int nameLength = centralBuffer.getShort(offset + 28) & 0xFFFF;
+                int extraLength = centralBuffer.getShort(offset + 30) & 0xFFFF;
+                int commentLength = centralBuffer.getShort(offset + 32) & 0xFFFF;
+                oldEntry.localHeaderOffset = centralBuffer.getInt(offset + 42) & 0xFFFFFFFFL;
+                byte[] nameBytes = new byte[nameLength];
+                centralBuffer.get(offset + 46, nameBytes);
+                oldEntry.name = new String(nameBytes, StandardCharsets.UTF_8);
+                if (oldEntry.method == Deflater.DEFLATED || oldEntry.method == 0)
+                    oldEntries.put(oldEntry.name, oldEntry);
+                offset += 46 + nameLength + extraLength + commentLength;
             }
-            target.closeEntry();
+
+            // Return
+            return oldEntries;
+        }
+
+        // Handle exceptions: Just rebuild everything
+        catch (Exception e) {
+            System.err.println("JarBuilder.getOldEntries: Can't read previous jar: " + e);
+            return Collections.emptyMap();
         }
+    }
 
-        //
-        finally {
-            if (in != null) in.close();
+    /**
+     * Reads a little endian buffer from given channel at given position.
+     */
+    private static ByteBuffer readBuffer(FileChannel aChannel, long aPosition, int aLength) throws IOException
+    {
+        ByteBuffer buffer = ByteBuffer.allocate(aLength).order(ByteOrder.LITTLE_ENDIAN);
+        while (buffer.hasRemaining()) {
+            if (aChannel.read(buffer, aPosition + buffer.position()) < 0)
+                throw new EOFException("JarBuilder.readBuffer: Unexpected end of file");
         }
+        return buffer.flip();
+    }
+
+    /**
+     * Returns the shared compress executor.
+     */
+    private static synchronized ExecutorService getCompressExecutor()
+    {
+        if (_compressExecutor != null) return _compressExecutor;
+        return _compressExecutor = Executors.newFixedThreadPool(COMPRESS_THREAD_COUNT, runnable -> {
+            Thread thread = new Thread(runnable, "Jar Compress");
+            thread.setDaemon(true);
+            return thread;
+        });
     }
 
     /**
@@ -174,4 +383,257 @@ public class JarBuilder {
         // Build jar
         jb.build();
     }
-}
\ No newline at end of file
+
+    /**
+     * The data for a jar entry, ready to write.
+     */
+    private static class EntryData {
+
+        // The entry name, method, CRC, size, compressed size and (compressed) data
+        String name;
+        int method;
+        long crc;
+        long size;
+        long compressedSize;
+        byte[] data;
+
+        // The file to stream stored data from when written (if data not buffered)
+        File dataFile;
+
+        // The local header offset (set when written)
+        long localHeaderOffset;
+
+        /**
+         * Returns a new directory entry.
+         */
+        static EntryData newDirEntry(String aName)
+        {
+            EntryData entryData = new EntryData();
+            entryData.name = aName;
+            entryData.data = new byte[0];
+            return entryData;
+        }
+
+        /**
+         * Returns a new stored entry for given file, with CRC and size from streaming file (data streamed when written).
+         */
+        static EntryData newEntryForFile(String aName, File aFile) throws IOException
+        {
+            long[] crcAndLength = getCRCAndLengthForFile(aFile, null);
+            EntryData entryData = new EntryData();
+            entryData.name = aName;
+            entryData.crc = crcAndLength[0];
+            entryData.size = entryData.compressedSize = crcAndLength[1];
+            entryData.dataFile = aFile;
+            return entryData;
+        }
+
+        /**
+         * Returns a new entry for given bytes, compressed if requested and smaller.
+         */
+        static EntryData newEntryForBytes(String aName, byte[] theBytes, boolean isCompress)
+        {
+            EntryData entryData = new EntryData();
+            entryData.name = aName;
+            entryData.size = theBytes.length;
+            entryData.crc = getCRC(theBytes);
+            entryData.data = theBytes;
+
+            // If compress requested, deflate (raw, no zlib wrapper) and use if smaller
+            if (isCompress && theBytes.length > 0) {
+                Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+                try {
+                    deflater.setInput(theBytes);
+                    deflater.finish();
+                    ByteArrayOutputStream bytesOut = new ByteArrayOutputStream(Math.max(64, theBytes.length / 2));
+                    byte[] buffer = new byte[64 * 1024];
+                    while (!deflater.finished()) {
+                        int count = deflater.deflate(buffer);
+                        bytesOut.write(buffer, 0, count);
+                    }
+                    if (bytesOut.size() < theBytes.length) {
+                        entryData.method = Deflater.DEFLATED;
+                        entryData.data = bytesOut.toByteArray();
+                    }
+                }
+                finally { deflater.end(); }
+            }
+
+            // Set compressed size and return
+            entryData.compressedSize = entryData.data.length;
+            return entryData;
+        }
+    }
+
+    /**
+     * An entry from a previous jar.
+     */
+    private static class OldEntry {
+
+        // The entry name, method, CRC, sizes and local header offset
+        String name;
+        int method;
+        long crc;
+        long compressedSize;
+        long size;
+        long localHeaderOffset;
+
+        /**
+         * Returns entry data with compressed data copied from old jar (called on compress thread).
+         */
+        EntryData getEntryData(FileChannel aChannel) throws IOException
+        {
+            // Read local header name and extra lengths to get data offset
+            ByteBuffer localHeader = readBuffer(aChannel, localHeaderOffset, 30);
+            if (localHeader.getInt(0) != LOCAL_HEADER_SIG)
+                throw new IOException("JarBuilder: Invalid local header for " + name);
+            int nameLength = localHeader.getShort(26) & 0xFFFF;
+            int extraLength = localHeader.getShort(28) & 0xFFFF;
+            long dataOffset = localHeaderOffset + 30 + nameLength + extraLength;
+
+            // Create entry data
+            EntryData entryData = new EntryData();
+            entryData.name = name;
+            entryData.method = method;
+            entryData.crc = crc;
+            entryData.size = size;
+            entryData.compressedSize = compressedSize;
+            entryData.data = readBuffer(aChannel, dataOffset, (int) compressedSize).array();
+            return entryData;
+        }
+    }
+
+    /**
+     * Writes zip entries and central directory (no zip64, no data descriptors).
+     */
+    private static class ZipWriter {
+
+        // The output stream
+        private OutputStream _out;
+
+        // The number of bytes written
+        private long _offset;
+
+        // The written entries
+        private List<EntryData> _entries = new ArrayList<>();
+
+        // A buffer for header values
+        private ByteBuffer _headerBuffer = ByteBuffer.allocate(64).order(ByteOrder.LITTLE_ENDIAN);
+
+        /**
+         * Constructor.
+         */
+        ZipWriter(OutputStream anOut)
+        {
+            _out = anOut;
+        }
+
+        /**
+         * Writes an entry local header and data.
+         */
+        void writeEntry(EntryData anEntry) throws IOException
+        {
+            // Check limits
+            if (_entries.size() >= 0xFFFF || _offset > 0xFFFFFFFFL || anEntry.size > 0xFFFFFFFFL)
+                throw new IOException("JarBuilder: Jar too large (zip64 not supported)");
+
+            // Write local header
+            byte[] nameBytes = anEntry.name.getBytes(StandardCharsets.UTF_8);
+            anEntry.localHeaderOffset = _offset;
+            _headerBuffer.clear();
+            _headerBuffer.putInt(LOCAL_HEADER_SIG);
+            _headerBuffer.putShort((short) (anEntry.method == Deflater.DEFLATED ? 20 : 10));
+            _headerBuffer.putShort((short) FLAG_UTF8);
+            _headerBuffer.putShort((short) anEntry.method);
+            _headerBuffer.putShort((short) DOS_TIME);
+            _headerBuffer.putShort((short) DOS_DATE);
+            _headerBuffer.putInt((int) anEntry.crc);
+            _headerBuffer.putInt((int) anEntry.compressedSize);
+            _headerBuffer.putInt((int) anEntry.size);
+            _headerBuffer.putShort((short) nameBytes.length);
+            _headerBuffer.putShort((short) 0);
+            writeHeaderBuffer();
+            write(nameBytes);
+
+            // Write data: Stream from file (make sure it didn't change since CRC pass) or write buffered data
+            if (anEntry.dataFile != null) {
+                long[] crcAndLength = getCRCAndLengthForFile(anEntry.dataFile, _out);
+                _offset += crcAndLength[1];
+                if (crcAndLength[0] != anEntry.crc || crcAndLength[1] != anEntry.size)
+                    throw new IOException("JarBuilder: File changed during build: " + anEntry.dataFile);
+            }
+            else write(anEntry.data);
+
+            // Add entry and release data
+            anEntry.data = null;
+            anEntry.dataFile = null;
+            _entries.add(anEntry);
+        }
+
+        /**
+         * Writes central directory and end record.
+         */
+        void finish() throws IOException
+        {
+            // Write central headers
+            long centralOffset = _offset;
+            for (EntryData entry : _entries) {
+                byte[] nameBytes = entry.name.getBytes(StandardCharsets.UTF_8);
+                boolean isDir = entry.name.endsWith("/");
+                _headerBuffer.clear();
+                _headerBuffer.putInt(CENTRAL_HEADER_SIG);
+                _headerBuffer.putShort((short) 20);
+                _headerBuffer.putShort((short) (entry.method == Deflater.DEFLATED ? 20 : 10));
+                _headerBuffer.putShort((short) FLAG_UTF8);
+                _headerBuffer.putShort((short) entry.method);
+                _headerBuffer.putShort((short) DOS_TIME);
+                _headerBuffer.putShort((short) DOS_DATE);
+                _headerBuffer.putInt((int) entry.crc);
+                _headerBuffer.putInt((int) entry.compressedSize);
+                _headerBuffer.putInt((int) entry.size);
+                _headerBuffer.putShort((short) nameBytes.length);
+                _headerBuffer.putShort((short) 0);
+                _headerBuffer.putShort((short) 0);
+                _headerBuffer.putShort((short) 0);
+                _headerBuffer.putShort((short) 0);
+                _headerBuffer.putInt(isDir ? 0x10 : 0);
+                _headerBuffer.putInt((int) entry.localHeaderOffset);
+                writeHeaderBuffer();
+                write(nameBytes);
+            }
+
+            // Write end record
+            long centralSize = _offset - centralOffset;
+            if (_offset > 0xFFFFFFFFL)
+                throw new IOException("JarBuilder: Jar too large (zip64 not supported)");
+            _headerBuffer.clear();
+            _headerBuffer.putInt(END_HEADER_SIG);
+            _headerBuffer.putShort((short) 0);
+            _headerBuffer.putShort((short) 0);
+            _headerBuffer.putShort((short) _entries.size());
+            _headerBuffer.putShort((short) _entries.size());
+            _headerBuffer.putInt((int) centralSize);
+            _headerBuffer.putInt((int) centralOffset);
+            _headerBuffer.putShort((short) 0);
+            writeHeaderBuffer();
+            _out.flush();
+        }
+
+        /**
+         * Writes header buffer.
+         */
+        private void writeHeaderBuffer() throws IOException
+        {
+            write(Arrays.copyOf(_headerBuffer.array(), _headerBuffer.position()));
+        }
+
+        /**
+         * Writes bytes.
+         */
+        private void write(byte[] theBytes) throws IOException
+        {
+            _out.write(theBytes);
+            _offset += theBytes.length;
+        }
+    }
+}
@@ -1,448 +1,452 @@
 package snapcode.util;
-import java.util.*;
+import java.util.Arrays;
 
 /**
- * LZString4Java By Rufus Huang (https://github.com/rufushuang/lz-string4java). MIT License.
- * Port from original JavaScript version by pieroxy (https://github.com/pieroxy/lz-string).
+ * LZ-based compression compatible with lz-string (https://github.com/pieroxy/lz-string) URI component encoding,
+ * originally ported to Java as LZString4Java by Rufus Huang (https://github.com/rufushuang/lz-string4java).
+ * MIT License. This version uses primitive tables: The compress dictionary is an open-addressing hash of
+ * (prefix code, char) keys and decompress dictionary entries are (offset, length) spans of chars already output.
  */
 public class LZString {
 
-    private static char[] keyStrUriSafe = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+-$".toCharArray();
-    private static Map<char[], Map<Character, Integer>> baseReverseDic = new HashMap<char[], Map<Character, Integer>>();
+    // The URI safe alphabet
+    private static final char[] KEY_STR_URI_SAFE = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+-$".toCharArray();
 
-    private static char getBaseValue(char[] alphabet, Character character) {
-        Map<Character, Integer> map = baseReverseDic.get(alphabet);
-        if (map == null) {
-            map = new HashMap<Character, Integer>();
-            baseReverseDic.put(alphabet, map);
-            for (int i = 0; i < alphabet.length; i++) {
-                map.put(alphabet[i], i);
-            }
-        }
-        return (char) map.get(character).intValue();
+    // The URI safe alphabet values for chars (or -1)
+    private static final int[] KEY_STR_URI_SAFE_VALUES = new int[128];
+    static {
+        Arrays.fill(KEY_STR_URI_SAFE_VALUES, -1);
+        for (int i = 0; i < KEY_STR_URI_SAFE.length; i++)
+            KEY_STR_URI_SAFE_VALUES[KEY_STR_URI_SAFE[i]] = i;
     }
 
-    public static String compressToEncodedURIComponent(String input) {
+    // Constants
+    private static final int BITS_PER_CHAR = 6;
+    private static final int RESET_VALUE = 32;
+
+    /**
+     * Compresses given string to URI safe string.
+     */
+    public static String compressToEncodedURIComponent(String input)
+    {
         if (input == null)
             return "";
-        return LZString._compress(input, 6, new CompressFunctionWrapper() {
-            @Override
-            public char doFunc(int a) {
-                return keyStrUriSafe[a];
-            }
-        });
+        return new Compressor(input.length()).compress(input);
     }
 
-    public static String decompressFromEncodedURIComponent(String inputStr) {
+    /**
+     * Decompresses given URI safe string (returns null if invalid).
+     */
+    public static String decompressFromEncodedURIComponent(String inputStr)
+    {
         if (inputStr == null) return "";
         if (inputStr.isEmpty()) return null;
-        final String urlEncodedInputStr = inputStr.replace(' ', '+');
-        return LZString._decompress(urlEncodedInputStr.length(), 32, new DecompressFunctionWrapper() {
-            @Override
-            public char doFunc(int index) {
-                return getBaseValue(keyStrUriSafe, urlEncodedInputStr.charAt(index));
-            }
-        });
-    }
 
-    private static abstract class CompressFunctionWrapper {
-        public abstract char doFunc(int i);
+        // Decompress (invalid chars or truncated input throw in decompressor)
+        try { return new Decompressor(inputStr.replace(' ', '+')).decompress(); }
+        catch (IllegalArgumentException | StringIndexOutOfBoundsException e) { return null; }
     }
 
-    private static String _compress(String uncompressedStr, int bitsPerChar, CompressFunctionWrapper getCharFromInt) {
-        if (uncompressedStr == null) return "";
-        int i, value;
-        Map<String, Integer> context_dictionary = new HashMap<String, Integer>();
-        Set<String> context_dictionaryToCreate = new HashSet<String>();
-        String context_c = "";
-        String context_wc = "";
-        String context_w = "";
-        int context_enlargeIn = 2; // Compensate for the first entry which should not count
-        int context_dictSize = 3;
-        int context_numBits = 2;
-        StringBuilder context_data = new StringBuilder(uncompressedStr.length() / 3);
-        int context_data_val = 0;
-        int context_data_position = 0;
-        int ii;
-
-        for (ii = 0; ii < uncompressedStr.length(); ii += 1) {
-            context_c = String.valueOf(uncompressedStr.charAt(ii));
-            if (!context_dictionary.containsKey(context_c)) {
-                context_dictionary.put(context_c, context_dictSize++);
-                context_dictionaryToCreate.add(context_c);
-            }
+    /**
+     * Compresses a string.
+     */
+    private static class Compressor {
 
-            context_wc = context_w + context_c;
-            if (context_dictionary.containsKey(context_wc)) {
-                context_w = context_wc;
-            } else {
-                if (context_dictionaryToCreate.contains(context_w)) {
-                    if (context_w.charAt(0) < 256) {
-                        for (i = 0; i < context_numBits; i++) {
-                            context_data_val = (context_data_val << 1);
-                            if (context_data_position == bitsPerChar - 1) {
-                                context_data_position = 0;
-                                context_data.append(getCharFromInt.doFunc(context_data_val));
-                                context_data_val = 0;
-                            } else {
-                                context_data_position++;
-                            }
-                        }
-                        value = context_w.charAt(0);
-                        for (i = 0; i < 8; i++) {
-                            context_data_val = (context_data_val << 1) | (value & 1);
-                            if (context_data_position == bitsPerChar - 1) {
-                                context_data_position = 0;
-                                context_data.append(getCharFromInt.doFunc(context_data_val));
-                                context_data_val = 0;
-                            } else {
-                                context_data_position++;
-                            }
-                            value = value >> 1;
-                        }
-                    } else {
-                        value = 1;
-                        for (i = 0; i < context_numBits; i++) {
-                            context_data_val = (context_data_val << 1) | value;
-                            if (context_data_position == bitsPerChar - 1) {
-                                context_data_position = 0;
-                                context_data.append(getCharFromInt.doFunc(context_data_val));
-                                context_data_val = 0;
-                            } else {
-                                context_data_position++;
-                            }
-                            value = 0;
-                        }
-                        value = context_w.charAt(0);
-                        for (i = 0; i < 16; i++) {
-                            context_data_val = (context_data_val << 1) | (value & 1);
-                            if (context_data_position == bitsPerChar - 1) {
-                                context_data_position = 0;
-                                context_data.append(getCharFromInt.doFunc(context_data_val));
-                                context_data_val = 0;
-                            } else {
-                                context_data_position++;
-                            }
-                            value = value >> 1;
-                        }
-                    }
-                    context_enlargeIn--;
-                    if (context_enlargeIn == 0) {
-                        context_enlargeIn = powerOf2(context_numBits);
-                        context_numBits++;
-                    }
-                    context_dictionaryToCreate.remove(context_w);
-                } else {
-                    value = context_dictionary.get(context_w);
-                    for (i = 0; i < context_numBits; i++) {
-                        context_data_val = (context_data_val << 1) | (value & 1);
-                        if (context_data_position == bitsPerChar - 1) {
-                            context_data_position = 0;
-                            context_data.append(getCharFromInt.doFunc(context_data_val));
-                            context_data_val = 0;
-                        } else {
-                            context_data_position++;
-                        }
-                        value = value >> 1;
-                    }
+        // The dictionary hash keys ((prefix code + 1) << 16 | char, or -1 if empty) and codes
+        private long[] _keys;
+        private int[] _codes;
+        private int _mask;
 
-                }
-                context_enlargeIn--;
-                if (context_enlargeIn == 0) {
-                    context_enlargeIn = powerOf2(context_numBits);
-                    context_numBits++;
-                }
-                // Add wc to the dictionary.
-                context_dictionary.put(context_wc, context_dictSize++);
-                context_w = context_c;
-            }
+        // Whether single char dictionary code hasn't been written as literal yet (indexed by code)
+        private boolean[] _pendingLiterals;
+
+        // The output chars
+        private char[] _out;
+        private int _outLength;
+
+        // The current output char value and bit position
+        private int _dataVal;
+        private int _dataPosition;
+
+        // The dictionary size, number of bits per code and codes until numBits grows
+        private int _dictSize = 3;
+        private int _numBits = 2;
+        private int _enlargeIn = 2; // Compensate for the first entry which should not count
+
+        /**
+         * Constructor.
+         */
+        Compressor(int inputLength)
+        {
+            // Dictionary has at most one entry per input char (plus one per new char), so size hash for half load
+            int capacity = Integer.highestOneBit(Math.max(16, inputLength * 4) - 1) << 1;
+            _keys = new long[capacity];
+            Arrays.fill(_keys, -1);
+            _codes = new int[capacity];
+            _mask = capacity - 1;
+            _pendingLiterals = new boolean[2 * inputLength + 4];
+            _out = new char[Math.max(16, inputLength / 2)];
         }
 
-        // Output the code for w.
-        if (!context_w.isEmpty()) {
-            if (context_dictionaryToCreate.contains(context_w)) {
-                if (context_w.charAt(0) < 256) {
-                    for (i = 0; i < context_numBits; i++) {
-                        context_data_val = (context_data_val << 1);
-                        if (context_data_position == bitsPerChar - 1) {
-                            context_data_position = 0;
-                            context_data.append(getCharFromInt.doFunc(context_data_val));
-                            context_data_val = 0;
-                        } else {
-                            context_data_position++;
-                        }
-                    }
-                    value = context_w.charAt(0);
-                    for (i = 0; i < 8; i++) {
-                        context_data_val = (context_data_val << 1) | (value & 1);
-                        if (context_data_position == bitsPerChar - 1) {
-                            context_data_position = 0;
-                            context_data.append(getCharFromInt.doFunc(context_data_val));
-                            context_data_val = 0;
-                        } else {
-                            context_data_position++;
-                        }
-                        value = value >> 1;
-                    }
-                } else {
-                    value = 1;
-                    for (i = 0; i < context_numBits; i++) {
-                        context_data_val = (context_data_val << 1) | value;
-                        if (context_data_position == bitsPerChar - 1) {
-                            context_data_position = 0;
-                            context_data.append(getCharFromInt.doFunc(context_data_val));
-                            context_data_val = 0;
-                        } else {
-                            context_data_position++;
-                        }
-                        value = 0;
-                    }
-                    value = context_w.charAt(0);
-                    for (i = 0; i < 16; i++) {
-                        context_data_val = (context_data_val << 1) | (value & 1);
-                        if (context_data_position == bitsPerChar - 1) {
-                            context_data_position = 0;
-                            context_data.append(getCharFromInt.doFunc(context_data_val));
-                            context_data_val = 0;
-                        } else {
-                            context_data_position++;
-                        }
-                        value = value >> 1;
-                    }
+        /**
+         * Compresses given string.
+         */
+        String compress(String aStr)
+        {
+            // The current prefix code (or -1 if empty) and its char (if prefix is single char)
+            int wCode = -1;
+            char wChar = 0;
+
+            for (int i = 0, iMax = aStr.length(); i < iMax; i++) {
+                char c = aStr.charAt(i);
+
+                // If char not in dictionary, add it
+                int cCode = getCode(-1, c);
+                if (cCode < 0) {
+                    cCode = _dictSize++;
+                    putCode(-1, c, cCode);
+                    _pendingLiterals[cCode] = true;
                 }
-                context_enlargeIn--;
-                if (context_enlargeIn == 0) {
-                    context_enlargeIn = powerOf2(context_numBits);
-                    context_numBits++;
+
+                // If prefix empty, start with char
+                if (wCode < 0) {
+                    wCode = cCode;
+                    wChar = c;
+                    continue;
                 }
-                context_dictionaryToCreate.remove(context_w);
-            } else {
-                value = context_dictionary.get(context_w);
-                for (i = 0; i < context_numBits; i++) {
-                    context_data_val = (context_data_val << 1) | (value & 1);
-                    if (context_data_position == bitsPerChar - 1) {
-                        context_data_position = 0;
-                        context_data.append(getCharFromInt.doFunc(context_data_val));
-                        context_data_val = 0;
-                    } else {
-                        context_data_position++;
-                    }
-                    value = value >> 1;
+
+                // If prefix + char in dictionary, extend prefix
+                int wcCode = getCode(wCode, c);
+                if (wcCode >= 0) {
+                    wCode = wcCode;
+                    continue;
                 }
 
+                // Write prefix, add prefix + char to dictionary and restart with char
+                writeCode(wCode, wChar);
+                putCode(wCode, c, _dictSize++);
+                wCode = cCode;
+                wChar = c;
             }
-            context_enlargeIn--;
-            if (context_enlargeIn == 0) {
-                context_enlargeIn = powerOf2(context_numBits);
-                context_numBits++;
+
+            // Write last prefix
+            if (wCode >= 0)
+                writeCode(wCode, wChar);
+
+            // Mark the end of the stream
+            writeBits(2, _numBits);
+
+            // Flush the last char
+            while (true) {
+                _dataVal = _dataVal << 1;
+                if (_dataPosition == BITS_PER_CHAR - 1) {
+                    appendChar();
+                    break;
+                }
+                _dataPosition++;
             }
+
+            // Return string
+            return new String(_out, 0, _outLength);
         }
 
-        // Mark the end of the stream
-        value = 2;
-        for (i = 0; i < context_numBits; i++) {
-            context_data_val = (context_data_val << 1) | (value & 1);
-            if (context_data_position == bitsPerChar - 1) {
-                context_data_position = 0;
-                context_data.append(getCharFromInt.doFunc(context_data_val));
-                context_data_val = 0;
-            } else {
-                context_data_position++;
+        /**
+         * Writes code for prefix (or char literal if single char not yet written) and updates numBits.
+         */
+        private void writeCode(int wCode, char wChar)
+        {
+            // If pending literal, write char
+            if (_pendingLiterals[wCode]) {
+                if (wChar < 256) {
+                    writeBits(0, _numBits);
+                    writeBits(wChar, 8);
+                }
+                else {
+                    writeBits(1, _numBits);
+                    writeBits(wChar, 16);
+                }
+                enlarge();
+                _pendingLiterals[wCode] = false;
             }
-            value = value >> 1;
+
+            // Otherwise write code
+            else writeBits(wCode, _numBits);
+
+            // Update numBits
+            enlarge();
         }
 
-        // Flush the last char
-        while (true) {
-            context_data_val = (context_data_val << 1);
-            if (context_data_position == bitsPerChar - 1) {
-                context_data.append(getCharFromInt.doFunc(context_data_val));
-                break;
+        /**
+         * Decrements enlargeIn and grows numBits when needed.
+         */
+        private void enlarge()
+        {
+            _enlargeIn--;
+            if (_enlargeIn == 0) {
+                _enlargeIn = 1 << _numBits;
+                _numBits++;
             }
-            else
-                context_data_position++;
         }
-        return context_data.toString();
-    }
 
-    private static abstract class DecompressFunctionWrapper {
-        public abstract char doFunc(int i);
-    }
-    protected static class DecData {
-        public char val;
-        public int position;
-        public int index;
-    }
+        /**
+         * Writes given number of bits of value (low bit first).
+         */
+        private void writeBits(int aValue, int aBitCount)
+        {
+            int value = aValue;
+            for (int i = 0; i < aBitCount; i++) {
+                _dataVal = (_dataVal << 1) | (value & 1);
+                if (_dataPosition == BITS_PER_CHAR - 1) {
+                    _dataPosition = 0;
+                    appendChar();
+                    _dataVal = 0;
+                }
+                else _dataPosition++;
+                value = value >> 1;
+            }
+        }
 
-    public static String f(int i)  { return String.valueOf((char) i); }
-
-    private static String _decompress(int length, int resetValue, DecompressFunctionWrapper getNextValue) {
-        List<String> dictionary = new ArrayList<String>();
-        // TODO: is next an unused variable in original lz-string?
-        @SuppressWarnings("unused")
-        int next;
-        int enlargeIn = 4;
-        int dictSize = 4;
-        int numBits = 3;
-        String entry = "";
-        StringBuilder result = new StringBuilder();
-        String w;
-        int bits, resb; int maxpower, power;
-        String c = null;
-        DecData data = new DecData();
-        data.val = getNextValue.doFunc(0);
-        data.position = resetValue;
-        data.index = 1;
-
-        for (int i = 0; i < 3; i += 1) {
-            dictionary.add(i, f(i));
+        /**
+         * Appends current data value as output char.
+         */
+        private void appendChar()
+        {
+            if (_outLength == _out.length)
+                _out = Arrays.copyOf(_out, _out.length * 2);
+            _out[_outLength++] = KEY_STR_URI_SAFE[_dataVal];
         }
 
-        bits = 0;
-        maxpower = (int) powerOf2(2);
-        power = 1;
-        while (power != maxpower) {
-            resb = data.val & data.position;
-            data.position >>= 1;
-            if (data.position == 0) {
-                data.position = resetValue;
-                data.val = getNextValue.doFunc(data.index++);
+        /**
+         * Returns the dictionary code for prefix code (or -1 for none) and char (or -1 if not found).
+         */
+        private int getCode(int prefixCode, char c)
+        {
+            long key = ((long) (prefixCode + 1) << 16) | c;
+            for (int index = hashIndex(key); ; index = (index + 1) & _mask) {
+                long slotKey = _keys[index];
+                if (slotKey == key)
+                    return _codes[index];
+                if (slotKey < 0)
+                    return -1;
             }
-            bits |= (resb > 0 ? 1 : 0) * power;
-            power <<= 1;
         }
 
-        switch (next = bits) {
-            case 0:
-                bits = 0;
-                maxpower = (int) powerOf2(8);
-                power=1;
-                while (power != maxpower) {
-                    resb = data.val & data.position;
-                    data.position >>= 1;
-                    if (data.position == 0) {
-                        data.position = resetValue;
-                        data.val = getNextValue.doFunc(data.index++);
-                    }
-                    bits |= (resb>0 ? 1 : 0) * power;
-                    power <<= 1;
-                }
-                c = f(bits);
-                break;
-            case 1:
-                bits = 0;
-                maxpower = powerOf2(16);
-                power=1;
-                while (power!=maxpower) {
-                    resb = data.val & data.position;
-                    data.position >>= 1;
-                    if (data.position == 0) {
-                        data.position = resetValue;
-                        data.val = getNextValue.doFunc(data.index++);
-                    }
-                    bits |= (resb>0 ? 1 : 0) * power;
-                    power <<= 1;
-                }
-                c = f(bits);
-                break;
-            case 2:
-                return "";
+        /**
+         * Adds dictionary code for prefix code (or -1 for none) and char.
+         */
+        private void putCode(int prefixCode, char c, int aCode)
+        {
+            long key = ((long) (prefixCode + 1) << 16) | c;
+            int index = hashIndex(key);
+            while (_keys[index] >= 0)
+                index = (index + 1) & _mask;
+            _keys[index] = key;
+            _codes[index] = aCode;
+        }
+
+        /**
+         * Returns the hash index for key.
+         */
+        private int hashIndex(long aKey)
+        {
+            long hash = aKey * 0x9E3779B97F4A7C15L;
+            return (int) (hash >>> 32) & _mask;
+        }
+    }
+
+    /**
+     * Decompresses a string.
+     */
+    private static class Decompressor {
+
+        // The input string
+        private String _input;
+
+        // The current input char value, bit position and next index
+        private int _dataVal;
+        private int _dataPosition = RESET_VALUE;
+        private int _dataIndex;
+
+        // The dictionary entries: Offset of entry chars in output (or -1 for char entry not output yet), char (for
+        // char entries) and length (codes 0-2 are reserved). Each entry is the previous output entry plus the first
+        // char of the next, so its chars are always already in output, right where the previous entry was written.
+        private int[] _offsets;
+        private char[] _chars;
+        private int[] _lengths;
+        private int _dictSize = 3;
+
+        // The output chars
+        private char[] _out;
+        private int _outLength;
+
+        /**
+         * Constructor.
+         */
+        Decompressor(String anInput)
+        {
+            _input = anInput;
+            int capacity = Math.max(16, anInput.length() * 2);
+            _offsets = new int[capacity];
+            _chars = new char[capacity];
+            _lengths = new int[capacity];
+            _out = new char[Math.max(16, anInput.length() * 3)];
         }
-        dictionary.add(3, c);
-        w = c;
-        result.append(w);
-        while (true) {
-            if (data.index > length) {
+
+        /**
+         * Decompresses input (returns "" for empty stream and null for invalid input).
+         */
+        String decompress()
+        {
+            // Read first value
+            _dataVal = getNextValue();
+
+            // Read first char
+            int enlargeIn = 4;
+            int numBits = 3;
+            int next = readBits(2);
+            if (next == 2)
                 return "";
-            }
+            if (next == 3)
+                return null;
+            char firstChar = (char) readBits(next == 0 ? 8 : 16);
 
-            bits = 0;
-            maxpower = powerOf2(numBits);
-            power=1;
-            while (power!=maxpower) {
-                resb = data.val & data.position;
-                data.position >>= 1;
-                if (data.position == 0) {
-                    data.position = resetValue;
-                    data.val = getNextValue.doFunc(data.index++);
-                }
-                bits |= (resb>0 ? 1 : 0) * power;
-                power <<= 1;
-            }
-            // TODO: very strange here, c above is as char/string, here further is a int, rename "c" in the switch as "cc"
-            int cc;
-            switch (cc = bits) {
-                case 0:
-                    bits = 0;
-                    maxpower = powerOf2(8);
-                    power=1;
-                    while (power!=maxpower) {
-                        resb = data.val & data.position;
-                        data.position >>= 1;
-                        if (data.position == 0) {
-                            data.position = resetValue;
-                            data.val = getNextValue.doFunc(data.index++);
-                        }
-                        bits |= (resb>0 ? 1 : 0) * power;
-                        power <<= 1;
-                    }
-
-                    dictionary.add(dictSize++, f(bits));
-                    cc = dictSize-1;
-                    enlargeIn--;
-                    break;
-                case 1:
-                    bits = 0;
-                    maxpower = powerOf2(16);
-                    power=1;
-                    while (power!=maxpower) {
-                        resb = data.val & data.position;
-                        data.position >>= 1;
-                        if (data.position == 0) {
-                            data.position = resetValue;
-                            data.val = getNextValue.doFunc(data.index++);
-                        }
-                        bits |= (resb>0 ? 1 : 0) * power;
-                        power <<= 1;
-                    }
-                    dictionary.add(dictSize++, f(bits));
-                    cc = dictSize-1;
+            // Add first char entry and write it
+            int wCode = addEntry(-1, 1, firstChar);
+            int wStart = _outLength;
+            appendEntry(wCode);
+
+            while (true) {
+
+                // If past end of input, return empty string
+                if (_dataIndex > _input.length())
+                    return "";
+
+                // Read code: If literal, add char entry
+                int code = readBits(numBits);
+                if (code == 0 || code == 1) {
+                    code = addEntry(-1, 1, (char) readBits(code == 0 ? 8 : 16));
                     enlargeIn--;
-                    break;
-                case 2:
-                    return result.toString();
-            }
+                }
+
+                // Handle end of stream
+                else if (code == 2)
+                    return new String(_out, 0, _outLength);
+
+                // Update numBits
+                if (enlargeIn == 0) {
+                    enlargeIn = 1 << numBits;
+                    numBits++;
+                }
+
+                // Write entry for code (or prefix + prefix first char if code is the next code)
+                int entryStart = _outLength;
+                if (code < _dictSize)
+                    appendEntry(code);
+                else if (code == _dictSize) {
+                    appendEntry(wCode);
+                    appendChar(_out[entryStart]);
+                }
+                else return null;
 
-            if (enlargeIn == 0) {
-                enlargeIn = powerOf2(numBits);
-                numBits++;
+                // Add prefix + entry first char to the dictionary (chars are at prefix start, since entry follows it)
+                addEntry(wStart, _lengths[wCode] + 1, (char) 0);
+                enlargeIn--;
+                wCode = code;
+                wStart = entryStart;
+
+                // Update numBits
+                if (enlargeIn == 0) {
+                    enlargeIn = 1 << numBits;
+                    numBits++;
+                }
             }
+        }
 
-            if (cc < dictionary.size() && dictionary.get(cc) != null) {
-                entry = dictionary.get(cc);
-            } else {
-                if (cc == dictSize) {
-                    entry = w + w.charAt(0);
-                } else {
-                    return null;
+        /**
+         * Reads given number of bits (low bit first).
+         */
+        private int readBits(int aBitCount)
+        {
+            int bits = 0;
+            for (int power = 1, maxPower = 1 << aBitCount; power != maxPower; power <<= 1) {
+                int resb = _dataVal & _dataPosition;
+                _dataPosition >>= 1;
+                if (_dataPosition == 0) {
+                    _dataPosition = RESET_VALUE;
+                    _dataVal = getNextValue();
                 }
+                if (resb > 0)
+                    bits |= power;
             }
-            result.append(entry);
+            return bits;
+        }
 
-            // Add w+entry[0] to the dictionary.
-            dictionary.add(dictSize++, w + entry.charAt(0));
-            enlargeIn--;
+        /**
+         * Returns the next input value.
+         */
+        private int getNextValue()
+        {
+            char c = _input.charAt(_dataIndex++);
+            int value = c < 128 ? KEY_STR_URI_SAFE_VALUES[c] : -1;
+            if (value < 0)
+                throw new IllegalArgumentException("LZString: Invalid char in encoded string: " + c);
+            return value;
+        }
 
-            w = entry;
+        /**
+         * Adds dictionary entry for output offset (or -1 for char entry), length and char and returns code.
+         */
+        private int addEntry(int anOffset, int aLength, char c)
+        {
+            // Make room
+            if (_dictSize == _offsets.length) {
+                int capacity = _dictSize * 2;
+                _offsets = Arrays.copyOf(_offsets, capacity);
+                _chars = Arrays.copyOf(_chars, capacity);
+                _lengths = Arrays.copyOf(_lengths, capacity);
+            }
 
-            if (enlargeIn == 0) {
-                enlargeIn = powerOf2(numBits);
-                numBits++;
+            // Add entry
+            int code = _dictSize++;
+            _offsets[code] = anOffset;
+            _chars[code] = c;
+            _lengths[code] = aLength;
+            return code;
+        }
+
+        /**
+         * Appends chars of given dictionary entry (copied from earlier output, or char for char entry output first time).
+         */
+        private void appendEntry(int aCode)
+        {
+            int length = _lengths[aCode];
+            ensureCapacity(_outLength + length);
+            int offset = _offsets[aCode];
+            if (offset >= 0)
+                System.arraycopy(_out, offset, _out, _outLength, length);
+            else {
+                _out[_outLength] = _chars[aCode];
+                _offsets[aCode] = _outLength;
             }
+            _outLength += length;
+        }
 
+        /**
+         * Appends a char.
+         */
+        private void appendChar(char c)
+        {
+            ensureCapacity(_outLength + 1);
+            _out[_outLength++] = c;
         }
 
+        /**
+         * Makes sure output buffer has given capacity.
+         */
+        private void ensureCapacity(int aCapacity)
+        {
+            if (aCapacity > _out.length)
+                _out = Arrays.copyOf(_out, Math.max(aCapacity, _out.length * 2));
+        }
     }
-
-    private static int powerOf2(int power)  { return 1 << power; }
-}
\ No newline at end of file
+}
@@ -0,0 +1,262 @@
+package snapcode.util;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.*;
+
+/**
+ * This class computes a line-oriented histogram diff of two texts (like Git's histogram diff): Common lines with the
+ * lowest occurrence count anchor the match and the regions around them are diffed recursively. Changed hunks of
+ * moderate size are then refined with a character diff (DiffUtil), so small edits in long lines are highlighted.
+ * Results are cached for text hash pairs.
+ */
+public class LineDiff {
+
+    // The character ranges in old text that were removed (start, end pairs)
+    private List<int[]> _oldRanges = new ArrayList<>();
+
+    // The character ranges in new text that were added (start, end pairs)
+    private List<int[]> _newRanges = new ArrayList<>();
+
+    // The cache of diffs for text hash pairs
+    private static Map<String,LineDiff> _diffCache = new LinkedHashMap<>(16, .75f, true) {
+        protected boolean removeEldestEntry(Map.Entry<String,LineDiff> anEntry)  { return size() > MAX_CACHE_SIZE; }
+    };
+
+    // Constants
+    private static final int MAX_CACHE_SIZE = 32;
+    private static final int MAX_OCCURRENCE_COUNT = 64;
+    private static final int MAX_REFINE_CHARS = 8000;
+
+    /**
+     * Constructor (use getDiff()).
+     */
+    private LineDiff(String oldText, String newText)
+    {
+        // Split texts into lines and map lines to ids
+        List<String> oldLines = getLines(oldText);
+        List<String> newLines = getLines(newText);
+        Map<String,Integer> lineIds = new HashMap<>();
+        int[] oldIds = getLineIds(oldLines, lineIds);
+        int[] newIds = getLineIds(newLines, lineIds);
+
+        // Get matched line regions, then add ranges for edits between them
+        List<int[]> matches = getMatches(oldIds, newIds, lineIds.size());
+        int[] oldLineStarts = getLineStarts(oldLines);
+        int[] newLineStarts = getLineStarts(newLines);
+        int oldLine = 0, newLine = 0;
+        for (int[] match : matches) {
+            if (match[0] > oldLine || match[1] > newLine)
+                addEditRanges(oldText, newText, oldLineStarts[oldLine], oldLineStarts[match[0]], newLineStarts[newLine], newLineStarts[match[1]]);
+            oldLine = match[0] + match[2];
+            newLine = match[1] + match[2];
+        }
+
+        // Add ranges for trailing edit
+        if (oldLine < oldLines.size() || newLine < newLines.size())
+            addEditRanges(oldText, newText, oldLineStarts[oldLine], oldText.length(), newLineStarts[newLine], newText.length());
+    }
+
+    /**
+     * Returns the character ranges in old text that were removed (start, end pairs).
+     */
+    public List<int[]> getOldRanges()  { return _oldRanges; }
+
+    /**
+     * Returns the character ranges in new text that were added (start, end pairs).
+     */
+    public List<int[]> getNewRanges()  { return _newRanges; }
+
+    /**
+     * Adds ranges for edit of given old/new character ranges, refining with character diff if moderate size.
+     */
+    private void addEditRanges(String oldText, String newText, int oldStart, int oldEnd, int newStart, int newEnd)
+    {
+        // If both sides changed and hunk is moderate size, refine with character diff
+        boolean isReplace = oldEnd > oldStart && newEnd > newStart;
+        if (isReplace && oldEnd - oldStart + newEnd - newStart <= MAX_REFINE_CHARS) {
+            DiffUtil diffUtil = new DiffUtil();
+            List<DiffUtil.Diff> diffs = diffUtil.diff_main(oldText.substring(oldStart, oldEnd), newText.substring(newStart, newEnd), false);
+            diffUtil.diff_cleanupSemantic((LinkedList<DiffUtil.Diff>) diffs);
+            int oldIndex = oldStart, newIndex = newStart;
+            for (DiffUtil.Diff diff : diffs) {
+                int length = diff.text.length();
+                switch (diff.operation) {
+                    case DELETE -> { _oldRanges.add(new int[] { oldIndex, oldIndex + length }); oldIndex += length; }
+                    case INSERT -> { _newRanges.add(new int[] { newIndex, newIndex + length }); newIndex += length; }
+                    default -> { oldIndex += length; newIndex += length; }
+                }
+            }
+            return;
+        }
+
+        // Otherwise add whole line ranges
+        if (oldEnd > oldStart)
+            _oldRanges.add(new int[] { oldStart, oldEnd });
+        if (newEnd > newStart)
+            _newRanges.add(new int[] { newStart, newEnd });
+    }
+
+    /**
+     * Returns the matched line regions (oldStart, newStart, length) for given line ids, sorted by position.
+     */
+    private static List<int[]> getMatches(int[] oldIds, int[] newIds, int idCount)
+    {
+        // Use explicit stack of regions (oldStart, oldEnd, newStart, newEnd) to avoid deep recursion
+        List<int[]> matches = new ArrayList<>();
+        Deque<int[]> regions = new ArrayDeque<>();
+        regions.push(new int[] { 0, oldIds.length, 0, newIds.length });
+        int[] counts = new int[idCount];
+
+        while (!regions.isEmpty()) {
+            int[] region = regions.pop();
+            int oldStart = region[0], oldEnd = region[1], newStart = region[2], newEnd = region[3];
+
+            // Trim common prefix and suffix
+            int prefix = 0;
+            while (oldStart + prefix < oldEnd && newStart + prefix < newEnd && oldIds[oldStart + prefix] == newIds[newStart + prefix])
+                prefix++;
+            if (prefix > 0)
+                matches.add(new int[] { oldStart, newStart, prefix });
+            oldStart += prefix;
+            newStart += prefix;
+            int suffix = 0;
+            while (oldEnd - suffix > oldStart && newEnd - suffix > newStart && oldIds[oldEnd - suffix - 1] == newIds[newEnd - suffix - 1])
+                suffix++;
+            if (suffix > 0)
+                matches.add(new int[] { oldEnd - suffix, newEnd - suffix, suffix });
+            oldEnd -= suffix;
+            newEnd -= suffix;
+            if (oldStart >= oldEnd || newStart >= newEnd)
+                continue;
+
+            // Find best anchor match (lowest occurrence count, then longest)
+            int[] anchor = getAnchorMatch(oldIds, newIds, oldStart, oldEnd, newStart, newEnd, counts);
+            if (anchor == null)
+                continue;
+
+            // Add anchor and diff regions before and after
+            matches.add(anchor);
+            regions.push(new int[] { oldStart, anchor[0], newStart, anchor[1] });
+            regions.push(new int[] { anchor[0] + anchor[2], oldEnd, anchor[1] + anchor[2], newEnd });
+        }
+
+        // Sort and return
+        matches.sort(Comparator.comparingInt(match -> match[0]));
+        return matches;
+    }
+
+    /**
+     * Returns the anchor match (oldStart, newStart, length) for region using histogram of old lines, or null if none.
+     */
+    private static int[] getAnchorMatch(int[] oldIds, int[] newIds, int oldStart, int oldEnd, int newStart, int newEnd, int[] counts)
+    {
+        // Build histogram of old lines (counts and last index for each line id)
+        Map<Integer,List<Integer>> oldIndexes = new HashMap<>();
+        for (int i = oldStart; i < oldEnd; i++) {
+            counts[oldIds[i]]++;
+            oldIndexes.computeIfAbsent(oldIds[i], id -> new ArrayList<>()).add(i);
+        }
+
+        // Iterate over new lines and find lowest count, longest match
+        int[] bestMatch = null;
+        int bestCount = MAX_OCCURRENCE_COUNT + 1;
+        for (int newIndex = newStart; newIndex < newEnd; newIndex++) {
+            int count = counts[newIds[newIndex]];
+            if (count == 0 || count > bestCount)
+                continue;
+
+            // Iterate over old occurrences and extend match in both directions
+            for (int oldIndex : oldIndexes.get(newIds[newIndex])) {
+                int matchOld = oldIndex, matchNew = newIndex, matchEnd = oldIndex + 1;
+                while (matchOld > oldStart && matchNew > newStart && oldIds[matchOld - 1] == newIds[matchNew - 1]) {
+                    matchOld--;
+                    matchNew--;
+                }
+                while (matchEnd < oldEnd && matchNew + matchEnd - matchOld < newEnd && oldIds[matchEnd] == newIds[matchNew + matchEnd - matchOld])
+                    matchEnd++;
+                int length = matchEnd - matchOld;
+                if (bestMatch == null || count < bestCount || length > bestMatch[2]) {
+                    bestMatch = new int[] { matchOld, matchNew, length };
+                    bestCount = count;
+                }
+            }
+        }
+
+        // Clear counts and return
+        for (int i = oldStart; i < oldEnd; i++)
+            counts[oldIds[i]] = 0;
+        return bestMatch;
+    }
+
+    /**
+     * Returns the lines of given text (including line terminators).
+     */
+    private static List<String> getLines(String aText)
+    {
+        List<String> lines = new ArrayList<>();
+        int start = 0;
+        for (int i = 0, iMax = aText.length(); i < iMax; i++) {
+            if (aText.charAt(i) == '\n') {
+                lines.add(aText.substring(start, i + 1));
+                start = i + 1;
+            }
+        }
+        if (start < aText.length())
+            lines.add(aText.substring(start));
+        return lines;
+    }
+
+    /**
+     * Returns the line ids for given lines, adding new lines to given map.
+     */
+    private static int[] getLineIds(List<String> theLines, Map<String,Integer> lineIds)
+    {
+        int[] ids = new int[theLines.size()];
+        for (int i = 0; i < ids.length; i++)
+            ids[i] = lineIds.computeIfAbsent(theLines.get(i), line -> lineIds.size());
+        return ids;
+    }
+
+    /**
+     * Returns the character start index for each line (plus text length at end).
+     */
+    private static int[] getLineStarts(List<String> theLines)
+    {
+        int[] lineStarts = new int[theLines.size() + 1];
+        for (int i = 0; i < theLines.size(); i++)
+            lineStarts[i + 1] = lineStarts[i] + theLines.get(i).length();
+        return lineStarts;
+    }
+
+    /**
+     * Returns the diff for given old and new text (cached for text hash pair).
+     */
+    public static LineDiff getDiff(String oldText, String newText)
+    {
+        // Get cached diff for text hashes
+        String cacheKey = getHashForText(oldText) + ':' + getHashForText(newText);
+        synchronized (_diffCache) {
+            LineDiff lineDiff = _diffCache.get(cacheKey);
+            if (lineDiff != null)
+                return lineDiff;
+        }
+
+        // Create diff and add to cache
+        LineDiff lineDiff = new LineDiff(oldText, newText);
+        synchronized (_diffCache) { _diffCache.put(cacheKey, lineDiff); }
+        return lineDiff;
+    }
+
+    /**
+     * Returns a hash string for given text.
+     */
+    private static String getHashForText(String aText)
+    {
+        try {
+            MessageDigest messageDigest = MessageDigest.getInstance("SHA-1");
+            byte[] digest = messageDigest.digest(aText.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        }
+        catch (Exception e) { throw new RuntimeException(e); }
+    }
+}